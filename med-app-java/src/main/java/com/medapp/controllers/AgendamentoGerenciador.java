@@ -4,34 +4,80 @@ import com.medapp.models.Agendamento;
 import com.medapp.models.Agendamento.StatusAgendamento;
 import com.medapp.models.User;
 import com.medapp.models.Sala;
+import com.medapp.models.SolicitacaoAgendamento;
+import com.medapp.infra.ConsultaAgendamentos;
+import com.medapp.infra.IndiceCalendario;
+import com.medapp.infra.IndiceOcupacao;
 import com.medapp.infra.Repository;
 import com.medapp.utils.repository.RepositoryException;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
 public class AgendamentoGerenciador {
     private static volatile AgendamentoGerenciador instance;
     private final Repository repository;
-    private final List<Agendamento> agendamentos;
+    // Por ID, na ordem de inserção (usada nas listagens)
+    private final Map<String, Agendamento> agendamentos;
+    private final IndiceOcupacao indiceOcupacao;
+    // Agenda por dia de cada sala/profissional; mantida apenas no modo COMPLETO
+    private final IndiceCalendario indiceCalendario;
+    private final ModoCarregamento modo;
+    private final int limiteResidentes;
+    // Recursos cuja agenda já foi trazida do repositório para o índice (modo SOB_DEMANDA)
+    private final Map<String, Boolean> salasHidratadas = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> profissionaisHidratados = new ConcurrentHashMap<>();
+    // Contagem por status mantida a cada criação e transição. No modo SOB_DEMANDA só é
+    // carregada do repositório na primeira consulta; as gravações que a alteram seguram o
+    // bloqueio de leitura e a carga o de escrita, para que nenhuma seja contada duas vezes.
+    private final Contagem<StatusAgendamento> contagemPorStatus =
+            new Contagem<>(new EnumMap<>(StatusAgendamento.class));
+    private final ReadWriteLock bloqueioContagem = new ReentrantReadWriteLock();
+    private volatile boolean contagemCarregada;
     private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
 
-    private AgendamentoGerenciador(Repository repository) {
+    private AgendamentoGerenciador(Repository repository, ModoCarregamento modo) {
         this.repository = repository;
-        this.agendamentos = new ArrayList<>();
-        inicializarAgendamentos();
+        this.modo = modo;
+        this.limiteResidentes = ModoCarregamento.limiteResidentes();
+        // Mapa sincronizado: o gerenciador pode ser usado por várias threads (ex.: modo servidor).
+        // No modo SOB_DEMANDA ele guarda apenas o conjunto de trabalho.
+        this.agendamentos = Collections.synchronizedMap(new LinkedHashMap<>());
+        this.indiceOcupacao = new IndiceOcupacao();
+        this.indiceCalendario = new IndiceCalendario();
+        if (modo == ModoCarregamento.COMPLETO) {
+            inicializarAgendamentos();
+        }
     }
 
     /**
-     * Implementação thread-safe do Singleton
+     * Implementação thread-safe do Singleton, no modo de carregamento configurado
      */
     public static AgendamentoGerenciador getInstance(Repository repository) {
+        return getInstance(repository, ModoCarregamento.configurado());
+    }
+
+    /**
+     * Implementação thread-safe do Singleton. O modo só é usado na criação da instância.
+     */
+    public static AgendamentoGerenciador getInstance(Repository repository, ModoCarregamento modo) {
         if (repository == null) {
             throw new IllegalArgumentException("Repository não pode ser nulo");
         }
@@ -39,7 +85,7 @@ public class AgendamentoGerenciador {
         if (instance == null) {
             synchronized (AgendamentoGerenciador.class) {
                 if (instance == null) {
-                    instance = new AgendamentoGerenciador(repository);
+                    instance = new AgendamentoGerenciador(repository, modo);
                 }
             }
         }
@@ -54,37 +100,73 @@ public class AgendamentoGerenciador {
         try {
             List<Agendamento> agendamentosRepositorio = repository.getAllAgendamentos();
             agendamentos.clear();
-            agendamentos.addAll(agendamentosRepositorio);
+            agendamentosRepositorio.forEach(agendamento -> agendamentos.put(agendamento.getId(), agendamento));
+            indiceOcupacao.limpar();
+            indiceCalendario.limpar();
+            agendamentosRepositorio.forEach(agendamento -> {
+                indiceOcupacao.indexar(agendamento);
+                indiceCalendario.indexar(agendamento);
+            });
+            contagemPorStatus.recontar(agendamentosRepositorio.stream()
+                    .map(Agendamento::getStatus)
+                    .collect(Collectors.toList()));
+            contagemCarregada = true;
         } catch (Exception e) {
             // Log do erro e inicialização com lista vazia
             agendamentos.clear();
+            indiceOcupacao.limpar();
+            indiceCalendario.limpar();
         }
     }
 
     
     public String criarAgendamento(String pacienteUsername, String profissionalUsername, 
                                  String salaId, LocalDateTime dataHora, String tipoConsulta, String observacoes) {
+        return criarAgendamento(pacienteUsername, profissionalUsername, salaId, dataHora, tipoConsulta,
+                observacoes, null);
+    }
+
+    /**
+     * Cria um agendamento que ocupa [dataHora, dataHora + duracao)
+     * @param duracao Duração do atendimento, ou null para usar o padrão do tipo de consulta
+     */
+    public String criarAgendamento(String pacienteUsername, String profissionalUsername, 
+                                 String salaId, LocalDateTime dataHora, String tipoConsulta, String observacoes,
+                                 Duration duracao) {
         try {
             // Validações básicas
             validarParametrosAgendamento(pacienteUsername, profissionalUsername, salaId, dataHora, tipoConsulta);
             
-            // Verificar conflitos
-            if (temConflitoHorario(salaId, dataHora)) {
+            // Criar agendamento
+            String id = gerarId();
+            Agendamento agendamento = new Agendamento(id, pacienteUsername, profissionalUsername, 
+                                                    salaId, dataHora, tipoConsulta, observacoes, duracao);
+
+            // Verificar conflitos e reservar o horário de forma atômica
+            hidratarOcupacao(salaId, profissionalUsername);
+            IndiceOcupacao.Conflito conflito = indiceOcupacao.reservar(agendamento);
+            if (conflito == IndiceOcupacao.Conflito.SALA) {
                 return formatarErro("Já existe agendamento para esta sala no horário solicitado");
             }
             
-            if (temConflitoMedico(profissionalUsername, dataHora)) {
+            if (conflito == IndiceOcupacao.Conflito.PROFISSIONAL) {
                 return formatarErro("Profissional já possui agendamento neste horário");
             }
-
-            // Criar agendamento
-            String id = gerarId();
-            Agendamento agendamento = new Agendamento(id, pacienteUsername, profissionalUsername, 
-                                                    salaId, dataHora, tipoConsulta, observacoes);
             
-            // Persistir
-            agendamentos.add(agendamento);
-            repository.saveAgendamento(agendamento);
+            // Persistir: o repositório confere a ocupação de novo (de forma atômica nos repositórios
+            // concorrentes), o que cobre agendamentos gravados por quem não passa por este índice
+            boolean salvo;
+            try {
+                salvo = salvarNovoSemConflito(agendamento);
+            } catch (RuntimeException e) {
+                indiceOcupacao.remover(agendamento);
+                throw e;
+            }
+            if (!salvo) {
+                indiceOcupacao.remover(agendamento);
+                return formatarErro("Horário solicitado já está ocupado para esta sala ou profissional");
+            }
+            adicionarResidente(agendamento);
             
             return formatarSucesso("Agendamento criado", agendamento.getId(), dataHora);
             
@@ -94,57 +176,230 @@ public class AgendamentoGerenciador {
     }
 
     /**
-     * Busca agendamento por ID
+     * Cria um lote de agendamentos com semântica tudo ou nada: o lote inteiro é verificado
+     * contra o índice de ocupação (inclusive conflitos entre itens do próprio lote) e
+     * gravado com uma única escrita em lote no repositório. Se qualquer item for inválido
+     * ou conflitar, ou se a gravação falhar, nenhum agendamento é criado.
+     * @param solicitacoes Agendamentos pedidos, na ordem em que devem ser reservados
+     */
+    public String criarAgendamentos(List<SolicitacaoAgendamento> solicitacoes) {
+        if (solicitacoes == null || solicitacoes.isEmpty()) {
+            return formatarErro("Lote de agendamentos vazio");
+        }
+        List<Agendamento> lote = new ArrayList<>(solicitacoes.size());
+        for (int i = 0; i < solicitacoes.size(); i++) {
+            SolicitacaoAgendamento solicitacao = solicitacoes.get(i);
+            try {
+                validarParametrosAgendamento(solicitacao.getPacienteUsername(), solicitacao.getProfissionalUsername(),
+                        solicitacao.getSalaId(), solicitacao.getDataHora(), solicitacao.getTipoConsulta());
+                lote.add(new Agendamento(gerarId(), solicitacao.getPacienteUsername(),
+                        solicitacao.getProfissionalUsername(), solicitacao.getSalaId(), solicitacao.getDataHora(),
+                        solicitacao.getTipoConsulta(), solicitacao.getObservacoes(), solicitacao.getDuracao()));
+            } catch (Exception e) {
+                return formatarErroOperacao("criar lote de agendamentos (item " + (i + 1) + ")", e);
+            }
+        }
+
+        try {
+            for (Agendamento agendamento : lote) {
+                hidratarOcupacao(agendamento.getSalaId(), agendamento.getProfissionalUsername());
+            }
+            Optional<IndiceOcupacao.ConflitoLote> conflito = indiceOcupacao.reservarTodos(lote);
+            if (conflito.isPresent()) {
+                return formatarConflitoLote(conflito.get());
+            }
+
+            try {
+                conflito = salvarLoteSemConflito(lote);
+            } catch (RuntimeException e) {
+                lote.forEach(indiceOcupacao::remover);
+                throw e;
+            }
+            if (conflito.isPresent()) {
+                lote.forEach(indiceOcupacao::remover);
+                return formatarConflitoLote(conflito.get());
+            }
+            lote.forEach(this::adicionarResidente);
+
+            return String.format("Lote de %d agendamentos criado com sucesso. IDs: %s", lote.size(),
+                    lote.stream().map(Agendamento::getId).collect(Collectors.joining(", ")));
+        } catch (Exception e) {
+            return formatarErroOperacao("criar lote de agendamentos", e);
+        }
+    }
+
+    /**
+     * Busca agendamento por ID. No modo SOB_DEMANDA, se ele não estiver em memória
+     * é carregado do repositório e passa a fazer parte do conjunto de trabalho.
      */
     public Optional<Agendamento> buscarAgendamento(String id) {
         try {
-            return agendamentos.stream()
-                    .filter(agendamento -> agendamento.getId().equals(id))
-                    .findFirst();
+            Optional<Agendamento> residente = buscarResidente(id);
+            if (residente.isPresent() || modo == ModoCarregamento.COMPLETO) {
+                return residente;
+            }
+
+            Agendamento carregado = repository.loadAgendamento(id);
+            if (carregado == null) {
+                return Optional.empty();
+            }
+            synchronized (agendamentos) {
+                // Outra thread pode ter carregado o mesmo agendamento nesse meio tempo
+                residente = buscarResidente(id);
+                if (residente.isPresent()) {
+                    return residente;
+                }
+                ConjuntoTrabalho.adicionar(agendamentos, id, carregado, limiteResidentes);
+            }
+            return Optional.of(carregado);
         } catch (Exception e) {
             return Optional.empty();
         }
     }
 
+    /**
+     * Página de agendamentos na ordem do repositório, sem carregar os demais
+     * @param pagina Número da página (a partir de 0)
+     * @param tamanho Quantidade de agendamentos por página
+     */
+    public List<Agendamento> listarAgendamentos(int pagina, int tamanho) {
+        if (pagina < 0 || tamanho <= 0) {
+            throw new IllegalArgumentException("Página deve ser >= 0 e tamanho > 0");
+        }
+        List<Agendamento> doRepositorio = repository.getAgendamentos(pagina * tamanho, tamanho);
+        synchronized (agendamentos) {
+            return ConjuntoTrabalho.resolver(agendamentos, doRepositorio, Agendamento::getId);
+        }
+    }
+
     /**
      * Lista agendamentos por paciente
      */
     public List<Agendamento> listarAgendamentosPorPaciente(String pacienteUsername) {
-        return agendamentos.stream()
-                .filter(agendamento -> agendamento.getPacienteUsername().equals(pacienteUsername))
-                .collect(Collectors.toList());
+        if (modo == ModoCarregamento.SOB_DEMANDA) {
+            return consultarRepositorio(ConsultaAgendamentos.todos().doPaciente(pacienteUsername));
+        }
+        synchronized (agendamentos) {
+            return agendamentos.values().stream()
+                    .filter(agendamento -> agendamento.getPacienteUsername().equals(pacienteUsername))
+                    .collect(Collectors.toList());
+        }
     }
 
     /**
      * Lista agendamentos por profissional
      */
     public List<Agendamento> listarAgendamentosPorProfissional(String profissionalUsername) {
-        return agendamentos.stream()
-                .filter(agendamento -> agendamento.getProfissionalUsername().equals(profissionalUsername))
-                .collect(Collectors.toList());
+        if (modo == ModoCarregamento.SOB_DEMANDA) {
+            return consultarRepositorio(ConsultaAgendamentos.todos().doProfissional(profissionalUsername));
+        }
+        synchronized (agendamentos) {
+            return agendamentos.values().stream()
+                    .filter(agendamento -> agendamento.getProfissionalUsername().equals(profissionalUsername))
+                    .collect(Collectors.toList());
+        }
     }
 
     /**
      * Lista agendamentos ativos (AGENDADO ou CONFIRMADO)
      */
     public List<Agendamento> listarAgendamentosAtivos() {
-        return agendamentos.stream()
-                .filter(Agendamento::isAtivo)
-                .collect(Collectors.toList());
+        if (modo == ModoCarregamento.SOB_DEMANDA) {
+            return consultarRepositorio(ConsultaAgendamentos.todos().apenasAtivos());
+        }
+        synchronized (agendamentos) {
+            return agendamentos.values().stream()
+                    .filter(Agendamento::isAtivo)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Agendamentos que atendem à consulta (filtros, ordenação e limite). No modo
+     * SOB_DEMANDA a consulta é repassada ao repositório, que lê só o necessário.
+     */
+    public List<Agendamento> consultarAgendamentos(ConsultaAgendamentos consulta) {
+        if (consulta == null) {
+            throw new IllegalArgumentException("Consulta não pode ser nula");
+        }
+        if (modo == ModoCarregamento.SOB_DEMANDA) {
+            return consultarRepositorio(consulta);
+        }
+        synchronized (agendamentos) {
+            return consulta.aplicar(agendamentos.values().stream()).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Próximos horários em que a sala e o profissional estão livres ao mesmo tempo pela
+     * duração pedida, dentro de [inicio, fim). Calculado em uma passada pelo índice de
+     * ocupação; horários no passado são ignorados.
+     * @param quantidade Número máximo de horários
+     * @return Horários de início livres, em ordem crescente
+     */
+    public List<LocalDateTime> buscarHorariosLivres(String salaId, String profissionalUsername, Duration duracao,
+                                                    LocalDateTime inicio, LocalDateTime fim, int quantidade) {
+        if (salaId == null || salaId.trim().isEmpty()) {
+            throw new IllegalArgumentException("ID da sala é obrigatório");
+        }
+        if (profissionalUsername == null || profissionalUsername.trim().isEmpty()) {
+            throw new IllegalArgumentException("Username do profissional é obrigatório");
+        }
+        if (duracao == null || duracao.isNegative() || duracao.isZero()) {
+            throw new IllegalArgumentException("Duração deve ser positiva");
+        }
+        if (inicio == null || fim == null || !fim.isAfter(inicio)) {
+            throw new IllegalArgumentException("Fim da janela deve ser posterior ao início");
+        }
+        if (quantidade <= 0) {
+            throw new IllegalArgumentException("Quantidade deve ser positiva");
+        }
+
+        // Só horários futuros podem ser agendados; arredonda para o próximo minuto
+        LocalDateTime agora = LocalDateTime.now().withSecond(0).withNano(0).plusMinutes(1);
+        LocalDateTime inicioEfetivo = inicio.isBefore(agora) ? agora : inicio;
+        if (!inicioEfetivo.isBefore(fim)) {
+            return new ArrayList<>();
+        }
+
+        hidratarOcupacao(salaId, profissionalUsername);
+        return indiceOcupacao.horariosLivres(salaId, profissionalUsername, duracao, inicioEfetivo, fim, quantidade);
+    }
+
+    /**
+     * Agenda da sala entre dois dias (inclusive), em ordem de horário
+     */
+    public List<Agendamento> listarAgendaSala(String salaId, LocalDate primeiroDia, LocalDate ultimoDia) {
+        if (modo == ModoCarregamento.SOB_DEMANDA) {
+            return consultarRepositorio(consultaPeriodo(primeiroDia, ultimoDia).daSala(salaId));
+        }
+        return indiceCalendario.agendaSala(salaId, primeiroDia, ultimoDia);
+    }
+
+    /**
+     * Agenda do profissional entre dois dias (inclusive), em ordem de horário
+     */
+    public List<Agendamento> listarAgendaProfissional(String profissionalUsername, LocalDate primeiroDia,
+                                                      LocalDate ultimoDia) {
+        if (modo == ModoCarregamento.SOB_DEMANDA) {
+            return consultarRepositorio(consultaPeriodo(primeiroDia, ultimoDia).doProfissional(profissionalUsername));
+        }
+        return indiceCalendario.agendaProfissional(profissionalUsername, primeiroDia, ultimoDia);
     }
 
     /**
      * Lista agendamentos formatado para exibição
      */
     public String listarAgendamentosFormatado() {
-        if (agendamentos.isEmpty()) {
+        List<Agendamento> lista = todosAgendamentos();
+        if (lista.isEmpty()) {
             return "Nenhum agendamento encontrado.";
         }
 
         StringBuilder sb = new StringBuilder();
         sb.append("=== AGENDAMENTOS ===\n\n");
         
-        agendamentos.forEach(agendamento -> {
+        lista.forEach(agendamento -> {
             sb.append(formatarAgendamento(agendamento));
             sb.append("\n");
         });
@@ -163,8 +418,13 @@ public class AgendamentoGerenciador {
             }
 
             Agendamento agendamento = agendamentoOpt.get();
-            agendamento.confirmar();
-            repository.saveAgendamento(agendamento);
+            StatusAgendamento anterior;
+            synchronized (agendamento) {
+                anterior = agendamento.getStatus();
+                agendamento.confirmar();
+            }
+            indiceOcupacao.atualizar(agendamento);
+            salvarContando(agendamento, anterior);
             
             return formatarSucesso("Agendamento confirmado", id, agendamento.getDataHora());
             
@@ -186,8 +446,13 @@ public class AgendamentoGerenciador {
             }
 
             Agendamento agendamento = agendamentoOpt.get();
-            agendamento.cancelar();
-            repository.saveAgendamento(agendamento);
+            StatusAgendamento anterior;
+            synchronized (agendamento) {
+                anterior = agendamento.getStatus();
+                agendamento.cancelar();
+            }
+            indiceOcupacao.atualizar(agendamento);
+            salvarContando(agendamento, anterior);
             
             return formatarSucesso("Agendamento cancelado", id, agendamento.getDataHora());
             
@@ -209,8 +474,13 @@ public class AgendamentoGerenciador {
             }
 
             Agendamento agendamento = agendamentoOpt.get();
-            agendamento.finalizar();
-            repository.saveAgendamento(agendamento);
+            StatusAgendamento anterior;
+            synchronized (agendamento) {
+                anterior = agendamento.getStatus();
+                agendamento.finalizar();
+            }
+            indiceOcupacao.atualizar(agendamento);
+            salvarContando(agendamento, anterior);
             
             return formatarSucesso("Agendamento finalizado", id, agendamento.getDataHora());
             
@@ -221,8 +491,183 @@ public class AgendamentoGerenciador {
         }
     }
 
+    /**
+     * Quantidade de agendamentos por status (apenas status com ao menos um agendamento)
+     */
+    public Map<StatusAgendamento, Long> getContagemPorStatus() {
+        carregarContagem();
+        return contagemPorStatus.copia();
+    }
+
+    public long getTotalAgendamentos() {
+        carregarContagem();
+        return contagemPorStatus.total();
+    }
+
     // Métodos privados - Keep It Simple
 
+    // Grava um agendamento novo já reservado no índice, contando-o se gravado. Um repositório
+    // compartilhado ainda pode ter recebido o horário por fora e é consultado de novo.
+    private boolean salvarNovoSemConflito(Agendamento agendamento) {
+        Lock leitura = bloqueioContagem.readLock();
+        leitura.lock();
+        try {
+            if (repository.isCompartilhado()) {
+                if (!repository.saveAgendamentoIfNoConflict(agendamento)) {
+                    return false;
+                }
+            } else {
+                repository.saveAgendamento(agendamento);
+            }
+            if (contagemCarregada) {
+                contagemPorStatus.adicionar(agendamento.getStatus());
+            }
+            return true;
+        } finally {
+            leitura.unlock();
+        }
+    }
+
+    // Grava um lote já reservado no índice, como salvarNovoSemConflito: o repositório
+    // compartilhado verifica o lote inteiro de novo e, havendo conflito, nada é gravado
+    private Optional<IndiceOcupacao.ConflitoLote> salvarLoteSemConflito(List<Agendamento> lote) {
+        Lock leitura = bloqueioContagem.readLock();
+        leitura.lock();
+        try {
+            if (repository.isCompartilhado()) {
+                Optional<IndiceOcupacao.ConflitoLote> conflito = repository.saveAgendamentosIfNoConflict(lote);
+                if (conflito.isPresent()) {
+                    return conflito;
+                }
+            } else {
+                repository.saveAgendamentos(lote);
+            }
+            if (contagemCarregada) {
+                lote.forEach(agendamento -> contagemPorStatus.adicionar(agendamento.getStatus()));
+            }
+            return Optional.empty();
+        } finally {
+            leitura.unlock();
+        }
+    }
+
+    /**
+     * Grava o agendamento e atualiza a contagem por status
+     * @param anterior Status antes da alteração, ou null para um agendamento novo
+     */
+    private void salvarContando(Agendamento agendamento, StatusAgendamento anterior) {
+        Lock leitura = bloqueioContagem.readLock();
+        leitura.lock();
+        try {
+            repository.saveAgendamento(agendamento);
+            if (!contagemCarregada) {
+                return;
+            }
+            if (anterior == null) {
+                contagemPorStatus.adicionar(agendamento.getStatus());
+            } else {
+                contagemPorStatus.mover(anterior, agendamento.getStatus());
+            }
+        } finally {
+            leitura.unlock();
+        }
+    }
+
+    private void carregarContagem() {
+        if (contagemCarregada) {
+            return;
+        }
+        Lock escrita = bloqueioContagem.writeLock();
+        escrita.lock();
+        try {
+            if (!contagemCarregada) {
+                List<StatusAgendamento> status;
+                try (Stream<Agendamento> stream = repository.streamAgendamentos(ConsultaAgendamentos.todos())) {
+                    status = stream.map(Agendamento::getStatus).collect(Collectors.toList());
+                }
+                contagemPorStatus.recontar(status);
+                contagemCarregada = true;
+            }
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    private Optional<Agendamento> buscarResidente(String id) {
+        return Optional.ofNullable(agendamentos.get(id));
+    }
+
+    private ConsultaAgendamentos consultaPeriodo(LocalDate primeiroDia, LocalDate ultimoDia) {
+        if (primeiroDia == null || ultimoDia == null) {
+            throw new IllegalArgumentException("Período da agenda é obrigatório");
+        }
+        if (ultimoDia.isBefore(primeiroDia)) {
+            throw new IllegalArgumentException("Último dia deve ser igual ou posterior ao primeiro");
+        }
+        return ConsultaAgendamentos.todos()
+                .entre(primeiroDia.atStartOfDay(), ultimoDia.plusDays(1).atStartOfDay())
+                .ordenadaPorDataHora();
+    }
+
+    private void adicionarResidente(Agendamento agendamento) {
+        if (modo == ModoCarregamento.COMPLETO) {
+            agendamentos.put(agendamento.getId(), agendamento);
+            indiceCalendario.indexar(agendamento);
+            return;
+        }
+        synchronized (agendamentos) {
+            ConjuntoTrabalho.adicionar(agendamentos, agendamento.getId(), agendamento, limiteResidentes);
+        }
+    }
+
+    /**
+     * Todos os agendamentos: a lista em memória no modo COMPLETO, o repositório no SOB_DEMANDA
+     */
+    private List<Agendamento> todosAgendamentos() {
+        if (modo == ModoCarregamento.SOB_DEMANDA) {
+            return consultarRepositorio(ConsultaAgendamentos.todos());
+        }
+        synchronized (agendamentos) {
+            return new ArrayList<>(agendamentos.values());
+        }
+    }
+
+    private List<Agendamento> consultarRepositorio(ConsultaAgendamentos consulta) {
+        List<Agendamento> doRepositorio;
+        try (Stream<Agendamento> stream = repository.streamAgendamentos(consulta)) {
+            doRepositorio = stream.collect(Collectors.toList());
+        }
+        synchronized (agendamentos) {
+            return ConjuntoTrabalho.resolver(agendamentos, doRepositorio, Agendamento::getId);
+        }
+    }
+
+    /**
+     * No modo SOB_DEMANDA o índice de ocupação começa vazio; antes de verificar conflitos
+     * traz do repositório os agendamentos da sala e do profissional, uma única vez por recurso.
+     */
+    private void hidratarOcupacao(String salaId, String profissionalUsername) {
+        if (modo == ModoCarregamento.COMPLETO) {
+            return;
+        }
+        // Só os ativos ocupam horário, então só eles precisam vir do repositório
+        hidratar(salasHidratadas, salaId, ConsultaAgendamentos.todos().daSala(salaId).apenasAtivos());
+        hidratar(profissionaisHidratados, profissionalUsername,
+                ConsultaAgendamentos.todos().doProfissional(profissionalUsername).apenasAtivos());
+    }
+
+    private void hidratar(Map<String, Boolean> hidratados, String chave, ConsultaAgendamentos consulta) {
+        if (hidratados.containsKey(chave)) {
+            return;
+        }
+        // computeIfAbsent bloqueia outras threads para a mesma chave até a agenda estar indexada;
+        // se a consulta falhar, a chave não é marcada e a próxima reserva tenta de novo
+        hidratados.computeIfAbsent(chave, c -> {
+            consultarRepositorio(consulta).forEach(indiceOcupacao::indexar);
+            return Boolean.TRUE;
+        });
+    }
+
     private void validarParametrosAgendamento(String pacienteUsername, String profissionalUsername, 
                                             String salaId, LocalDateTime dataHora, String tipoConsulta) {
         if (pacienteUsername == null || pacienteUsername.trim().isEmpty()) {
@@ -245,35 +690,18 @@ public class AgendamentoGerenciador {
         }
     }
 
-    private boolean temConflitoHorario(String salaId, LocalDateTime dataHora) {
-        return agendamentos.stream()
-                .filter(Agendamento::isAtivo)
-                .anyMatch(agendamento -> 
-                    agendamento.getSalaId().equals(salaId) && 
-                    agendamento.getDataHora().equals(dataHora)
-                );
-    }
-
-    private boolean temConflitoMedico(String profissionalUsername, LocalDateTime dataHora) {
-        return agendamentos.stream()
-                .filter(Agendamento::isAtivo)
-                .anyMatch(agendamento -> 
-                    agendamento.getProfissionalUsername().equals(profissionalUsername) && 
-                    agendamento.getDataHora().equals(dataHora)
-                );
-    }
-
     private String gerarId() {
         return "AGD-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
     }
 
     private String formatarAgendamento(Agendamento agendamento) {
-        return String.format("ID: %s | Paciente: %s | Médico: %s | Sala: %s | Data: %s | Tipo: %s | Status: %s",
+        return String.format("ID: %s | Paciente: %s | Médico: %s | Sala: %s | Data: %s | Duração: %d min | Tipo: %s | Status: %s",
                 agendamento.getId(),
                 agendamento.getPacienteUsername(),
                 agendamento.getProfissionalUsername(),
                 agendamento.getSalaId(),
                 agendamento.getDataHora().format(formatter),
+                agendamento.getDuracaoEfetiva().toMinutes(),
                 agendamento.getTipoConsulta(),
                 agendamento.getStatus());
     }
@@ -287,6 +715,13 @@ public class AgendamentoGerenciador {
         return "Erro: " + mensagem;
     }
 
+    private String formatarConflitoLote(IndiceOcupacao.ConflitoLote conflito) {
+        int item = conflito.getPosicao() + 1;
+        return formatarErro(conflito.getConflito() == IndiceOcupacao.Conflito.SALA
+                ? "Item " + item + " do lote: já existe agendamento para esta sala no horário solicitado"
+                : "Item " + item + " do lote: profissional já possui agendamento neste horário");
+    }
+
     private String formatarErroOperacao(String operacao, Exception e) {
         return String.format("Erro ao %s: %s", operacao, e.getMessage());
     }
@@ -0,0 +1,73 @@
+package com.medapp.controllers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Utilitários para as listas de entidades residentes dos gerenciadores no modo
+ * ModoCarregamento.SOB_DEMANDA, em que a lista guarda apenas o conjunto de trabalho.
+ */
+final class ConjuntoTrabalho {
+
+    private ConjuntoTrabalho() {
+    }
+
+    /**
+     * Adiciona a entidade e descarta as mais antigas acima do limite.
+     * Quem chama deve manter o bloqueio da lista, se ela for compartilhada.
+     */
+    static <T> void adicionar(List<T> residentes, T entidade, int limite) {
+        residentes.add(entidade);
+        int excesso = residentes.size() - limite;
+        if (excesso > 0) {
+            residentes.subList(0, excesso).clear();
+        }
+    }
+
+    /**
+     * Versão indexada por ID: o mapa deve manter a ordem de inserção (LinkedHashMap), de modo
+     * que as primeiras entradas são as mais antigas e o descarte custa O(1) por entidade.
+     * Uma entidade já residente vai para o fim da ordem.
+     * Quem chama deve manter o bloqueio do mapa, se ele for compartilhado.
+     */
+    static <T> void adicionar(Map<String, T> residentes, String id, T entidade, int limite) {
+        residentes.remove(id);
+        residentes.put(id, entidade);
+        Iterator<T> maisAntigos = residentes.values().iterator();
+        while (residentes.size() > limite && maisAntigos.hasNext()) {
+            maisAntigos.next();
+            maisAntigos.remove();
+        }
+    }
+
+    /**
+     * Troca, no resultado vindo do repositório, cada entidade já residente pela instância
+     * residente, para que alterações feitas pelo gerenciador continuem valendo.
+     */
+    static <T> List<T> resolver(List<T> residentes, List<T> doRepositorio, Function<T, String> id) {
+        Map<String, T> porId = new HashMap<>();
+        for (T residente : residentes) {
+            porId.put(id.apply(residente), residente);
+        }
+        List<T> resultado = new ArrayList<>(doRepositorio.size());
+        for (T entidade : doRepositorio) {
+            resultado.add(porId.getOrDefault(id.apply(entidade), entidade));
+        }
+        return resultado;
+    }
+
+    /**
+     * Como resolver(List, ...), consultando diretamente o mapa de residentes por ID
+     */
+    static <T> List<T> resolver(Map<String, T> residentes, List<T> doRepositorio, Function<T, String> id) {
+        List<T> resultado = new ArrayList<>(doRepositorio.size());
+        for (T entidade : doRepositorio) {
+            resultado.add(residentes.getOrDefault(id.apply(entidade), entidade));
+        }
+        return resultado;
+    }
+}
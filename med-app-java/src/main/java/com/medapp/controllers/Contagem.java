@@ -0,0 +1,68 @@
+package com.medapp.controllers;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Contagem de entidades por categoria (status, tipo), mantida de forma incremental pelos
+ * gerenciadores para que as estatísticas sejam lidas sem percorrer todas as entidades.
+ * Categorias nulas entram apenas no total. Thread-safe.
+ */
+final class Contagem<K> {
+    private final Map<K, Long> porCategoria;
+    private long total;
+
+    /**
+     * @param porCategoria Mapa vazio que define a ordem das categorias (ex.: EnumMap, TreeMap)
+     */
+    Contagem(Map<K, Long> porCategoria) {
+        this.porCategoria = porCategoria;
+    }
+
+    synchronized void adicionar(K categoria) {
+        total++;
+        if (categoria != null) {
+            porCategoria.merge(categoria, 1L, Long::sum);
+        }
+    }
+
+    synchronized void remover(K categoria) {
+        total--;
+        if (categoria != null) {
+            porCategoria.computeIfPresent(categoria, (chave, valor) -> valor > 1 ? valor - 1 : null);
+        }
+    }
+
+    synchronized void mover(K anterior, K nova) {
+        if (anterior != null && anterior.equals(nova)) {
+            return;
+        }
+        remover(anterior);
+        adicionar(nova);
+    }
+
+    /**
+     * Descarta a contagem atual e conta novamente as categorias informadas
+     */
+    synchronized void recontar(Collection<? extends K> categorias) {
+        porCategoria.clear();
+        total = 0;
+        categorias.forEach(this::adicionar);
+    }
+
+    synchronized long get(K categoria) {
+        return porCategoria.getOrDefault(categoria, 0L);
+    }
+
+    synchronized long total() {
+        return total;
+    }
+
+    /**
+     * Cópia das contagens, sem as categorias zeradas
+     */
+    synchronized Map<K, Long> copia() {
+        return new LinkedHashMap<>(porCategoria);
+    }
+}
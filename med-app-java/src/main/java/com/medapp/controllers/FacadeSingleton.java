@@ -3,25 +3,77 @@ package com.medapp.controllers;
 import com.medapp.models.User;
 import com.medapp.models.Sala;
 import com.medapp.models.Agendamento;
+import com.medapp.models.SolicitacaoAgendamento;
+import com.medapp.infra.ConsultaAgendamentos;
 import com.medapp.infra.Repository;
+import java.time.DayOfWeek;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.LocalDate;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class FacadeSingleton {
+    /** true para carregar os quatro gerenciadores em paralelo na construção */
+    public static final String PROPRIEDADE_PARALELA = "medapp.inicializacao.paralela";
+    /** Número máximo de threads usadas na carga paralela (padrão 4) */
+    public static final String PROPRIEDADE_THREADS = "medapp.inicializacao.threads";
+
     private static volatile FacadeSingleton instance;
     private static volatile String repositoryType;
     private final UsuarioGerenciador usuarioGerenciador;
     private final SalaGerenciador salaGerenciador;
     private final RelatorioGerenciador relatorioGerenciador;
     private final AgendamentoGerenciador agendamentoGerenciador;
+    private final Map<String, Long> temposCarregamento = Collections.synchronizedMap(new LinkedHashMap<>());
 
+    /**
+     * Constrói os gerenciadores em sequência ou, com medapp.inicializacao.paralela=true,
+     * em paralelo. Nos dois casos o construtor só retorna depois que todos carregaram,
+     * então a instância nunca é publicada parcialmente inicializada. A carga paralela
+     * exige um repositório que aceite leituras concorrentes.
+     */
     private FacadeSingleton(Repository repository) {
-        this.usuarioGerenciador = new UsuarioGerenciador(repository);
-        this.salaGerenciador = new SalaGerenciador(repository);
-        this.relatorioGerenciador = new RelatorioGerenciador(repository);
-        this.agendamentoGerenciador = AgendamentoGerenciador.getInstance(repository);
+        // Lido uma vez para que todos os gerenciadores usem o mesmo modo
+        ModoCarregamento modo = ModoCarregamento.configurado();
+        Callable<UsuarioGerenciador> usuarios = () -> new UsuarioGerenciador(repository, modo);
+        Callable<SalaGerenciador> salas = () -> new SalaGerenciador(repository, modo);
+        Callable<RelatorioGerenciador> relatorios = () -> new RelatorioGerenciador(repository, modo);
+        Callable<AgendamentoGerenciador> agendamentos = () -> AgendamentoGerenciador.getInstance(repository, modo);
+
+        if (!Boolean.getBoolean(PROPRIEDADE_PARALELA)) {
+            this.usuarioGerenciador = cronometrar("usuarios", usuarios).call();
+            this.salaGerenciador = cronometrar("salas", salas).call();
+            this.relatorioGerenciador = cronometrar("relatorios", relatorios).call();
+            this.agendamentoGerenciador = cronometrar("agendamentos", agendamentos).call();
+            return;
+        }
+
+        int threads = Math.max(1, Math.min(4, Integer.getInteger(PROPRIEDADE_THREADS, 4)));
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new FabricaThreads());
+        try {
+            Future<UsuarioGerenciador> futuroUsuarios = executor.submit(cronometrar("usuarios", usuarios));
+            Future<SalaGerenciador> futuroSalas = executor.submit(cronometrar("salas", salas));
+            Future<RelatorioGerenciador> futuroRelatorios = executor.submit(cronometrar("relatorios", relatorios));
+            Future<AgendamentoGerenciador> futuroAgendamentos = executor.submit(cronometrar("agendamentos", agendamentos));
+
+            this.usuarioGerenciador = aguardar(futuroUsuarios);
+            this.salaGerenciador = aguardar(futuroSalas);
+            this.relatorioGerenciador = aguardar(futuroRelatorios);
+            this.agendamentoGerenciador = aguardar(futuroAgendamentos);
+        } finally {
+            executor.shutdownNow();
+        }
     }
 
     public static FacadeSingleton getInstance(Repository repository) {
@@ -62,6 +114,15 @@ public class FacadeSingleton {
         AgendamentoGerenciador.reset();
     }
     
+    /**
+     * Tempo de carga de cada gerenciador em milissegundos, na ordem em que terminaram
+     */
+    public Map<String, Long> getTemposCarregamento() {
+        synchronized (temposCarregamento) {
+            return new LinkedHashMap<>(temposCarregamento);
+        }
+    }
+
     /**
      * Get the current repository type (for debugging/monitoring purposes)
      */
@@ -104,6 +165,10 @@ public class FacadeSingleton {
         return usuarioGerenciador.listarUsuarios();
     }
 
+    public List<User> listarUsuarios(int pagina, int tamanho) {
+        return usuarioGerenciador.listarUsuarios(pagina, tamanho);
+    }
+
     public String editarUsuario(User usuario) {
         return usuarioGerenciador.editarUsuario(usuario);
     }
@@ -168,10 +233,46 @@ public class FacadeSingleton {
                                                      salaId, dataHora, tipoConsulta, observacoes);
     }
 
+    public String criarAgendamento(String pacienteUsername, String profissionalUsername, 
+                                 String salaId, LocalDateTime dataHora, String tipoConsulta, String observacoes,
+                                 Duration duracao) {
+        return agendamentoGerenciador.criarAgendamento(pacienteUsername, profissionalUsername, 
+                                                     salaId, dataHora, tipoConsulta, observacoes, duracao);
+    }
+
+    public String criarAgendamentos(List<SolicitacaoAgendamento> solicitacoes) {
+        return agendamentoGerenciador.criarAgendamentos(solicitacoes);
+    }
+
+    /**
+     * Quantidade de agendamentos por status, mantida de forma incremental
+     */
+    public Map<Agendamento.StatusAgendamento, Long> getContagemAgendamentosPorStatus() {
+        return agendamentoGerenciador.getContagemPorStatus();
+    }
+
+    /**
+     * Quantidade de relatórios por status, mantida de forma incremental
+     */
+    public Map<String, Long> getContagemRelatoriosPorStatus() {
+        return relatorioGerenciador.getContagemPorStatus();
+    }
+
+    /**
+     * Quantidade de relatórios por tipo, mantida de forma incremental
+     */
+    public Map<String, Long> getContagemRelatoriosPorTipo() {
+        return relatorioGerenciador.getContagemPorTipo();
+    }
+
     public Optional<Agendamento> buscarAgendamento(String id) {
         return agendamentoGerenciador.buscarAgendamento(id);
     }
 
+    public List<Agendamento> listarAgendamentos(int pagina, int tamanho) {
+        return agendamentoGerenciador.listarAgendamentos(pagina, tamanho);
+    }
+
     public List<Agendamento> listarAgendamentosPorPaciente(String pacienteUsername) {
         return agendamentoGerenciador.listarAgendamentosPorPaciente(pacienteUsername);
     }
@@ -180,6 +281,39 @@ public class FacadeSingleton {
         return agendamentoGerenciador.listarAgendamentosPorProfissional(profissionalUsername);
     }
 
+    public List<Agendamento> consultarAgendamentos(ConsultaAgendamentos consulta) {
+        return agendamentoGerenciador.consultarAgendamentos(consulta);
+    }
+
+    public List<LocalDateTime> buscarHorariosLivres(String salaId, String profissionalUsername, Duration duracao,
+                                                    LocalDateTime inicio, LocalDateTime fim, int quantidade) {
+        return agendamentoGerenciador.buscarHorariosLivres(salaId, profissionalUsername, duracao, inicio, fim, quantidade);
+    }
+
+    public List<Agendamento> agendaDiariaSala(String salaId, LocalDate dia) {
+        return agendamentoGerenciador.listarAgendaSala(salaId, dia, dia);
+    }
+
+    /**
+     * Agenda da sala na semana (segunda a domingo) que contém o dia informado
+     */
+    public List<Agendamento> agendaSemanalSala(String salaId, LocalDate dia) {
+        LocalDate segunda = dia.with(DayOfWeek.MONDAY);
+        return agendamentoGerenciador.listarAgendaSala(salaId, segunda, segunda.plusDays(6));
+    }
+
+    public List<Agendamento> agendaDiariaProfissional(String profissionalUsername, LocalDate dia) {
+        return agendamentoGerenciador.listarAgendaProfissional(profissionalUsername, dia, dia);
+    }
+
+    /**
+     * Agenda do profissional na semana (segunda a domingo) que contém o dia informado
+     */
+    public List<Agendamento> agendaSemanalProfissional(String profissionalUsername, LocalDate dia) {
+        LocalDate segunda = dia.with(DayOfWeek.MONDAY);
+        return agendamentoGerenciador.listarAgendaProfissional(profissionalUsername, segunda, segunda.plusDays(6));
+    }
+
     public List<Agendamento> listarAgendamentosAtivos() {
         return agendamentoGerenciador.listarAgendamentosAtivos();
     }
@@ -204,6 +338,59 @@ public class FacadeSingleton {
         return agendamentoGerenciador;
     }
 
+    // Callable sem exceção checada, para poder ser chamado direto no modo sequencial
+    @FunctionalInterface
+    private interface Carga<T> extends Callable<T> {
+        @Override
+        T call();
+    }
+
+    private <T> Carga<T> cronometrar(String nome, Callable<T> construtor) {
+        return () -> {
+            long inicio = System.nanoTime();
+            T gerenciador;
+            try {
+                gerenciador = construtor.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            long millis = (System.nanoTime() - inicio) / 1_000_000;
+            temposCarregamento.put(nome, millis);
+            return gerenciador;
+        };
+    }
+
+    private static <T> T aguardar(Future<T> futuro) {
+        try {
+            return futuro.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Inicialização interrompida", e);
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof RuntimeException) {
+                throw (RuntimeException) causa;
+            }
+            if (causa instanceof Error) {
+                throw (Error) causa;
+            }
+            throw new IllegalStateException("Falha ao carregar gerenciador", causa);
+        }
+    }
+
+    private static final class FabricaThreads implements ThreadFactory {
+        private final AtomicInteger contador = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable tarefa) {
+            Thread thread = new Thread(tarefa, "medapp-inicializacao-" + contador.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
     private String formatarInformacoesUsuario(User usuario) {
         StringBuilder sb = new StringBuilder();
         sb.append("Informações do usuário:\n");
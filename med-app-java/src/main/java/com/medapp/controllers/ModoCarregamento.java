@@ -0,0 +1,37 @@
+package com.medapp.controllers;
+
+/**
+ * Como os gerenciadores trazem as entidades do repositório ao serem construídos.
+ *
+ * Configurado pela propriedade de sistema medapp.carregamento (completo ou sob_demanda);
+ * o padrão é COMPLETO. No modo SOB_DEMANDA o número máximo de entidades mantidas em
+ * memória por gerenciador vem de medapp.carregamento.residentes (padrão 10000).
+ */
+public enum ModoCarregamento {
+    /** Carrega tudo com getAll* na construção (comportamento original) */
+    COMPLETO,
+    /** Não carrega nada na construção; busca cada entidade no repositório quando ela é usada */
+    SOB_DEMANDA;
+
+    public static final String PROPRIEDADE = "medapp.carregamento";
+    public static final String PROPRIEDADE_RESIDENTES = "medapp.carregamento.residentes";
+    private static final int RESIDENTES_PADRAO = 10_000;
+
+    public static ModoCarregamento configurado() {
+        String valor = System.getProperty(PROPRIEDADE);
+        if (valor == null || valor.trim().isEmpty()) {
+            return COMPLETO;
+        }
+        try {
+            return valueOf(valor.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Aviso: modo de carregamento desconhecido '" + valor + "', usando COMPLETO");
+            return COMPLETO;
+        }
+    }
+
+    public static int limiteResidentes() {
+        int limite = Integer.getInteger(PROPRIEDADE_RESIDENTES, RESIDENTES_PADRAO);
+        return limite > 0 ? limite : RESIDENTES_PADRAO;
+    }
+}
@@ -5,27 +5,45 @@ import com.medapp.infra.Repository;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 public class RelatorioGerenciador {
     private final Repository repository;
-    private final List<Relatorio> relatorios;
+    // Por ID, na ordem de inserção
+    private final Map<String, Relatorio> relatorios;
+    private final ModoCarregamento modo;
+    // Contagens mantidas a cada criação, alteração de status e exclusão. No modo SOB_DEMANDA
+    // só são carregadas do repositório na primeira consulta de estatísticas.
+    private final Contagem<String> contagemPorStatus = new Contagem<>(new TreeMap<>());
+    private final Contagem<String> contagemPorTipo = new Contagem<>(new TreeMap<>());
+    private boolean contagensCarregadas;
 
     public RelatorioGerenciador(Repository repository) {
+        this(repository, ModoCarregamento.configurado());
+    }
+
+    /**
+     * No modo SOB_DEMANDA nada é carregado na construção; a lista local guarda só os
+     * relatórios criados nesta sessão e as consultas vão ao repositório.
+     */
+    public RelatorioGerenciador(Repository repository, ModoCarregamento modo) {
         this.repository = repository;
-        this.relatorios = new ArrayList<>();
-        inicializarRelatorios();
+        this.modo = modo;
+        this.relatorios = new LinkedHashMap<>();
+        if (modo == ModoCarregamento.COMPLETO) {
+            inicializarRelatorios();
+        }
     }
 
     private void inicializarRelatorios() {
         try {
             List<Relatorio> relatoriosRepositorio = repository.getAllRelatorios();
-            if (!relatoriosRepositorio.isEmpty()) {
-                relatorios.clear();
-                relatorios.addAll(relatoriosRepositorio);
-            }
+            substituirResidentes(relatoriosRepositorio);
         } catch (Exception e) {
             System.err.println("Erro ao carregar relatórios do repositório: " + e.getMessage());
         }
@@ -53,8 +71,16 @@ public class RelatorioGerenciador {
             relatorio.setDataGeracao(LocalDateTime.now());
             relatorio.setStatus("PENDENTE");
             
-            relatorios.add(relatorio);
+            if (modo == ModoCarregamento.COMPLETO) {
+                relatorios.put(id, relatorio);
+            } else {
+                ConjuntoTrabalho.adicionar(relatorios, id, relatorio, ModoCarregamento.limiteResidentes());
+            }
             repository.saveRelatorio(relatorio);
+            if (contagensCarregadas) {
+                contagemPorStatus.adicionar(relatorio.getStatus());
+                contagemPorTipo.adicionar(relatorio.getTipoRelatorio());
+            }
             
             System.out.println("Relatório criado com sucesso: " + titulo);
             return true;
@@ -65,15 +91,15 @@ public class RelatorioGerenciador {
     }
 
     public Optional<Relatorio> buscarRelatorio(String id) {
+        // A instância em memória é a que o gerenciador altera e salva; as demais vêm do repositório
+        Relatorio residente = relatorios.get(id);
+        if (residente != null) {
+            return Optional.of(residente);
+        }
         try {
-            // Buscar primeiro no repository para garantir dados atualizados
-            Relatorio relatorio = repository.loadRelatorio(id);
-            return Optional.ofNullable(relatorio);
+            return Optional.ofNullable(repository.loadRelatorio(id));
         } catch (Exception e) {
-            // Se não encontrar no repository, buscar na lista local
-            return relatorios.stream()
-                    .filter(r -> r.getId().equals(id))
-                    .findFirst();
+            return Optional.empty();
         }
     }
 
@@ -81,29 +107,47 @@ public class RelatorioGerenciador {
         try {
             // Sincronizar com o repository para garantir dados atualizados
             List<Relatorio> relatoriosRepositorio = repository.getAllRelatorios();
-            relatorios.clear();
-            relatorios.addAll(relatoriosRepositorio);
-            return new ArrayList<>(relatorios);
+            if (modo == ModoCarregamento.SOB_DEMANDA) {
+                // O conjunto de trabalho não vira uma cópia do repositório inteiro
+                return resolverResidentes(relatoriosRepositorio);
+            }
+            substituirResidentes(relatoriosRepositorio);
+            return new ArrayList<>(relatorios.values());
         } catch (Exception e) {
             System.err.println("Erro ao listar relatórios: " + e.getMessage());
-            return new ArrayList<>(relatorios); // Retorna lista local em caso de erro
+            return new ArrayList<>(relatorios.values()); // Retorna lista local em caso de erro
+        }
+    }
+
+    /**
+     * Página de relatórios na ordem do repositório, sem carregar os demais
+     * @param pagina Número da página (a partir de 0)
+     * @param tamanho Quantidade de relatórios por página
+     */
+    public List<Relatorio> listarRelatorios(int pagina, int tamanho) {
+        if (pagina < 0 || tamanho <= 0) {
+            throw new IllegalArgumentException("Página deve ser >= 0 e tamanho > 0");
         }
+        return repository.getRelatorios(pagina * tamanho, tamanho);
     }
 
     public List<Relatorio> listarRelatoriosPorAutor(String autorUsername) {
-        return relatorios.stream()
+        if (modo == ModoCarregamento.SOB_DEMANDA) {
+            return repository.getRelatoriosByAutor(autorUsername);
+        }
+        return relatorios.values().stream()
                 .filter(r -> r.getAutorUsername().equals(autorUsername))
                 .collect(Collectors.toList());
     }
 
     public List<Relatorio> listarRelatoriosPorTipo(String tipoRelatorio) {
-        return relatorios.stream()
+        return todosRelatorios().stream()
                 .filter(r -> r.getTipoRelatorio().equals(tipoRelatorio))
                 .collect(Collectors.toList());
     }
 
     public List<Relatorio> listarRelatoriosPorStatus(String status) {
-        return relatorios.stream()
+        return todosRelatorios().stream()
                 .filter(r -> r.getStatus().equals(status))
                 .collect(Collectors.toList());
     }
@@ -113,11 +157,13 @@ public class RelatorioGerenciador {
         if (relatorioOpt.isPresent()) {
             try {
                 Relatorio relatorio = relatorioOpt.get();
+                String statusAnterior = relatorio.getStatus();
                 relatorio.setTitulo(novoTitulo);
                 relatorio.setConteudo(novoConteudo);
                 relatorio.setStatus("PENDENTE"); // Reset status para reprocessamento
                 
                 repository.saveRelatorio(relatorio);
+                contarMudancaStatus(statusAnterior, relatorio.getStatus());
                 System.out.println("Relatório atualizado com sucesso: " + id);
                 return true;
             } catch (Exception e) {
@@ -134,9 +180,11 @@ public class RelatorioGerenciador {
         if (relatorioOpt.isPresent()) {
             try {
                 Relatorio relatorio = relatorioOpt.get();
+                String statusAnterior = relatorio.getStatus();
                 relatorio.setStatus(novoStatus);
                 
                 repository.saveRelatorio(relatorio);
+                contarMudancaStatus(statusAnterior, novoStatus);
                 System.out.println("Status do relatório atualizado: " + id + " -> " + novoStatus);
                 return true;
             } catch (Exception e) {
@@ -150,11 +198,18 @@ public class RelatorioGerenciador {
 
     public boolean excluirRelatorio(String id) {
         try {
+            // Guardado antes da exclusão para descontar status e tipo
+            Optional<Relatorio> existente = buscarRelatorio(id);
+
             // Tentar excluir do repository primeiro
             repository.deleteRelatorio(id);
             
             // Remover da lista local também
-            relatorios.removeIf(r -> r.getId().equals(id));
+            relatorios.remove(id);
+            if (contagensCarregadas && existente.isPresent()) {
+                contagemPorStatus.remover(existente.get().getStatus());
+                contagemPorTipo.remover(existente.get().getTipoRelatorio());
+            }
             
             System.out.println("Relatório excluído com sucesso: " + id);
             return true;
@@ -165,29 +220,43 @@ public class RelatorioGerenciador {
     }
 
     public void exibirEstatisticas() {
+        carregarContagens();
         System.out.println("\n=== ESTATÍSTICAS DE RELATÓRIOS ===");
-        System.out.println("Total de relatórios: " + relatorios.size());
-        
-        long pendentes = relatorios.stream().filter(r -> "PENDENTE".equals(r.getStatus())).count();
-        long processando = relatorios.stream().filter(r -> "PROCESSANDO".equals(r.getStatus())).count();
-        long concluidos = relatorios.stream().filter(r -> "CONCLUIDO".equals(r.getStatus())).count();
-        long erros = relatorios.stream().filter(r -> "ERRO".equals(r.getStatus())).count();
-        
-        System.out.println("Pendentes: " + pendentes);
-        System.out.println("Processando: " + processando);
-        System.out.println("Concluídos: " + concluidos);
-        System.out.println("Com erro: " + erros);
+        System.out.println("Total de relatórios: " + contagemPorStatus.total());
         
-        long pdfs = relatorios.stream().filter(r -> "PDF".equals(r.getTipoRelatorio())).count();
-        long htmls = relatorios.stream().filter(r -> "HTML".equals(r.getTipoRelatorio())).count();
+        System.out.println("Pendentes: " + contagemPorStatus.get("PENDENTE"));
+        System.out.println("Processando: " + contagemPorStatus.get("PROCESSANDO"));
+        System.out.println("Concluídos: " + contagemPorStatus.get("CONCLUIDO"));
+        System.out.println("Com erro: " + contagemPorStatus.get("ERRO"));
         
-        System.out.println("Relatórios PDF: " + pdfs);
-        System.out.println("Relatórios HTML: " + htmls);
+        System.out.println("Relatórios PDF: " + contagemPorTipo.get("PDF"));
+        System.out.println("Relatórios HTML: " + contagemPorTipo.get("HTML"));
+    }
+
+    /**
+     * Quantidade de relatórios por status (apenas status com ao menos um relatório)
+     */
+    public Map<String, Long> getContagemPorStatus() {
+        carregarContagens();
+        return contagemPorStatus.copia();
+    }
+
+    /**
+     * Quantidade de relatórios por tipo (apenas tipos com ao menos um relatório)
+     */
+    public Map<String, Long> getContagemPorTipo() {
+        carregarContagens();
+        return contagemPorTipo.copia();
+    }
+
+    public long getTotalRelatorios() {
+        carregarContagens();
+        return contagemPorStatus.total();
     }
 
     public void salvarTodos() {
         try {
-            for (Relatorio relatorio : relatorios) {
+            for (Relatorio relatorio : relatorios.values()) {
                 repository.saveRelatorio(relatorio);
             }
             System.out.println("Todos os relatórios foram salvos no repositório.");
@@ -195,4 +264,56 @@ public class RelatorioGerenciador {
             System.err.println("Erro ao salvar relatórios: " + e.getMessage());
         }
     }
+
+    /**
+     * Todos os relatórios: a lista em memória no modo COMPLETO, o repositório no SOB_DEMANDA
+     */
+    private List<Relatorio> todosRelatorios() {
+        if (modo == ModoCarregamento.SOB_DEMANDA) {
+            try {
+                return resolverResidentes(repository.getAllRelatorios());
+            } catch (Exception e) {
+                System.err.println("Erro ao consultar relatórios: " + e.getMessage());
+            }
+        }
+        return new ArrayList<>(relatorios.values());
+    }
+
+    /**
+     * Troca, na lista vinda do repositório, os relatórios residentes pela instância em
+     * memória (a que o gerenciador altera e salva), sem mexer no conjunto de trabalho
+     */
+    private List<Relatorio> resolverResidentes(List<Relatorio> lista) {
+        List<Relatorio> resolvidos = new ArrayList<>(lista.size());
+        for (Relatorio relatorio : lista) {
+            resolvidos.add(relatorios.getOrDefault(relatorio.getId(), relatorio));
+        }
+        return resolvidos;
+    }
+
+    private void substituirResidentes(List<Relatorio> lista) {
+        relatorios.clear();
+        for (Relatorio relatorio : lista) {
+            relatorios.put(relatorio.getId(), relatorio);
+        }
+        recontar(lista);
+    }
+
+    private void recontar(List<Relatorio> lista) {
+        contagemPorStatus.recontar(lista.stream().map(Relatorio::getStatus).collect(Collectors.toList()));
+        contagemPorTipo.recontar(lista.stream().map(Relatorio::getTipoRelatorio).collect(Collectors.toList()));
+        contagensCarregadas = true;
+    }
+
+    private void carregarContagens() {
+        if (!contagensCarregadas) {
+            recontar(todosRelatorios());
+        }
+    }
+
+    private void contarMudancaStatus(String anterior, String novo) {
+        if (contagensCarregadas) {
+            contagemPorStatus.mover(anterior, novo);
+        }
+    }
 }
@@ -11,11 +11,27 @@ import java.util.stream.Collectors;
 public class SalaGerenciador {
     private final Repository repository;
     private final List<Sala> salas;
+    private final ModoCarregamento modo;
+    private final int limiteResidentes;
 
     public SalaGerenciador(Repository repository) {
+        this(repository, ModoCarregamento.configurado());
+    }
+
+    /**
+     * No modo SOB_DEMANDA a lista de salas guarda apenas as salas já usadas; as demais
+     * são buscadas no repositório quando pedidas.
+     */
+    public SalaGerenciador(Repository repository, ModoCarregamento modo) {
         this.repository = repository;
+        this.modo = modo;
+        this.limiteResidentes = ModoCarregamento.limiteResidentes();
         this.salas = new ArrayList<>();
-        inicializarSalas();
+        if (modo == ModoCarregamento.COMPLETO) {
+            inicializarSalas();
+        } else {
+            verificarSalasPadrao();
+        }
     }
 
     private void inicializarSalas() {
@@ -36,6 +52,18 @@ public class SalaGerenciador {
         }
     }
 
+    private void verificarSalasPadrao() {
+        try {
+            // Uma página de uma sala basta para saber se o repositório está vazio
+            if (!repository.getSalas(0, 1).isEmpty()) {
+                return;
+            }
+        } catch (Exception e) {
+            // Se falhar, cria salas padrão
+        }
+        criarSalasPadrao();
+    }
+
     private void criarSalasPadrao() {
         try {
             Sala sala1 = criarSalaInterna("SALA001", "Sala de Cirurgia 1", 10, "CIRURGIA");
@@ -69,7 +97,7 @@ public class SalaGerenciador {
 
             Sala novaSala = criarSalaInterna(id, nome, capacidade, tipo);
             repository.saveSala(novaSala); // Persiste no repositório
-            salas.add(novaSala);
+            adicionarResidente(novaSala);
             
             return formatarSucessoSala("Sala '%s' criada com sucesso.", nome);
         } catch (Exception e) {
@@ -78,24 +106,25 @@ public class SalaGerenciador {
     }
 
     public List<Sala> listarSalas() {
-        return new ArrayList<>(salas);
+        return todasSalas();
     }
 
     public List<Sala> listarSalasDisponiveis() {
-        return salas.stream()
+        return todasSalas().stream()
             .filter(Sala::isDisponivel)
             .collect(Collectors.toList());
     }
 
     public String listarSalasFormatado() {
-        if (salas.isEmpty()) {
+        List<Sala> lista = todasSalas();
+        if (lista.isEmpty()) {
             return "Nenhuma sala registrada.";
         }
 
         StringBuilder sb = new StringBuilder();
         sb.append("Salas registradas:\n");
         
-        salas.forEach(sala -> {
+        lista.forEach(sala -> {
             String status = sala.isDisponivel() ? "Disponível" : "Ocupada";
             sb.append(String.format("- %s (%s) - %s - Capacidade: %d - Status: %s\n", 
                      sala.getId(), sala.getNome(), sala.getTipo(), sala.getCapacidade(), status));
@@ -165,9 +194,44 @@ public class SalaGerenciador {
 
     // Métodos privados para melhor organização
     private Optional<Sala> findSalaById(String id) {
-        return salas.stream()
+        Optional<Sala> residente = salas.stream()
                    .filter(sala -> sala.getId().equals(id))
                    .findFirst();
+        if (residente.isPresent() || modo == ModoCarregamento.COMPLETO) {
+            return residente;
+        }
+
+        try {
+            Sala carregada = repository.loadSala(id);
+            if (carregada != null) {
+                adicionarResidente(carregada);
+            }
+            return Optional.ofNullable(carregada);
+        } catch (Exception e) {
+            return Optional.empty();
+        }
+    }
+
+    private void adicionarResidente(Sala sala) {
+        if (modo == ModoCarregamento.COMPLETO) {
+            salas.add(sala);
+        } else {
+            ConjuntoTrabalho.adicionar(salas, sala, limiteResidentes);
+        }
+    }
+
+    /**
+     * Todas as salas: a lista em memória no modo COMPLETO, o repositório no SOB_DEMANDA
+     */
+    private List<Sala> todasSalas() {
+        if (modo == ModoCarregamento.SOB_DEMANDA) {
+            try {
+                return ConjuntoTrabalho.resolver(salas, repository.getAllSalas(), Sala::getId);
+            } catch (Exception e) {
+                // Repositório indisponível: mostra ao menos as salas em memória
+            }
+        }
+        return new ArrayList<>(salas);
     }
 
     private boolean salaExiste(String id) {
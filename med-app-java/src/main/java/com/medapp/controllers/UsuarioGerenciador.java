@@ -16,11 +16,23 @@ import java.time.LocalDate;
 public class UsuarioGerenciador {
     private final Repository userRepository;
     private List<User> usuarios;
+    private final ModoCarregamento modo;
 
     public UsuarioGerenciador(Repository repository) {
+        this(repository, ModoCarregamento.configurado());
+    }
+
+    /**
+     * No modo SOB_DEMANDA os usuários não são carregados na construção; buscarUsuario
+     * já consulta o repositório e a listagem completa só é feita quando pedida.
+     */
+    public UsuarioGerenciador(Repository repository, ModoCarregamento modo) {
         this.userRepository = repository;
+        this.modo = modo;
         this.usuarios = new ArrayList<>();
-        inicializarUsuarios();
+        if (modo == ModoCarregamento.COMPLETO) {
+            inicializarUsuarios();
+        }
     }
 
     private void inicializarUsuarios() {
@@ -79,10 +91,30 @@ public class UsuarioGerenciador {
     }
 
     public List<User> listarUsuarios() {
+        if (modo == ModoCarregamento.SOB_DEMANDA) {
+            // A listagem vem direto do repositório e não fica retida no gerenciador
+            try {
+                return new ArrayList<>(userRepository.getAllUsers());
+            } catch (Exception e) {
+                return new ArrayList<>(usuarios);
+            }
+        }
         inicializarUsuarios();
         return new ArrayList<>(usuarios);
     }
 
+    /**
+     * Página de usuários na ordem do repositório, sem carregar os demais
+     * @param pagina Número da página (a partir de 0)
+     * @param tamanho Quantidade de usuários por página
+     */
+    public List<User> listarUsuarios(int pagina, int tamanho) {
+        if (pagina < 0 || tamanho <= 0) {
+            throw new IllegalArgumentException("Página deve ser >= 0 e tamanho > 0");
+        }
+        return userRepository.getUsers(pagina * tamanho, tamanho);
+    }
+
     public String listarUsuariosFormatado() {
         List<User> users = listarUsuarios();
         
@@ -112,7 +144,11 @@ public class UsuarioGerenciador {
         try {
             UsuarioValidador.validarUsuario(usuario);
             userRepository.saveUser(usuario);
-            inicializarUsuarios();
+            if (modo == ModoCarregamento.COMPLETO) {
+                inicializarUsuarios();
+            } else {
+                usuarios.removeIf(u -> u.getUsername().equals(usuario.getUsername()));
+            }
             return formatarSucessoOperation("editado", usuario.getUsername());
         } catch (Exception e) {
             return formatarErro("editar usuário", e);
@@ -2,45 +2,192 @@ package com.medapp.infra;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.function.Supplier;
 
 /**
  * Classe abstrata para sistema de logging
  * Define a interface comum para diferentes implementações de log
+ *
+ * Os métodos públicos verificam o nível mínimo antes de qualquer formatação; só as
+ * mensagens habilitadas chegam a registrar(), implementado por cada logger. Para que uma
+ * chamada desabilitada não custe nada, use as sobrecargas com Supplier ou com argumentos
+ * de formato, ou teste isDebugHabilitado() antes de montar a mensagem.
+ *
+ * Os eventos dos métodos registrar* (EVENTO, PERFORMANCE, ACESSO, VALIDACAO, REPOSITORY)
+ * chegam já filtrados aos métodos gravar*, que por padrão os convertem em texto; loggers
+ * estruturados (LoggerJson) os sobrescrevem para gravar cada dado em seu próprio campo.
  */
 public abstract class AbstratoLogs {
     
     protected static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
     
+    private volatile NivelLog nivelMinimo = NivelLog.configurado();
+    
+    /**
+     * Grava uma mensagem que já passou pelo filtro de nível
+     * @param nivel Nível da mensagem
+     * @param mensagem Mensagem sem timestamp
+     * @param exception Exceção relacionada, ou null
+     */
+    protected abstract void registrar(NivelLog nivel, String mensagem, Throwable exception);
+    
+    public NivelLog getNivelMinimo() {
+        return nivelMinimo;
+    }
+    
+    /**
+     * Define o nível mínimo: mensagens de níveis abaixo dele são ignoradas
+     */
+    public void setNivelMinimo(NivelLog nivelMinimo) {
+        if (nivelMinimo == null) {
+            throw new IllegalArgumentException("Nível mínimo não pode ser nulo");
+        }
+        this.nivelMinimo = nivelMinimo;
+    }
+    
+    public boolean isHabilitado(NivelLog nivel) {
+        return nivel.atinge(nivelMinimo);
+    }
+    
+    public boolean isDebugHabilitado() {
+        return isHabilitado(NivelLog.DEBUG);
+    }
+    
+    public boolean isInfoHabilitado() {
+        return isHabilitado(NivelLog.INFO);
+    }
+    
     /**
      * Registra uma mensagem de informação
      * @param mensagem Mensagem a ser registrada
      */
-    public abstract void info(String mensagem);
+    public void info(String mensagem) {
+        if (isHabilitado(NivelLog.INFO)) {
+            registrar(NivelLog.INFO, mensagem, null);
+        }
+    }
     
     /**
      * Registra uma mensagem de debug
      * @param mensagem Mensagem a ser registrada
      */
-    public abstract void debug(String mensagem);
+    public void debug(String mensagem) {
+        if (isHabilitado(NivelLog.DEBUG)) {
+            registrar(NivelLog.DEBUG, mensagem, null);
+        }
+    }
     
     /**
      * Registra uma mensagem de aviso
      * @param mensagem Mensagem a ser registrada
      */
-    public abstract void warn(String mensagem);
+    public void warn(String mensagem) {
+        if (isHabilitado(NivelLog.WARN)) {
+            registrar(NivelLog.WARN, mensagem, null);
+        }
+    }
     
     /**
      * Registra uma mensagem de erro
      * @param mensagem Mensagem a ser registrada
      */
-    public abstract void error(String mensagem);
+    public void error(String mensagem) {
+        if (isHabilitado(NivelLog.ERROR)) {
+            registrar(NivelLog.ERROR, mensagem, null);
+        }
+    }
     
     /**
      * Registra uma mensagem de erro com exceção
      * @param mensagem Mensagem a ser registrada
      * @param exception Exceção relacionada ao erro
      */
-    public abstract void error(String mensagem, Throwable exception);
+    public void error(String mensagem, Throwable exception) {
+        if (isHabilitado(NivelLog.ERROR)) {
+            registrar(NivelLog.ERROR, mensagem, exception);
+        }
+    }
+    
+    // ============= MENSAGENS MONTADAS SOB DEMANDA =============
+    
+    /**
+     * Registra em debug uma mensagem construída apenas se o nível estiver habilitado
+     */
+    public void debug(Supplier<String> mensagem) {
+        if (isHabilitado(NivelLog.DEBUG)) {
+            registrar(NivelLog.DEBUG, mensagem.get(), null);
+        }
+    }
+    
+    public void info(Supplier<String> mensagem) {
+        if (isHabilitado(NivelLog.INFO)) {
+            registrar(NivelLog.INFO, mensagem.get(), null);
+        }
+    }
+    
+    public void warn(Supplier<String> mensagem) {
+        if (isHabilitado(NivelLog.WARN)) {
+            registrar(NivelLog.WARN, mensagem.get(), null);
+        }
+    }
+    
+    /**
+     * Registra em debug uma mensagem no formato de String.format, formatada apenas se o
+     * nível estiver habilitado. As versões de um e dois argumentos evitam o array do varargs.
+     */
+    public void debug(String formato, Object argumento) {
+        if (isHabilitado(NivelLog.DEBUG)) {
+            registrar(NivelLog.DEBUG, String.format(formato, argumento), null);
+        }
+    }
+    
+    public void debug(String formato, Object argumento1, Object argumento2) {
+        if (isHabilitado(NivelLog.DEBUG)) {
+            registrar(NivelLog.DEBUG, String.format(formato, argumento1, argumento2), null);
+        }
+    }
+    
+    public void debug(String formato, Object... argumentos) {
+        if (isHabilitado(NivelLog.DEBUG)) {
+            registrar(NivelLog.DEBUG, String.format(formato, argumentos), null);
+        }
+    }
+    
+    public void info(String formato, Object argumento) {
+        if (isHabilitado(NivelLog.INFO)) {
+            registrar(NivelLog.INFO, String.format(formato, argumento), null);
+        }
+    }
+    
+    public void info(String formato, Object argumento1, Object argumento2) {
+        if (isHabilitado(NivelLog.INFO)) {
+            registrar(NivelLog.INFO, String.format(formato, argumento1, argumento2), null);
+        }
+    }
+    
+    public void info(String formato, Object... argumentos) {
+        if (isHabilitado(NivelLog.INFO)) {
+            registrar(NivelLog.INFO, String.format(formato, argumentos), null);
+        }
+    }
+    
+    public void warn(String formato, Object argumento) {
+        if (isHabilitado(NivelLog.WARN)) {
+            registrar(NivelLog.WARN, String.format(formato, argumento), null);
+        }
+    }
+    
+    public void warn(String formato, Object argumento1, Object argumento2) {
+        if (isHabilitado(NivelLog.WARN)) {
+            registrar(NivelLog.WARN, String.format(formato, argumento1, argumento2), null);
+        }
+    }
+    
+    public void warn(String formato, Object... argumentos) {
+        if (isHabilitado(NivelLog.WARN)) {
+            registrar(NivelLog.WARN, String.format(formato, argumentos), null);
+        }
+    }
     
     /**
      * Método helper para formatar mensagens com timestamp
@@ -48,9 +195,10 @@ public abstract class AbstratoLogs {
      * @return Mensagem formatada com timestamp
      */
     protected String formatarMensagem(String mensagem) {
-        return String.format("[%s] %s", 
-            LocalDateTime.now().format(TIMESTAMP_FORMATTER), 
-            mensagem);
+        StringBuilder sb = new StringBuilder(mensagem.length() + 26);
+        sb.append('[');
+        TIMESTAMP_FORMATTER.formatTo(LocalDateTime.now(), sb);
+        return sb.append("] ").append(mensagem).toString();
     }
     
     /**
@@ -82,7 +230,9 @@ public abstract class AbstratoLogs {
      * @param detalhes Detalhes do evento
      */
     public void registrarEvento(String evento, String detalhes) {
-        info(String.format("EVENTO: %s - %s", evento, detalhes));
+        if (isHabilitado(NivelLog.INFO)) {
+            gravarEvento(NivelLog.INFO, evento, detalhes);
+        }
     }
     
     /**
@@ -91,10 +241,9 @@ public abstract class AbstratoLogs {
      * @param tempoMs Tempo em milissegundos
      */
     public void registrarPerformance(String operacao, long tempoMs) {
-        if (tempoMs > 1000) {
-            warn(String.format("PERFORMANCE: %s demorou %d ms", operacao, tempoMs));
-        } else {
-            debug(String.format("PERFORMANCE: %s executada em %d ms", operacao, tempoMs));
+        NivelLog nivel = tempoMs > 1000 ? NivelLog.WARN : NivelLog.DEBUG;
+        if (isHabilitado(nivel)) {
+            gravarPerformance(nivel, operacao, tempoMs);
         }
     }
     
@@ -104,7 +253,9 @@ public abstract class AbstratoLogs {
      * @param acao Ação realizada
      */
     public void registrarAcessoUsuario(String username, String acao) {
-        info(String.format("ACESSO: Usuario '%s' realizou '%s'", username, acao));
+        if (isHabilitado(NivelLog.INFO)) {
+            gravarAcessoUsuario(NivelLog.INFO, username, acao);
+        }
     }
     
     /**
@@ -114,8 +265,9 @@ public abstract class AbstratoLogs {
      * @param motivoFalha Motivo da falha
      */
     public void registrarErroValidacao(String campo, String valorFornecido, String motivoFalha) {
-        warn(String.format("VALIDACAO: Campo '%s' com valor '%s' falhou: %s", 
-            campo, valorFornecido, motivoFalha));
+        if (isHabilitado(NivelLog.WARN)) {
+            gravarErroValidacao(NivelLog.WARN, campo, valorFornecido, motivoFalha);
+        }
     }
     
     /**
@@ -126,7 +278,33 @@ public abstract class AbstratoLogs {
      * @param identificador Identificador da entidade
      */
     public void registrarOperacaoRepositorio(String tipoRepositorio, String operacao, String entidade, String identificador) {
-        debug(String.format("REPOSITORY: %s.%s(%s) - ID: %s", 
-            tipoRepositorio, operacao, entidade, identificador));
+        if (isHabilitado(NivelLog.DEBUG)) {
+            gravarOperacaoRepositorio(NivelLog.DEBUG, tipoRepositorio, operacao, entidade, identificador);
+        }
+    }
+    
+    // ============= GRAVAÇÃO DOS EVENTOS (JÁ FILTRADOS POR NÍVEL) =============
+    
+    protected void gravarEvento(NivelLog nivel, String evento, String detalhes) {
+        registrar(nivel, "EVENTO: " + evento + " - " + detalhes, null);
+    }
+    
+    protected void gravarPerformance(NivelLog nivel, String operacao, long tempoMs) {
+        registrar(nivel, "PERFORMANCE: " + operacao + (nivel == NivelLog.WARN ? " demorou " : " executada em ")
+            + tempoMs + " ms", null);
+    }
+    
+    protected void gravarAcessoUsuario(NivelLog nivel, String username, String acao) {
+        registrar(nivel, "ACESSO: Usuario '" + username + "' realizou '" + acao + "'", null);
+    }
+    
+    protected void gravarErroValidacao(NivelLog nivel, String campo, String valorFornecido, String motivoFalha) {
+        registrar(nivel, "VALIDACAO: Campo '" + campo + "' com valor '" + valorFornecido + "' falhou: " + motivoFalha, null);
+    }
+    
+    protected void gravarOperacaoRepositorio(NivelLog nivel, String tipoRepositorio, String operacao, String entidade,
+                                             String identificador) {
+        registrar(nivel, "REPOSITORY: " + tipoRepositorio + "." + operacao + "(" + entidade + ") - ID: "
+            + identificador, null);
     }
 }
@@ -21,28 +21,25 @@ public class AdaptadorLog4j extends AbstratoLogs {
     }
     
     @Override
-    public void info(String mensagem) {
-        logger.info(formatarMensagem(mensagem));
-    }
-    
-    @Override
-    public void debug(String mensagem) {
-        logger.debug(formatarMensagem(mensagem));
-    }
-    
-    @Override
-    public void warn(String mensagem) {
-        logger.warn(formatarMensagem(mensagem));
-    }
-    
-    @Override
-    public void error(String mensagem) {
-        logger.error(formatarMensagem(mensagem));
-    }
-    
-    @Override
-    public void error(String mensagem, Throwable exception) {
-        logger.error(formatarMensagem(mensagem), exception);
+    protected void registrar(NivelLog nivel, String mensagem, Throwable exception) {
+        String formatada = formatarMensagem(mensagem);
+        switch (nivel) {
+            case DEBUG:
+                logger.debug(formatada);
+                break;
+            case INFO:
+                logger.info(formatada);
+                break;
+            case WARN:
+                logger.warn(formatada);
+                break;
+            default:
+                if (exception != null) {
+                    logger.error(formatada, exception);
+                } else {
+                    logger.error(formatada);
+                }
+        }
     }
     
     /**
@@ -155,13 +152,46 @@ public class AdaptadorLog4j extends AbstratoLogs {
     
     /**
      * Método para configurar o nível de log do Log4j
-     * @param nivel Nível do log (DEBUG, INFO, WARN, ERROR)
+     * @param nivel Nível do log (ALL, TRACE, DEBUG, INFO, WARN, ERROR, FATAL, OFF). Os níveis
+     *              do Log4j sem equivalente no NivelLog usam o mais próximo: ALL e TRACE viram
+     *              DEBUG e FATAL vira ERROR. OFF desliga o logger. Um nível desconhecido
+     *              mantém o atual.
      */
     public void configurarNivelLog(String nivel) {
         // Aqui seria configurado o nível do Log4j real
         // Logger.getRootLogger().setLevel(Level.toLevel(nivel));
+        NivelLog equivalente = nivelEquivalente(nivel);
+        if (equivalente == null) {
+            System.err.println("[LOG4J-CONFIG] Nível de log desconhecido: " + nivel
+                    + " (mantendo " + getNivelMinimo() + ")");
+            return;
+        }
+        setNivelMinimo(equivalente);
         System.out.println("[LOG4J-CONFIG] Nível de log configurado para: " + nivel);
     }
+
+    private static NivelLog nivelEquivalente(String nivel) {
+        if (nivel == null) {
+            return null;
+        }
+        switch (nivel.trim().toUpperCase()) {
+            case "ALL":
+            case "TRACE":
+            case "DEBUG":
+                return NivelLog.DEBUG;
+            case "INFO":
+                return NivelLog.INFO;
+            case "WARN":
+                return NivelLog.WARN;
+            case "ERROR":
+            case "FATAL":
+                return NivelLog.ERROR;
+            case "OFF":
+                return NivelLog.OFF;
+            default:
+                return null;
+        }
+    }
     
     /**
      * Método para configurar arquivo de saída do Log4j
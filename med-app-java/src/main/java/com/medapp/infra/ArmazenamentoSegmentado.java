@@ -0,0 +1,630 @@
+package com.medapp.infra;
+
+import com.medapp.utils.storage.StorageCorruptedException;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Motor de armazenamento em segmentos de log (somente anexação).
+ *
+ * Cada gravação é anexada ao segmento ativo; ao atingir o tamanho máximo, um novo
+ * segmento é aberto e o anterior fica imutável. Um índice em memória (tipo + chave →
+ * segmento/posição) é reconstruído na inicialização lendo os segmentos em ordem, e a
+ * compactação em segundo plano regrava os registros vivos dos segmentos antigos no
+ * segmento ativo quando a maior parte deles já foi sobrescrita ou apagada.
+ *
+ * Leituras por chave em segmentos imutáveis usam o mapeamento em memória do
+ * segmento (até o limite configurado) e decodificam o registro direto do buffer
+ * mapeado; o segmento ativo, ainda em crescimento, usa leitura posicionada.
+ *
+ * Formato de cada registro:
+ * [int tamanho][int crc32][byte tipo][byte operação][short tamanhoChave][chave UTF-8][dados]
+ * onde 'tamanho' conta os bytes após o próprio campo e o CRC cobre tudo após o CRC.
+ */
+class ArmazenamentoSegmentado implements Closeable {
+    static final byte OPERACAO_GRAVAR = 1;
+    static final byte OPERACAO_APAGAR = 2;
+
+    private static final int TAMANHO_CABECALHO = 4 + 4 + 1 + 1 + 2;
+    private static final String PREFIXO = "segmento-";
+    private static final String SUFIXO = ".dat";
+    private static final int BUFFER_LEITURA_SEQUENCIAL = 64 * 1024;
+    private static final int TAMANHO_LOTE = 1024 * 1024;
+
+    private final Path diretorio;
+    private final long tamanhoMaximoSegmento;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<Integer, Segmento> segmentos = new TreeMap<>();
+    private final Map<Byte, Map<String, Localizacao>> indices = new HashMap<>();
+    private final ScheduledExecutorService compactador;
+    private final MapeamentoSegmentos mapeamento;
+    private Segmento ativo;
+
+    /**
+     * Abre (ou cria) o armazenamento no diretório informado e reconstrói o índice
+     * @param diretorio Diretório dos arquivos de segmento
+     * @param tamanhoMaximoSegmento Tamanho a partir do qual um novo segmento é aberto
+     * @param intervaloCompactacaoSegundos Intervalo entre verificações de compactação (0 desativa)
+     * @param limiteMapeamentoBytes Máximo de bytes mantidos mapeados em memória (0 desativa)
+     */
+    ArmazenamentoSegmentado(Path diretorio, long tamanhoMaximoSegmento, long intervaloCompactacaoSegundos,
+                            long limiteMapeamentoBytes) throws IOException {
+        this.diretorio = diretorio;
+        this.tamanhoMaximoSegmento = tamanhoMaximoSegmento;
+        this.mapeamento = limiteMapeamentoBytes > 0 ? new MapeamentoSegmentos(limiteMapeamentoBytes) : null;
+
+        Files.createDirectories(diretorio);
+        reconstruirIndice();
+
+        if (intervaloCompactacaoSegundos > 0) {
+            this.compactador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+                Thread thread = new Thread(tarefa, "medapp-compactacao-segmentos");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.compactador.scheduleWithFixedDelay(this::compactarSilenciosamente,
+                    intervaloCompactacaoSegundos, intervaloCompactacaoSegundos, TimeUnit.SECONDS);
+        } else {
+            this.compactador = null;
+        }
+    }
+
+    /**
+     * Anexa uma nova versão do registro
+     */
+    void gravar(byte tipo, String chave, byte[] dados) throws IOException {
+        lock.writeLock().lock();
+        try {
+            anexar(tipo, OPERACAO_GRAVAR, chave, ByteBuffer.wrap(dados));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Anexa várias versões de registros de um tipo com poucas escritas sequenciais:
+     * os registros são agrupados num único buffer por segmento (até TAMANHO_LOTE bytes)
+     * e o índice só é atualizado depois que o grupo foi escrito.
+     */
+    void gravarLote(byte tipo, List<String> chaves, List<byte[]> dados) throws IOException {
+        lock.writeLock().lock();
+        try {
+            List<ByteBuffer> grupo = new ArrayList<>();
+            List<String> chavesGrupo = new ArrayList<>();
+            long bytesGrupo = 0;
+
+            for (int i = 0; i < chaves.size(); i++) {
+                ByteBuffer registro = codificar(tipo, OPERACAO_GRAVAR, chaves.get(i), ByteBuffer.wrap(dados.get(i)));
+                int tamanho = registro.remaining();
+                boolean excedeSegmento = ativo.tamanho + bytesGrupo + tamanho > tamanhoMaximoSegmento;
+                if (!grupo.isEmpty() && (excedeSegmento || bytesGrupo + tamanho > TAMANHO_LOTE)) {
+                    anexarGrupo(tipo, grupo, chavesGrupo, bytesGrupo);
+                    grupo.clear();
+                    chavesGrupo.clear();
+                    bytesGrupo = 0;
+                }
+                if (grupo.isEmpty() && ativo.tamanho > 0 && ativo.tamanho + tamanho > tamanhoMaximoSegmento) {
+                    ativo = abrirSegmento(ativo.id + 1);
+                }
+                grupo.add(registro);
+                chavesGrupo.add(chaves.get(i));
+                bytesGrupo += tamanho;
+            }
+            if (!grupo.isEmpty()) {
+                anexarGrupo(tipo, grupo, chavesGrupo, bytesGrupo);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Anexa uma marca de remoção para o registro
+     * @return false se o registro não existia
+     */
+    boolean apagar(byte tipo, String chave) throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (!indice(tipo).containsKey(chave)) {
+                return false;
+            }
+            anexar(tipo, OPERACAO_APAGAR, chave, ByteBuffer.allocate(0));
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Lê a versão atual do registro: direto do mapeamento em memória quando o
+     * segmento é imutável e cabe no limite, ou com uma única leitura posicionada.
+     * @return Visão somente leitura dos dados do registro ou null se não existir
+     */
+    ByteBuffer ler(byte tipo, String chave) throws IOException {
+        lock.readLock().lock();
+        try {
+            Localizacao localizacao = indice(tipo).get(chave);
+            if (localizacao == null) {
+                return null;
+            }
+
+            Segmento segmento = segmentos.get(localizacao.segmento);
+            ByteBuffer mapeado = segmento != ativo && mapeamento != null
+                    ? mapeamento.obter(segmento.id, segmento.canal, segmento.tamanho)
+                    : null;
+            if (mapeado != null) {
+                mapeado.position((int) localizacao.posicao).limit((int) localizacao.posicao + localizacao.tamanho);
+                return decodificar(mapeado.slice(), segmento).dados;
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(localizacao.tamanho);
+            lerCompleto(segmento.canal, buffer, localizacao.posicao);
+            buffer.flip();
+            return decodificar(buffer, segmento).dados.asReadOnlyBuffer();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    boolean contem(byte tipo, String chave) {
+        lock.readLock().lock();
+        try {
+            return indice(tipo).containsKey(chave);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int quantidade(byte tipo) {
+        lock.readLock().lock();
+        try {
+            return indice(tipo).size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Percorre sequencialmente todos os registros vivos de um tipo, segmento por segmento
+     */
+    void percorrer(byte tipo, ConsumidorRegistro consumidor) throws IOException {
+        percorrerAte(tipo, (chave, dados) -> {
+            consumidor.aceitar(chave, dados);
+            return true;
+        });
+    }
+
+    /**
+     * Como percorrer, mas interrompe a varredura assim que o consumidor devolver false
+     */
+    void percorrerAte(byte tipo, ConsumidorInterrompivel consumidor) throws IOException {
+        lock.readLock().lock();
+        try {
+            Map<String, Localizacao> indice = indice(tipo);
+            if (indice.isEmpty()) {
+                return;
+            }
+
+            boolean[] continuar = {true};
+            for (Segmento segmento : segmentos.values()) {
+                lerSegmento(segmento, segmento.tamanho, (registro, posicao) -> {
+                    if (registro.tipo == tipo && estaVivo(indice, registro, segmento, posicao)) {
+                        continuar[0] = consumidor.aceitar(registro.chave, registro.dados);
+                    }
+                    return continuar[0];
+                });
+                if (!continuar[0]) {
+                    return;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Regrava os registros vivos dos segmentos imutáveis no segmento ativo e apaga
+     * os segmentos antigos, desde que pelo menos metade dos seus bytes esteja morta.
+     */
+    synchronized void compactar() throws IOException {
+        List<Segmento> selados = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            long total = 0;
+            long mortos = 0;
+            for (Segmento segmento : segmentos.values()) {
+                if (segmento != ativo) {
+                    selados.add(segmento);
+                    total += segmento.tamanho;
+                    mortos += segmento.bytesMortos;
+                }
+            }
+            if (selados.isEmpty() || mortos * 2 < total) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // Segmentos selados são imutáveis, então podem ser lidos sem bloqueio;
+        // cada cópia confirma sob bloqueio que o registro ainda é a versão atual.
+        for (Segmento segmento : selados) {
+            lerSegmento(segmento, segmento.tamanho, (registro, posicao) -> {
+                if (registro.operacao != OPERACAO_GRAVAR) {
+                    return true;
+                }
+                lock.writeLock().lock();
+                try {
+                    if (estaVivo(indice(registro.tipo), registro, segmento, posicao)) {
+                        anexar(registro.tipo, OPERACAO_GRAVAR, registro.chave, registro.dados);
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                return true;
+            });
+        }
+
+        lock.writeLock().lock();
+        try {
+            // As cópias precisam estar no disco antes que a única cópia antiga seja apagada:
+            // força os segmentos que as receberam (o ativo e os abertos durante a cópia)
+            // e a entrada deles no diretório
+            int ultimoSelado = selados.get(selados.size() - 1).id;
+            for (Segmento segmento : segmentos.tailMap(ultimoSelado, false).values()) {
+                segmento.canal.force(true);
+            }
+            sincronizarDiretorio();
+            for (Segmento segmento : selados) {
+                if (mapeamento != null) {
+                    mapeamento.descartar(segmento.id);
+                }
+                segmento.canal.close();
+                segmentos.remove(segmento.id);
+                Files.deleteIfExists(segmento.caminho);
+            }
+            sincronizarDiretorio();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Grava no disco as entradas do diretório (criação e remoção de segmentos). Em sistemas
+     * que não permitem abrir diretórios (Windows) não há o que fazer.
+     */
+    private void sincronizarDiretorio() {
+        try (FileChannel canalDiretorio = FileChannel.open(diretorio, StandardOpenOption.READ)) {
+            canalDiretorio.force(true);
+        } catch (IOException e) {
+            // diretório não pode ser aberto como arquivo nesta plataforma
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (compactador != null) {
+            compactador.shutdownNow();
+        }
+        lock.writeLock().lock();
+        try {
+            for (Segmento segmento : segmentos.values()) {
+                segmento.canal.close();
+            }
+            segmentos.clear();
+            indices.clear();
+            if (mapeamento != null) {
+                mapeamento.limpar();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ============= MÉTODOS PRIVADOS =============
+
+    private void compactarSilenciosamente() {
+        try {
+            compactar();
+        } catch (Exception e) {
+            System.err.println("Warning: Segment compaction failed: " + e.getMessage());
+        }
+    }
+
+    private void anexar(byte tipo, byte operacao, String chave, ByteBuffer dados) throws IOException {
+        ByteBuffer registro = codificar(tipo, operacao, chave, dados);
+        int tamanho = registro.remaining();
+
+        if (ativo.tamanho > 0 && ativo.tamanho + tamanho > tamanhoMaximoSegmento) {
+            ativo = abrirSegmento(ativo.id + 1);
+        }
+
+        long posicao = ativo.tamanho;
+        while (registro.hasRemaining()) {
+            ativo.canal.write(registro, posicao + registro.position());
+        }
+        ativo.tamanho += tamanho;
+
+        Map<String, Localizacao> indice = indice(tipo);
+        Localizacao anterior = operacao == OPERACAO_GRAVAR
+                ? indice.put(chave, new Localizacao(ativo.id, posicao, tamanho))
+                : indice.remove(chave);
+        marcarMorto(anterior);
+        if (operacao == OPERACAO_APAGAR) {
+            // A marca de remoção só serve para a reconstrução; não tem valor vivo
+            ativo.bytesMortos += tamanho;
+        }
+    }
+
+    /**
+     * Escreve registros já codificados de uma vez no segmento ativo e os indexa
+     */
+    private void anexarGrupo(byte tipo, List<ByteBuffer> registros, List<String> chaves, long bytes)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) bytes);
+        for (ByteBuffer registro : registros) {
+            buffer.put(registro.duplicate());
+        }
+        buffer.flip();
+
+        long inicio = ativo.tamanho;
+        while (buffer.hasRemaining()) {
+            ativo.canal.write(buffer, inicio + buffer.position());
+        }
+        ativo.tamanho += bytes;
+
+        Map<String, Localizacao> indice = indice(tipo);
+        long posicao = inicio;
+        for (int i = 0; i < registros.size(); i++) {
+            int tamanho = registros.get(i).remaining();
+            marcarMorto(indice.put(chaves.get(i), new Localizacao(ativo.id, posicao, tamanho)));
+            posicao += tamanho;
+        }
+    }
+
+    private void reconstruirIndice() throws IOException {
+        List<Integer> ids = new ArrayList<>();
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(diretorio, PREFIXO + "*" + SUFIXO)) {
+            for (Path arquivo : arquivos) {
+                String nome = arquivo.getFileName().toString();
+                ids.add(Integer.parseInt(nome.substring(PREFIXO.length(), nome.length() - SUFIXO.length())));
+            }
+        }
+        ids.sort(Integer::compareTo);
+
+        for (int i = 0; i < ids.size(); i++) {
+            Segmento segmento = abrirSegmento(ids.get(i));
+            boolean ultimo = i == ids.size() - 1;
+            long tamanhoArquivo = segmento.canal.size();
+
+            long valido = lerSegmento(segmento, tamanhoArquivo, (registro, posicao) -> {
+                Map<String, Localizacao> indice = indice(registro.tipo);
+                int tamanho = registro.tamanhoTotal;
+                if (registro.operacao == OPERACAO_GRAVAR) {
+                    marcarMorto(indice.put(registro.chave, new Localizacao(segmento.id, posicao, tamanho)));
+                } else {
+                    marcarMorto(indice.remove(registro.chave));
+                    segmento.bytesMortos += tamanho;
+                }
+                return true;
+            });
+
+            if (valido < tamanhoArquivo) {
+                if (!ultimo) {
+                    throw new StorageCorruptedException(segmento.caminho.toString());
+                }
+                // Escrita interrompida no fim do último segmento: descarta o trecho incompleto
+                System.err.println("Warning: Truncating incomplete record at end of " + segmento.caminho);
+                segmento.canal.truncate(valido);
+            }
+            segmento.tamanho = valido;
+        }
+
+        ativo = ids.isEmpty() ? abrirSegmento(1) : segmentos.get(ids.get(ids.size() - 1));
+    }
+
+    /**
+     * Lê sequencialmente os registros de um segmento até 'limite' bytes, ou até o
+     * visitante devolver false
+     * @return Posição logo após o último registro lido
+     */
+    private long lerSegmento(Segmento segmento, long limite, VisitanteRegistro visitante) throws IOException {
+        long posicao = 0;
+        try (InputStream arquivo = Files.newInputStream(segmento.caminho);
+             DataInputStream entrada = new DataInputStream(new BufferedInputStream(arquivo, BUFFER_LEITURA_SEQUENCIAL))) {
+            while (posicao + 4 <= limite) {
+                int tamanho = entrada.readInt();
+                if (tamanho < TAMANHO_CABECALHO - 4 || posicao + 4 + tamanho > limite) {
+                    break;
+                }
+
+                ByteBuffer buffer = ByteBuffer.allocate(4 + tamanho);
+                buffer.putInt(tamanho);
+                entrada.readFully(buffer.array(), 4, tamanho);
+
+                Registro registro;
+                try {
+                    registro = decodificar(buffer, segmento);
+                } catch (StorageCorruptedException e) {
+                    break;
+                }
+
+                posicao += 4 + tamanho;
+                if (!visitante.visitar(registro, posicao - 4 - tamanho)) {
+                    break;
+                }
+            }
+        } catch (EOFException e) {
+            // Fim do arquivo no meio de um registro: tratado pelo chamador via posição válida
+        }
+        return posicao;
+    }
+
+    private Segmento abrirSegmento(int id) throws IOException {
+        Path caminho = diretorio.resolve(String.format("%s%06d%s", PREFIXO, id, SUFIXO));
+        FileChannel canal = FileChannel.open(caminho,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Segmento segmento = new Segmento(id, caminho, canal);
+        segmentos.put(id, segmento);
+        return segmento;
+    }
+
+    private boolean estaVivo(Map<String, Localizacao> indice, Registro registro, Segmento segmento, long posicao) {
+        Localizacao atual = indice.get(registro.chave);
+        return registro.operacao == OPERACAO_GRAVAR
+                && atual != null && atual.segmento == segmento.id && atual.posicao == posicao;
+    }
+
+    private void marcarMorto(Localizacao localizacao) {
+        if (localizacao != null) {
+            Segmento segmento = segmentos.get(localizacao.segmento);
+            if (segmento != null) {
+                segmento.bytesMortos += localizacao.tamanho;
+            }
+        }
+    }
+
+    private Map<String, Localizacao> indice(byte tipo) {
+        return indices.computeIfAbsent(tipo, t -> new HashMap<>());
+    }
+
+    private static ByteBuffer codificar(byte tipo, byte operacao, String chave, ByteBuffer dados) {
+        byte[] chaveBytes = chave.getBytes(StandardCharsets.UTF_8);
+        int tamanho = TAMANHO_CABECALHO - 4 + chaveBytes.length + dados.remaining();
+
+        ByteBuffer buffer = ByteBuffer.allocate(4 + tamanho);
+        buffer.putInt(tamanho);
+        buffer.putInt(0); // CRC preenchido abaixo
+        buffer.put(tipo);
+        buffer.put(operacao);
+        buffer.putShort((short) chaveBytes.length);
+        buffer.put(chaveBytes);
+        buffer.put(dados.duplicate());
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 8, tamanho - 4);
+        buffer.putInt(4, (int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Decodifica um registro que começa na posição 0 do buffer (heap ou mapeado).
+     * Os dados retornados são uma fatia do próprio buffer, sem cópia.
+     */
+    private static Registro decodificar(ByteBuffer buffer, Segmento segmento) {
+        int tamanho = buffer.getInt(0);
+        int crcEsperado = buffer.getInt(4);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().position(8).limit(4 + tamanho));
+        if ((int) crc.getValue() != crcEsperado) {
+            throw new StorageCorruptedException(segmento.caminho.toString());
+        }
+
+        byte tipo = buffer.get(8);
+        byte operacao = buffer.get(9);
+        int tamanhoChave = buffer.getShort(10) & 0xFFFF;
+        byte[] chaveBytes = new byte[tamanhoChave];
+        buffer.duplicate().position(TAMANHO_CABECALHO).get(chaveBytes);
+        String chave = new String(chaveBytes, StandardCharsets.UTF_8);
+
+        int inicioDados = TAMANHO_CABECALHO + tamanhoChave;
+        ByteBuffer dados = buffer.duplicate().position(inicioDados).limit(4 + tamanho).slice();
+        return new Registro(tipo, operacao, chave, dados, 4 + tamanho);
+    }
+
+    private static void lerCompleto(FileChannel canal, ByteBuffer buffer, long posicao) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (canal.read(buffer, posicao + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of segment at position " + posicao);
+            }
+        }
+    }
+
+    /**
+     * Recebe os registros vivos durante uma varredura
+     */
+    @FunctionalInterface
+    interface ConsumidorRegistro {
+        void aceitar(String chave, ByteBuffer dados) throws IOException;
+    }
+
+    /**
+     * Recebe os registros vivos durante uma varredura; devolve false para interrompê-la
+     */
+    @FunctionalInterface
+    interface ConsumidorInterrompivel {
+        boolean aceitar(String chave, ByteBuffer dados) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface VisitanteRegistro {
+        /** @return false para interromper a leitura do segmento */
+        boolean visitar(Registro registro, long posicao) throws IOException;
+    }
+
+    private static class Segmento {
+        private final int id;
+        private final Path caminho;
+        private final FileChannel canal;
+        private long tamanho;
+        private long bytesMortos;
+
+        Segmento(int id, Path caminho, FileChannel canal) {
+            this.id = id;
+            this.caminho = caminho;
+            this.canal = canal;
+        }
+    }
+
+    private static class Localizacao {
+        private final int segmento;
+        private final long posicao;
+        private final int tamanho;
+
+        Localizacao(int segmento, long posicao, int tamanho) {
+            this.segmento = segmento;
+            this.posicao = posicao;
+            this.tamanho = tamanho;
+        }
+    }
+
+    private static class Registro {
+        private final byte tipo;
+        private final byte operacao;
+        private final String chave;
+        private final ByteBuffer dados;
+        private final int tamanhoTotal;
+
+        Registro(byte tipo, byte operacao, String chave, ByteBuffer dados, int tamanhoTotal) {
+            this.tipo = tipo;
+            this.operacao = operacao;
+            this.chave = chave;
+            this.dados = dados;
+            this.tamanhoTotal = tamanhoTotal;
+        }
+    }
+}
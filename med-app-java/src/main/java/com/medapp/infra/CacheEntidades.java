@@ -0,0 +1,320 @@
+package com.medapp.infra;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache limitado de entidades por chave, usado pelo CachingRepository.
+ *
+ * As operações são sincronizadas na instância; os contadores de acerto/falha usam
+ * LongAdder para não disputar o bloqueio só para contar.
+ *
+ * Cada gravação e invalidação avança a geração da faixa da chave. Quem carrega uma
+ * entidade depois de uma falha anota a geração antes de ir ao repositório e guarda o
+ * resultado com guardarSeAtual: se um save ou delete da mesma faixa aconteceu nesse meio
+ * tempo, o valor lido pode estar velho e é descartado em vez de voltar ao cache.
+ */
+abstract class CacheEntidades<V> {
+    private static final int FAIXAS = 64;
+
+    private final long[] geracoes = new long[FAIXAS];
+    private final LongAdder acertos = new LongAdder();
+    private final LongAdder falhas = new LongAdder();
+    private final LongAdder remocoes = new LongAdder();
+
+    static <V> CacheEntidades<V> criar(PoliticaCache politica, int capacidade, long ttlMillis) {
+        switch (politica) {
+            case TTL:
+                return new Ttl<>(capacidade, ttlMillis);
+            case TINY_LFU:
+                return new TinyLfu<>(capacidade);
+            case LRU:
+            default:
+                return new Lru<>(capacidade);
+        }
+    }
+
+    final V obter(String chave) {
+        V valor;
+        synchronized (this) {
+            valor = buscar(chave);
+        }
+        (valor != null ? acertos : falhas).increment();
+        return valor;
+    }
+
+    /**
+     * Geração atual da chave, a ser passada para guardarSeAtual após a leitura no repositório
+     */
+    final synchronized long geracao(String chave) {
+        return chave != null ? geracoes[faixa(chave)] : 0L;
+    }
+
+    final synchronized void guardar(String chave, V valor) {
+        if (chave != null) {
+            geracoes[faixa(chave)]++;
+            if (valor != null) {
+                inserir(chave, valor);
+            }
+        }
+    }
+
+    /**
+     * Guarda um valor lido do repositório, se nenhuma gravação ou invalidação da chave
+     * aconteceu desde que 'geracao' foi obtida
+     */
+    final synchronized void guardarSeAtual(String chave, V valor, long geracao) {
+        if (chave != null && valor != null && geracoes[faixa(chave)] == geracao) {
+            inserir(chave, valor);
+        }
+    }
+
+    final synchronized void invalidar(String chave) {
+        if (chave != null) {
+            geracoes[faixa(chave)]++;
+            remover(chave);
+        }
+    }
+
+    final synchronized void limpar() {
+        for (int i = 0; i < FAIXAS; i++) {
+            geracoes[i]++;
+        }
+        esvaziar();
+    }
+
+    final EstatisticasCache estatisticas() {
+        int tamanho;
+        synchronized (this) {
+            tamanho = tamanho();
+        }
+        return new EstatisticasCache(acertos.sum(), falhas.sum(), remocoes.sum(), tamanho);
+    }
+
+    private static int faixa(String chave) {
+        int hash = chave.hashCode();
+        return (hash ^ (hash >>> 16)) & (FAIXAS - 1);
+    }
+
+    protected final void registrarRemocao() {
+        remocoes.increment();
+    }
+
+    protected abstract V buscar(String chave);
+    protected abstract void inserir(String chave, V valor);
+    protected abstract void remover(String chave);
+    protected abstract void esvaziar();
+    protected abstract int tamanho();
+
+    /**
+     * LinkedHashMap em ordem de acesso que remove a entrada mais antiga acima da capacidade
+     */
+    private static final class MapaLru<K, V> extends LinkedHashMap<K, V> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacidade;
+        private final Runnable aoRemover;
+
+        MapaLru(int capacidade, Runnable aoRemover) {
+            super(16, 0.75f, true);
+            this.capacidade = capacidade;
+            this.aoRemover = aoRemover;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> maisAntiga) {
+            if (size() > capacidade) {
+                aoRemover.run();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class Lru<V> extends CacheEntidades<V> {
+        private final MapaLru<String, V> mapa;
+
+        Lru(int capacidade) {
+            this.mapa = new MapaLru<>(capacidade, this::registrarRemocao);
+        }
+
+        @Override protected V buscar(String chave) { return mapa.get(chave); }
+        @Override protected void inserir(String chave, V valor) { mapa.put(chave, valor); }
+        @Override protected void remover(String chave) { mapa.remove(chave); }
+        @Override protected void esvaziar() { mapa.clear(); }
+        @Override protected int tamanho() { return mapa.size(); }
+    }
+
+    private static final class Ttl<V> extends CacheEntidades<V> {
+        private final MapaLru<String, Entrada<V>> mapa;
+        private final long ttlNanos;
+
+        Ttl(int capacidade, long ttlMillis) {
+            this.mapa = new MapaLru<>(capacidade, this::registrarRemocao);
+            this.ttlNanos = ttlMillis * 1_000_000L;
+        }
+
+        @Override
+        protected V buscar(String chave) {
+            Entrada<V> entrada = mapa.get(chave);
+            if (entrada == null) {
+                return null;
+            }
+            if (System.nanoTime() - entrada.gravadoEm > ttlNanos) {
+                mapa.remove(chave);
+                registrarRemocao();
+                return null;
+            }
+            return entrada.valor;
+        }
+
+        @Override
+        protected void inserir(String chave, V valor) {
+            mapa.put(chave, new Entrada<>(valor, System.nanoTime()));
+        }
+
+        @Override protected void remover(String chave) { mapa.remove(chave); }
+        @Override protected void esvaziar() { mapa.clear(); }
+        @Override protected int tamanho() { return mapa.size(); }
+
+        private static final class Entrada<V> {
+            private final V valor;
+            private final long gravadoEm;
+
+            Entrada(V valor, long gravadoEm) {
+                this.valor = valor;
+                this.gravadoEm = gravadoEm;
+            }
+        }
+    }
+
+    /**
+     * Versão simplificada do W-TinyLFU: novas entradas passam por uma janela LRU de ~1%
+     * da capacidade; quem sai da janela só entra na área principal se for estimado como
+     * mais frequente que a vítima da área principal. A frequência vem de um count-min
+     * sketch de 4 linhas cujos contadores são reduzidos à metade periodicamente.
+     */
+    private static final class TinyLfu<V> extends CacheEntidades<V> {
+        private final int capacidadeJanela;
+        private final int capacidadePrincipal;
+        private final LinkedHashMap<String, V> janela = new LinkedHashMap<>(16, 0.75f, true);
+        private final LinkedHashMap<String, V> principal = new LinkedHashMap<>(16, 0.75f, true);
+        private final int[][] contadores;
+        private final int mascara;
+        private final int amostrasPorReducao;
+        private int amostras;
+
+        TinyLfu(int capacidade) {
+            this.capacidadeJanela = Math.max(1, capacidade / 100);
+            // Com capacidade 1 não sobra área principal e o cache se comporta como LRU de uma entrada
+            this.capacidadePrincipal = capacidade - capacidadeJanela;
+            int largura = Integer.highestOneBit(Math.max(16, capacidade * 2 - 1)) << 1;
+            this.contadores = new int[4][largura];
+            this.mascara = largura - 1;
+            this.amostrasPorReducao = capacidade * 10;
+        }
+
+        @Override
+        protected V buscar(String chave) {
+            registrarFrequencia(chave);
+            V valor = janela.get(chave);
+            return valor != null ? valor : principal.get(chave);
+        }
+
+        @Override
+        protected void inserir(String chave, V valor) {
+            if (principal.containsKey(chave)) {
+                principal.put(chave, valor);
+                return;
+            }
+            registrarFrequencia(chave);
+            janela.put(chave, valor);
+            if (janela.size() <= capacidadeJanela) {
+                return;
+            }
+
+            Iterator<Map.Entry<String, V>> maisAntigo = janela.entrySet().iterator();
+            Map.Entry<String, V> candidato = maisAntigo.next();
+            maisAntigo.remove();
+            if (principal.size() < capacidadePrincipal) {
+                principal.put(candidato.getKey(), candidato.getValue());
+                return;
+            }
+
+            Iterator<Map.Entry<String, V>> vitimas = principal.entrySet().iterator();
+            if (vitimas.hasNext()) {
+                Map.Entry<String, V> vitima = vitimas.next();
+                if (frequencia(candidato.getKey()) > frequencia(vitima.getKey())) {
+                    vitimas.remove();
+                    principal.put(candidato.getKey(), candidato.getValue());
+                }
+            }
+            registrarRemocao();
+        }
+
+        @Override
+        protected void remover(String chave) {
+            if (janela.remove(chave) == null) {
+                principal.remove(chave);
+            }
+        }
+
+        @Override
+        protected void esvaziar() {
+            janela.clear();
+            principal.clear();
+        }
+
+        @Override
+        protected int tamanho() {
+            return janela.size() + principal.size();
+        }
+
+        private void registrarFrequencia(String chave) {
+            int hash = espalhar(chave.hashCode());
+            for (int linha = 0; linha < contadores.length; linha++) {
+                int indice = indice(hash, linha);
+                if (contadores[linha][indice] < 15) {
+                    contadores[linha][indice]++;
+                }
+            }
+            if (++amostras >= amostrasPorReducao) {
+                reduzir();
+            }
+        }
+
+        private int frequencia(String chave) {
+            int hash = espalhar(chave.hashCode());
+            int minimo = Integer.MAX_VALUE;
+            for (int linha = 0; linha < contadores.length; linha++) {
+                minimo = Math.min(minimo, contadores[linha][indice(hash, linha)]);
+            }
+            return minimo;
+        }
+
+        /**
+         * Envelhece as frequências para que chaves populares no passado não fiquem para sempre
+         */
+        private void reduzir() {
+            for (int[] linha : contadores) {
+                for (int i = 0; i < linha.length; i++) {
+                    linha[i] >>>= 1;
+                }
+            }
+            amostras /= 2;
+        }
+
+        private int indice(int hash, int linha) {
+            int h = hash * (0x9E3779B9 + (linha << 1) * 0x85EBCA6B);
+            return (h ^ (h >>> 16)) & mascara;
+        }
+
+        private static int espalhar(int hash) {
+            hash ^= hash >>> 16;
+            hash *= 0x45d9f3b;
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.medapp.infra;
+
+import com.medapp.models.User;
+import com.medapp.models.Sala;
+import com.medapp.models.Relatorio;
+import com.medapp.models.Agendamento;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * CachingRepository - Decorador de Repository com cache de leitura
+ *
+ * Guarda em cache as entidades devolvidas por loadUser/loadSala/loadRelatorio/loadAgendamento
+ * e as atualiza a cada save (write-through). Após delete a entrada é invalidada. As listagens
+ * (getAll* e buscas por autor/paciente/profissional/sala) são sempre repassadas ao
+ * repositório decorado, pois não há como invalidá-las de forma barata.
+ *
+ * Se uma gravação no repositório decorado falhar, a entrada é invalidada, para que a
+ * próxima leitura consulte o estado real. Uma leitura que encontra o cache vazio só guarda
+ * o que leu se não houve save ou delete da mesma chave enquanto consultava o repositório.
+ */
+public class CachingRepository implements Repository {
+    private final Repository repository;
+    private final CacheEntidades<User> users;
+    private final CacheEntidades<Sala> salas;
+    private final CacheEntidades<Relatorio> relatorios;
+    private final CacheEntidades<Agendamento> agendamentos;
+
+    /**
+     * @param repository Repositório decorado
+     * @param politica Política de remoção
+     * @param capacidade Número máximo de entidades de cada tipo no cache
+     * @param ttlMillis Tempo de vida das entradas (usado apenas pela política TTL)
+     */
+    public CachingRepository(Repository repository, PoliticaCache politica, int capacidade, long ttlMillis) {
+        if (repository == null) {
+            throw new IllegalArgumentException("Repository cannot be null");
+        }
+        if (capacidade <= 0) {
+            throw new IllegalArgumentException("Capacidade do cache deve ser positiva");
+        }
+        this.repository = repository;
+        this.users = CacheEntidades.criar(politica, capacidade, ttlMillis);
+        this.salas = CacheEntidades.criar(politica, capacidade, ttlMillis);
+        this.relatorios = CacheEntidades.criar(politica, capacidade, ttlMillis);
+        this.agendamentos = CacheEntidades.criar(politica, capacidade, ttlMillis);
+    }
+
+    public Repository getRepository() {
+        return repository;
+    }
+
+    /**
+     * Contadores de cada cache, na ordem users, salas, relatorios, agendamentos
+     */
+    public Map<String, EstatisticasCache> getEstatisticas() {
+        Map<String, EstatisticasCache> estatisticas = new LinkedHashMap<>();
+        estatisticas.put("users", users.estatisticas());
+        estatisticas.put("salas", salas.estatisticas());
+        estatisticas.put("relatorios", relatorios.estatisticas());
+        estatisticas.put("agendamentos", agendamentos.estatisticas());
+        return estatisticas;
+    }
+
+    /**
+     * Esvazia todos os caches (por exemplo, após alterações feitas fora da aplicação)
+     */
+    public void limparCache() {
+        users.limpar();
+        salas.limpar();
+        relatorios.limpar();
+        agendamentos.limpar();
+    }
+
+    // ============= MÉTODOS PARA USER =============
+
+    @Override
+    public void saveUser(User user) {
+        gravar(users, user.getUsername(), user, () -> repository.saveUser(user));
+    }
+
+    @Override
+    public void saveUsers(Collection<? extends User> novos) {
+        try {
+            repository.saveUsers(novos);
+        } catch (RuntimeException e) {
+            novos.forEach(user -> users.invalidar(user.getUsername()));
+            throw e;
+        }
+        novos.forEach(user -> users.guardar(user.getUsername(), user));
+    }
+
+    @Override
+    public User loadUser(String username) {
+        return carregar(users, username, repository::loadUser);
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return repository.getAllUsers();
+    }
+
+    @Override
+    public List<User> getUsers(int inicio, int limite) {
+        return repository.getUsers(inicio, limite);
+    }
+
+    @Override
+    public void deleteUser(String username) {
+        try {
+            repository.deleteUser(username);
+        } finally {
+            users.invalidar(username);
+        }
+    }
+
+    // ============= MÉTODOS PARA SALA =============
+
+    @Override
+    public void saveSala(Sala sala) {
+        gravar(salas, sala.getId(), sala, () -> repository.saveSala(sala));
+    }
+
+    @Override
+    public Sala loadSala(String id) {
+        return carregar(salas, id, repository::loadSala);
+    }
+
+    @Override
+    public List<Sala> getAllSalas() {
+        return repository.getAllSalas();
+    }
+
+    @Override
+    public List<Sala> getSalas(int inicio, int limite) {
+        return repository.getSalas(inicio, limite);
+    }
+
+    @Override
+    public void deleteSala(String id) {
+        try {
+            repository.deleteSala(id);
+        } finally {
+            salas.invalidar(id);
+        }
+    }
+
+    // ============= MÉTODOS PARA RELATORIO =============
+
+    @Override
+    public void saveRelatorio(Relatorio relatorio) {
+        gravar(relatorios, relatorio.getId(), relatorio, () -> repository.saveRelatorio(relatorio));
+    }
+
+    @Override
+    public Relatorio loadRelatorio(String id) {
+        return carregar(relatorios, id, repository::loadRelatorio);
+    }
+
+    @Override
+    public List<Relatorio> getAllRelatorios() {
+        return repository.getAllRelatorios();
+    }
+
+    @Override
+    public List<Relatorio> getRelatorios(int inicio, int limite) {
+        return repository.getRelatorios(inicio, limite);
+    }
+
+    @Override
+    public void deleteRelatorio(String id) {
+        try {
+            repository.deleteRelatorio(id);
+        } finally {
+            relatorios.invalidar(id);
+        }
+    }
+
+    @Override
+    public List<Relatorio> getRelatoriosByAutor(String autorUsername) {
+        return repository.getRelatoriosByAutor(autorUsername);
+    }
+
+    // ============= MÉTODOS PARA AGENDAMENTO =============
+
+    @Override
+    public void saveAgendamento(Agendamento agendamento) {
+        gravar(agendamentos, agendamento.getId(), agendamento, () -> repository.saveAgendamento(agendamento));
+    }
+
+    @Override
+    public void saveAgendamentos(Collection<Agendamento> novos) {
+        try {
+            repository.saveAgendamentos(novos);
+        } catch (RuntimeException e) {
+            novos.forEach(agendamento -> agendamentos.invalidar(agendamento.getId()));
+            throw e;
+        }
+        novos.forEach(agendamento -> agendamentos.guardar(agendamento.getId(), agendamento));
+    }
+
+    @Override
+    public boolean saveAgendamentoIfNoConflict(Agendamento agendamento) {
+        boolean salvo;
+        try {
+            salvo = repository.saveAgendamentoIfNoConflict(agendamento);
+        } catch (RuntimeException e) {
+            agendamentos.invalidar(agendamento.getId());
+            throw e;
+        }
+        if (salvo) {
+            agendamentos.guardar(agendamento.getId(), agendamento);
+        }
+        return salvo;
+    }
+
+    @Override
+    public Optional<IndiceOcupacao.ConflitoLote> saveAgendamentosIfNoConflict(List<Agendamento> novos) {
+        Optional<IndiceOcupacao.ConflitoLote> conflito;
+        try {
+            conflito = repository.saveAgendamentosIfNoConflict(novos);
+        } catch (RuntimeException e) {
+            novos.forEach(agendamento -> agendamentos.invalidar(agendamento.getId()));
+            throw e;
+        }
+        if (conflito.isEmpty()) {
+            novos.forEach(agendamento -> agendamentos.guardar(agendamento.getId(), agendamento));
+        }
+        return conflito;
+    }
+
+    @Override
+    public boolean isCompartilhado() {
+        return repository.isCompartilhado();
+    }
+
+    @Override
+    public Agendamento loadAgendamento(String id) {
+        return carregar(agendamentos, id, repository::loadAgendamento);
+    }
+
+    @Override
+    public List<Agendamento> getAllAgendamentos() {
+        return repository.getAllAgendamentos();
+    }
+
+    @Override
+    public List<Agendamento> getAgendamentos(int inicio, int limite) {
+        return repository.getAgendamentos(inicio, limite);
+    }
+
+    @Override
+    public void deleteAgendamento(String id) {
+        try {
+            repository.deleteAgendamento(id);
+        } finally {
+            agendamentos.invalidar(id);
+        }
+    }
+
+    @Override
+    public List<Agendamento> getAgendamentosByPaciente(String pacienteUsername) {
+        return repository.getAgendamentosByPaciente(pacienteUsername);
+    }
+
+    @Override
+    public List<Agendamento> getAgendamentosByProfissional(String profissionalUsername) {
+        return repository.getAgendamentosByProfissional(profissionalUsername);
+    }
+
+    @Override
+    public List<Agendamento> getAgendamentosBySala(String salaId) {
+        return repository.getAgendamentosBySala(salaId);
+    }
+
+    @Override
+    public Stream<Agendamento> streamAgendamentos(ConsultaAgendamentos consulta) {
+        return repository.streamAgendamentos(consulta);
+    }
+
+    // ============= MÉTODOS PRIVADOS =============
+
+    private <V> V carregar(CacheEntidades<V> cache, String chave, Function<String, V> carregador) {
+        V valor = cache.obter(chave);
+        if (valor == null) {
+            // A geração é lida antes da consulta: um save/delete concorrente a invalida
+            long geracao = cache.geracao(chave);
+            valor = carregador.apply(chave);
+            cache.guardarSeAtual(chave, valor, geracao);
+        }
+        return valor;
+    }
+
+    private <V> void gravar(CacheEntidades<V> cache, String chave, V valor, Runnable gravacao) {
+        try {
+            gravacao.run();
+        } catch (RuntimeException e) {
+            cache.invalidar(chave);
+            throw e;
+        }
+        cache.guardar(chave, valor);
+    }
+}
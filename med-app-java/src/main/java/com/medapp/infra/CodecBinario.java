@@ -0,0 +1,393 @@
+package com.medapp.infra;
+
+import com.medapp.models.Administrador;
+import com.medapp.models.Agendamento;
+import com.medapp.models.Agendamento.StatusAgendamento;
+import com.medapp.models.Paciente;
+import com.medapp.models.ProfissionalSaude;
+import com.medapp.models.Relatorio;
+import com.medapp.models.Sala;
+import com.medapp.models.User;
+import com.medapp.utils.repository.RepositoryIntegrityException;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Codec binário compacto para os modelos, substituindo a serialização Java.
+ *
+ * Cada registro começa com [byte MAGICO][byte entidade][byte versão], seguido dos
+ * campos na ordem fixa da versão. Não há descritores de classe: strings são gravadas
+ * como tamanho + UTF-8 e datas como números, e a leitura é feita direto de um
+ * ByteBuffer (inclusive mapeado em memória). Ao mudar o layout de uma entidade,
+ * incremente sua versão e mantenha a leitura das versões anteriores.
+ */
+public final class CodecBinario {
+
+    /** Primeiro byte dos registros do codec (a serialização Java começa com 0xAC) */
+    public static final byte MAGICO = (byte) 0xB1;
+
+    private static final byte ENTIDADE_USER = 1;
+    private static final byte ENTIDADE_SALA = 2;
+    private static final byte ENTIDADE_RELATORIO = 3;
+    private static final byte ENTIDADE_AGENDAMENTO = 4;
+
+    private static final byte VERSAO_USER = 1;
+    private static final byte VERSAO_SALA = 1;
+    private static final byte VERSAO_RELATORIO = 1;
+    private static final byte VERSAO_AGENDAMENTO = 3;
+
+    // Versão 2 do agendamento acrescenta a duração em segundos (negativa quando não informada);
+    // a versão 3 grava a duração em nanossegundos, para não perder frações de segundo
+    private static final long SEM_DURACAO = -1L;
+
+    private static final byte USER_ADMINISTRADOR = 1;
+    private static final byte USER_PACIENTE = 2;
+    private static final byte USER_PROFISSIONAL = 3;
+
+    private CodecBinario() {
+    }
+
+    /**
+     * Verifica se o buffer (a partir da posição atual) contém um registro deste codec
+     */
+    public static boolean isFormatoBinario(ByteBuffer buffer) {
+        return buffer.remaining() > 0 && buffer.get(buffer.position()) == MAGICO;
+    }
+
+    // ============= USER =============
+
+    public static byte[] codificarUser(User user) {
+        Saida saida = cabecalho(ENTIDADE_USER, VERSAO_USER);
+        if (user instanceof Administrador) {
+            saida.writeByte(USER_ADMINISTRADOR);
+        } else if (user instanceof Paciente) {
+            saida.writeByte(USER_PACIENTE);
+        } else if (user instanceof ProfissionalSaude) {
+            saida.writeByte(USER_PROFISSIONAL);
+        } else {
+            throw new IllegalArgumentException("Tipo de usuário não suportado: " + user.getClass().getName());
+        }
+
+        saida.writeString(user.getUsername());
+        saida.writeString(user.getPassword());
+        saida.writeString(user.getEmail());
+
+        if (user instanceof Administrador) {
+            saida.writeString(((Administrador) user).getNivelPermissao());
+        } else if (user instanceof Paciente) {
+            Paciente paciente = (Paciente) user;
+            saida.writeString(paciente.getCpf());
+            saida.writeDate(paciente.getDataNascimento());
+            saida.writeString(paciente.getTelefone());
+            saida.writeString(paciente.getEndereco());
+        } else {
+            ProfissionalSaude profissional = (ProfissionalSaude) user;
+            saida.writeString(profissional.getCrm());
+            saida.writeString(profissional.getEspecialidade());
+            saida.writeString(profissional.getDepartamento());
+        }
+        return saida.toByteArray();
+    }
+
+    public static User decodificarUser(ByteBuffer buffer) {
+        try {
+            lerCabecalho(buffer, ENTIDADE_USER, VERSAO_USER, "user");
+            byte tipo = buffer.get();
+            String username = readString(buffer);
+            String password = readString(buffer);
+            String email = readString(buffer);
+
+            User user;
+            switch (tipo) {
+                case USER_ADMINISTRADOR: {
+                    Administrador admin = new Administrador();
+                    admin.setNivelPermissao(readString(buffer));
+                    user = admin;
+                    break;
+                }
+                case USER_PACIENTE: {
+                    Paciente paciente = new Paciente();
+                    paciente.setCpf(readString(buffer));
+                    paciente.setDataNascimento(readDate(buffer));
+                    paciente.setTelefone(readString(buffer));
+                    paciente.setEndereco(readString(buffer));
+                    user = paciente;
+                    break;
+                }
+                case USER_PROFISSIONAL: {
+                    ProfissionalSaude profissional = new ProfissionalSaude();
+                    profissional.setCrm(readString(buffer));
+                    profissional.setEspecialidade(readString(buffer));
+                    profissional.setDepartamento(readString(buffer));
+                    user = profissional;
+                    break;
+                }
+                default:
+                    throw new RepositoryIntegrityException("user.data", "Unknown user type: " + tipo);
+            }
+
+            user.setUsername(username);
+            user.setPassword(password);
+            user.setEmail(email);
+            return user;
+        } catch (BufferUnderflowException e) {
+            throw new RepositoryIntegrityException("user.data", "Truncated binary record");
+        }
+    }
+
+    // ============= SALA =============
+
+    public static byte[] codificarSala(Sala sala) {
+        Saida saida = cabecalho(ENTIDADE_SALA, VERSAO_SALA);
+        saida.writeString(sala.getId());
+        saida.writeString(sala.getNome());
+        saida.writeInt(sala.getCapacidade());
+        saida.writeString(sala.getTipo());
+        saida.writeByte((byte) (sala.isDisponivel() ? 1 : 0));
+
+        List<String> equipamentos = sala.getEquipamentos();
+        int quantidade = equipamentos != null ? equipamentos.size() : 0;
+        saida.writeInt(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            saida.writeString(equipamentos.get(i));
+        }
+
+        saida.writeDateTime(sala.getProximoAgendamento());
+        return saida.toByteArray();
+    }
+
+    public static Sala decodificarSala(ByteBuffer buffer) {
+        try {
+            lerCabecalho(buffer, ENTIDADE_SALA, VERSAO_SALA, "sala");
+            Sala sala = new Sala(readString(buffer), readString(buffer), buffer.getInt(), readString(buffer));
+            sala.setDisponivel(buffer.get() != 0);
+
+            int quantidade = buffer.getInt();
+            List<String> equipamentos = new ArrayList<>(quantidade);
+            for (int i = 0; i < quantidade; i++) {
+                equipamentos.add(readString(buffer));
+            }
+            sala.setEquipamentos(equipamentos);
+
+            sala.setProximoAgendamento(readDateTime(buffer));
+            return sala;
+        } catch (BufferUnderflowException e) {
+            throw new RepositoryIntegrityException("sala.data", "Truncated binary record");
+        }
+    }
+
+    // ============= RELATORIO =============
+
+    public static byte[] codificarRelatorio(Relatorio relatorio) {
+        Saida saida = cabecalho(ENTIDADE_RELATORIO, VERSAO_RELATORIO);
+        saida.writeString(relatorio.getId());
+        saida.writeString(relatorio.getTitulo());
+        saida.writeString(relatorio.getConteudo());
+        saida.writeString(relatorio.getTipoRelatorio());
+        saida.writeString(relatorio.getAutorUsername());
+        saida.writeDateTime(relatorio.getDataGeracao());
+        saida.writeString(relatorio.getStatus());
+        saida.writeString(relatorio.getDescricao());
+        return saida.toByteArray();
+    }
+
+    public static Relatorio decodificarRelatorio(ByteBuffer buffer) {
+        try {
+            lerCabecalho(buffer, ENTIDADE_RELATORIO, VERSAO_RELATORIO, "relatorio");
+            Relatorio relatorio = new Relatorio(readString(buffer), readString(buffer), readString(buffer),
+                    readString(buffer), readString(buffer));
+            relatorio.setDataGeracao(readDateTime(buffer));
+            relatorio.setStatus(readString(buffer));
+            relatorio.setDescricao(readString(buffer));
+            return relatorio;
+        } catch (BufferUnderflowException e) {
+            throw new RepositoryIntegrityException("relatorio.data", "Truncated binary record");
+        }
+    }
+
+    // ============= AGENDAMENTO =============
+
+    public static byte[] codificarAgendamento(Agendamento agendamento) {
+        Saida saida = cabecalho(ENTIDADE_AGENDAMENTO, VERSAO_AGENDAMENTO);
+        saida.writeString(agendamento.getId());
+        saida.writeString(agendamento.getPacienteUsername());
+        saida.writeString(agendamento.getProfissionalUsername());
+        saida.writeString(agendamento.getSalaId());
+        saida.writeDateTime(agendamento.getDataHora());
+        saida.writeString(agendamento.getTipoConsulta());
+        saida.writeString(agendamento.getObservacoes());
+        saida.writeString(agendamento.getStatus().name());
+        saida.writeDateTime(agendamento.getDataCriacao());
+        saida.writeDateTime(agendamento.getDataAtualizacao());
+        Duration duracao = agendamento.getDuracao();
+        saida.writeLong(duracao != null ? duracao.toNanos() : SEM_DURACAO);
+        return saida.toByteArray();
+    }
+
+    public static Agendamento decodificarAgendamento(ByteBuffer buffer) {
+        try {
+            byte versao = lerCabecalho(buffer, ENTIDADE_AGENDAMENTO, VERSAO_AGENDAMENTO, "agendamento");
+            String id = readString(buffer);
+            String paciente = readString(buffer);
+            String profissional = readString(buffer);
+            String sala = readString(buffer);
+            LocalDateTime dataHora = readDateTime(buffer);
+            String tipoConsulta = readString(buffer);
+            String observacoes = readString(buffer);
+            StatusAgendamento status = lerStatus(readString(buffer));
+            LocalDateTime dataCriacao = readDateTime(buffer);
+            LocalDateTime dataAtualizacao = readDateTime(buffer);
+            Duration duracao = null;
+            if (versao >= 3) {
+                long nanos = buffer.getLong();
+                duracao = nanos > 0 ? Duration.ofNanos(nanos) : null;
+            } else if (versao == 2) {
+                long segundos = buffer.getLong();
+                duracao = segundos > 0 ? Duration.ofSeconds(segundos) : null;
+            }
+
+            return new Agendamento(id, paciente, profissional, sala, dataHora, tipoConsulta, observacoes,
+                    duracao, status, dataCriacao, dataAtualizacao);
+        } catch (BufferUnderflowException | NullPointerException e) {
+            throw new RepositoryIntegrityException("agendamento.data", "Truncated or invalid binary record");
+        }
+    }
+
+    // ============= MÉTODOS PRIVADOS =============
+
+    private static Saida cabecalho(byte entidade, byte versao) {
+        Saida saida = new Saida();
+        saida.writeByte(MAGICO);
+        saida.writeByte(entidade);
+        saida.writeByte(versao);
+        return saida;
+    }
+
+    /**
+     * Valida o cabeçalho e devolve a versão do registro
+     */
+    private static byte lerCabecalho(ByteBuffer buffer, byte entidade, byte versaoMaxima, String descricao) {
+        byte magico = buffer.get();
+        byte entidadeLida = buffer.get();
+        byte versao = buffer.get();
+        if (magico != MAGICO || entidadeLida != entidade) {
+            throw new RepositoryIntegrityException(descricao + ".data", "Not a binary " + descricao + " record");
+        }
+        if (versao < 1 || versao > versaoMaxima) {
+            throw new RepositoryIntegrityException(descricao + ".data", "Unsupported record version " + versao);
+        }
+        return versao;
+    }
+
+    private static StatusAgendamento lerStatus(String nome) {
+        try {
+            return StatusAgendamento.valueOf(nome);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new RepositoryIntegrityException("agendamento.data", "Unknown status: " + nome);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int tamanho = buffer.getInt();
+        if (tamanho < 0) {
+            return null;
+        }
+        // Tamanho corrompido: falha como truncamento, antes de ler fora do registro
+        if (tamanho > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        if (buffer.hasArray()) {
+            String valor = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), tamanho, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + tamanho);
+            return valor;
+        }
+        byte[] bytes = new byte[tamanho];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static LocalDateTime readDateTime(ByteBuffer buffer) {
+        if (buffer.get() == 0) {
+            return null;
+        }
+        long segundos = buffer.getLong();
+        int nanos = buffer.getInt();
+        return LocalDateTime.ofEpochSecond(segundos, nanos, ZoneOffset.UTC);
+    }
+
+    private static LocalDate readDate(ByteBuffer buffer) {
+        long dia = buffer.getLong();
+        return dia == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(dia);
+    }
+
+    /**
+     * Buffer de saída expansível, sem a sincronização de ByteArrayOutputStream/DataOutputStream
+     */
+    private static final class Saida {
+        private byte[] bytes = new byte[128];
+        private int tamanho;
+
+        void writeByte(byte valor) {
+            garantir(1);
+            bytes[tamanho++] = valor;
+        }
+
+        void writeInt(int valor) {
+            garantir(4);
+            bytes[tamanho++] = (byte) (valor >>> 24);
+            bytes[tamanho++] = (byte) (valor >>> 16);
+            bytes[tamanho++] = (byte) (valor >>> 8);
+            bytes[tamanho++] = (byte) valor;
+        }
+
+        void writeLong(long valor) {
+            writeInt((int) (valor >>> 32));
+            writeInt((int) valor);
+        }
+
+        void writeString(String valor) {
+            if (valor == null) {
+                writeInt(-1);
+                return;
+            }
+            byte[] utf8 = valor.getBytes(StandardCharsets.UTF_8);
+            writeInt(utf8.length);
+            garantir(utf8.length);
+            System.arraycopy(utf8, 0, bytes, tamanho, utf8.length);
+            tamanho += utf8.length;
+        }
+
+        void writeDateTime(LocalDateTime valor) {
+            if (valor == null) {
+                writeByte((byte) 0);
+                return;
+            }
+            writeByte((byte) 1);
+            writeLong(valor.toEpochSecond(ZoneOffset.UTC));
+            writeInt(valor.getNano());
+        }
+
+        void writeDate(LocalDate valor) {
+            writeLong(valor == null ? Long.MIN_VALUE : valor.toEpochDay());
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, tamanho);
+        }
+
+        private void garantir(int adicionais) {
+            if (tamanho + adicionais > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, tamanho + adicionais));
+            }
+        }
+    }
+}
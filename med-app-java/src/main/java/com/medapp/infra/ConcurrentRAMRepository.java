@@ -0,0 +1,293 @@
+package com.medapp.infra;
+
+import com.medapp.models.User;
+import com.medapp.models.Sala;
+import com.medapp.models.Relatorio;
+import com.medapp.models.Agendamento;
+import com.medapp.utils.repository.*;
+import com.medapp.utils.storage.UserNotFoundException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ConcurrentRAMRepository - Armazenamento em memória seguro para acesso concorrente
+ *
+ * Usa ConcurrentHashMap para as entidades e índices secundários, e um IndiceOcupacao
+ * com bloqueio por sala/profissional para que saveAgendamentoIfNoConflict seja atômico:
+ * duas threads nunca reservam o mesmo horário, e reservas em recursos diferentes
+ * não disputam o mesmo bloqueio.
+ */
+public class ConcurrentRAMRepository implements Repository {
+    private final Map<String, User> users = new ConcurrentHashMap<>();
+    private final Map<String, Sala> salas = new ConcurrentHashMap<>();
+    private final Map<String, Relatorio> relatorios = new ConcurrentHashMap<>();
+    private final Map<String, Agendamento> agendamentos = new ConcurrentHashMap<>();
+
+    private final IndiceSecundario relatoriosPorAutor = IndiceSecundario.concorrente();
+    private final IndiceSecundario agendamentosPorPaciente = IndiceSecundario.concorrente();
+    private final IndiceSecundario agendamentosPorProfissional = IndiceSecundario.concorrente();
+    private final IndiceSecundario agendamentosPorSala = IndiceSecundario.concorrente();
+    private final IndiceOcupacao ocupacao = new IndiceOcupacao();
+
+    @Override
+    public void saveUser(User user) {
+        try {
+            users.put(user.getUsername(), user);
+        } catch (OutOfMemoryError e) {
+            throw new RepositoryException("Not enough memory to save user: " + user.getUsername(), e);
+        }
+    }
+
+    @Override
+    public void saveUsers(Collection<? extends User> novos) {
+        try {
+            Map<String, User> lote = new HashMap<>();
+            for (User user : novos) {
+                lote.put(user.getUsername(), user);
+            }
+            users.putAll(lote);
+        } catch (OutOfMemoryError e) {
+            throw new RepositoryException("Not enough memory to save " + novos.size() + " users", e);
+        }
+    }
+
+    @Override
+    public User loadUser(String username) {
+        User user = users.get(username);
+        if (user == null) {
+            throw new UserNotFoundException(username);
+        }
+        return user;
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        try {
+            return new ArrayList<>(users.values());
+        } catch (OutOfMemoryError e) {
+            throw new RepositoryException("Not enough memory to load all users", e);
+        }
+    }
+
+    @Override
+    public void deleteUser(String username) {
+        if (users.remove(username) == null) {
+            throw new UserNotFoundException(username);
+        }
+    }
+
+    // Implementação das operações com Sala
+    @Override
+    public void saveSala(Sala sala) {
+        try {
+            salas.put(sala.getId(), sala);
+        } catch (OutOfMemoryError e) {
+            throw new RepositoryException("Not enough memory to save sala: " + sala.getId(), e);
+        }
+    }
+
+    @Override
+    public Sala loadSala(String id) {
+        Sala sala = salas.get(id);
+        if (sala == null) {
+            throw new RepositoryException("Sala not found: " + id);
+        }
+        return sala;
+    }
+
+    @Override
+    public List<Sala> getAllSalas() {
+        return new ArrayList<>(salas.values());
+    }
+
+    @Override
+    public void deleteSala(String id) {
+        if (salas.remove(id) == null) {
+            throw new RepositoryException("Sala not found: " + id);
+        }
+    }
+
+    // Implementação das operações com Relatorio
+    @Override
+    public void saveRelatorio(Relatorio relatorio) {
+        if (relatorio == null || relatorio.getId() == null) {
+            throw new IllegalArgumentException("Relatório ou ID não pode ser nulo");
+        }
+        try {
+            relatorios.put(relatorio.getId(), relatorio);
+            relatoriosPorAutor.indexar(relatorio.getId(), relatorio.getAutorUsername());
+        } catch (OutOfMemoryError e) {
+            throw new RepositoryException("Not enough memory to save relatorio: " + relatorio.getId(), e);
+        }
+    }
+
+    @Override
+    public Relatorio loadRelatorio(String id) {
+        Relatorio relatorio = relatorios.get(id);
+        if (relatorio == null) {
+            throw new RepositoryException("Relatorio not found: " + id);
+        }
+        return relatorio;
+    }
+
+    @Override
+    public List<Relatorio> getAllRelatorios() {
+        return new ArrayList<>(relatorios.values());
+    }
+
+    @Override
+    public void deleteRelatorio(String id) {
+        if (relatorios.remove(id) == null) {
+            throw new RepositoryException("Relatorio not found: " + id);
+        }
+        relatoriosPorAutor.remover(id);
+    }
+
+    @Override
+    public List<Relatorio> getRelatoriosByAutor(String autorUsername) {
+        return buscarPorIds(relatoriosPorAutor.buscar(autorUsername), relatorios);
+    }
+
+    // Implementação dos métodos de Agendamento
+    @Override
+    public void saveAgendamento(Agendamento agendamento) {
+        try {
+            agendamentos.put(agendamento.getId(), agendamento);
+            indexarAgendamento(agendamento);
+            ocupacao.atualizar(agendamento);
+        } catch (OutOfMemoryError e) {
+            throw new RepositoryException("Not enough memory to save agendamento: " + agendamento.getId(), e);
+        }
+    }
+
+    @Override
+    public void saveAgendamentos(Collection<Agendamento> novos) {
+        try {
+            for (Agendamento agendamento : novos) {
+                agendamentos.put(agendamento.getId(), agendamento);
+                indexarAgendamento(agendamento);
+                ocupacao.atualizar(agendamento);
+            }
+        } catch (OutOfMemoryError e) {
+            throw new RepositoryException("Not enough memory to save " + novos.size() + " agendamentos", e);
+        }
+    }
+
+    @Override
+    public boolean saveAgendamentoIfNoConflict(Agendamento agendamento) {
+        try {
+            if (ocupacao.reservar(agendamento) != IndiceOcupacao.Conflito.NENHUM) {
+                return false;
+            }
+            agendamentos.put(agendamento.getId(), agendamento);
+            indexarAgendamento(agendamento);
+            return true;
+        } catch (OutOfMemoryError e) {
+            ocupacao.remover(agendamento);
+            throw new RepositoryException("Not enough memory to save agendamento: " + agendamento.getId(), e);
+        }
+    }
+
+    @Override
+    public Optional<IndiceOcupacao.ConflitoLote> saveAgendamentosIfNoConflict(List<Agendamento> novos) {
+        try {
+            Optional<IndiceOcupacao.ConflitoLote> conflito = ocupacao.reservarTodos(novos);
+            if (conflito.isPresent()) {
+                return conflito;
+            }
+            for (Agendamento agendamento : novos) {
+                agendamentos.put(agendamento.getId(), agendamento);
+                indexarAgendamento(agendamento);
+            }
+            return Optional.empty();
+        } catch (OutOfMemoryError e) {
+            novos.forEach(ocupacao::remover);
+            throw new RepositoryException("Not enough memory to save " + novos.size() + " agendamentos", e);
+        }
+    }
+
+    /**
+     * Feito para ser usado por várias threads ao mesmo tempo, não só pelo gerenciador
+     */
+    @Override
+    public boolean isCompartilhado() {
+        return true;
+    }
+
+    @Override
+    public Agendamento loadAgendamento(String id) {
+        Agendamento agendamento = agendamentos.get(id);
+        if (agendamento == null) {
+            throw new RepositoryException("Agendamento not found: " + id);
+        }
+        return agendamento;
+    }
+
+    @Override
+    public List<Agendamento> getAllAgendamentos() {
+        return new ArrayList<>(agendamentos.values());
+    }
+
+    @Override
+    public void deleteAgendamento(String id) {
+        Agendamento removido = agendamentos.remove(id);
+        if (removido == null) {
+            throw new RepositoryException("Agendamento not found: " + id);
+        }
+        agendamentosPorPaciente.remover(id);
+        agendamentosPorProfissional.remover(id);
+        agendamentosPorSala.remover(id);
+        ocupacao.remover(removido);
+    }
+
+    @Override
+    public List<Agendamento> getAgendamentosByPaciente(String pacienteUsername) {
+        return buscarPorIds(agendamentosPorPaciente.buscar(pacienteUsername), agendamentos);
+    }
+
+    @Override
+    public List<Agendamento> getAgendamentosByProfissional(String profissionalUsername) {
+        return buscarPorIds(agendamentosPorProfissional.buscar(profissionalUsername), agendamentos);
+    }
+
+    @Override
+    public List<Agendamento> getAgendamentosBySala(String salaId) {
+        return buscarPorIds(agendamentosPorSala.buscar(salaId), agendamentos);
+    }
+
+    @Override
+    public Stream<Agendamento> streamAgendamentos(ConsultaAgendamentos consulta) {
+        // Parte do menor conjunto de IDs entre os índices usados pela consulta, sem copiar
+        Set<String> ids = consulta.candidatos(agendamentosPorPaciente, agendamentosPorProfissional, agendamentosPorSala);
+        Stream<Agendamento> origem = ids != null
+                ? ids.stream().map(agendamentos::get).filter(Objects::nonNull)
+                : agendamentos.values().stream();
+        return consulta.aplicar(origem);
+    }
+
+    private void indexarAgendamento(Agendamento agendamento) {
+        agendamentosPorPaciente.indexar(agendamento.getId(), agendamento.getPacienteUsername());
+        agendamentosPorProfissional.indexar(agendamento.getId(), agendamento.getProfissionalUsername());
+        agendamentosPorSala.indexar(agendamento.getId(), agendamento.getSalaId());
+    }
+
+    private <T> List<T> buscarPorIds(Set<String> ids, Map<String, T> entidades) {
+        List<T> resultado = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            T entidade = entidades.get(id);
+            if (entidade != null) {
+                resultado.add(entidade);
+            }
+        }
+        return resultado;
+    }
+}
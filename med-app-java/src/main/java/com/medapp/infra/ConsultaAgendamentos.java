@@ -0,0 +1,190 @@
+package com.medapp.infra;
+
+import com.medapp.models.Agendamento;
+import com.medapp.models.Agendamento.StatusAgendamento;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Critérios de uma consulta de agendamentos para Repository.streamAgendamentos.
+ *
+ * Imutável: cada método devolve uma nova consulta com o critério acrescentado, por exemplo
+ * ConsultaAgendamentos.todos().daSala("SALA001").entre(t1, t2).apenasAtivos().limitadaA(50).
+ * Os repositórios usam os critérios para restringir o que leem (índices, WHERE, LIMIT)
+ * e aplicam em memória o que não conseguem empurrar para o armazenamento.
+ */
+public final class ConsultaAgendamentos {
+    private static final ConsultaAgendamentos TODOS =
+            new ConsultaAgendamentos(null, null, null, null, null, Collections.emptySet(), false, Long.MAX_VALUE);
+
+    private final String salaId;
+    private final String profissionalUsername;
+    private final String pacienteUsername;
+    private final LocalDateTime inicio;
+    private final LocalDateTime fim;
+    private final Set<StatusAgendamento> status;
+    private final boolean ordenadaPorDataHora;
+    private final long limite;
+
+    private ConsultaAgendamentos(String salaId, String profissionalUsername, String pacienteUsername,
+                                 LocalDateTime inicio, LocalDateTime fim, Set<StatusAgendamento> status,
+                                 boolean ordenadaPorDataHora, long limite) {
+        this.salaId = salaId;
+        this.profissionalUsername = profissionalUsername;
+        this.pacienteUsername = pacienteUsername;
+        this.inicio = inicio;
+        this.fim = fim;
+        this.status = status;
+        this.ordenadaPorDataHora = ordenadaPorDataHora;
+        this.limite = limite;
+    }
+
+    /**
+     * Consulta sem critérios (todos os agendamentos, em qualquer ordem)
+     */
+    public static ConsultaAgendamentos todos() {
+        return TODOS;
+    }
+
+    public ConsultaAgendamentos daSala(String salaId) {
+        return new ConsultaAgendamentos(salaId, profissionalUsername, pacienteUsername, inicio, fim, status,
+                ordenadaPorDataHora, limite);
+    }
+
+    public ConsultaAgendamentos doProfissional(String profissionalUsername) {
+        return new ConsultaAgendamentos(salaId, profissionalUsername, pacienteUsername, inicio, fim, status,
+                ordenadaPorDataHora, limite);
+    }
+
+    public ConsultaAgendamentos doPaciente(String pacienteUsername) {
+        return new ConsultaAgendamentos(salaId, profissionalUsername, pacienteUsername, inicio, fim, status,
+                ordenadaPorDataHora, limite);
+    }
+
+    /**
+     * Agendamentos que começam em [inicio, fim); qualquer um dos extremos pode ser null
+     */
+    public ConsultaAgendamentos entre(LocalDateTime inicio, LocalDateTime fim) {
+        if (inicio != null && fim != null && !fim.isAfter(inicio)) {
+            throw new IllegalArgumentException("Fim do período deve ser posterior ao início");
+        }
+        return new ConsultaAgendamentos(salaId, profissionalUsername, pacienteUsername, inicio, fim, status,
+                ordenadaPorDataHora, limite);
+    }
+
+    public ConsultaAgendamentos comStatus(StatusAgendamento primeiro, StatusAgendamento... outros) {
+        return new ConsultaAgendamentos(salaId, profissionalUsername, pacienteUsername, inicio, fim,
+                Collections.unmodifiableSet(EnumSet.of(primeiro, outros)), ordenadaPorDataHora, limite);
+    }
+
+    /**
+     * Apenas AGENDADO ou CONFIRMADO (veja Agendamento.isAtivo)
+     */
+    public ConsultaAgendamentos apenasAtivos() {
+        return comStatus(StatusAgendamento.AGENDADO, StatusAgendamento.CONFIRMADO);
+    }
+
+    /**
+     * Resultado em ordem crescente de data/hora. Sem isso a ordem fica a critério do
+     * repositório, o que permite parar a leitura assim que o limite é atingido.
+     */
+    public ConsultaAgendamentos ordenadaPorDataHora() {
+        return new ConsultaAgendamentos(salaId, profissionalUsername, pacienteUsername, inicio, fim, status,
+                true, limite);
+    }
+
+    public ConsultaAgendamentos limitadaA(int limite) {
+        if (limite < 0) {
+            throw new IllegalArgumentException("Limite não pode ser negativo");
+        }
+        return new ConsultaAgendamentos(salaId, profissionalUsername, pacienteUsername, inicio, fim, status,
+                ordenadaPorDataHora, limite);
+    }
+
+    public String getSalaId() { return salaId; }
+    public String getProfissionalUsername() { return profissionalUsername; }
+    public String getPacienteUsername() { return pacienteUsername; }
+    public LocalDateTime getInicio() { return inicio; }
+    public LocalDateTime getFim() { return fim; }
+    public Set<StatusAgendamento> getStatus() { return status; }
+    public boolean isOrdenadaPorDataHora() { return ordenadaPorDataHora; }
+    public boolean isLimitada() { return limite != Long.MAX_VALUE; }
+    public long getLimite() { return limite; }
+
+    /**
+     * Verifica se o agendamento atende a todos os critérios de filtro
+     */
+    public boolean aceita(Agendamento agendamento) {
+        if (salaId != null && !salaId.equals(agendamento.getSalaId())) {
+            return false;
+        }
+        if (profissionalUsername != null && !profissionalUsername.equals(agendamento.getProfissionalUsername())) {
+            return false;
+        }
+        if (pacienteUsername != null && !pacienteUsername.equals(agendamento.getPacienteUsername())) {
+            return false;
+        }
+        LocalDateTime dataHora = agendamento.getDataHora();
+        if (inicio != null && (dataHora == null || dataHora.isBefore(inicio))) {
+            return false;
+        }
+        if (fim != null && (dataHora == null || !dataHora.isBefore(fim))) {
+            return false;
+        }
+        return status.isEmpty() || status.contains(agendamento.getStatus());
+    }
+
+    /**
+     * Aplica filtro, ordenação e limite a uma origem de agendamentos
+     */
+    public Stream<Agendamento> aplicar(Stream<Agendamento> origem) {
+        Stream<Agendamento> resultado = origem.filter(this::aceita);
+        if (ordenadaPorDataHora) {
+            resultado = resultado.sorted(Comparator.comparing(Agendamento::getDataHora,
+                    Comparator.nullsLast(Comparator.naturalOrder())));
+        }
+        return isLimitada() ? resultado.limit(limite) : resultado;
+    }
+
+    /**
+     * IDs candidatos pelo índice mais seletivo entre os critérios informados, ou null se
+     * a consulta não filtra por paciente, profissional nem sala
+     */
+    Set<String> candidatos(IndiceSecundario porPaciente, IndiceSecundario porProfissional, IndiceSecundario porSala) {
+        Set<String> menor = null;
+        if (pacienteUsername != null) {
+            menor = porPaciente.buscar(pacienteUsername);
+        }
+        if (profissionalUsername != null) {
+            menor = menor(menor, porProfissional.buscar(profissionalUsername));
+        }
+        if (salaId != null) {
+            menor = menor(menor, porSala.buscar(salaId));
+        }
+        return menor;
+    }
+
+    private static Set<String> menor(Set<String> atual, Set<String> outro) {
+        return atual == null || outro.size() < atual.size() ? outro : atual;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("ConsultaAgendamentos{");
+        if (salaId != null) sb.append("sala=").append(salaId).append(", ");
+        if (profissionalUsername != null) sb.append("profissional=").append(profissionalUsername).append(", ");
+        if (pacienteUsername != null) sb.append("paciente=").append(pacienteUsername).append(", ");
+        if (inicio != null) sb.append("inicio=").append(inicio).append(", ");
+        if (fim != null) sb.append("fim=").append(fim).append(", ");
+        if (!status.isEmpty()) sb.append("status=").append(status).append(", ");
+        if (ordenadaPorDataHora) sb.append("ordenada, ");
+        if (isLimitada()) sb.append("limite=").append(limite).append(", ");
+        if (sb.charAt(sb.length() - 1) == ' ') sb.setLength(sb.length() - 2);
+        return sb.append('}').toString();
+    }
+}
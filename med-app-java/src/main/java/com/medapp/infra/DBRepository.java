@@ -1,541 +1,993 @@
 package com.medapp.infra;
 
+import com.medapp.models.Administrador;
+import com.medapp.models.Paciente;
+import com.medapp.models.ProfissionalSaude;
 import com.medapp.models.User;
 import com.medapp.models.Sala;
 import com.medapp.models.Relatorio;
 import com.medapp.models.Agendamento;
 import com.medapp.utils.storage.*;
 import com.medapp.utils.repository.*;
-import java.util.List;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
-
-public class DBRepository implements Repository {
-    private Map<String, User> simulatedDatabase = new HashMap<>();
-    private Map<String, Sala> simulatedSalaDatabase = new HashMap<>();
-    private Map<String, Relatorio> simulatedRelatorioDatabase = new HashMap<>();
-    private Map<String, Agendamento> simulatedAgendamentoDatabase = new HashMap<>();
-    private boolean isConfigured = true;
-    private boolean isAvailable = true;
-    
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * DBRepository - Implementação de Repository sobre JDBC
+ *
+ * Usa um banco H2 embarcado (em arquivo, funciona offline) por meio de um pool limitado
+ * de conexões com cache de PreparedStatements. As consultas de agendamentos por
+ * paciente, profissional e sala são filtradas no SQL, com índices nessas colunas.
+ *
+ * Erros do driver são traduzidos para as exceções do repositório: tempo esgotado vira
+ * RepositoryTimeoutException, falha de conexão vira RepositoryUnavailableException e
+ * violação de restrição vira RepositoryIntegrityException.
+ *
+ * Propriedades de sistema:
+ * - medapp.db.url: URL JDBC (padrão "jdbc:h2:./medapp-db")
+ * - medapp.db.usuario / medapp.db.senha: credenciais (padrão "sa" / "")
+ * - medapp.db.pool: número máximo de conexões (padrão 8)
+ * - medapp.db.timeoutSegundos: tempo limite das consultas e da espera por conexão (padrão 30)
+ */
+public class DBRepository implements Repository, AutoCloseable {
+
+    private static final String URL_PADRAO = "jdbc:h2:./medapp-db";
+    private static final int POOL_PADRAO = 8;
+    private static final int TIMEOUT_PADRAO_SEGUNDOS = 30;
+    private static final int TAMANHO_LOTE = 500;
+
+    private static final String TIPO_ADMINISTRADOR = "ADMINISTRADOR";
+    private static final String TIPO_PACIENTE = "PACIENTE";
+    private static final String TIPO_PROFISSIONAL = "PROFISSIONAL_SAUDE";
+
+    private static final String[] ESQUEMA = {
+        "CREATE TABLE IF NOT EXISTS usuarios ("
+            + "username VARCHAR(255) PRIMARY KEY, tipo VARCHAR(32) NOT NULL, password VARCHAR(255), "
+            + "email VARCHAR(255), nivel_permissao VARCHAR(255), cpf VARCHAR(32), data_nascimento DATE, "
+            + "telefone VARCHAR(64), endereco VARCHAR(1024), crm VARCHAR(64), especialidade VARCHAR(255), "
+            + "departamento VARCHAR(255))",
+        "CREATE TABLE IF NOT EXISTS salas ("
+            + "id VARCHAR(255) PRIMARY KEY, nome VARCHAR(255), capacidade INT, tipo VARCHAR(255), "
+            + "disponivel BOOLEAN, equipamentos VARCHAR(255) ARRAY, proximo_agendamento TIMESTAMP)",
+        "CREATE TABLE IF NOT EXISTS relatorios ("
+            + "id VARCHAR(255) PRIMARY KEY, titulo VARCHAR(1024), conteudo CLOB, tipo_relatorio VARCHAR(255), "
+            + "autor_username VARCHAR(255), data_geracao TIMESTAMP, status VARCHAR(64), descricao VARCHAR(4096))",
+        "CREATE INDEX IF NOT EXISTS idx_relatorios_autor ON relatorios(autor_username)",
+        "CREATE TABLE IF NOT EXISTS agendamentos ("
+            + "id VARCHAR(255) PRIMARY KEY, paciente_username VARCHAR(255) NOT NULL, "
+            + "profissional_username VARCHAR(255) NOT NULL, sala_id VARCHAR(255) NOT NULL, "
+            + "data_hora TIMESTAMP NOT NULL, tipo_consulta VARCHAR(255) NOT NULL, observacoes VARCHAR(4096), "
+            + "status VARCHAR(32) NOT NULL, data_criacao TIMESTAMP, data_atualizacao TIMESTAMP, "
+            + "duracao_segundos BIGINT, duracao_nanos BIGINT, data_hora_fim TIMESTAMP)",
+        // Bancos criados antes da duração do agendamento; NULL = padrão do tipo de consulta
+        "ALTER TABLE agendamentos ADD COLUMN IF NOT EXISTS duracao_segundos BIGINT",
+        // A duração é gravada em nanossegundos; duracao_segundos (que perdia as frações de
+        // segundo) só é lida aqui, para migrar as linhas gravadas antes de duracao_nanos
+        "ALTER TABLE agendamentos ADD COLUMN IF NOT EXISTS duracao_nanos BIGINT",
+        "UPDATE agendamentos SET duracao_nanos = duracao_segundos * 1000000000 "
+            + "WHERE duracao_nanos IS NULL AND duracao_segundos > 0",
+        "CREATE INDEX IF NOT EXISTS idx_agendamentos_paciente ON agendamentos(paciente_username, data_hora)",
+        "CREATE INDEX IF NOT EXISTS idx_agendamentos_profissional ON agendamentos(profissional_username, data_hora)",
+        "CREATE INDEX IF NOT EXISTS idx_agendamentos_sala ON agendamentos(sala_id, data_hora)",
+        // Fim do intervalo ocupado, para a busca de conflitos não ler a agenda inteira;
+        // as linhas antigas são preenchidas em migrarFimAgendamentos
+        "ALTER TABLE agendamentos ADD COLUMN IF NOT EXISTS data_hora_fim TIMESTAMP",
+        "CREATE INDEX IF NOT EXISTS idx_agendamentos_sala_fim ON agendamentos(sala_id, data_hora_fim)",
+        "CREATE INDEX IF NOT EXISTS idx_agendamentos_profissional_fim "
+            + "ON agendamentos(profissional_username, data_hora_fim)",
+        // Uma linha por sala ("S:") ou profissional ("P:"), travada durante a verificação de
+        // conflitos para que duas conexões não reservem o mesmo horário
+        "CREATE TABLE IF NOT EXISTS bloqueios_agenda (recurso VARCHAR(512) PRIMARY KEY)"
+    };
+
+    private static final String SQL_INSERIR_USER =
+        "INSERT INTO usuarios (username, tipo, password, email, nivel_permissao, cpf, data_nascimento, "
+            + "telefone, endereco, crm, especialidade, departamento) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String SQL_CARREGAR_USER = "SELECT * FROM usuarios WHERE username = ?";
+    private static final String SQL_LISTAR_USERS = "SELECT * FROM usuarios";
+    private static final String SQL_PAGINA_USERS = "SELECT * FROM usuarios ORDER BY username LIMIT ? OFFSET ?";
+    private static final String SQL_APAGAR_USER = "DELETE FROM usuarios WHERE username = ?";
+
+    private static final String SQL_GRAVAR_SALA =
+        "MERGE INTO salas (id, nome, capacidade, tipo, disponivel, equipamentos, proximo_agendamento) "
+            + "KEY (id) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String SQL_CARREGAR_SALA = "SELECT * FROM salas WHERE id = ?";
+    private static final String SQL_LISTAR_SALAS = "SELECT * FROM salas";
+    private static final String SQL_PAGINA_SALAS = "SELECT * FROM salas ORDER BY id LIMIT ? OFFSET ?";
+    private static final String SQL_APAGAR_SALA = "DELETE FROM salas WHERE id = ?";
+
+    private static final String SQL_GRAVAR_RELATORIO =
+        "MERGE INTO relatorios (id, titulo, conteudo, tipo_relatorio, autor_username, data_geracao, status, "
+            + "descricao) KEY (id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String SQL_CARREGAR_RELATORIO = "SELECT * FROM relatorios WHERE id = ?";
+    private static final String SQL_LISTAR_RELATORIOS = "SELECT * FROM relatorios";
+    private static final String SQL_RELATORIOS_POR_AUTOR = "SELECT * FROM relatorios WHERE autor_username = ?";
+    private static final String SQL_PAGINA_RELATORIOS = "SELECT * FROM relatorios ORDER BY id LIMIT ? OFFSET ?";
+    private static final String SQL_APAGAR_RELATORIO = "DELETE FROM relatorios WHERE id = ?";
+
+    private static final String SQL_GRAVAR_AGENDAMENTO =
+        "MERGE INTO agendamentos (id, paciente_username, profissional_username, sala_id, data_hora, "
+            + "tipo_consulta, observacoes, status, data_criacao, data_atualizacao, duracao_nanos, data_hora_fim) "
+            + "KEY (id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String SQL_CARREGAR_AGENDAMENTO = "SELECT * FROM agendamentos WHERE id = ?";
+    private static final String SQL_LISTAR_AGENDAMENTOS = "SELECT * FROM agendamentos";
+    private static final String SQL_AGENDAMENTOS_POR_PACIENTE =
+        "SELECT * FROM agendamentos WHERE paciente_username = ? ORDER BY data_hora";
+    private static final String SQL_AGENDAMENTOS_POR_PROFISSIONAL =
+        "SELECT * FROM agendamentos WHERE profissional_username = ? ORDER BY data_hora";
+    private static final String SQL_AGENDAMENTOS_POR_SALA =
+        "SELECT * FROM agendamentos WHERE sala_id = ? ORDER BY data_hora";
+    private static final String SQL_PAGINA_AGENDAMENTOS = "SELECT * FROM agendamentos ORDER BY id LIMIT ? OFFSET ?";
+    private static final String SQL_APAGAR_AGENDAMENTO = "DELETE FROM agendamentos WHERE id = ?";
+    // Ativos que começam antes do fim do novo e terminam depois do início dele
+    private static final String SQL_CONFLITOS_SALA =
+        "SELECT * FROM agendamentos WHERE sala_id = ? AND data_hora_fim > ? AND data_hora < ? AND id <> ? "
+            + "AND status IN ('AGENDADO', 'CONFIRMADO')";
+    private static final String SQL_CONFLITOS_PROFISSIONAL =
+        "SELECT * FROM agendamentos WHERE profissional_username = ? AND data_hora_fim > ? AND data_hora < ? "
+            + "AND id <> ? AND status IN ('AGENDADO', 'CONFIRMADO')";
+    private static final String SQL_FIM_PENDENTE =
+        "SELECT id, data_hora, tipo_consulta, duracao_nanos FROM agendamentos WHERE data_hora_fim IS NULL";
+    private static final String SQL_GRAVAR_FIM = "UPDATE agendamentos SET data_hora_fim = ? WHERE id = ?";
+    private static final String SQL_CRIAR_BLOQUEIO = "MERGE INTO bloqueios_agenda (recurso) KEY (recurso) VALUES (?)";
+    private static final String SQL_BLOQUEAR = "SELECT recurso FROM bloqueios_agenda WHERE recurso = ? FOR UPDATE";
+
+    private final PoolConexoes pool;
+    private volatile boolean isConfigured = true;
+    private volatile boolean isAvailable = true;
+
+    public DBRepository() {
+        this(System.getProperty("medapp.db.url", URL_PADRAO),
+             System.getProperty("medapp.db.usuario", "sa"),
+             System.getProperty("medapp.db.senha", ""),
+             Integer.getInteger("medapp.db.pool", POOL_PADRAO),
+             Integer.getInteger("medapp.db.timeoutSegundos", TIMEOUT_PADRAO_SEGUNDOS));
+    }
+
+    public DBRepository(String url, String usuario, String senha, int tamanhoPool, int timeoutSegundos) {
+        if (url == null || url.isBlank()) {
+            throw new RepositoryConfigurationException("database.url", "Database URL not configured");
+        }
+        if (tamanhoPool <= 0) {
+            throw new RepositoryConfigurationException("medapp.db.pool", "Pool size must be positive");
+        }
+        this.pool = new PoolConexoes(url, usuario, senha, tamanhoPool, timeoutSegundos);
+        criarEsquema();
+    }
+
+    public void setConfigured(boolean configured) {
+        this.isConfigured = configured;
+    }
+
+    public void setAvailable(boolean available) {
+        this.isAvailable = available;
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+
+    // ============= MÉTODOS PARA USER =============
+
     @Override
     public void saveUser(User user) {
         try {
-            if (!isConfigured) {
-                throw new RepositoryConfigurationException("database.url", "Database URL not configured");
-            }
-            
-            if (!isAvailable) {
-                throw new RepositoryUnavailableException("database", "Database maintenance in progress");
-            }
-            
-            if (Math.random() < 0.05) {
-                throw new RepositoryTimeoutException("saveUser", 30);
-            }
-            
-            if (simulatedDatabase.containsKey(user.getUsername())) {
-                throw new UserAlreadyExistsException(user.getUsername());
-            }
-            
-            simulatedDatabase.put(user.getUsername(), user);
-            System.out.println("Simulating save to database for user: " + user.getUsername());
-            
-        } catch (Exception e) {
-            if (e instanceof RuntimeException) {
-                throw e;
-            }
-            throw new RepositoryException("Failed to save user: " + user.getUsername(), e);
+            executar("saveUser", conexao -> {
+                PreparedStatement ps = conexao.preparar(SQL_INSERIR_USER);
+                preencherUser(ps, user);
+                return ps.executeUpdate();
+            });
+        } catch (RepositoryIntegrityException e) {
+            // Chave primária duplicada
+            throw new UserAlreadyExistsException(user.getUsername());
         }
     }
 
     @Override
-    public User loadUser(String username) {
+    public void saveUsers(Collection<? extends User> users) {
         try {
-            if (!isConfigured) {
-                throw new RepositoryConfigurationException("database.url", "Database URL not configured");
-            }
-            
-            if (Math.random() < 0.03) {
-                throw new RepositoryTimeoutException("loadUser", 30);
-            }
-            
-            User user = simulatedDatabase.get(username);
-            if (user == null) {
-                throw new UserNotFoundException(username);
-            }
-            
-            System.out.println("Simulating load from database for user: " + username);
-            return user;
-            
-        } catch (Exception e) {
-            if (e instanceof RuntimeException) {
+            executarLote("saveUsers", SQL_INSERIR_USER, users, this::preencherUser);
+        } catch (RepositoryIntegrityException e) {
+            // Chave primária duplicada, como em saveUser; o lote já foi desfeito
+            String duplicado = usuarioDuplicado(users);
+            if (duplicado == null) {
                 throw e;
             }
-            throw new RepositoryException("Failed to load user: " + username, e);
+            throw new UserAlreadyExistsException(duplicado);
         }
     }
 
     @Override
-    public List<User> getAllUsers() {
-        try {
-            if (!isAvailable) {
-                throw new RepositoryUnavailableException("database", "Database overloaded");
-            }
-            
-            System.out.println("Simulating load all users from database");
-            return new ArrayList<>(simulatedDatabase.values());
-            
-        } catch (Exception e) {
-            if (e instanceof RuntimeException) {
-                throw e;
-            }
-            throw new RepositoryException("Failed to load all users", e);
+    public User loadUser(String username) {
+        User user = executar("loadUser", conexao -> {
+            PreparedStatement ps = conexao.preparar(SQL_CARREGAR_USER);
+            ps.setString(1, username);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? lerUser(rs) : null;
+            }
+        });
+        if (user == null) {
+            throw new UserNotFoundException(username);
         }
+        return user;
     }
 
     @Override
-    public void deleteUser(String username) {
-        try {
-            if ("admin".equals(username)) {
-                throw new RepositoryIntegrityException("User", "cannot delete system admin", username);
-            }
-            
-            if (!simulatedDatabase.containsKey(username)) {
-                throw new UserNotFoundException(username);
-            }
-            
-            simulatedDatabase.remove(username);
-            System.out.println("Simulating delete from database for user: " + username);
-            
-        } catch (Exception e) {
-            if (e instanceof RuntimeException) {
-                throw e;
-            }
-            throw new RepositoryException("Failed to delete user: " + username, e);
-        }
+    public List<User> getAllUsers() {
+        return listar("getAllUsers", SQL_LISTAR_USERS, null, this::lerUser);
     }
-    
-    public void setConfigured(boolean configured) {
-        this.isConfigured = configured;
+
+    @Override
+    public List<User> getUsers(int inicio, int limite) {
+        return paginar("getUsers", SQL_PAGINA_USERS, inicio, limite, this::lerUser);
     }
-    
-    public void setAvailable(boolean available) {
-        this.isAvailable = available;
+
+    @Override
+    public void deleteUser(String username) {
+        if ("admin".equals(username)) {
+            throw new RepositoryIntegrityException("User", "cannot delete system admin", username);
+        }
+        if (apagar("deleteUser", SQL_APAGAR_USER, username) == 0) {
+            throw new UserNotFoundException(username);
+        }
     }
 
-    // Implementação das operações com Sala
+    // ============= MÉTODOS PARA SALA =============
+
     @Override
     public void saveSala(Sala sala) {
-        try {
-            if (!isConfigured) {
-                throw new RepositoryConfigurationException("database.url", "Database URL not configured");
-            }
-            
-            if (!isAvailable) {
-                throw new RepositoryUnavailableException("database", "Database maintenance in progress");
-            }
-            
-            if (Math.random() < 0.05) {
-                throw new RepositoryTimeoutException("saveSala", 30);
-            }
-            
-            simulatedSalaDatabase.put(sala.getId(), sala);
-        } catch (RuntimeException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new RepositoryException("Failed to save sala in database: " + sala.getId(), e);
-        }
+        executar("saveSala", conexao -> {
+            PreparedStatement ps = conexao.preparar(SQL_GRAVAR_SALA);
+            ps.setString(1, sala.getId());
+            ps.setString(2, sala.getNome());
+            ps.setInt(3, sala.getCapacidade());
+            ps.setString(4, sala.getTipo());
+            ps.setBoolean(5, sala.isDisponivel());
+            List<String> equipamentos = sala.getEquipamentos() != null ? sala.getEquipamentos() : List.of();
+            ps.setArray(6, conexao.getConnection().createArrayOf("VARCHAR", equipamentos.toArray()));
+            ps.setTimestamp(7, timestamp(sala.getProximoAgendamento()));
+            return ps.executeUpdate();
+        });
     }
 
     @Override
     public Sala loadSala(String id) {
-        try {
-            if (!isConfigured) {
-                throw new RepositoryConfigurationException("database.url", "Database URL not configured");
-            }
-            
-            if (!isAvailable) {
-                throw new RepositoryUnavailableException("database", "Database maintenance in progress");
-            }
-            
-            if (Math.random() < 0.05) {
-                throw new RepositoryTimeoutException("loadSala", 30);
-            }
-            
-            Sala sala = simulatedSalaDatabase.get(id);
-            if (sala == null) {
-                throw new RepositoryException("Sala not found in database: " + id);
-            }
-            return sala;
-        } catch (RuntimeException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new RepositoryException("Failed to load sala from database: " + id, e);
+        Sala sala = carregar("loadSala", SQL_CARREGAR_SALA, id, this::lerSala);
+        if (sala == null) {
+            throw new RepositoryException("Sala not found in database: " + id);
         }
+        return sala;
     }
 
     @Override
     public List<Sala> getAllSalas() {
-        try {
-            if (!isConfigured) {
-                throw new RepositoryConfigurationException("database.url", "Database URL not configured");
-            }
-            
-            if (!isAvailable) {
-                throw new RepositoryUnavailableException("database", "Database maintenance in progress");
-            }
-            
-            if (Math.random() < 0.05) {
-                throw new RepositoryTimeoutException("getAllSalas", 30);
-            }
-            
-            return new ArrayList<>(simulatedSalaDatabase.values());
-        } catch (RuntimeException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new RepositoryException("Failed to get all salas from database", e);
-        }
+        return listar("getAllSalas", SQL_LISTAR_SALAS, null, this::lerSala);
+    }
+
+    @Override
+    public List<Sala> getSalas(int inicio, int limite) {
+        return paginar("getSalas", SQL_PAGINA_SALAS, inicio, limite, this::lerSala);
     }
 
     @Override
     public void deleteSala(String id) {
-        try {
-            if (!isConfigured) {
-                throw new RepositoryConfigurationException("database.url", "Database URL not configured");
-            }
-            
-            if (!isAvailable) {
-                throw new RepositoryUnavailableException("database", "Database maintenance in progress");
-            }
-            
-            if (Math.random() < 0.05) {
-                throw new RepositoryTimeoutException("deleteSala", 30);
-            }
-            
-            if (simulatedSalaDatabase.remove(id) == null) {
-                throw new RepositoryException("Sala not found in database: " + id);
-            }
-        } catch (RuntimeException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new RepositoryException("Failed to delete sala from database: " + id, e);
+        if (apagar("deleteSala", SQL_APAGAR_SALA, id) == 0) {
+            throw new RepositoryException("Sala not found in database: " + id);
         }
     }
 
-    // Implementação das operações com Relatorio
+    // ============= MÉTODOS PARA RELATORIO =============
+
     @Override
     public void saveRelatorio(Relatorio relatorio) {
-        try {
-            if (!isConfigured) {
-                throw new RepositoryConfigurationException("database.url", "Database URL not configured");
-            }
-            
-            if (!isAvailable) {
-                throw new RepositoryUnavailableException("database", "Database maintenance in progress");
-            }
-            
-            if (Math.random() < 0.05) {
-                throw new RepositoryTimeoutException("saveRelatorio", 30);
-            }
-            
-            simulatedRelatorioDatabase.put(relatorio.getId(), relatorio);
-            System.out.println("Simulating save to database for relatorio: " + relatorio.getTitulo());
-            
-        } catch (RuntimeException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new RepositoryException("Failed to save relatorio to database: " + relatorio.getId(), e);
-        }
+        executar("saveRelatorio", conexao -> {
+            PreparedStatement ps = conexao.preparar(SQL_GRAVAR_RELATORIO);
+            ps.setString(1, relatorio.getId());
+            ps.setString(2, relatorio.getTitulo());
+            ps.setString(3, relatorio.getConteudo());
+            ps.setString(4, relatorio.getTipoRelatorio());
+            ps.setString(5, relatorio.getAutorUsername());
+            ps.setTimestamp(6, timestamp(relatorio.getDataGeracao()));
+            ps.setString(7, relatorio.getStatus());
+            ps.setString(8, relatorio.getDescricao());
+            return ps.executeUpdate();
+        });
     }
 
     @Override
     public Relatorio loadRelatorio(String id) {
-        try {
-            if (!isConfigured) {
-                throw new RepositoryConfigurationException("database.url", "Database URL not configured");
-            }
-            
-            if (!isAvailable) {
-                throw new RepositoryUnavailableException("database", "Database maintenance in progress");
-            }
-            
-            if (Math.random() < 0.05) {
-                throw new RepositoryTimeoutException("loadRelatorio", 30);
-            }
-            
-            Relatorio relatorio = simulatedRelatorioDatabase.get(id);
-            if (relatorio == null) {
-                throw new RepositoryException("Relatorio not found in database: " + id);
-            }
-            
-            return relatorio;
-            
-        } catch (RuntimeException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new RepositoryException("Failed to load relatorio from database: " + id, e);
+        Relatorio relatorio = carregar("loadRelatorio", SQL_CARREGAR_RELATORIO, id, this::lerRelatorio);
+        if (relatorio == null) {
+            throw new RepositoryException("Relatorio not found in database: " + id);
         }
+        return relatorio;
     }
 
     @Override
     public List<Relatorio> getAllRelatorios() {
-        try {
-            if (!isConfigured) {
-                throw new RepositoryConfigurationException("database.url", "Database URL not configured");
-            }
-            
-            if (!isAvailable) {
-                throw new RepositoryUnavailableException("database", "Database maintenance in progress");
-            }
-            
-            if (Math.random() < 0.03) {
-                throw new RepositoryTimeoutException("getAllRelatorios", 30);
-            }
-            
-            return new ArrayList<>(simulatedRelatorioDatabase.values());
-            
-        } catch (RuntimeException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new RepositoryException("Failed to get all relatorios from database", e);
-        }
+        return listar("getAllRelatorios", SQL_LISTAR_RELATORIOS, null, this::lerRelatorio);
+    }
+
+    @Override
+    public List<Relatorio> getRelatorios(int inicio, int limite) {
+        return paginar("getRelatorios", SQL_PAGINA_RELATORIOS, inicio, limite, this::lerRelatorio);
     }
 
     @Override
     public void deleteRelatorio(String id) {
-        try {
-            if (!isConfigured) {
-                throw new RepositoryConfigurationException("database.url", "Database URL not configured");
-            }
-            
-            if (!isAvailable) {
-                throw new RepositoryUnavailableException("database", "Database maintenance in progress");
-            }
-            
-            if (Math.random() < 0.05) {
-                throw new RepositoryTimeoutException("deleteRelatorio", 30);
-            }
-            
-            if (simulatedRelatorioDatabase.remove(id) == null) {
-                throw new RepositoryException("Relatorio not found in database: " + id);
-            }
-        } catch (RuntimeException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new RepositoryException("Failed to delete relatorio from database: " + id, e);
+        if (apagar("deleteRelatorio", SQL_APAGAR_RELATORIO, id) == 0) {
+            throw new RepositoryException("Relatorio not found in database: " + id);
         }
     }
 
     @Override
     public List<Relatorio> getRelatoriosByAutor(String autorUsername) {
-        try {
-            if (!isConfigured) {
-                throw new RepositoryConfigurationException("database.url", "Database URL not configured");
-            }
-            
-            if (!isAvailable) {
-                throw new RepositoryUnavailableException("database", "Database maintenance in progress");
-            }
-            
-            if (Math.random() < 0.03) {
-                throw new RepositoryTimeoutException("getRelatoriosByAutor", 30);
-            }
-            
-            return simulatedRelatorioDatabase.values().stream()
-                    .filter(relatorio -> autorUsername.equals(relatorio.getAutorUsername()))
-                    .collect(Collectors.toList());
-                    
-        } catch (RuntimeException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new RepositoryException("Failed to get relatorios by autor from database: " + autorUsername, e);
-        }
+        return listar("getRelatoriosByAutor", SQL_RELATORIOS_POR_AUTOR, autorUsername, this::lerRelatorio);
     }
 
     // ============= MÉTODOS PARA AGENDAMENTO =============
 
     @Override
     public void saveAgendamento(Agendamento agendamento) {
-        try {
-            if (!isConfigured) {
-                throw new RepositoryConfigurationException("database.url", "Database URL not configured");
-            }
-            
-            if (!isAvailable) {
-                throw new RepositoryUnavailableException("database", "Database maintenance in progress");
-            }
-            
-            if (Math.random() < 0.05) {
-                throw new RepositoryTimeoutException("saveAgendamento", 30);
-            }
-            
-            simulatedAgendamentoDatabase.put(agendamento.getId(), agendamento);
-            System.out.println("Simulating save agendamento to database: " + agendamento.getId());
-            
-        } catch (RuntimeException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new RepositoryException("Failed to save agendamento to database: " + agendamento.getId(), e);
+        executar("saveAgendamento", conexao -> {
+            PreparedStatement ps = conexao.preparar(SQL_GRAVAR_AGENDAMENTO);
+            preencherAgendamento(ps, agendamento);
+            return ps.executeUpdate();
+        });
+    }
+
+    @Override
+    public void saveAgendamentos(Collection<Agendamento> agendamentos) {
+        executarLote("saveAgendamentos", SQL_GRAVAR_AGENDAMENTO, agendamentos, this::preencherAgendamento);
+    }
+
+    /**
+     * Verifica e grava numa transação que trava a sala e o profissional (tabela
+     * bloqueios_agenda): outra conexão que reserve os mesmos recursos espera o commit,
+     * mesmo vinda de outro processo. A busca de conflitos usa os índices por fim.
+     */
+    @Override
+    public boolean saveAgendamentoIfNoConflict(Agendamento agendamento) {
+        return executarTransacao("saveAgendamentoIfNoConflict", conexao -> {
+            bloquearRecursos(conexao, List.of(agendamento));
+            if (haConflito(conexao, agendamento)) {
+                return false;
+            }
+            PreparedStatement ps = conexao.preparar(SQL_GRAVAR_AGENDAMENTO);
+            preencherAgendamento(ps, agendamento);
+            ps.executeUpdate();
+            return true;
+        });
+    }
+
+    /**
+     * Como saveAgendamentoIfNoConflict, numa única transação que trava de uma vez todas
+     * as salas e profissionais do lote
+     */
+    @Override
+    public Optional<IndiceOcupacao.ConflitoLote> saveAgendamentosIfNoConflict(List<Agendamento> agendamentos) {
+        if (agendamentos.isEmpty()) {
+            return Optional.empty();
         }
+        return executarTransacao("saveAgendamentosIfNoConflict", conexao -> {
+            bloquearRecursos(conexao, agendamentos);
+            for (int i = 0; i < agendamentos.size(); i++) {
+                Agendamento agendamento = agendamentos.get(i);
+                if (haConflito(conexao, SQL_CONFLITOS_SALA, agendamento.getSalaId(), agendamento)) {
+                    return Optional.of(new IndiceOcupacao.ConflitoLote(i, IndiceOcupacao.Conflito.SALA));
+                }
+                if (haConflito(conexao, SQL_CONFLITOS_PROFISSIONAL, agendamento.getProfissionalUsername(),
+                        agendamento)) {
+                    return Optional.of(new IndiceOcupacao.ConflitoLote(i, IndiceOcupacao.Conflito.PROFISSIONAL));
+                }
+                Optional<IndiceOcupacao.ConflitoLote> noLote = IndiceOcupacao.ConflitoLote.dentroDoLote(agendamentos, i);
+                if (noLote.isPresent()) {
+                    return noLote;
+                }
+            }
+            gravarEmLote(conexao, SQL_GRAVAR_AGENDAMENTO, agendamentos, this::preencherAgendamento);
+            return Optional.empty();
+        });
+    }
+
+    /**
+     * Outros processos podem gravar no mesmo banco
+     */
+    @Override
+    public boolean isCompartilhado() {
+        return true;
     }
 
     @Override
     public Agendamento loadAgendamento(String id) {
-        try {
-            if (!isConfigured) {
-                throw new RepositoryConfigurationException("database.url", "Database URL not configured");
-            }
-            
-            if (!isAvailable) {
-                throw new RepositoryUnavailableException("database", "Database maintenance in progress");
-            }
-            
-            if (Math.random() < 0.03) {
-                throw new RepositoryTimeoutException("loadAgendamento", 30);
-            }
-            
-            Agendamento agendamento = simulatedAgendamentoDatabase.get(id);
-            if (agendamento == null) {
-                throw new RepositoryException("Agendamento not found in database: " + id);
-            }
-            
-            return agendamento;
-            
-        } catch (RuntimeException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new RepositoryException("Failed to load agendamento from database: " + id, e);
+        Agendamento agendamento = carregar("loadAgendamento", SQL_CARREGAR_AGENDAMENTO, id, this::lerAgendamento);
+        if (agendamento == null) {
+            throw new RepositoryException("Agendamento not found in database: " + id);
         }
+        return agendamento;
     }
 
     @Override
     public List<Agendamento> getAllAgendamentos() {
-        try {
-            if (!isConfigured) {
-                throw new RepositoryConfigurationException("database.url", "Database URL not configured");
-            }
-            
-            if (!isAvailable) {
-                throw new RepositoryUnavailableException("database", "Database maintenance in progress");
-            }
-            
-            if (Math.random() < 0.03) {
-                throw new RepositoryTimeoutException("getAllAgendamentos", 30);
-            }
-            
-            return new ArrayList<>(simulatedAgendamentoDatabase.values());
-            
-        } catch (RuntimeException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new RepositoryException("Failed to get all agendamentos from database", e);
-        }
+        return listar("getAllAgendamentos", SQL_LISTAR_AGENDAMENTOS, null, this::lerAgendamento);
+    }
+
+    @Override
+    public List<Agendamento> getAgendamentos(int inicio, int limite) {
+        return paginar("getAgendamentos", SQL_PAGINA_AGENDAMENTOS, inicio, limite, this::lerAgendamento);
     }
 
     @Override
     public void deleteAgendamento(String id) {
-        try {
-            if (!isConfigured) {
-                throw new RepositoryConfigurationException("database.url", "Database URL not configured");
-            }
-            
-            if (!isAvailable) {
-                throw new RepositoryUnavailableException("database", "Database maintenance in progress");
-            }
-            
-            if (Math.random() < 0.03) {
-                throw new RepositoryTimeoutException("deleteAgendamento", 30);
-            }
-            
-            if (simulatedAgendamentoDatabase.remove(id) == null) {
-                throw new RepositoryException("Agendamento not found in database: " + id);
-            }
-            
-        } catch (RuntimeException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new RepositoryException("Failed to delete agendamento from database: " + id, e);
+        if (apagar("deleteAgendamento", SQL_APAGAR_AGENDAMENTO, id) == 0) {
+            throw new RepositoryException("Agendamento not found in database: " + id);
         }
     }
 
     @Override
     public List<Agendamento> getAgendamentosByPaciente(String pacienteUsername) {
+        return listar("getAgendamentosByPaciente", SQL_AGENDAMENTOS_POR_PACIENTE, pacienteUsername,
+                this::lerAgendamento);
+    }
+
+    @Override
+    public List<Agendamento> getAgendamentosByProfissional(String profissionalUsername) {
+        return listar("getAgendamentosByProfissional", SQL_AGENDAMENTOS_POR_PROFISSIONAL, profissionalUsername,
+                this::lerAgendamento);
+    }
+
+    @Override
+    public List<Agendamento> getAgendamentosBySala(String salaId) {
+        return listar("getAgendamentosBySala", SQL_AGENDAMENTOS_POR_SALA, salaId, this::lerAgendamento);
+    }
+
+    /**
+     * Traduz a consulta para WHERE/ORDER BY/LIMIT e devolve um cursor sobre o ResultSet:
+     * as linhas são lidas conforme o stream avança. A conexão fica reservada até o
+     * stream ser fechado.
+     */
+    @Override
+    public Stream<Agendamento> streamAgendamentos(ConsultaAgendamentos consulta) {
+        verificarEstado();
+        List<String> condicoes = new ArrayList<>();
+        List<Object> parametros = new ArrayList<>();
+        if (consulta.getSalaId() != null) {
+            condicoes.add("sala_id = ?");
+            parametros.add(consulta.getSalaId());
+        }
+        if (consulta.getProfissionalUsername() != null) {
+            condicoes.add("profissional_username = ?");
+            parametros.add(consulta.getProfissionalUsername());
+        }
+        if (consulta.getPacienteUsername() != null) {
+            condicoes.add("paciente_username = ?");
+            parametros.add(consulta.getPacienteUsername());
+        }
+        if (consulta.getInicio() != null) {
+            condicoes.add("data_hora >= ?");
+            parametros.add(timestamp(consulta.getInicio()));
+        }
+        if (consulta.getFim() != null) {
+            condicoes.add("data_hora < ?");
+            parametros.add(timestamp(consulta.getFim()));
+        }
+        if (!consulta.getStatus().isEmpty()) {
+            condicoes.add("status IN (" + String.join(", ", Collections.nCopies(consulta.getStatus().size(), "?")) + ")");
+            consulta.getStatus().forEach(status -> parametros.add(status.name()));
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT * FROM agendamentos");
+        if (!condicoes.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", condicoes));
+        }
+        if (consulta.isOrdenadaPorDataHora()) {
+            sql.append(" ORDER BY data_hora");
+        }
+        if (consulta.isLimitada()) {
+            sql.append(" LIMIT ?");
+            parametros.add(consulta.getLimite());
+        }
+
+        PoolConexoes.Conexao conexao = null;
         try {
-            if (!isConfigured) {
-                throw new RepositoryConfigurationException("database.url", "Database URL not configured");
-            }
-            
-            if (!isAvailable) {
-                throw new RepositoryUnavailableException("database", "Database maintenance in progress");
+            conexao = pool.obter();
+            PreparedStatement ps = conexao.preparar(sql.toString());
+            for (int i = 0; i < parametros.size(); i++) {
+                ps.setObject(i + 1, parametros.get(i));
             }
-            
-            if (Math.random() < 0.03) {
-                throw new RepositoryTimeoutException("getAgendamentosByPaciente", 30);
+            return cursor("streamAgendamentos", conexao, ps.executeQuery(), this::lerAgendamento);
+        } catch (SQLException e) {
+            if (conexao != null) {
+                pool.devolver(conexao, isErroConexao(e));
             }
-            
-            return simulatedAgendamentoDatabase.values().stream()
-                    .filter(agendamento -> pacienteUsername.equals(agendamento.getPacienteUsername()))
-                    .collect(Collectors.toList());
-                    
-        } catch (RuntimeException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new RepositoryException("Failed to get agendamentos by paciente from database: " + pacienteUsername, e);
+            throw traduzir("streamAgendamentos", e);
         }
     }
 
-    @Override
-    public List<Agendamento> getAgendamentosByProfissional(String profissionalUsername) {
+    // ============= EXECUÇÃO E TRADUÇÃO DE ERROS =============
+
+    /**
+     * Operação JDBC executada com uma conexão do pool
+     */
+    private interface OperacaoSql<T> {
+        T executar(PoolConexoes.Conexao conexao) throws SQLException;
+    }
+
+    /**
+     * Mapeia uma linha do ResultSet para uma entidade
+     */
+    private interface LeitorLinha<T> {
+        T ler(ResultSet rs) throws SQLException;
+    }
+
+    private void verificarEstado() {
+        if (!isConfigured) {
+            throw new RepositoryConfigurationException("database.url", "Database URL not configured");
+        }
+        if (!isAvailable) {
+            throw new RepositoryUnavailableException("database", "Database maintenance in progress");
+        }
+    }
+
+    private <T> T executar(String operacao, OperacaoSql<T> sql) {
+        verificarEstado();
+
+        PoolConexoes.Conexao conexao = null;
+        boolean quebrada = false;
         try {
-            if (!isConfigured) {
-                throw new RepositoryConfigurationException("database.url", "Database URL not configured");
+            conexao = pool.obter();
+            return sql.executar(conexao);
+        } catch (SQLException e) {
+            quebrada = isErroConexao(e);
+            throw traduzir(operacao, e);
+        } finally {
+            if (conexao != null) {
+                pool.devolver(conexao, quebrada);
             }
-            
-            if (!isAvailable) {
-                throw new RepositoryUnavailableException("database", "Database maintenance in progress");
+        }
+    }
+
+    /**
+     * Executa a operação numa única transação, desfeita se ela falhar
+     */
+    private <T> T executarTransacao(String operacao, OperacaoSql<T> sql) {
+        return executar(operacao, conexao -> {
+            Connection connection = conexao.getConnection();
+            connection.setAutoCommit(false);
+            try {
+                T resultado = sql.executar(conexao);
+                connection.commit();
+                return resultado;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
             }
-            
-            if (Math.random() < 0.03) {
-                throw new RepositoryTimeoutException("getAgendamentosByProfissional", 30);
+        });
+    }
+
+    /**
+     * Trava as salas e profissionais dos agendamentos até o fim da transação, sempre na
+     * mesma ordem para que duas transações não esperem uma pela outra
+     */
+    private void bloquearRecursos(PoolConexoes.Conexao conexao, Collection<Agendamento> agendamentos)
+            throws SQLException {
+        Set<String> recursos = new TreeSet<>();
+        for (Agendamento agendamento : agendamentos) {
+            recursos.add("S:" + agendamento.getSalaId());
+            recursos.add("P:" + agendamento.getProfissionalUsername());
+        }
+        for (String recurso : recursos) {
+            PreparedStatement criar = conexao.preparar(SQL_CRIAR_BLOQUEIO);
+            criar.setString(1, recurso);
+            criar.executeUpdate();
+            PreparedStatement bloquear = conexao.preparar(SQL_BLOQUEAR);
+            bloquear.setString(1, recurso);
+            try (ResultSet rs = bloquear.executeQuery()) {
+                rs.next();
             }
-            
-            return simulatedAgendamentoDatabase.values().stream()
-                    .filter(agendamento -> profissionalUsername.equals(agendamento.getProfissionalUsername()))
-                    .collect(Collectors.toList());
-                    
-        } catch (RuntimeException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new RepositoryException("Failed to get agendamentos by profissional from database: " + profissionalUsername, e);
         }
     }
 
-    @Override
-    public List<Agendamento> getAgendamentosBySala(String salaId) {
+    private boolean haConflito(PoolConexoes.Conexao conexao, Agendamento agendamento) throws SQLException {
+        return haConflito(conexao, SQL_CONFLITOS_SALA, agendamento.getSalaId(), agendamento)
+            || haConflito(conexao, SQL_CONFLITOS_PROFISSIONAL, agendamento.getProfissionalUsername(), agendamento);
+    }
+
+    private boolean haConflito(PoolConexoes.Conexao conexao, String sql, String recurso, Agendamento agendamento)
+            throws SQLException {
+        PreparedStatement ps = conexao.preparar(sql);
+        ps.setString(1, recurso);
+        ps.setTimestamp(2, timestamp(agendamento.getDataHora()));
+        ps.setTimestamp(3, timestamp(agendamento.getDataHoraFim()));
+        ps.setString(4, agendamento.getId());
+        try (ResultSet rs = ps.executeQuery()) {
+            return rs.next();
+        }
+    }
+
+    /**
+     * Preenche os parâmetros de um PreparedStatement com uma entidade
+     */
+    private interface PreenchedorLinha<T> {
+        void preencher(PreparedStatement ps, T entidade) throws SQLException;
+    }
+
+    /**
+     * Executa o mesmo comando para todas as entidades com batching JDBC, numa única
+     * transação: ou o lote inteiro é gravado, ou nada é
+     */
+    private <T> void executarLote(String operacao, String sql, Collection<? extends T> entidades,
+                                  PreenchedorLinha<T> preenchedor) {
+        if (entidades.isEmpty()) {
+            return;
+        }
+        executarTransacao(operacao, conexao -> {
+            gravarEmLote(conexao, sql, entidades, preenchedor);
+            return null;
+        });
+    }
+
+    // Enfileira e executa o comando em blocos de TAMANHO_LOTE, na transação já aberta
+    private <T> void gravarEmLote(PoolConexoes.Conexao conexao, String sql, Collection<? extends T> entidades,
+                                  PreenchedorLinha<T> preenchedor) throws SQLException {
+        PreparedStatement ps = null;
         try {
-            if (!isConfigured) {
-                throw new RepositoryConfigurationException("database.url", "Database URL not configured");
+            ps = conexao.preparar(sql);
+            int pendentes = 0;
+            for (T entidade : entidades) {
+                preenchedor.preencher(ps, entidade);
+                ps.addBatch();
+                if (++pendentes == TAMANHO_LOTE) {
+                    ps.executeBatch();
+                    pendentes = 0;
+                }
+            }
+            if (pendentes > 0) {
+                ps.executeBatch();
+            }
+        } catch (SQLException | RuntimeException e) {
+            // O PreparedStatement fica em cache na conexão: linhas já enfileiradas não
+            // podem ser executadas pelo próximo lote
+            if (ps != null) {
+                try {
+                    ps.clearBatch();
+                } catch (SQLException erroLimpeza) {
+                    e.addSuppressed(erroLimpeza);
+                }
             }
-            
-            if (!isAvailable) {
-                throw new RepositoryUnavailableException("database", "Database maintenance in progress");
+            throw e;
+        }
+    }
+
+    /**
+     * Primeiro usuário do lote repetido no próprio lote ou já gravado no banco, ou null
+     */
+    private String usuarioDuplicado(Collection<? extends User> users) {
+        Set<String> vistos = new HashSet<>();
+        for (User user : users) {
+            if (!vistos.add(user.getUsername())) {
+                return user.getUsername();
             }
-            
-            if (Math.random() < 0.03) {
-                throw new RepositoryTimeoutException("getAgendamentosBySala", 30);
+        }
+        for (User user : users) {
+            if (carregar("saveUsers", SQL_CARREGAR_USER, user.getUsername(), rs -> Boolean.TRUE) != null) {
+                return user.getUsername();
             }
-            
-            return simulatedAgendamentoDatabase.values().stream()
-                    .filter(agendamento -> salaId.equals(agendamento.getSalaId()))
-                    .collect(Collectors.toList());
-                    
-        } catch (RuntimeException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new RepositoryException("Failed to get agendamentos by sala from database: " + salaId, e);
         }
+        return null;
+    }
+
+    private <T> T carregar(String operacao, String sql, String chave, LeitorLinha<T> leitor) {
+        return executar(operacao, conexao -> {
+            PreparedStatement ps = conexao.preparar(sql);
+            ps.setString(1, chave);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? leitor.ler(rs) : null;
+            }
+        });
+    }
+
+    private <T> List<T> listar(String operacao, String sql, String filtro, LeitorLinha<T> leitor) {
+        return executar(operacao, conexao -> {
+            PreparedStatement ps = conexao.preparar(sql);
+            if (filtro != null) {
+                ps.setString(1, filtro);
+            }
+            List<T> resultado = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    resultado.add(leitor.ler(rs));
+                }
+            }
+            return resultado;
+        });
+    }
+
+    private <T> List<T> paginar(String operacao, String sql, int inicio, int limite, LeitorLinha<T> leitor) {
+        if (inicio < 0 || limite < 0) {
+            throw new IllegalArgumentException("Início e limite da página não podem ser negativos");
+        }
+        return executar(operacao, conexao -> {
+            PreparedStatement ps = conexao.preparar(sql);
+            ps.setInt(1, limite);
+            ps.setInt(2, inicio);
+            List<T> resultado = new ArrayList<>(limite);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    resultado.add(leitor.ler(rs));
+                }
+            }
+            return resultado;
+        });
+    }
+
+    /**
+     * Stream sobre um ResultSet aberto; ao ser fechado, fecha o ResultSet e devolve a conexão
+     */
+    private <T> Stream<T> cursor(String operacao, PoolConexoes.Conexao conexao, ResultSet rs, LeitorLinha<T> leitor) {
+        boolean[] quebrada = {false};
+        Spliterator<T> linhas = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> acao) {
+                try {
+                    if (!rs.next()) {
+                        return false;
+                    }
+                    acao.accept(leitor.ler(rs));
+                    return true;
+                } catch (SQLException e) {
+                    quebrada[0] = isErroConexao(e);
+                    throw traduzir(operacao, e);
+                }
+            }
+        };
+        return StreamSupport.stream(linhas, false).onClose(() -> {
+            try {
+                rs.close();
+            } catch (SQLException e) {
+                quebrada[0] = quebrada[0] || isErroConexao(e);
+            } finally {
+                pool.devolver(conexao, quebrada[0]);
+            }
+        });
+    }
+
+    private int apagar(String operacao, String sql, String chave) {
+        return executar(operacao, conexao -> {
+            PreparedStatement ps = conexao.preparar(sql);
+            ps.setString(1, chave);
+            return ps.executeUpdate();
+        });
+    }
+
+    private void criarEsquema() {
+        executar("createSchema", conexao -> {
+            try (Statement st = conexao.getConnection().createStatement()) {
+                for (String ddl : ESQUEMA) {
+                    st.execute(ddl);
+                }
+            }
+            migrarFimAgendamentos(conexao);
+            return null;
+        });
+    }
+
+    /**
+     * Preenche data_hora_fim das linhas gravadas antes da coluna existir. A duração padrão
+     * do tipo de consulta vem da configuração, por isso o cálculo é feito aqui e não no SQL.
+     */
+    private void migrarFimAgendamentos(PoolConexoes.Conexao conexao) throws SQLException {
+        Map<String, Timestamp> pendentes = new LinkedHashMap<>();
+        try (ResultSet rs = conexao.preparar(SQL_FIM_PENDENTE).executeQuery()) {
+            while (rs.next()) {
+                long nanos = rs.getLong("duracao_nanos");
+                Duration duracao = rs.wasNull() || nanos <= 0
+                        ? Agendamento.duracaoPadrao(rs.getString("tipo_consulta"))
+                        : Duration.ofNanos(nanos);
+                LocalDateTime fim = dataHora(rs.getTimestamp("data_hora")).plus(duracao);
+                pendentes.put(rs.getString("id"), timestamp(fim));
+            }
+        }
+        if (pendentes.isEmpty()) {
+            return;
+        }
+        PreparedStatement ps = conexao.preparar(SQL_GRAVAR_FIM);
+        for (Map.Entry<String, Timestamp> pendente : pendentes.entrySet()) {
+            ps.setTimestamp(1, pendente.getValue());
+            ps.setString(2, pendente.getKey());
+            ps.addBatch();
+        }
+        ps.executeBatch();
     }
-}
 
+    private static boolean isErroConexao(SQLException e) {
+        String estado = e.getSQLState();
+        return e instanceof SQLNonTransientConnectionException
+            || e instanceof SQLTransientConnectionException
+            || (estado != null && estado.startsWith("08"));
+    }
+
+    private static RepositoryException traduzir(String operacao, SQLException e) {
+        String estado = e.getSQLState() != null ? e.getSQLState() : "";
+        if (e instanceof SQLTimeoutException || "HYT00".equals(estado) || "57014".equals(estado)) {
+            return new RepositoryTimeoutException(operacao, e);
+        }
+        if (isErroConexao(e)) {
+            return new RepositoryUnavailableException("database", e);
+        }
+        if (e instanceof SQLIntegrityConstraintViolationException || estado.startsWith("23")) {
+            return new RepositoryIntegrityException(operacao + ": " + e.getMessage(), e);
+        }
+        if (estado.startsWith("28")) {
+            return new RepositoryConfigurationException("database credentials rejected", e);
+        }
+        return new RepositoryException("Database operation '" + operacao + "' failed: " + e.getMessage(), e);
+    }
+
+    // ============= MAPEAMENTO DE LINHAS =============
+
+    private void preencherUser(PreparedStatement ps, User user) throws SQLException {
+        ps.setString(1, user.getUsername());
+        ps.setString(3, user.getPassword());
+        ps.setString(4, user.getEmail());
+        for (int coluna = 5; coluna <= 12; coluna++) {
+            ps.setNull(coluna, coluna == 7 ? Types.DATE : Types.VARCHAR);
+        }
+
+        if (user instanceof Administrador) {
+            ps.setString(2, TIPO_ADMINISTRADOR);
+            ps.setString(5, ((Administrador) user).getNivelPermissao());
+        } else if (user instanceof Paciente) {
+            Paciente paciente = (Paciente) user;
+            ps.setString(2, TIPO_PACIENTE);
+            ps.setString(6, paciente.getCpf());
+            ps.setDate(7, paciente.getDataNascimento() != null ? Date.valueOf(paciente.getDataNascimento()) : null);
+            ps.setString(8, paciente.getTelefone());
+            ps.setString(9, paciente.getEndereco());
+        } else if (user instanceof ProfissionalSaude) {
+            ProfissionalSaude profissional = (ProfissionalSaude) user;
+            ps.setString(2, TIPO_PROFISSIONAL);
+            ps.setString(10, profissional.getCrm());
+            ps.setString(11, profissional.getEspecialidade());
+            ps.setString(12, profissional.getDepartamento());
+        } else {
+            throw new IllegalArgumentException("Tipo de usuário não suportado: " + user.getClass().getName());
+        }
+    }
+
+    private User lerUser(ResultSet rs) throws SQLException {
+        String tipo = rs.getString("tipo");
+        User user;
+        if (TIPO_ADMINISTRADOR.equals(tipo)) {
+            Administrador admin = new Administrador();
+            admin.setNivelPermissao(rs.getString("nivel_permissao"));
+            user = admin;
+        } else if (TIPO_PACIENTE.equals(tipo)) {
+            Paciente paciente = new Paciente();
+            paciente.setCpf(rs.getString("cpf"));
+            Date dataNascimento = rs.getDate("data_nascimento");
+            paciente.setDataNascimento(dataNascimento != null ? dataNascimento.toLocalDate() : null);
+            paciente.setTelefone(rs.getString("telefone"));
+            paciente.setEndereco(rs.getString("endereco"));
+            user = paciente;
+        } else if (TIPO_PROFISSIONAL.equals(tipo)) {
+            ProfissionalSaude profissional = new ProfissionalSaude();
+            profissional.setCrm(rs.getString("crm"));
+            profissional.setEspecialidade(rs.getString("especialidade"));
+            profissional.setDepartamento(rs.getString("departamento"));
+            user = profissional;
+        } else {
+            throw new RepositoryIntegrityException("user.tipo", "Unknown user type", tipo);
+        }
+        user.setUsername(rs.getString("username"));
+        user.setPassword(rs.getString("password"));
+        user.setEmail(rs.getString("email"));
+        return user;
+    }
+
+    private Sala lerSala(ResultSet rs) throws SQLException {
+        Sala sala = new Sala(rs.getString("id"), rs.getString("nome"), rs.getInt("capacidade"), rs.getString("tipo"));
+        sala.setDisponivel(rs.getBoolean("disponivel"));
+        Array equipamentos = rs.getArray("equipamentos");
+        if (equipamentos != null) {
+            Object[] itens = (Object[]) equipamentos.getArray();
+            List<String> lista = new ArrayList<>(itens.length);
+            for (Object item : itens) {
+                lista.add((String) item);
+            }
+            sala.setEquipamentos(lista);
+        }
+        sala.setProximoAgendamento(dataHora(rs.getTimestamp("proximo_agendamento")));
+        return sala;
+    }
+
+    private Relatorio lerRelatorio(ResultSet rs) throws SQLException {
+        Relatorio relatorio = new Relatorio(rs.getString("id"), rs.getString("titulo"), rs.getString("conteudo"),
+                rs.getString("tipo_relatorio"), rs.getString("autor_username"));
+        relatorio.setDataGeracao(dataHora(rs.getTimestamp("data_geracao")));
+        relatorio.setStatus(rs.getString("status"));
+        relatorio.setDescricao(rs.getString("descricao"));
+        return relatorio;
+    }
+
+    private void preencherAgendamento(PreparedStatement ps, Agendamento agendamento) throws SQLException {
+        ps.setString(1, agendamento.getId());
+        ps.setString(2, agendamento.getPacienteUsername());
+        ps.setString(3, agendamento.getProfissionalUsername());
+        ps.setString(4, agendamento.getSalaId());
+        ps.setTimestamp(5, timestamp(agendamento.getDataHora()));
+        ps.setString(6, agendamento.getTipoConsulta());
+        ps.setString(7, agendamento.getObservacoes());
+        ps.setString(8, agendamento.getStatus().name());
+        ps.setTimestamp(9, timestamp(agendamento.getDataCriacao()));
+        ps.setTimestamp(10, timestamp(agendamento.getDataAtualizacao()));
+        if (agendamento.getDuracao() != null) {
+            ps.setLong(11, agendamento.getDuracao().toNanos());
+        } else {
+            ps.setNull(11, Types.BIGINT);
+        }
+        ps.setTimestamp(12, timestamp(agendamento.getDataHoraFim()));
+    }
+
+    private Agendamento lerAgendamento(ResultSet rs) throws SQLException {
+        String status = rs.getString("status");
+        Agendamento.StatusAgendamento statusAgendamento;
+        try {
+            statusAgendamento = Agendamento.StatusAgendamento.valueOf(status);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new RepositoryIntegrityException("agendamento.status", "Unknown status", status);
+        }
+        long nanos = rs.getLong("duracao_nanos");
+        Duration duracao = rs.wasNull() ? null : Duration.ofNanos(nanos);
+        try {
+            return new Agendamento(rs.getString("id"), rs.getString("paciente_username"),
+                    rs.getString("profissional_username"), rs.getString("sala_id"),
+                    dataHora(rs.getTimestamp("data_hora")), rs.getString("tipo_consulta"),
+                    rs.getString("observacoes"), duracao, statusAgendamento,
+                    dataHora(rs.getTimestamp("data_criacao")), dataHora(rs.getTimestamp("data_atualizacao")));
+        } catch (IllegalArgumentException e) {
+            throw new RepositoryIntegrityException("agendamento.duracao", "Invalid duration", String.valueOf(nanos));
+        }
+    }
+
+    private static Timestamp timestamp(LocalDateTime dataHora) {
+        return dataHora != null ? Timestamp.valueOf(dataHora) : null;
+    }
+
+    private static LocalDateTime dataHora(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
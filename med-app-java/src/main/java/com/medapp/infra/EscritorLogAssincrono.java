@@ -0,0 +1,516 @@
+package com.medapp.infra;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.DirectoryStream;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Escrita assíncrona de linhas de log em arquivo.
+ *
+ * Quem registra apenas coloca a linha em uma fila limitada; uma thread daemon esvazia a
+ * fila em lotes para um buffer e o grava em um FileChannel que fica aberto durante toda a
+ * execução. O buffer é descarregado no canal a cada intervalo configurado (ou quando
+ * enche) e no encerramento da JVM, por um shutdown hook.
+ *
+ * Com uma PoliticaRolagem ativa, a própria thread escritora troca o arquivo quando ele
+ * atinge o tamanho máximo ou o dia muda: o arquivo atual é renomeado para
+ * nome.AAAA-MM-DD.N.ext (dia em que o segmento começou) e um novo é aberto. A compressão
+ * gzip e a remoção dos segmentos além da retenção ficam com outra thread, para que a
+ * escrita não espere por elas.
+ *
+ * Configuração (propriedades de sistema, lidas em paraArquivo):
+ * medapp.log.fila (capacidade, padrão 8192), medapp.log.flushMs (padrão 1000; 0 descarrega
+ * a cada lote), medapp.log.transbordo (veja PoliticaTransbordo, padrão BLOQUEAR) e as
+ * propriedades medapp.log.rolagem.* descritas em PoliticaRolagem.
+ */
+public class EscritorLogAssincrono {
+
+    public static final String PROPRIEDADE_FILA = "medapp.log.fila";
+    public static final String PROPRIEDADE_FLUSH_MS = "medapp.log.flushMs";
+    public static final String PROPRIEDADE_TRANSBORDO = "medapp.log.transbordo";
+
+    private static final int CAPACIDADE_PADRAO = 8192;
+    private static final long FLUSH_PADRAO_MS = 1000;
+    private static final int TAMANHO_LOTE = 256;
+    private static final int TAMANHO_BUFFER = 64 * 1024;
+    // Espera máxima por novas linhas quando o flush é feito a cada lote
+    private static final long ESPERA_MAXIMA_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final String EXTENSAO_GZIP = ".gz";
+
+    // Marca de encerramento na fila (comparada por identidade)
+    private static final String FIM = new String("");
+
+    // Um escritor por arquivo, compartilhado por todos os loggers que gravam nele
+    private static final Map<Path, EscritorLogAssincrono> abertos = new ConcurrentHashMap<>();
+
+    /**
+     * O que fazer quando a fila está cheia
+     */
+    public enum PoliticaTransbordo {
+        /** A thread que registra espera por espaço: nada se perde */
+        BLOQUEAR,
+        /** Mensagens de debug são descartadas; as demais esperam */
+        DESCARTAR_DEBUG,
+        /** A mensagem mais antiga da fila é descartada para dar lugar à nova */
+        DESCARTAR_MAIS_ANTIGO
+    }
+
+    private final Path arquivo;
+    private final BlockingQueue<String> fila;
+    private final long intervaloFlushNanos;
+    private final PoliticaTransbordo politica;
+    private final PoliticaRolagem rolagem;
+    // Compressão e retenção dos segmentos arquivados; null sem rolagem
+    private final ExecutorService manutencao;
+    private final String prefixoSegmento;
+    private final String extensao;
+    private final Pattern padraoSegmento;
+    private final ByteBuffer buffer = ByteBuffer.allocate(TAMANHO_BUFFER);
+    private final AtomicLong descartadasPendentes = new AtomicLong();
+    private final AtomicLong totalDescartadas = new AtomicLong();
+    private final Thread escritor;
+    private final Thread ganchoEncerramento;
+    private FileChannel canal;
+    // Bytes já gravados no arquivo atual e dia em que ele começou (usados pela rolagem)
+    private long tamanhoSegmento;
+    private LocalDate diaSegmento;
+    private volatile boolean encerrado;
+
+    /**
+     * Escritor compartilhado para o arquivo, criado com a configuração das propriedades de sistema
+     */
+    public static EscritorLogAssincrono paraArquivo(String arquivo) {
+        Path caminho = Paths.get(arquivo).toAbsolutePath().normalize();
+        return abertos.computeIfAbsent(caminho, chave -> new EscritorLogAssincrono(chave,
+                Integer.getInteger(PROPRIEDADE_FILA, CAPACIDADE_PADRAO),
+                Long.getLong(PROPRIEDADE_FLUSH_MS, FLUSH_PADRAO_MS),
+                PoliticaTransbordo.valueOf(System.getProperty(PROPRIEDADE_TRANSBORDO,
+                        PoliticaTransbordo.BLOQUEAR.name()).toUpperCase()),
+                PoliticaRolagem.configurada()));
+    }
+
+    public EscritorLogAssincrono(Path arquivo, int capacidade, long intervaloFlushMs, PoliticaTransbordo politica) {
+        this(arquivo, capacidade, intervaloFlushMs, politica, PoliticaRolagem.NENHUMA);
+    }
+
+    public EscritorLogAssincrono(Path arquivo, int capacidade, long intervaloFlushMs, PoliticaTransbordo politica,
+                                 PoliticaRolagem rolagem) {
+        if (capacidade <= 0 || intervaloFlushMs < 0) {
+            throw new IllegalArgumentException("Capacidade deve ser positiva e intervalo de flush não negativo");
+        }
+        this.arquivo = arquivo.toAbsolutePath().normalize();
+        this.fila = new ArrayBlockingQueue<>(capacidade);
+        this.intervaloFlushNanos = TimeUnit.MILLISECONDS.toNanos(intervaloFlushMs);
+        this.politica = politica;
+        this.rolagem = rolagem;
+
+        String nome = this.arquivo.getFileName().toString();
+        int ponto = nome.lastIndexOf('.');
+        this.prefixoSegmento = (ponto > 0 ? nome.substring(0, ponto) : nome) + ".";
+        this.extensao = ponto > 0 ? nome.substring(ponto) : "";
+        this.padraoSegmento = Pattern.compile(Pattern.quote(prefixoSegmento) + "(\\d{4}-\\d{2}-\\d{2})\\.(\\d+)"
+                + Pattern.quote(extensao) + "(" + Pattern.quote(EXTENSAO_GZIP) + ")?");
+        this.canal = abrir();
+
+        if (rolagem.isAtiva()) {
+            this.manutencao = Executors.newSingleThreadExecutor(tarefa -> {
+                Thread thread = new Thread(tarefa, "medapp-log-arquivos-" + nome);
+                thread.setDaemon(true);
+                return thread;
+            });
+            // Segmentos deixados sem compressão ou além da retenção por uma execução anterior
+            this.manutencao.execute(this::manterArquivados);
+        } else {
+            this.manutencao = null;
+        }
+
+        this.escritor = new Thread(this::executar, "medapp-log-" + nome);
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+        this.ganchoEncerramento = new Thread(this::fecharNoEncerramento, "medapp-log-encerramento");
+        Runtime.getRuntime().addShutdownHook(ganchoEncerramento);
+    }
+
+    /**
+     * Enfileira uma linha (sem o terminador) para gravação
+     * @param debug Se a linha é de nível debug (descartável na política DESCARTAR_DEBUG)
+     */
+    public void anexar(String linha, boolean debug) {
+        if (encerrado) {
+            escreverDireto(linha);
+            return;
+        }
+        switch (politica) {
+            case DESCARTAR_MAIS_ANTIGO:
+                while (!fila.offer(linha)) {
+                    if (fila.poll() != null) {
+                        descartar();
+                    }
+                }
+                break;
+            case DESCARTAR_DEBUG:
+                if (debug) {
+                    if (!fila.offer(linha)) {
+                        descartar();
+                    }
+                    break;
+                }
+                esperarEspaco(linha);
+                break;
+            default:
+                esperarEspaco(linha);
+        }
+    }
+
+    /**
+     * Grava tudo o que está na fila, descarrega o buffer e fecha o arquivo.
+     * Linhas anexadas depois disso são gravadas de forma síncrona.
+     */
+    public void fechar() {
+        try {
+            Runtime.getRuntime().removeShutdownHook(ganchoEncerramento);
+        } catch (IllegalStateException e) {
+            // JVM já em encerramento: o próprio gancho está chamando este método
+        }
+        fecharNoEncerramento();
+    }
+
+    public Path getArquivo() {
+        return arquivo;
+    }
+
+    public PoliticaRolagem getRolagem() {
+        return rolagem;
+    }
+
+    /**
+     * Total de linhas descartadas por fila cheia desde a criação
+     */
+    public long getTotalDescartadas() {
+        return totalDescartadas.get();
+    }
+
+    private void fecharNoEncerramento() {
+        synchronized (this) {
+            if (encerrado) {
+                return;
+            }
+            encerrado = true;
+        }
+        abertos.remove(arquivo, this);
+        try {
+            // A escritora pode já ter saído (fila vazia depois de 'encerrado'); nesse caso não
+            // há quem libere espaço e a marca não é necessária
+            while (escritor.isAlive() && !fila.offer(FIM, 100, TimeUnit.MILLISECONDS)) {
+                // fila cheia: espera a escritora consumir
+            }
+            escritor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        // Linhas enfileiradas por quem viu o escritor ainda aberto, depois da marca FIM
+        List<String> restantes = new ArrayList<>();
+        fila.drainTo(restantes);
+        restantes.forEach(this::escreverDireto);
+
+        if (manutencao != null) {
+            // Termina a compressão em andamento; rolagens posteriores comprimem na própria thread
+            manutencao.shutdown();
+            try {
+                manutencao.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void esperarEspaco(String linha) {
+        try {
+            fila.put(linha);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            descartar();
+        }
+    }
+
+    private void descartar() {
+        descartadasPendentes.incrementAndGet();
+        totalDescartadas.incrementAndGet();
+    }
+
+    /**
+     * Laço da thread escritora. Não é interrompida: a interrupção durante uma escrita
+     * fecharia o FileChannel. O encerramento chega pela marca FIM na fila.
+     */
+    private void executar() {
+        List<String> lote = new ArrayList<>(TAMANHO_LOTE);
+        long proximoFlush = System.nanoTime() + intervaloFlushNanos;
+        boolean fim = false;
+        while (!fim) {
+            try {
+                long espera = intervaloFlushNanos == 0 ? ESPERA_MAXIMA_NANOS : proximoFlush - System.nanoTime();
+                String primeira = espera > 0 ? fila.poll(espera, TimeUnit.NANOSECONDS) : fila.poll();
+                if (rolagem.isDiaria() && !LocalDate.now().equals(diaSegmento)) {
+                    if (tamanhoSegmento + buffer.position() > 0) {
+                        rolar();
+                    } else {
+                        // Nada foi escrito no dia anterior: o segmento vazio passa a ser o de hoje
+                        diaSegmento = LocalDate.now();
+                    }
+                }
+                if (primeira == null && encerrado) {
+                    // A marca FIM pode ter sido descartada por DESCARTAR_MAIS_ANTIGO
+                    fim = true;
+                } else if (primeira != null) {
+                    lote.add(primeira);
+                    fila.drainTo(lote, TAMANHO_LOTE - 1);
+                    for (String linha : lote) {
+                        if (linha == FIM) {
+                            fim = true;
+                        } else {
+                            escrever(linha);
+                        }
+                    }
+                    lote.clear();
+                }
+                avisarDescartes();
+                if (fim || intervaloFlushNanos == 0 || System.nanoTime() - proximoFlush >= 0) {
+                    descarregar();
+                    proximoFlush = System.nanoTime() + intervaloFlushNanos;
+                }
+            } catch (InterruptedException e) {
+                // Ignorada pelo motivo acima; o laço continua até a marca FIM
+            } catch (RuntimeException e) {
+                System.err.println("Erro no escritor de log " + arquivo + ": " + e.getMessage());
+            }
+        }
+        synchronized (this) {
+            fecharCanal();
+        }
+    }
+
+    private void avisarDescartes() {
+        long descartadas = descartadasPendentes.getAndSet(0);
+        if (descartadas > 0) {
+            escrever("[WARN] " + descartadas + " mensagens de log descartadas (fila cheia)");
+        }
+    }
+
+    private void escrever(String linha) {
+        byte[] bytes = linha.getBytes(StandardCharsets.UTF_8);
+        long maximo = rolagem.getTamanhoMaximo();
+        long atual = tamanhoSegmento + buffer.position();
+        if (maximo > 0 && atual > 0 && atual + bytes.length + 1 > maximo) {
+            rolar();
+        }
+        if (bytes.length + 1 > buffer.remaining()) {
+            descarregar();
+        }
+        if (bytes.length + 1 > buffer.capacity()) {
+            gravar(ByteBuffer.wrap(bytes));
+            gravar(ByteBuffer.wrap(new byte[] {'\n'}));
+            return;
+        }
+        buffer.put(bytes).put((byte) '\n');
+    }
+
+    private void descarregar() {
+        buffer.flip();
+        gravar(buffer);
+        buffer.clear();
+    }
+
+    private void gravar(ByteBuffer dados) {
+        if (canal == null) {
+            return;
+        }
+        try {
+            while (dados.hasRemaining()) {
+                tamanhoSegmento += canal.write(dados);
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao escrever no arquivo de log: " + e.getMessage());
+        }
+    }
+
+    // Depois do encerramento: espera a thread escritora terminar e grava de forma síncrona
+    private void escreverDireto(String linha) {
+        try {
+            escritor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        synchronized (this) {
+            if (canal == null) {
+                canal = abrir();
+            }
+            escrever(linha);
+            descarregar();
+        }
+    }
+
+    private FileChannel abrir() {
+        tamanhoSegmento = 0;
+        diaSegmento = LocalDate.now();
+        try {
+            Path diretorio = arquivo.getParent();
+            if (diretorio != null) {
+                Files.createDirectories(diretorio);
+            }
+            FileChannel aberto = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+            tamanhoSegmento = aberto.size();
+            // Um arquivo já com conteúdo pertence ao dia da última gravação nele
+            if (tamanhoSegmento > 0) {
+                diaSegmento = LocalDate.ofInstant(Files.getLastModifiedTime(arquivo).toInstant(), ZoneId.systemDefault());
+            }
+            return aberto;
+        } catch (IOException e) {
+            System.err.println("Erro ao abrir o arquivo de log " + arquivo + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Fecha o arquivo atual, renomeia-o para o próximo nome de segmento livre do seu dia e
+     * abre um arquivo novo. Executado pela thread escritora (ou, após o encerramento, por
+     * quem escreve de forma síncrona).
+     */
+    private void rolar() {
+        descarregar();
+        fecharCanal();
+        Path segmento = null;
+        try {
+            // Numeração crescente dentro do dia, mesmo depois que a retenção remove os primeiros
+            String dia = diaSegmento.toString();
+            int numero = listarSegmentos().stream()
+                    .filter(existente -> existente.dia.equals(dia))
+                    .mapToInt(existente -> existente.numero)
+                    .max().orElse(0) + 1;
+            segmento = arquivo.resolveSibling(prefixoSegmento + dia + "." + numero + extensao);
+            Files.move(arquivo, segmento);
+        } catch (IOException e) {
+            System.err.println("Erro ao arquivar o arquivo de log " + arquivo + ": " + e.getMessage());
+            segmento = null;
+        }
+        canal = abrir();
+        if (segmento != null) {
+            try {
+                manutencao.execute(this::manterArquivados);
+            } catch (RejectedExecutionException e) {
+                manterArquivados();
+            }
+        }
+    }
+
+    /**
+     * Comprime os segmentos arquivados que ainda não foram comprimidos e remove os mais
+     * antigos além da retenção
+     */
+    private void manterArquivados() {
+        List<Segmento> segmentos;
+        try {
+            segmentos = listarSegmentos();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Erro ao listar segmentos de log de " + arquivo + ": " + e.getMessage());
+            return;
+        }
+
+        int remover = rolagem.getRetencao() > 0 ? Math.max(0, segmentos.size() - rolagem.getRetencao()) : 0;
+        for (int i = 0; i < segmentos.size(); i++) {
+            Path caminho = segmentos.get(i).caminho;
+            try {
+                if (i < remover) {
+                    Files.deleteIfExists(caminho);
+                } else if (rolagem.isComprimir() && !caminho.toString().endsWith(EXTENSAO_GZIP)) {
+                    comprimir(caminho);
+                }
+            } catch (IOException e) {
+                System.err.println("Erro ao manter segmento de log " + caminho + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Segmentos arquivados deste arquivo, do mais antigo ao mais recente
+     */
+    private List<Segmento> listarSegmentos() throws IOException {
+        List<Segmento> segmentos = new ArrayList<>();
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(arquivo.getParent(), prefixoSegmento + "*")) {
+            for (Path caminho : arquivos) {
+                Matcher matcher = padraoSegmento.matcher(caminho.getFileName().toString());
+                if (matcher.matches()) {
+                    segmentos.add(new Segmento(caminho, matcher.group(1), Integer.parseInt(matcher.group(2))));
+                }
+            }
+        }
+        segmentos.sort(Comparator.comparing((Segmento segmento) -> segmento.dia)
+                .thenComparingInt(segmento -> segmento.numero));
+        return segmentos;
+    }
+
+    private static void comprimir(Path segmento) throws IOException {
+        Path destino = comprimido(segmento);
+        Path temporario = segmento.resolveSibling(destino.getFileName() + ".tmp");
+        try (OutputStream saida = new GZIPOutputStream(Files.newOutputStream(temporario), TAMANHO_BUFFER)) {
+            Files.copy(segmento, saida);
+        }
+        Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING);
+        Files.delete(segmento);
+    }
+
+    private static Path comprimido(Path segmento) {
+        return segmento.resolveSibling(segmento.getFileName() + EXTENSAO_GZIP);
+    }
+
+    private void fecharCanal() {
+        if (canal == null) {
+            return;
+        }
+        try {
+            canal.close();
+        } catch (IOException e) {
+            System.err.println("Erro ao fechar o arquivo de log: " + e.getMessage());
+        }
+        canal = null;
+    }
+
+    private static final class Segmento {
+        final Path caminho;
+        final String dia;
+        final int numero;
+
+        Segmento(Path caminho, String dia, int numero) {
+            this.caminho = caminho;
+            this.dia = dia;
+            this.numero = numero;
+        }
+    }
+}
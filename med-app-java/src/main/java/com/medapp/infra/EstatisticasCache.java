@@ -0,0 +1,34 @@
+package com.medapp.infra;
+
+/**
+ * Fotografia dos contadores de um cache do CachingRepository
+ */
+public final class EstatisticasCache {
+    private final long acertos;
+    private final long falhas;
+    private final long remocoes;
+    private final int tamanho;
+
+    EstatisticasCache(long acertos, long falhas, long remocoes, int tamanho) {
+        this.acertos = acertos;
+        this.falhas = falhas;
+        this.remocoes = remocoes;
+        this.tamanho = tamanho;
+    }
+
+    public long getAcertos() { return acertos; }
+    public long getFalhas() { return falhas; }
+    public long getRemocoes() { return remocoes; }
+    public int getTamanho() { return tamanho; }
+
+    public double getTaxaAcerto() {
+        long total = acertos + falhas;
+        return total == 0 ? 0.0 : (double) acertos / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("acertos=%d, falhas=%d, taxa=%.1f%%, remocoes=%d, tamanho=%d",
+                acertos, falhas, getTaxaAcerto() * 100, remocoes, tamanho);
+    }
+}
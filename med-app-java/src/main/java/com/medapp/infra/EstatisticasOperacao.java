@@ -0,0 +1,49 @@
+package com.medapp.infra;
+
+/**
+ * Fotografia das métricas de uma operação do MetricsRepository (ex.: save de USER)
+ */
+public final class EstatisticasOperacao {
+    private final String operacao;
+    private final String entidade;
+    private final long chamadas;
+    private final long erros;
+    private final double mediaMs;
+    private final double p50Ms;
+    private final double p95Ms;
+    private final double p99Ms;
+    private final double maximoMs;
+    private final double vazaoPorSegundo;
+
+    EstatisticasOperacao(String operacao, String entidade, long chamadas, long erros, double mediaMs,
+                         double p50Ms, double p95Ms, double p99Ms, double maximoMs, double vazaoPorSegundo) {
+        this.operacao = operacao;
+        this.entidade = entidade;
+        this.chamadas = chamadas;
+        this.erros = erros;
+        this.mediaMs = mediaMs;
+        this.p50Ms = p50Ms;
+        this.p95Ms = p95Ms;
+        this.p99Ms = p99Ms;
+        this.maximoMs = maximoMs;
+        this.vazaoPorSegundo = vazaoPorSegundo;
+    }
+
+    public String getOperacao() { return operacao; }
+    public String getEntidade() { return entidade; }
+    public long getChamadas() { return chamadas; }
+    public long getErros() { return erros; }
+    public double getMediaMs() { return mediaMs; }
+    public double getP50Ms() { return p50Ms; }
+    public double getP95Ms() { return p95Ms; }
+    public double getP99Ms() { return p99Ms; }
+    public double getMaximoMs() { return maximoMs; }
+    /** Chamadas por segundo desde a criação do decorador ou o último zerar() */
+    public double getVazaoPorSegundo() { return vazaoPorSegundo; }
+
+    @Override
+    public String toString() {
+        return String.format("%s(%s): chamadas=%d, erros=%d, p50=%.3fms, p95=%.3fms, p99=%.3fms, max=%.3fms, %.1f/s",
+                operacao, entidade, chamadas, erros, p50Ms, p95Ms, p99Ms, maximoMs, vazaoPorSegundo);
+    }
+}
@@ -7,10 +7,15 @@ package com.medapp.infra;
 public class FabricaLogs {
     
     private static final String DEFAULT_LOG_TYPE = "LOG4J";
+
+    /** Arquivo usado pelos loggers FILE (padrão medapp.log) e JSON (padrão medapp.log.jsonl) */
+    public static final String PROPRIEDADE_ARQUIVO = "medapp.log.arquivo";
+    
+    private static final String ARQUIVO_PADRAO_JSON = "medapp.log.jsonl";
     
     /**
      * Cria uma instância de logger baseada no tipo especificado
-     * @param tipo Tipo do logger (LOG4J, CONSOLE, FILE)
+     * @param tipo Tipo do logger (LOG4J, CONSOLE, FILE, JSON)
      * @return Instância do logger
      */
     public static AbstratoLogs criarLogger(String tipo) {
@@ -21,6 +26,9 @@ public class FabricaLogs {
                 return new LoggerConsole();
             case "FILE":
                 return new LoggerArquivo();
+            case "JSON":
+                return new LoggerJson(EscritorLogAssincrono.paraArquivo(
+                        System.getProperty(PROPRIEDADE_ARQUIVO, ARQUIVO_PADRAO_JSON)));
             default:
                 throw new IllegalArgumentException("Tipo de logger não suportado: " + tipo);
         }
@@ -36,6 +44,9 @@ public class FabricaLogs {
     
     /**
      * Cria uma instância de logger baseada em configuração do sistema
+     * (medapp.logger.type e medapp.logger.nivel). Os loggers FILE e JSON usam ainda medapp.log.arquivo,
+     * as propriedades de fila de EscritorLogAssincrono e as de rolagem de PoliticaRolagem
+     * (medapp.log.rolagem.tamanho, .diaria, .retencao e .comprimir).
      * @return Instância do logger configurado
      */
     public static AbstratoLogs criarLoggerConfigurado() {
@@ -48,74 +59,36 @@ public class FabricaLogs {
      */
     private static class LoggerConsole extends AbstratoLogs {
         @Override
-        public void info(String mensagem) {
-            System.out.println("[INFO] " + formatarMensagem(mensagem));
-        }
-        
-        @Override
-        public void debug(String mensagem) {
-            System.out.println("[DEBUG] " + formatarMensagem(mensagem));
-        }
-        
-        @Override
-        public void warn(String mensagem) {
-            System.out.println("[WARN] " + formatarMensagem(mensagem));
-        }
-        
-        @Override
-        public void error(String mensagem) {
-            System.err.println("[ERROR] " + formatarMensagem(mensagem));
-        }
-        
-        @Override
-        public void error(String mensagem, Throwable exception) {
-            System.err.println("[ERROR] " + formatarMensagem(mensagem));
-            if (exception != null) {
-                exception.printStackTrace();
+        protected void registrar(NivelLog nivel, String mensagem, Throwable exception) {
+            String linha = "[" + nivel + "] " + formatarMensagem(mensagem);
+            if (nivel == NivelLog.ERROR) {
+                System.err.println(linha);
+                if (exception != null) {
+                    exception.printStackTrace();
+                }
+            } else {
+                System.out.println(linha);
             }
         }
     }
     
     /**
-     * Logger para arquivo (implementação interna)
+     * Logger para arquivo (implementação interna). As linhas são gravadas de forma
+     * assíncrona pelo EscritorLogAssincrono do arquivo (medapp.log.arquivo, padrão medapp.log),
+     * que troca e arquiva o arquivo conforme a PoliticaRolagem configurada.
      */
     private static class LoggerArquivo extends AbstratoLogs {
         private static final String LOG_FILE = "medapp.log";
+
+        private final EscritorLogAssincrono escritor =
+                EscritorLogAssincrono.paraArquivo(System.getProperty(PROPRIEDADE_ARQUIVO, LOG_FILE));
         
         @Override
-        public void info(String mensagem) {
-            escreverNoArquivo("[INFO] " + formatarMensagem(mensagem));
-        }
-        
-        @Override
-        public void debug(String mensagem) {
-            escreverNoArquivo("[DEBUG] " + formatarMensagem(mensagem));
-        }
-        
-        @Override
-        public void warn(String mensagem) {
-            escreverNoArquivo("[WARN] " + formatarMensagem(mensagem));
-        }
-        
-        @Override
-        public void error(String mensagem) {
-            escreverNoArquivo("[ERROR] " + formatarMensagem(mensagem));
-        }
-        
-        @Override
-        public void error(String mensagem, Throwable exception) {
-            escreverNoArquivo("[ERROR] " + formatarMensagem(mensagem));
+        protected void registrar(NivelLog nivel, String mensagem, Throwable exception) {
+            boolean debug = nivel == NivelLog.DEBUG;
+            escritor.anexar("[" + nivel + "] " + formatarMensagem(mensagem), debug);
             if (exception != null) {
-                escreverNoArquivo("Exception: " + exception.getMessage());
-            }
-        }
-        
-        private void escreverNoArquivo(String linha) {
-            try (java.io.FileWriter writer = new java.io.FileWriter(LOG_FILE, true)) {
-                writer.write(linha + "\\n");
-                writer.flush();
-            } catch (java.io.IOException e) {
-                System.err.println("Erro ao escrever no arquivo de log: " + e.getMessage());
+                escritor.anexar("Exception: " + exception.getMessage(), debug);
             }
         }
     }
@@ -8,15 +8,23 @@ import com.medapp.utils.repository.*;
 import com.medapp.utils.storage.*;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * FileRepository - Implementação de Repository para armazenamento em arquivos
  * 
  * Armazena dados em arquivos binários no diretório "users/"
- * Cada entidade é persistida em arquivos separados usando serialização Java
+ * Cada entidade é persistida em arquivos separados usando o CodecBinario; arquivos
+ * antigos gravados com serialização Java continuam legíveis.
+ * As listagens (getAll*) leem os arquivos em paralelo, limitado por medapp.file.paralelismo
  */
 public class FileRepository implements Repository {
     
@@ -24,8 +32,21 @@ public class FileRepository implements Repository {
     private static final String SALAS_DIR = "salas";
     private static final String RELATORIOS_DIR = "relatorios";
     private static final String AGENDAMENTOS_DIR = "agendamentos";
+
+    /** Número de arquivos lidos em paralelo por getAll*; o padrão é o número de processadores */
+    public static final String PROPRIEDADE_PARALELISMO = "medapp.file.paralelismo";
+    // Abaixo disso dividir a leitura entre threads custa mais do que ler em sequência
+    private static final int MINIMO_PARALELO = 64;
+
+    private final int paralelismo;
+    private final ForkJoinPool leitores;
     
     public FileRepository() {
+        int configurado = Integer.getInteger(PROPRIEDADE_PARALELISMO, Runtime.getRuntime().availableProcessors());
+        this.paralelismo = Math.max(1, configurado);
+        // Pool próprio para não disputar o ForkJoinPool comum; as threads são daemon
+        // e encerram sozinhas quando ociosas
+        this.leitores = paralelismo > 1 ? new ForkJoinPool(paralelismo) : null;
         try {
             // Criar diretórios se não existem
             Files.createDirectories(Paths.get(USERS_DIR));
@@ -50,10 +71,8 @@ public class FileRepository implements Repository {
                 throw new UserAlreadyExistsException(user.getUsername());
             }
             
-            try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filename))) {
-                oos.writeObject(user);
-                System.out.println("User saved to file: " + filename);
-            }
+            Files.write(Paths.get(filename), CodecBinario.codificarUser(user));
+            System.out.println("User saved to file: " + filename);
             
         } catch (UserAlreadyExistsException e) {
             throw e;
@@ -68,6 +87,24 @@ public class FileRepository implements Repository {
         }
     }
 
+    @Override
+    public void saveUsers(Collection<? extends User> users) {
+        // Verifica duplicados antes de gravar, para não deixar o lote pela metade
+        for (User user : users) {
+            if (Files.exists(Paths.get(USERS_DIR, user.getUsername() + ".bin"))) {
+                throw new UserAlreadyExistsException(user.getUsername());
+            }
+        }
+        for (User user : users) {
+            try {
+                Files.write(Paths.get(USERS_DIR, user.getUsername() + ".bin"), CodecBinario.codificarUser(user));
+            } catch (IOException e) {
+                throw new RepositoryException("Failed to save user: " + user.getUsername(), e);
+            }
+        }
+        System.out.println(users.size() + " users saved to directory: " + USERS_DIR);
+    }
+
     @Override
     public User loadUser(String username) {
         try {
@@ -77,9 +114,7 @@ public class FileRepository implements Repository {
                 throw new UserNotFoundException(username);
             }
             
-            try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filename))) {
-                return (User) ois.readObject();
-            }
+            return lerArquivo(filename, User.class, CodecBinario::decodificarUser);
             
         } catch (UserNotFoundException e) {
             throw e;
@@ -98,32 +133,7 @@ public class FileRepository implements Repository {
 
     @Override
     public List<User> getAllUsers() {
-        try {
-            List<User> users = new ArrayList<>();
-            File usersDir = new File(USERS_DIR);
-            
-            if (!usersDir.exists()) {
-                return users;
-            }
-            
-            File[] files = usersDir.listFiles((dir, name) -> name.endsWith(".bin"));
-            if (files != null) {
-                for (File file : files) {
-                    try {
-                        String username = file.getName().replace(".bin", "");
-                        User user = loadUser(username);
-                        users.add(user);
-                    } catch (Exception e) {
-                        System.err.println("Warning: Could not load user from file " + file.getName() + ": " + e.getMessage());
-                    }
-                }
-            }
-            
-            return users;
-            
-        } catch (Exception e) {
-            throw new RepositoryException("Failed to get all users", e);
-        }
+        return listarDiretorio(USERS_DIR, "user", User.class, CodecBinario::decodificarUser);
     }
 
     @Override
@@ -154,10 +164,8 @@ public class FileRepository implements Repository {
         try {
             String filename = SALAS_DIR + File.separator + sala.getId() + ".bin";
             
-            try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filename))) {
-                oos.writeObject(sala);
-                System.out.println("Sala saved to file: " + filename);
-            }
+            Files.write(Paths.get(filename), CodecBinario.codificarSala(sala));
+            System.out.println("Sala saved to file: " + filename);
             
         } catch (IOException e) {
             if (e instanceof FileNotFoundException) {
@@ -179,9 +187,7 @@ public class FileRepository implements Repository {
                 throw new RepositoryException("Sala not found: " + id);
             }
             
-            try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filename))) {
-                return (Sala) ois.readObject();
-            }
+            return lerArquivo(filename, Sala.class, CodecBinario::decodificarSala);
             
         } catch (IOException e) {
             if (e instanceof FileNotFoundException) {
@@ -198,32 +204,7 @@ public class FileRepository implements Repository {
 
     @Override
     public List<Sala> getAllSalas() {
-        try {
-            List<Sala> salas = new ArrayList<>();
-            File salasDir = new File(SALAS_DIR);
-            
-            if (!salasDir.exists()) {
-                return salas;
-            }
-            
-            File[] files = salasDir.listFiles((dir, name) -> name.endsWith(".bin"));
-            if (files != null) {
-                for (File file : files) {
-                    try {
-                        String id = file.getName().replace(".bin", "");
-                        Sala sala = loadSala(id);
-                        salas.add(sala);
-                    } catch (Exception e) {
-                        System.err.println("Warning: Could not load sala from file " + file.getName() + ": " + e.getMessage());
-                    }
-                }
-            }
-            
-            return salas;
-            
-        } catch (Exception e) {
-            throw new RepositoryException("Failed to get all salas", e);
-        }
+        return listarDiretorio(SALAS_DIR, "sala", Sala.class, CodecBinario::decodificarSala);
     }
 
     @Override
@@ -252,10 +233,8 @@ public class FileRepository implements Repository {
         try {
             String filename = RELATORIOS_DIR + File.separator + relatorio.getId() + ".bin";
             
-            try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filename))) {
-                oos.writeObject(relatorio);
-                System.out.println("Relatorio saved to file: " + filename);
-            }
+            Files.write(Paths.get(filename), CodecBinario.codificarRelatorio(relatorio));
+            System.out.println("Relatorio saved to file: " + filename);
             
         } catch (IOException e) {
             if (e instanceof FileNotFoundException) {
@@ -277,9 +256,7 @@ public class FileRepository implements Repository {
                 throw new RepositoryException("Relatorio not found: " + id);
             }
             
-            try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filename))) {
-                return (Relatorio) ois.readObject();
-            }
+            return lerArquivo(filename, Relatorio.class, CodecBinario::decodificarRelatorio);
             
         } catch (IOException e) {
             if (e instanceof FileNotFoundException) {
@@ -296,32 +273,7 @@ public class FileRepository implements Repository {
 
     @Override
     public List<Relatorio> getAllRelatorios() {
-        try {
-            List<Relatorio> relatorios = new ArrayList<>();
-            File relatoriosDir = new File(RELATORIOS_DIR);
-            
-            if (!relatoriosDir.exists()) {
-                return relatorios;
-            }
-            
-            File[] files = relatoriosDir.listFiles((dir, name) -> name.endsWith(".bin"));
-            if (files != null) {
-                for (File file : files) {
-                    try {
-                        String id = file.getName().replace(".bin", "");
-                        Relatorio relatorio = loadRelatorio(id);
-                        relatorios.add(relatorio);
-                    } catch (Exception e) {
-                        System.err.println("Warning: Could not load relatorio from file " + file.getName() + ": " + e.getMessage());
-                    }
-                }
-            }
-            
-            return relatorios;
-            
-        } catch (Exception e) {
-            throw new RepositoryException("Failed to get all relatorios", e);
-        }
+        return listarDiretorio(RELATORIOS_DIR, "relatorio", Relatorio.class, CodecBinario::decodificarRelatorio);
     }
 
     @Override
@@ -361,14 +313,24 @@ public class FileRepository implements Repository {
         try {
             String filename = AGENDAMENTOS_DIR + File.separator + agendamento.getId() + ".bin";
             
-            try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filename))) {
-                oos.writeObject(agendamento);
-            }
+            Files.write(Paths.get(filename), CodecBinario.codificarAgendamento(agendamento));
         } catch (IOException e) {
             throw new RepositoryException("Failed to save agendamento: " + agendamento.getId(), e);
         }
     }
 
+    @Override
+    public void saveAgendamentos(Collection<Agendamento> agendamentos) {
+        for (Agendamento agendamento : agendamentos) {
+            try {
+                Files.write(Paths.get(AGENDAMENTOS_DIR, agendamento.getId() + ".bin"),
+                        CodecBinario.codificarAgendamento(agendamento));
+            } catch (IOException e) {
+                throw new RepositoryException("Failed to save agendamento: " + agendamento.getId(), e);
+            }
+        }
+    }
+
     @Override
     public Agendamento loadAgendamento(String id) {
         try {
@@ -378,9 +340,7 @@ public class FileRepository implements Repository {
                 throw new RepositoryException("Agendamento not found: " + id);
             }
             
-            try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filename))) {
-                return (Agendamento) ois.readObject();
-            }
+            return lerArquivo(filename, Agendamento.class, CodecBinario::decodificarAgendamento);
         } catch (IOException | ClassNotFoundException e) {
             throw new RepositoryException("Failed to load agendamento: " + id, e);
         }
@@ -388,32 +348,8 @@ public class FileRepository implements Repository {
 
     @Override
     public List<Agendamento> getAllAgendamentos() {
-        try {
-            List<Agendamento> agendamentos = new ArrayList<>();
-            Path agendamentosPath = Paths.get(AGENDAMENTOS_DIR);
-            
-            if (!Files.exists(agendamentosPath)) {
-                return agendamentos;
-            }
-            
-            try (var stream = Files.list(agendamentosPath)) {
-                stream.filter(path -> path.toString().endsWith(".bin"))
-                      .forEach(path -> {
-                          try {
-                              String filename = path.getFileName().toString();
-                              String id = filename.substring(0, filename.length() - 4); // Remove .bin
-                              agendamentos.add(loadAgendamento(id));
-                          } catch (Exception e) {
-                              // Log error but continue loading others
-                              System.err.println("Error loading agendamento from " + path + ": " + e.getMessage());
-                          }
-                      });
-            }
-            
-            return agendamentos;
-        } catch (IOException e) {
-            throw new RepositoryException("Failed to get all agendamentos", e);
-        }
+        return listarDiretorio(AGENDAMENTOS_DIR, "agendamento", Agendamento.class,
+                CodecBinario::decodificarAgendamento);
     }
 
     @Override
@@ -464,4 +400,95 @@ public class FileRepository implements Repository {
             throw new RepositoryException("Failed to get agendamentos by sala: " + salaId, e);
         }
     }
+
+    /**
+     * Percorre o diretório de agendamentos sob demanda: cada arquivo só é lido quando o
+     * stream chega nele, então um limite sem ordenação evita ler os arquivos restantes.
+     * Fechar o stream fecha a listagem do diretório.
+     */
+    @Override
+    public Stream<Agendamento> streamAgendamentos(ConsultaAgendamentos consulta) {
+        DirectoryStream<Path> diretorio;
+        try {
+            diretorio = Files.newDirectoryStream(Paths.get(AGENDAMENTOS_DIR), "*.bin");
+        } catch (NoSuchFileException e) {
+            return Stream.empty();
+        } catch (IOException e) {
+            throw new RepositoryException("Failed to stream agendamentos", e);
+        }
+
+        Stream<Agendamento> origem = StreamSupport.stream(diretorio.spliterator(), false)
+                .map(arquivo -> lerOuAvisar(arquivo, "agendamento", Agendamento.class,
+                        CodecBinario::decodificarAgendamento))
+                .filter(Objects::nonNull)
+                .onClose(() -> {
+                    try {
+                        diretorio.close();
+                    } catch (IOException e) {
+                        System.err.println("Warning: Could not close directory " + AGENDAMENTOS_DIR + ": " + e.getMessage());
+                    }
+                });
+        return consulta.aplicar(origem);
+    }
+
+    // ============= MÉTODOS PRIVADOS =============
+
+    /**
+     * Lê todos os arquivos .bin de um diretório, em paralelo quando há arquivos suficientes.
+     * Cada arquivo é lido diretamente (sem passar por loadX e sua verificação de existência);
+     * um arquivo ilegível ou removido durante a listagem gera apenas um aviso.
+     */
+    private <T> List<T> listarDiretorio(String diretorio, String tipo, Class<T> classe,
+                                        Function<ByteBuffer, T> decodificador) {
+        List<Path> arquivos = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(diretorio), "*.bin")) {
+            stream.forEach(arquivos::add);
+        } catch (NoSuchFileException e) {
+            return new ArrayList<>();
+        } catch (IOException e) {
+            throw new RepositoryException("Failed to get all " + tipo + "s", e);
+        }
+
+        Function<Path, T> leitor = arquivo -> lerOuAvisar(arquivo, tipo, classe, decodificador);
+
+        if (leitores == null || arquivos.size() < MINIMO_PARALELO) {
+            return arquivos.stream().map(leitor).filter(Objects::nonNull).collect(Collectors.toList());
+        }
+        try {
+            // Um parallelStream iniciado dentro do pool usa as threads dele, limitando o paralelismo
+            return leitores.submit(() -> arquivos.parallelStream()
+                    .map(leitor)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList())).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RepositoryException("Interrupted while reading " + tipo + "s", e);
+        } catch (ExecutionException e) {
+            throw new RepositoryException("Failed to get all " + tipo + "s", e.getCause());
+        }
+    }
+
+    private <T> T lerOuAvisar(Path arquivo, String tipo, Class<T> classe, Function<ByteBuffer, T> decodificador) {
+        try {
+            return lerArquivo(arquivo.toString(), classe, decodificador);
+        } catch (Exception e) {
+            System.err.println("Warning: Could not load " + tipo + " from file " + arquivo.getFileName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Lê um arquivo de entidade, detectando o formato pelo primeiro byte: registros do
+     * CodecBinario ou, para arquivos anteriores a ele, serialização Java
+     */
+    private <T> T lerArquivo(String filename, Class<T> classe, Function<ByteBuffer, T> decodificador)
+            throws IOException, ClassNotFoundException {
+        ByteBuffer dados = ByteBuffer.wrap(Files.readAllBytes(Paths.get(filename)));
+        if (CodecBinario.isFormatoBinario(dados)) {
+            return decodificador.apply(dados);
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(dados.array()))) {
+            return classe.cast(ois.readObject());
+        }
+    }
 }
@@ -0,0 +1,103 @@
+package com.medapp.infra;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latências em microssegundos usado pelo MetricsRepository.
+ *
+ * As faixas são log-lineares: valores abaixo de 16 µs têm faixa própria e cada potência de
+ * dois acima disso é dividida em 16 faixas iguais, o que limita o erro dos percentis a
+ * cerca de 6% com um array fixo de contadores. O registro não usa locks nem aloca.
+ */
+final class HistogramaLatencia {
+    private static final int BITS_SUBFAIXA = 4;
+    private static final int SUBFAIXAS = 1 << BITS_SUBFAIXA;
+    // Maior expoente representado (2^40 µs, cerca de 12 dias); acima disso o valor é truncado
+    private static final int EXPOENTE_MAXIMO = 40;
+    private static final long VALOR_MAXIMO = (1L << (EXPOENTE_MAXIMO + 1)) - 1;
+
+    private final AtomicLongArray contagens = new AtomicLongArray((EXPOENTE_MAXIMO - BITS_SUBFAIXA + 2) * SUBFAIXAS);
+    private final LongAdder soma = new LongAdder();
+    private final AtomicLong maximo = new AtomicLong();
+
+    void registrar(long micros) {
+        long valor = Math.max(0, Math.min(micros, VALOR_MAXIMO));
+        contagens.incrementAndGet(indice(valor));
+        soma.add(valor);
+        maximo.accumulateAndGet(valor, Math::max);
+    }
+
+    /**
+     * Cópia dos contadores, sobre a qual os percentis são calculados de forma consistente
+     */
+    long[] copiar() {
+        long[] copia = new long[contagens.length()];
+        for (int i = 0; i < copia.length; i++) {
+            copia[i] = contagens.get(i);
+        }
+        return copia;
+    }
+
+    long getSoma() {
+        return soma.sum();
+    }
+
+    long getMaximo() {
+        return maximo.get();
+    }
+
+    void zerar() {
+        for (int i = 0; i < contagens.length(); i++) {
+            contagens.set(i, 0);
+        }
+        soma.reset();
+        maximo.set(0);
+    }
+
+    static long total(long[] copia) {
+        long total = 0;
+        for (long contagem : copia) {
+            total += contagem;
+        }
+        return total;
+    }
+
+    /**
+     * Limite superior da faixa que contém o percentil pedido
+     * @param percentil Entre 0 e 1 (ex.: 0.95)
+     */
+    static long percentil(long[] copia, long total, double percentil) {
+        if (total == 0) {
+            return 0;
+        }
+        long posicao = Math.max(1, (long) Math.ceil(percentil * total));
+        long acumulado = 0;
+        for (int i = 0; i < copia.length; i++) {
+            acumulado += copia[i];
+            if (acumulado >= posicao) {
+                return limiteSuperior(i);
+            }
+        }
+        return limiteSuperior(copia.length - 1);
+    }
+
+    private static int indice(long valor) {
+        if (valor < SUBFAIXAS) {
+            return (int) valor;
+        }
+        int expoente = 63 - Long.numberOfLeadingZeros(valor);
+        int subfaixa = (int) (valor >>> (expoente - BITS_SUBFAIXA)) & (SUBFAIXAS - 1);
+        return (expoente - BITS_SUBFAIXA + 1) * SUBFAIXAS + subfaixa;
+    }
+
+    private static long limiteSuperior(int indice) {
+        if (indice < SUBFAIXAS) {
+            return indice;
+        }
+        int expoente = indice / SUBFAIXAS + BITS_SUBFAIXA - 1;
+        int subfaixa = indice % SUBFAIXAS;
+        return ((long) (SUBFAIXAS + subfaixa + 1) << (expoente - BITS_SUBFAIXA)) - 1;
+    }
+}
@@ -0,0 +1,177 @@
+package com.medapp.infra;
+
+import com.medapp.models.Agendamento;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índice de calendário de salas e profissionais.
+ *
+ * Para cada recurso, os agendamentos (de qualquer status) ficam em baldes por dia,
+ * ordenados pelo horário dentro do balde. Uma consulta de período visita apenas os
+ * dias pedidos, então a agenda de um dia ou de uma semana custa O(k) no número de
+ * agendamentos devolvidos, e não no total. Um agendamento pertence ao dia em que começa.
+ *
+ * É seguro para uso concorrente: cada recurso tem seu próprio bloqueio, como no
+ * IndiceOcupacao.
+ */
+public class IndiceCalendario {
+
+    private static final Comparator<Agendamento> POR_HORARIO = Comparator.comparing(Agendamento::getDataHora);
+
+    private final Map<String, Calendario> calendariosPorSala = new ConcurrentHashMap<>();
+    private final Map<String, Calendario> calendariosPorProfissional = new ConcurrentHashMap<>();
+    // Onde cada agendamento foi indexado: os modelos são mutáveis e a posição antiga
+    // não pode ser recuperada da entidade depois de uma alteração
+    private final Map<String, Posicao> indexados = new ConcurrentHashMap<>();
+
+    /**
+     * Indexa (ou reindexa, se sala, profissional ou horário mudaram) um agendamento
+     * @param agendamento Agendamento a ser indexado
+     */
+    public void indexar(Agendamento agendamento) {
+        if (agendamento.getDataHora() == null) {
+            return;
+        }
+        Posicao nova = new Posicao(agendamento, agendamento.getSalaId(),
+                agendamento.getProfissionalUsername(), agendamento.getDataHora());
+        Posicao anterior = indexados.put(agendamento.getId(), nova);
+        if (anterior != null) {
+            retirar(anterior);
+        }
+        calendario(calendariosPorSala, nova.salaId).adicionar(agendamento);
+        calendario(calendariosPorProfissional, nova.profissionalUsername).adicionar(agendamento);
+    }
+
+    /**
+     * Remove um agendamento do índice, se presente
+     */
+    public void remover(Agendamento agendamento) {
+        Posicao anterior = indexados.remove(agendamento.getId());
+        if (anterior != null) {
+            retirar(anterior);
+        }
+    }
+
+    /**
+     * Agendamentos da sala que começam entre os dias informados (inclusive), em ordem de horário
+     */
+    public List<Agendamento> agendaSala(String salaId, LocalDate primeiroDia, LocalDate ultimoDia) {
+        return consultar(calendariosPorSala.get(salaId), primeiroDia, ultimoDia);
+    }
+
+    /**
+     * Agendamentos do profissional que começam entre os dias informados (inclusive), em ordem de horário
+     */
+    public List<Agendamento> agendaProfissional(String profissionalUsername, LocalDate primeiroDia, LocalDate ultimoDia) {
+        return consultar(calendariosPorProfissional.get(profissionalUsername), primeiroDia, ultimoDia);
+    }
+
+    public void limpar() {
+        calendariosPorSala.clear();
+        calendariosPorProfissional.clear();
+        indexados.clear();
+    }
+
+    public int tamanho() {
+        return indexados.size();
+    }
+
+    private List<Agendamento> consultar(Calendario calendario, LocalDate primeiroDia, LocalDate ultimoDia) {
+        if (primeiroDia == null || ultimoDia == null) {
+            throw new IllegalArgumentException("Período da agenda é obrigatório");
+        }
+        if (ultimoDia.isBefore(primeiroDia)) {
+            throw new IllegalArgumentException("Último dia deve ser igual ou posterior ao primeiro");
+        }
+        return calendario != null ? calendario.periodo(primeiroDia, ultimoDia) : Collections.emptyList();
+    }
+
+    private void retirar(Posicao posicao) {
+        Calendario sala = calendariosPorSala.get(posicao.salaId);
+        if (sala != null) {
+            sala.remover(posicao.agendamento, posicao.dataHora);
+        }
+        Calendario profissional = calendariosPorProfissional.get(posicao.profissionalUsername);
+        if (profissional != null) {
+            profissional.remover(posicao.agendamento, posicao.dataHora);
+        }
+    }
+
+    // Como no IndiceOcupacao, calendários vazios não são removidos para não deixar
+    // um bloqueio órfão por causa de uma remoção concorrente
+    private static Calendario calendario(Map<String, Calendario> calendarios, String chave) {
+        return calendarios.computeIfAbsent(chave, c -> new Calendario());
+    }
+
+    private static final class Posicao {
+        private final Agendamento agendamento;
+        private final String salaId;
+        private final String profissionalUsername;
+        private final LocalDateTime dataHora;
+
+        Posicao(Agendamento agendamento, String salaId, String profissionalUsername, LocalDateTime dataHora) {
+            this.agendamento = agendamento;
+            this.salaId = salaId;
+            this.profissionalUsername = profissionalUsername;
+            this.dataHora = dataHora;
+        }
+    }
+
+    /**
+     * Baldes diários de um único recurso; cada balde é mantido ordenado pelo horário.
+     */
+    private static final class Calendario {
+        private final NavigableMap<LocalDate, List<Agendamento>> porDia = new TreeMap<>();
+
+        synchronized void adicionar(Agendamento agendamento) {
+            List<Agendamento> dia = porDia.computeIfAbsent(agendamento.getDataHora().toLocalDate(),
+                    d -> new ArrayList<>(4));
+            int posicao = Collections.binarySearch(dia, agendamento, POR_HORARIO);
+            // Horários iguais ficam na ordem de inserção
+            if (posicao < 0) {
+                posicao = -posicao - 1;
+            } else {
+                while (posicao < dia.size() && !dia.get(posicao).getDataHora().isAfter(agendamento.getDataHora())) {
+                    posicao++;
+                }
+            }
+            dia.add(posicao, agendamento);
+        }
+
+        synchronized void remover(Agendamento agendamento, LocalDateTime dataHora) {
+            LocalDate data = dataHora.toLocalDate();
+            List<Agendamento> dia = porDia.get(data);
+            if (dia == null) {
+                return;
+            }
+            // Comparação por identidade: a instância indexada é a que foi guardada na Posicao
+            for (int i = 0; i < dia.size(); i++) {
+                if (dia.get(i) == agendamento) {
+                    dia.remove(i);
+                    break;
+                }
+            }
+            if (dia.isEmpty()) {
+                porDia.remove(data);
+            }
+        }
+
+        synchronized List<Agendamento> periodo(LocalDate primeiroDia, LocalDate ultimoDia) {
+            List<Agendamento> resultado = new ArrayList<>();
+            for (List<Agendamento> dia : porDia.subMap(primeiroDia, true, ultimoDia, true).values()) {
+                resultado.addAll(dia);
+            }
+            return resultado;
+        }
+    }
+}
@@ -0,0 +1,453 @@
+package com.medapp.infra;
+
+import com.medapp.models.Agendamento;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Índice de ocupação de salas e profissionais.
+ *
+ * Mantém, para cada recurso, apenas os agendamentos ativos (AGENDADO ou CONFIRMADO)
+ * ordenados pelo horário de início. As consultas de conflito comparam intervalos
+ * [início, fim) e percorrem somente a janela vizinha ao horário pedido, em vez de
+ * todo o histórico de agendamentos.
+ *
+ * É seguro para uso concorrente: cada recurso tem seu próprio bloqueio, de modo que
+ * reservas em salas e profissionais diferentes não se serializam.
+ */
+public class IndiceOcupacao {
+
+    /**
+     * Resultado de uma tentativa de reserva
+     */
+    public enum Conflito {
+        NENHUM,
+        SALA,
+        PROFISSIONAL
+    }
+
+    /**
+     * Conflito que impediu a reserva de um lote: posição do item no lote e recurso ocupado
+     */
+    public static final class ConflitoLote {
+        private final int posicao;
+        private final Conflito conflito;
+
+        ConflitoLote(int posicao, Conflito conflito) {
+            this.posicao = posicao;
+            this.conflito = conflito;
+        }
+
+        public int getPosicao() { return posicao; }
+        public Conflito getConflito() { return conflito; }
+
+        /**
+         * Conflito do item na posição informada com algum item anterior do mesmo lote
+         */
+        static Optional<ConflitoLote> dentroDoLote(List<Agendamento> lote, int posicao) {
+            Agendamento novo = lote.get(posicao);
+            for (int i = 0; i < posicao; i++) {
+                Agendamento anterior = lote.get(i);
+                if (!anterior.isAtivo() || anterior.getId().equals(novo.getId()) || !anterior.sobrepoe(novo)) {
+                    continue;
+                }
+                if (anterior.getSalaId().equals(novo.getSalaId())) {
+                    return Optional.of(new ConflitoLote(posicao, Conflito.SALA));
+                }
+                if (anterior.getProfissionalUsername().equals(novo.getProfissionalUsername())) {
+                    return Optional.of(new ConflitoLote(posicao, Conflito.PROFISSIONAL));
+                }
+            }
+            return Optional.empty();
+        }
+    }
+
+    private final Map<String, Agenda> agendasPorSala = new ConcurrentHashMap<>();
+    private final Map<String, Agenda> agendasPorProfissional = new ConcurrentHashMap<>();
+    private final Map<String, Agendamento> indexados = new ConcurrentHashMap<>();
+
+    /**
+     * Verifica conflitos e indexa o agendamento em uma única operação atômica
+     * para a sala e o profissional envolvidos.
+     *
+     * Se já houver um agendamento indexado com o mesmo id (reagendamento ou nova gravação),
+     * ele não conta como conflito e é substituído sob os mesmos bloqueios: em caso de
+     * conflito a entrada anterior continua reservada. Agendamentos inativos não ocupam
+     * horário e são apenas retirados do índice.
+     * @param agendamento Agendamento a ser reservado
+     * @return NENHUM se a reserva foi feita, ou o recurso que estava ocupado
+     */
+    public Conflito reservar(Agendamento agendamento) {
+        if (!agendamento.isAtivo()) {
+            remover(agendamento);
+            return Conflito.NENHUM;
+        }
+
+        Agenda sala = agendaSala(agendamento.getSalaId());
+        Agenda profissional = agendaProfissional(agendamento.getProfissionalUsername());
+        while (true) {
+            Agendamento anterior = indexados.get(agendamento.getId());
+            NavigableMap<String, Agenda> envolvidas = new TreeMap<>();
+            envolvidas.put(sala.chave, sala);
+            envolvidas.put(profissional.chave, profissional);
+            if (anterior != null) {
+                Agenda salaAnterior = agendaSala(anterior.getSalaId());
+                Agenda profissionalAnterior = agendaProfissional(anterior.getProfissionalUsername());
+                envolvidas.put(salaAnterior.chave, salaAnterior);
+                envolvidas.put(profissionalAnterior.chave, profissionalAnterior);
+            }
+
+            // null: a entrada anterior mudou antes de obtermos os bloqueios, e os recursos dela podem ser outros
+            Conflito conflito = comBloqueios(new ArrayList<>(envolvidas.values()), 0,
+                    () -> indexados.get(agendamento.getId()) != anterior ? null
+                            : substituirBloqueado(anterior, agendamento, sala, profissional));
+            if (conflito != null) {
+                return conflito;
+            }
+        }
+    }
+
+    /**
+     * Reserva todos os agendamentos do lote ou nenhum. As agendas de todas as salas e
+     * profissionais envolvidos ficam bloqueadas (na ordem global) durante a operação, de
+     * modo que nenhuma outra reserva enxerga o lote pela metade. Cada item é indexado antes
+     * de o seguinte ser verificado, então conflitos dentro do próprio lote também aparecem.
+     * @param lote Agendamentos ativos a serem reservados
+     * @return vazio se o lote inteiro foi reservado, ou o primeiro conflito (e nada fica reservado)
+     */
+    public Optional<ConflitoLote> reservarTodos(List<Agendamento> lote) {
+        NavigableMap<String, Agenda> envolvidas = new TreeMap<>();
+        for (Agendamento agendamento : lote) {
+            Agenda sala = agendaSala(agendamento.getSalaId());
+            Agenda profissional = agendaProfissional(agendamento.getProfissionalUsername());
+            envolvidas.put(sala.chave, sala);
+            envolvidas.put(profissional.chave, profissional);
+        }
+        return comBloqueios(new ArrayList<>(envolvidas.values()), 0, () -> reservarBloqueado(lote));
+    }
+
+    /**
+     * Indexa (ou reindexa) um agendamento sem verificar conflitos.
+     * Agendamentos inativos são apenas removidos.
+     * @param agendamento Agendamento a ser indexado
+     */
+    public void indexar(Agendamento agendamento) {
+        remover(agendamento);
+        if (!agendamento.isAtivo()) {
+            return;
+        }
+
+        Agenda sala = agendaSala(agendamento.getSalaId());
+        Agenda profissional = agendaProfissional(agendamento.getProfissionalUsername());
+        synchronized (primeira(sala, profissional)) {
+            synchronized (segunda(sala, profissional)) {
+                sala.adicionar(agendamento);
+                profissional.adicionar(agendamento);
+                indexados.put(agendamento.getId(), agendamento);
+            }
+        }
+    }
+
+    /**
+     * Atualiza o índice após uma mudança de status (confirmação, cancelamento, finalização)
+     * @param agendamento Agendamento alterado
+     */
+    public void atualizar(Agendamento agendamento) {
+        indexar(agendamento);
+    }
+
+    /**
+     * Remove um agendamento do índice, se presente
+     * @param agendamento Agendamento a ser removido
+     */
+    public void remover(Agendamento agendamento) {
+        Agendamento anterior = indexados.remove(agendamento.getId());
+        if (anterior == null) {
+            return;
+        }
+
+        Agenda sala = agendaSala(anterior.getSalaId());
+        Agenda profissional = agendaProfissional(anterior.getProfissionalUsername());
+        synchronized (primeira(sala, profissional)) {
+            synchronized (segunda(sala, profissional)) {
+                sala.remover(anterior);
+                profissional.remover(anterior);
+            }
+        }
+    }
+
+    /**
+     * Verifica se a sala possui agendamento ativo que se sobreponha ao intervalo [inicio, fim)
+     */
+    public boolean temConflitoSala(String salaId, LocalDateTime inicio, LocalDateTime fim) {
+        Agenda agenda = agendasPorSala.get(salaId);
+        if (agenda == null) {
+            return false;
+        }
+        synchronized (agenda) {
+            return agenda.sobrepoe(inicio, fim);
+        }
+    }
+
+    /**
+     * Verifica se o profissional possui agendamento ativo que se sobreponha ao intervalo [inicio, fim)
+     */
+    public boolean temConflitoProfissional(String profissionalUsername, LocalDateTime inicio, LocalDateTime fim) {
+        Agenda agenda = agendasPorProfissional.get(profissionalUsername);
+        if (agenda == null) {
+            return false;
+        }
+        synchronized (agenda) {
+            return agenda.sobrepoe(inicio, fim);
+        }
+    }
+
+    /**
+     * Próximos horários em que a sala e o profissional ficam livres ao mesmo tempo por
+     * 'duracao', dentro de [inicio, fim). Os agendamentos dos dois recursos na janela são
+     * percorridos uma única vez, em ordem de início; dentro de cada intervalo livre os
+     * horários são consecutivos (início do intervalo, + duracao, ...).
+     * @param quantidade Número máximo de horários devolvidos
+     * @return Horários de início livres, em ordem crescente
+     */
+    public List<LocalDateTime> horariosLivres(String salaId, String profissionalUsername, Duration duracao,
+                                              LocalDateTime inicio, LocalDateTime fim, int quantidade) {
+        List<LocalDateTime> livres = new ArrayList<>();
+        if (quantidade <= 0 || !inicio.plus(duracao).isAfter(inicio) || inicio.plus(duracao).isAfter(fim)) {
+            return livres;
+        }
+
+        // Consultas não criam agendas: um recurso sem agenda é tratado como livre
+        Agenda sala = agendaExistente(agendasPorSala, salaId, "S:");
+        Agenda profissional = agendaExistente(agendasPorProfissional, profissionalUsername, "P:");
+        synchronized (primeira(sala, profissional)) {
+            synchronized (segunda(sala, profissional)) {
+                Iterator<Agendamento> daSala = sala.ocupados(inicio, fim);
+                Iterator<Agendamento> doProfissional = profissional.ocupados(inicio, fim);
+                Agendamento proximoSala = daSala.hasNext() ? daSala.next() : null;
+                Agendamento proximoProfissional = doProfissional.hasNext() ? doProfissional.next() : null;
+                LocalDateTime cursor = inicio;
+
+                while (livres.size() < quantidade) {
+                    // Intercala as duas agendas pelo início, como no merge de listas ordenadas
+                    Agendamento ocupado;
+                    if (proximoProfissional == null || (proximoSala != null
+                            && !proximoSala.getDataHora().isAfter(proximoProfissional.getDataHora()))) {
+                        ocupado = proximoSala;
+                        proximoSala = daSala.hasNext() ? daSala.next() : null;
+                    } else {
+                        ocupado = proximoProfissional;
+                        proximoProfissional = doProfissional.hasNext() ? doProfissional.next() : null;
+                    }
+
+                    LocalDateTime fimLivre = ocupado == null || ocupado.getDataHora().isAfter(fim)
+                            ? fim : ocupado.getDataHora();
+                    while (livres.size() < quantidade && !cursor.plus(duracao).isAfter(fimLivre)) {
+                        livres.add(cursor);
+                        cursor = cursor.plus(duracao);
+                    }
+                    if (ocupado == null) {
+                        break;
+                    }
+                    LocalDateTime fimOcupado = calcularFim(ocupado);
+                    if (fimOcupado.isAfter(cursor)) {
+                        cursor = fimOcupado;
+                    }
+                    if (cursor.plus(duracao).isAfter(fim)) {
+                        break;
+                    }
+                }
+            }
+        }
+        return livres;
+    }
+
+    public void limpar() {
+        agendasPorSala.clear();
+        agendasPorProfissional.clear();
+        indexados.clear();
+    }
+
+    public int tamanho() {
+        return indexados.size();
+    }
+
+    /**
+     * Calcula o fim do intervalo ocupado por um agendamento (veja Agendamento.getDuracaoEfetiva)
+     */
+    public static LocalDateTime calcularFim(Agendamento agendamento) {
+        return agendamento.getDataHoraFim();
+    }
+
+    // As agendas não são removidas quando ficam vazias: assim um bloqueio obtido
+    // por uma thread nunca fica órfão por causa de uma remoção concorrente.
+    private Agenda agendaSala(String salaId) {
+        return agendasPorSala.computeIfAbsent(salaId, chave -> new Agenda("S:" + chave));
+    }
+
+    private Agenda agendaProfissional(String profissionalUsername) {
+        return agendasPorProfissional.computeIfAbsent(profissionalUsername, chave -> new Agenda("P:" + chave));
+    }
+
+    // Para leituras: a agenda registrada ou uma vazia que não entra no índice
+    private static Agenda agendaExistente(Map<String, Agenda> agendas, String id, String prefixo) {
+        Agenda agenda = agendas.get(id);
+        return agenda != null ? agenda : new Agenda(prefixo + id);
+    }
+
+    // Chamado com os monitores das agendas do agendamento e da entrada anterior com o mesmo id
+    private Conflito substituirBloqueado(Agendamento anterior, Agendamento agendamento, Agenda sala,
+                                         Agenda profissional) {
+        LocalDateTime inicio = agendamento.getDataHora();
+        LocalDateTime fim = calcularFim(agendamento);
+        if (sala.sobrepoe(inicio, fim, agendamento.getId())) {
+            return Conflito.SALA;
+        }
+        if (profissional.sobrepoe(inicio, fim, agendamento.getId())) {
+            return Conflito.PROFISSIONAL;
+        }
+        if (anterior != null) {
+            agendasPorSala.get(anterior.getSalaId()).remover(anterior);
+            agendasPorProfissional.get(anterior.getProfissionalUsername()).remover(anterior);
+        }
+        sala.adicionar(agendamento);
+        profissional.adicionar(agendamento);
+        indexados.put(agendamento.getId(), agendamento);
+        return Conflito.NENHUM;
+    }
+
+    // Chamado com os monitores de todas as agendas do lote
+    private Optional<ConflitoLote> reservarBloqueado(List<Agendamento> lote) {
+        for (int i = 0; i < lote.size(); i++) {
+            Agendamento agendamento = lote.get(i);
+            LocalDateTime inicio = agendamento.getDataHora();
+            LocalDateTime fim = calcularFim(agendamento);
+            Agenda sala = agendasPorSala.get(agendamento.getSalaId());
+            Agenda profissional = agendasPorProfissional.get(agendamento.getProfissionalUsername());
+
+            Conflito conflito = sala.sobrepoe(inicio, fim) ? Conflito.SALA
+                    : profissional.sobrepoe(inicio, fim) ? Conflito.PROFISSIONAL
+                    : Conflito.NENHUM;
+            if (conflito != Conflito.NENHUM) {
+                desfazer(lote, i);
+                return Optional.of(new ConflitoLote(i, conflito));
+            }
+            sala.adicionar(agendamento);
+            profissional.adicionar(agendamento);
+            indexados.put(agendamento.getId(), agendamento);
+        }
+        return Optional.empty();
+    }
+
+    // Retira os 'quantidade' primeiros itens do lote, já reservados
+    private void desfazer(List<Agendamento> lote, int quantidade) {
+        for (int i = 0; i < quantidade; i++) {
+            Agendamento agendamento = lote.get(i);
+            agendasPorSala.get(agendamento.getSalaId()).remover(agendamento);
+            agendasPorProfissional.get(agendamento.getProfissionalUsername()).remover(agendamento);
+            indexados.remove(agendamento.getId());
+        }
+    }
+
+    // Obtém os monitores das agendas em sequência (já ordenadas pela chave) e executa a operação
+    private static <T> T comBloqueios(List<Agenda> agendas, int proxima, Supplier<T> operacao) {
+        if (proxima == agendas.size()) {
+            return operacao.get();
+        }
+        synchronized (agendas.get(proxima)) {
+            return comBloqueios(agendas, proxima + 1, operacao);
+        }
+    }
+
+    // Ordem global de bloqueio (pela chave do recurso) para evitar deadlock
+    private static Agenda primeira(Agenda a, Agenda b) {
+        return a.chave.compareTo(b.chave) <= 0 ? a : b;
+    }
+
+    private static Agenda segunda(Agenda a, Agenda b) {
+        return a.chave.compareTo(b.chave) <= 0 ? b : a;
+    }
+
+    /**
+     * Agendamentos ativos de um único recurso, ordenados pelo início.
+     * Guarda quantos agendamentos há de cada duração para saber a maior duração entre os
+     * indexados agora, que limita a janela de busca à esquerda: quando um atendimento longo
+     * sai da agenda, a janela volta a encolher.
+     * Deve ser acessada apenas com o monitor da própria agenda.
+     */
+    private static class Agenda {
+        private final String chave;
+        private final NavigableMap<LocalDateTime, List<Agendamento>> porInicio = new TreeMap<>();
+        private final NavigableMap<Duration, Integer> porDuracao = new TreeMap<>();
+        private Duration maiorDuracao = Duration.ZERO;
+
+        Agenda(String chave) {
+            this.chave = chave;
+        }
+
+        void adicionar(Agendamento agendamento) {
+            porInicio.computeIfAbsent(agendamento.getDataHora(), inicio -> new ArrayList<>(1)).add(agendamento);
+            porDuracao.merge(duracao(agendamento), 1, Integer::sum);
+            maiorDuracao = porDuracao.lastKey();
+        }
+
+        // Por identidade: durante uma substituição a versão nova e a anterior têm o mesmo id (equals)
+        void remover(Agendamento agendamento) {
+            List<Agendamento> mesmoInicio = porInicio.get(agendamento.getDataHora());
+            if (mesmoInicio == null || !mesmoInicio.removeIf(existente -> existente == agendamento)) {
+                return;
+            }
+            if (mesmoInicio.isEmpty()) {
+                porInicio.remove(agendamento.getDataHora());
+            }
+            porDuracao.computeIfPresent(duracao(agendamento),
+                    (duracao, quantidade) -> quantidade > 1 ? quantidade - 1 : null);
+            maiorDuracao = porDuracao.isEmpty() ? Duration.ZERO : porDuracao.lastKey();
+        }
+
+        private static Duration duracao(Agendamento agendamento) {
+            return Duration.between(agendamento.getDataHora(), calcularFim(agendamento));
+        }
+
+        /**
+         * Agendamentos que podem ocupar parte de [inicio, fim), em ordem de início
+         */
+        Iterator<Agendamento> ocupados(LocalDateTime inicio, LocalDateTime fim) {
+            return porInicio.subMap(inicio.minus(maiorDuracao), true, fim, false).values().stream()
+                    .flatMap(List::stream)
+                    .iterator();
+        }
+
+        boolean sobrepoe(LocalDateTime inicio, LocalDateTime fim) {
+            return sobrepoe(inicio, fim, null);
+        }
+
+        /**
+         * @param ignorarId Id cujo agendamento não conta como conflito (a versão anterior do mesmo agendamento)
+         */
+        boolean sobrepoe(LocalDateTime inicio, LocalDateTime fim, String ignorarId) {
+            // Só podem sobrepor agendamentos que começam antes de 'fim' e depois de 'inicio - maiorDuracao'
+            NavigableMap<LocalDateTime, List<Agendamento>> janela =
+                    porInicio.subMap(inicio.minus(maiorDuracao), false, fim, false);
+
+            for (List<Agendamento> mesmoInicio : janela.values()) {
+                for (Agendamento existente : mesmoInicio) {
+                    if (calcularFim(existente).isAfter(inicio) && !existente.getId().equals(ignorarId)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.medapp.infra;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índice secundário (multimapa) de chave estrangeira para IDs de entidades.
+ *
+ * Guarda também a chave indexada de cada ID, pois os modelos são mutáveis e
+ * o valor antigo não pode ser recuperado da entidade no momento da atualização.
+ */
+class IndiceSecundario {
+    private final Map<String, Set<String>> idsPorChave;
+    private final Map<String, String> chavePorId;
+    private final boolean concorrente;
+
+    IndiceSecundario() {
+        this(false);
+    }
+
+    private IndiceSecundario(boolean concorrente) {
+        this.concorrente = concorrente;
+        this.idsPorChave = concorrente ? new ConcurrentHashMap<>() : new HashMap<>();
+        this.chavePorId = concorrente ? new ConcurrentHashMap<>() : new HashMap<>();
+    }
+
+    /**
+     * Cria um índice seguro para acesso concorrente
+     */
+    static IndiceSecundario concorrente() {
+        return new IndiceSecundario(true);
+    }
+
+    /**
+     * Associa o ID à chave, removendo uma associação anterior se a chave mudou
+     */
+    void indexar(String id, String chave) {
+        String chaveAnterior = chave != null ? chavePorId.put(id, chave) : chavePorId.remove(id);
+        if (chaveAnterior != null && chaveAnterior.equals(chave)) {
+            return;
+        }
+
+        if (chaveAnterior != null) {
+            removerDaChave(chaveAnterior, id);
+        }
+        if (chave != null) {
+            idsPorChave.compute(chave, (c, ids) -> {
+                Set<String> resultado = ids != null ? ids : novoConjunto();
+                resultado.add(id);
+                return resultado;
+            });
+        }
+    }
+
+    void remover(String id) {
+        String chave = chavePorId.remove(id);
+        if (chave != null) {
+            removerDaChave(chave, id);
+        }
+    }
+
+    Set<String> buscar(String chave) {
+        Set<String> ids = chave != null ? idsPorChave.get(chave) : null;
+        return ids != null ? Collections.unmodifiableSet(ids) : Collections.emptySet();
+    }
+
+    void limpar() {
+        idsPorChave.clear();
+        chavePorId.clear();
+    }
+
+    private void removerDaChave(String chave, String id) {
+        idsPorChave.computeIfPresent(chave, (c, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private Set<String> novoConjunto() {
+        return concorrente ? ConcurrentHashMap.newKeySet() : new LinkedHashSet<>();
+    }
+}
@@ -0,0 +1,816 @@
+package com.medapp.infra;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.medapp.models.Administrador;
+import com.medapp.models.Agendamento;
+import com.medapp.models.Paciente;
+import com.medapp.models.ProfissionalSaude;
+import com.medapp.models.Relatorio;
+import com.medapp.models.Sala;
+import com.medapp.models.User;
+import com.medapp.utils.repository.*;
+import com.medapp.utils.storage.UserNotFoundException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JsonLinesRepository - Implementação de Repository em arquivo JSON-lines
+ *
+ * Cada linha do arquivo é um registro {"op": "put"|"del", "entidade": ..., campos...}
+ * anexado a cada gravação. Na inicialização o arquivo é reaplicado registro a registro
+ * com o JsonParser de streaming do Jackson (sem montar a árvore do documento) e, se
+ * houver muitos registros obsoletos, reescrito apenas com o estado atual.
+ *
+ * Usuários são polimórficos pelo campo "tipo" (ADMINISTRADOR, PACIENTE, PROFISSIONAL_SAUDE).
+ * O mesmo formato é usado por exportar/importar para cargas em massa.
+ *
+ * Propriedades de sistema:
+ * - medapp.json.arquivo: arquivo de dados (padrão "medapp.jsonl")
+ */
+public class JsonLinesRepository implements Repository, Closeable {
+
+    private static final String ARQUIVO_PADRAO = "medapp.jsonl";
+
+    private static final String OP_GRAVAR = "put";
+    private static final String OP_APAGAR = "del";
+
+    private static final String ENTIDADE_USER = "user";
+    private static final String ENTIDADE_SALA = "sala";
+    private static final String ENTIDADE_RELATORIO = "relatorio";
+    private static final String ENTIDADE_AGENDAMENTO = "agendamento";
+
+    private static final String TIPO_ADMINISTRADOR = "ADMINISTRADOR";
+    private static final String TIPO_PACIENTE = "PACIENTE";
+    private static final String TIPO_PROFISSIONAL = "PROFISSIONAL_SAUDE";
+
+    private final JsonFactory fabrica = new JsonFactory();
+    private final Path arquivo;
+    private JsonGenerator gerador;
+
+    private final Map<String, User> users = new ConcurrentHashMap<>();
+    private final Map<String, Sala> salas = new ConcurrentHashMap<>();
+    private final Map<String, Relatorio> relatorios = new ConcurrentHashMap<>();
+    private final Map<String, Agendamento> agendamentos = new ConcurrentHashMap<>();
+
+    private final IndiceSecundario relatoriosPorAutor = IndiceSecundario.concorrente();
+    private final IndiceSecundario agendamentosPorPaciente = IndiceSecundario.concorrente();
+    private final IndiceSecundario agendamentosPorProfissional = IndiceSecundario.concorrente();
+    private final IndiceSecundario agendamentosPorSala = IndiceSecundario.concorrente();
+
+    public JsonLinesRepository() {
+        this(System.getProperty("medapp.json.arquivo", ARQUIVO_PADRAO));
+    }
+
+    public JsonLinesRepository(String arquivo) {
+        this.arquivo = Paths.get(arquivo);
+        try {
+            boolean reescrever = false;
+            if (Files.exists(this.arquivo)) {
+                long registros = carregar();
+                reescrever = registros < 0 || registros > 2 * totalRegistros();
+            }
+            if (reescrever) {
+                compactar();
+            } else {
+                abrirGerador();
+            }
+        } catch (IOException e) {
+            throw new RepositoryConfigurationException("json.file",
+                "Failed to open JSON storage: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Exporta o estado atual para um arquivo JSON-lines
+     * @return Quantidade de registros exportados
+     */
+    public long exportar(Path destino) {
+        try (JsonGenerator saida = criarGerador(Files.newOutputStream(destino))) {
+            return escreverEstado(saida);
+        } catch (IOException e) {
+            throw new RepositoryException("Failed to export to: " + destino, e);
+        }
+    }
+
+    /**
+     * Importa um arquivo JSON-lines (como o gerado por exportar), registro a registro
+     * @return Quantidade de registros aplicados
+     */
+    public synchronized long importar(Path origem) {
+        try (JsonParser parser = fabrica.createParser(
+                new BufferedInputStream(Files.newInputStream(origem)))) {
+            long aplicados = 0;
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                Map<String, Object> campos = lerCampos(parser);
+                aplicar(campos);
+                registrar(campos);
+                aplicados++;
+            }
+            gerador.flush();
+            return aplicados;
+        } catch (JsonProcessingException | DateTimeException e) {
+            throw new RepositoryIntegrityException("json.import", "Invalid JSON in " + origem + ": " + e.getMessage());
+        } catch (IOException e) {
+            throw new RepositoryException("Failed to import from: " + origem, e);
+        }
+    }
+
+    /**
+     * Reescreve o arquivo apenas com o estado atual, descartando registros obsoletos
+     */
+    public synchronized void compactar() {
+        Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".tmp");
+        IOException falha = null;
+        try {
+            if (gerador != null) {
+                gerador.close();
+            }
+            try (JsonGenerator saida = criarGerador(Files.newOutputStream(temporario))) {
+                escreverEstado(saida);
+            }
+            Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            falha = e;
+        } finally {
+            // Com ou sem a reescrita, as gravações seguintes continuam no arquivo de dados
+            try {
+                Files.deleteIfExists(temporario);
+                abrirGerador();
+            } catch (IOException e) {
+                if (falha == null) {
+                    falha = e;
+                } else {
+                    falha.addSuppressed(e);
+                }
+            }
+        }
+        if (falha != null) {
+            throw new RepositoryException("Failed to compact JSON storage: " + arquivo, falha);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            gerador.close();
+        } catch (IOException e) {
+            throw new RepositoryException("Failed to close JSON storage: " + arquivo, e);
+        }
+    }
+
+    // ============= MÉTODOS PARA USER =============
+
+    @Override
+    public synchronized void saveUser(User user) {
+        gravar(() -> escreverUser(gerador, user), "user: " + user.getUsername());
+        users.put(user.getUsername(), user);
+    }
+
+    @Override
+    public synchronized void saveUsers(Collection<? extends User> novos) {
+        gravar(() -> {
+            for (User user : novos) {
+                escreverUser(gerador, user);
+            }
+        }, novos.size() + " users");
+        for (User user : novos) {
+            users.put(user.getUsername(), user);
+        }
+    }
+
+    @Override
+    public User loadUser(String username) {
+        User user = users.get(username);
+        if (user == null) {
+            throw new UserNotFoundException(username);
+        }
+        return user;
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return new ArrayList<>(users.values());
+    }
+
+    @Override
+    public synchronized void deleteUser(String username) {
+        if (!users.containsKey(username)) {
+            throw new UserNotFoundException(username);
+        }
+        gravar(() -> escreverRemocao(gerador, ENTIDADE_USER, username), "user: " + username);
+        users.remove(username);
+    }
+
+    // ============= MÉTODOS PARA SALA =============
+
+    @Override
+    public synchronized void saveSala(Sala sala) {
+        gravar(() -> escreverSala(gerador, sala), "sala: " + sala.getId());
+        salas.put(sala.getId(), sala);
+    }
+
+    @Override
+    public Sala loadSala(String id) {
+        Sala sala = salas.get(id);
+        if (sala == null) {
+            throw new RepositoryException("Sala not found: " + id);
+        }
+        return sala;
+    }
+
+    @Override
+    public List<Sala> getAllSalas() {
+        return new ArrayList<>(salas.values());
+    }
+
+    @Override
+    public synchronized void deleteSala(String id) {
+        if (!salas.containsKey(id)) {
+            throw new RepositoryException("Sala not found: " + id);
+        }
+        gravar(() -> escreverRemocao(gerador, ENTIDADE_SALA, id), "sala: " + id);
+        salas.remove(id);
+    }
+
+    // ============= MÉTODOS PARA RELATORIO =============
+
+    @Override
+    public synchronized void saveRelatorio(Relatorio relatorio) {
+        gravar(() -> escreverRelatorio(gerador, relatorio), "relatorio: " + relatorio.getId());
+        guardarRelatorio(relatorio);
+    }
+
+    @Override
+    public Relatorio loadRelatorio(String id) {
+        Relatorio relatorio = relatorios.get(id);
+        if (relatorio == null) {
+            throw new RepositoryException("Relatorio not found: " + id);
+        }
+        return relatorio;
+    }
+
+    @Override
+    public List<Relatorio> getAllRelatorios() {
+        return new ArrayList<>(relatorios.values());
+    }
+
+    @Override
+    public synchronized void deleteRelatorio(String id) {
+        if (!relatorios.containsKey(id)) {
+            throw new RepositoryException("Relatorio not found: " + id);
+        }
+        gravar(() -> escreverRemocao(gerador, ENTIDADE_RELATORIO, id), "relatorio: " + id);
+        removerRelatorio(id);
+    }
+
+    @Override
+    public List<Relatorio> getRelatoriosByAutor(String autorUsername) {
+        return buscarPorIds(relatoriosPorAutor.buscar(autorUsername), relatorios);
+    }
+
+    // ============= MÉTODOS PARA AGENDAMENTO =============
+
+    @Override
+    public synchronized void saveAgendamento(Agendamento agendamento) {
+        gravar(() -> escreverAgendamento(gerador, agendamento), "agendamento: " + agendamento.getId());
+        guardarAgendamento(agendamento);
+    }
+
+    @Override
+    public synchronized void saveAgendamentos(Collection<Agendamento> novos) {
+        gravar(() -> {
+            for (Agendamento agendamento : novos) {
+                escreverAgendamento(gerador, agendamento);
+            }
+        }, novos.size() + " agendamentos");
+        for (Agendamento agendamento : novos) {
+            guardarAgendamento(agendamento);
+        }
+    }
+
+    @Override
+    public Agendamento loadAgendamento(String id) {
+        Agendamento agendamento = agendamentos.get(id);
+        if (agendamento == null) {
+            throw new RepositoryException("Agendamento not found: " + id);
+        }
+        return agendamento;
+    }
+
+    @Override
+    public List<Agendamento> getAllAgendamentos() {
+        return new ArrayList<>(agendamentos.values());
+    }
+
+    @Override
+    public synchronized void deleteAgendamento(String id) {
+        if (!agendamentos.containsKey(id)) {
+            throw new RepositoryException("Agendamento not found: " + id);
+        }
+        gravar(() -> escreverRemocao(gerador, ENTIDADE_AGENDAMENTO, id), "agendamento: " + id);
+        removerAgendamento(id);
+    }
+
+    @Override
+    public List<Agendamento> getAgendamentosByPaciente(String pacienteUsername) {
+        return buscarPorIds(agendamentosPorPaciente.buscar(pacienteUsername), agendamentos);
+    }
+
+    @Override
+    public List<Agendamento> getAgendamentosByProfissional(String profissionalUsername) {
+        return buscarPorIds(agendamentosPorProfissional.buscar(profissionalUsername), agendamentos);
+    }
+
+    @Override
+    public List<Agendamento> getAgendamentosBySala(String salaId) {
+        return buscarPorIds(agendamentosPorSala.buscar(salaId), agendamentos);
+    }
+
+    @Override
+    public Stream<Agendamento> streamAgendamentos(ConsultaAgendamentos consulta) {
+        // Parte do menor conjunto de IDs entre os índices usados pela consulta, sem copiar
+        Set<String> ids = consulta.candidatos(agendamentosPorPaciente, agendamentosPorProfissional, agendamentosPorSala);
+        Stream<Agendamento> origem = ids != null
+                ? ids.stream().map(agendamentos::get).filter(Objects::nonNull)
+                : agendamentos.values().stream();
+        return consulta.aplicar(origem);
+    }
+
+    // ============= CARGA E APLICAÇÃO DE REGISTROS =============
+
+    /**
+     * Reaplica o arquivo de dados. Uma última linha incompleta (gravação interrompida, sem
+     * o '\n' final) é ignorada e força a reescrita do arquivo. Qualquer outro erro de
+     * leitura interrompe a carga sem alterar o arquivo, pois os registros seguintes
+     * ainda não foram lidos e a compactação os perderia.
+     * @return Registros lidos, ou -1 se a última linha estava incompleta
+     */
+    private long carregar() throws IOException {
+        long registros = 0;
+        try (JsonParser parser = fabrica.createParser(
+                new BufferedInputStream(Files.newInputStream(arquivo)))) {
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+                Map<String, Object> campos = lerCampos(parser);
+                registros++;
+                try {
+                    aplicar(campos);
+                } catch (RepositoryException | DateTimeException e) {
+                    System.err.println("Warning: Could not load JSON record " + registros + ": " + e.getMessage());
+                }
+            }
+            if (token != null) {
+                throw new RepositoryIntegrityException("json.data", "Unexpected " + token + " after record "
+                    + registros + " in " + arquivo);
+            }
+            return registros;
+        } catch (JsonProcessingException e) {
+            long posicao = e.getLocation() != null ? e.getLocation().getByteOffset() : -1;
+            long inicioUltimaLinha = inicioUltimaLinhaIncompleta();
+            if (inicioUltimaLinha < 0 || posicao < inicioUltimaLinha) {
+                throw new RepositoryIntegrityException("json.data", "Invalid JSON after record " + registros
+                    + " in " + arquivo + " (byte " + posicao + "): " + e.getOriginalMessage());
+            }
+            System.err.println("Warning: JSON storage truncated after " + registros + " records: " + e.getOriginalMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Posição do início da última linha se ela não termina com '\n' (gravação interrompida),
+     * ou -1 se o arquivo termina com uma linha completa
+     */
+    private long inicioUltimaLinhaIncompleta() throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            ByteBuffer bloco = ByteBuffer.allocate(8192);
+            long fim = canal.size();
+            boolean ultimoByte = true;
+            while (fim > 0) {
+                int tamanho = (int) Math.min(bloco.capacity(), fim);
+                bloco.clear().limit(tamanho);
+                long inicio = fim - tamanho;
+                while (bloco.hasRemaining()) {
+                    if (canal.read(bloco, inicio + bloco.position()) < 0) {
+                        break;
+                    }
+                }
+                for (int i = tamanho - 1; i >= 0; i--) {
+                    if (bloco.get(i) == '\n') {
+                        return ultimoByte ? -1 : inicio + i + 1;
+                    }
+                    ultimoByte = false;
+                }
+                fim = inicio;
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Lê os campos de um objeto JSON plano (strings, números, booleanos e listas de strings)
+     */
+    private Map<String, Object> lerCampos(JsonParser parser) throws IOException {
+        Map<String, Object> campos = new HashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String nome = parser.currentName();
+            JsonToken valor = parser.nextToken();
+            if (valor == JsonToken.START_ARRAY) {
+                List<String> itens = new ArrayList<>();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    itens.add(parser.getText());
+                }
+                campos.put(nome, itens);
+            } else if (valor == JsonToken.VALUE_NUMBER_INT) {
+                campos.put(nome, parser.getNumberValue());
+            } else if (valor == JsonToken.VALUE_TRUE || valor == JsonToken.VALUE_FALSE) {
+                campos.put(nome, parser.getBooleanValue());
+            } else if (valor == JsonToken.START_OBJECT) {
+                parser.skipChildren();
+            } else if (valor != JsonToken.VALUE_NULL) {
+                campos.put(nome, parser.getText());
+            }
+        }
+        return campos;
+    }
+
+    private void aplicar(Map<String, Object> campos) {
+        String entidade = texto(campos, "entidade");
+        if (entidade == null) {
+            throw new RepositoryIntegrityException("json.data", "Record without entity: " + campos);
+        }
+        String id = texto(campos, "id");
+        boolean remocao = OP_APAGAR.equals(texto(campos, "op"));
+
+        switch (entidade) {
+            case ENTIDADE_USER:
+                if (remocao) {
+                    users.remove(id);
+                } else {
+                    User user = lerUser(campos);
+                    users.put(user.getUsername(), user);
+                }
+                break;
+            case ENTIDADE_SALA:
+                if (remocao) {
+                    salas.remove(id);
+                } else {
+                    Sala sala = lerSala(campos);
+                    salas.put(sala.getId(), sala);
+                }
+                break;
+            case ENTIDADE_RELATORIO:
+                if (remocao) {
+                    removerRelatorio(id);
+                } else {
+                    guardarRelatorio(lerRelatorio(campos));
+                }
+                break;
+            case ENTIDADE_AGENDAMENTO:
+                if (remocao) {
+                    removerAgendamento(id);
+                } else {
+                    guardarAgendamento(lerAgendamento(campos));
+                }
+                break;
+            default:
+                throw new RepositoryIntegrityException("json.data", "Unknown entity: " + entidade);
+        }
+    }
+
+    /**
+     * Anexa ao arquivo de dados o registro de um objeto já aplicado em memória
+     */
+    private void registrar(Map<String, Object> campos) throws IOException {
+        String entidade = texto(campos, "entidade");
+        String id = texto(campos, "id");
+        if (OP_APAGAR.equals(texto(campos, "op"))) {
+            escreverRemocao(gerador, entidade, id);
+            return;
+        }
+        switch (entidade) {
+            case ENTIDADE_USER:
+                escreverUser(gerador, users.get(texto(campos, "username")));
+                break;
+            case ENTIDADE_SALA:
+                escreverSala(gerador, salas.get(id));
+                break;
+            case ENTIDADE_RELATORIO:
+                escreverRelatorio(gerador, relatorios.get(id));
+                break;
+            default:
+                escreverAgendamento(gerador, agendamentos.get(id));
+                break;
+        }
+    }
+
+    private User lerUser(Map<String, Object> campos) {
+        String tipo = texto(campos, "tipo");
+        User user;
+        if (TIPO_ADMINISTRADOR.equals(tipo)) {
+            Administrador admin = new Administrador();
+            admin.setNivelPermissao(texto(campos, "nivelPermissao"));
+            user = admin;
+        } else if (TIPO_PACIENTE.equals(tipo)) {
+            Paciente paciente = new Paciente();
+            paciente.setCpf(texto(campos, "cpf"));
+            String dataNascimento = texto(campos, "dataNascimento");
+            paciente.setDataNascimento(dataNascimento != null ? LocalDate.parse(dataNascimento) : null);
+            paciente.setTelefone(texto(campos, "telefone"));
+            paciente.setEndereco(texto(campos, "endereco"));
+            user = paciente;
+        } else if (TIPO_PROFISSIONAL.equals(tipo)) {
+            ProfissionalSaude profissional = new ProfissionalSaude();
+            profissional.setCrm(texto(campos, "crm"));
+            profissional.setEspecialidade(texto(campos, "especialidade"));
+            profissional.setDepartamento(texto(campos, "departamento"));
+            user = profissional;
+        } else {
+            throw new RepositoryIntegrityException("user.data", "Unknown user type: " + tipo);
+        }
+        user.setUsername(texto(campos, "username"));
+        user.setPassword(texto(campos, "password"));
+        user.setEmail(texto(campos, "email"));
+        return user;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Sala lerSala(Map<String, Object> campos) {
+        Object capacidade = campos.get("capacidade");
+        Sala sala = new Sala(texto(campos, "id"), texto(campos, "nome"),
+                capacidade instanceof Number ? ((Number) capacidade).intValue() : 0, texto(campos, "tipo"));
+        sala.setDisponivel(!Boolean.FALSE.equals(campos.get("disponivel")));
+        Object equipamentos = campos.get("equipamentos");
+        if (equipamentos instanceof List) {
+            sala.setEquipamentos((List<String>) equipamentos);
+        }
+        sala.setProximoAgendamento(dataHora(campos, "proximoAgendamento"));
+        return sala;
+    }
+
+    private Relatorio lerRelatorio(Map<String, Object> campos) {
+        Relatorio relatorio = new Relatorio(texto(campos, "id"), texto(campos, "titulo"), texto(campos, "conteudo"),
+                texto(campos, "tipoRelatorio"), texto(campos, "autorUsername"));
+        relatorio.setDataGeracao(dataHora(campos, "dataGeracao"));
+        relatorio.setStatus(texto(campos, "status"));
+        relatorio.setDescricao(texto(campos, "descricao"));
+        return relatorio;
+    }
+
+    private Agendamento lerAgendamento(Map<String, Object> campos) {
+        Duration duracao = lerDuracao(campos);
+        try {
+            return new Agendamento(texto(campos, "id"), texto(campos, "pacienteUsername"),
+                    texto(campos, "profissionalUsername"), texto(campos, "salaId"), dataHora(campos, "dataHora"),
+                    texto(campos, "tipoConsulta"), texto(campos, "observacoes"), duracao,
+                    Agendamento.StatusAgendamento.valueOf(texto(campos, "status")),
+                    dataHora(campos, "dataCriacao"), dataHora(campos, "dataAtualizacao"));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new RepositoryIntegrityException("agendamento.data", "Invalid agendamento record: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Duração em nanossegundos (duracaoNanos). Registros anteriores gravavam segundos inteiros
+     * (duracaoSegundos), e os anteriores à duração não têm o campo: vale o padrão do tipo de consulta.
+     */
+    private Duration lerDuracao(Map<String, Object> campos) {
+        Object nanos = campos.get("duracaoNanos");
+        Object segundos = campos.get("duracaoSegundos");
+        Duration duracao = nanos instanceof Number ? Duration.ofNanos(((Number) nanos).longValue())
+                : segundos instanceof Number ? Duration.ofSeconds(((Number) segundos).longValue())
+                : null;
+        if (duracao != null && (duracao.isZero() || duracao.isNegative())) {
+            throw new RepositoryIntegrityException("agendamento.duracao", "Invalid duration", duracao.toString());
+        }
+        return duracao;
+    }
+
+    // ============= ESCRITA DE REGISTROS =============
+
+    private long escreverEstado(JsonGenerator saida) throws IOException {
+        long registros = 0;
+        for (User user : users.values()) {
+            escreverUser(saida, user);
+            registros++;
+        }
+        for (Sala sala : salas.values()) {
+            escreverSala(saida, sala);
+            registros++;
+        }
+        for (Relatorio relatorio : relatorios.values()) {
+            escreverRelatorio(saida, relatorio);
+            registros++;
+        }
+        for (Agendamento agendamento : agendamentos.values()) {
+            escreverAgendamento(saida, agendamento);
+            registros++;
+        }
+        return registros;
+    }
+
+    private void escreverUser(JsonGenerator saida, User user) throws IOException {
+        iniciarRegistro(saida, OP_GRAVAR, ENTIDADE_USER);
+        if (user instanceof Administrador) {
+            saida.writeStringField("tipo", TIPO_ADMINISTRADOR);
+        } else if (user instanceof Paciente) {
+            saida.writeStringField("tipo", TIPO_PACIENTE);
+        } else if (user instanceof ProfissionalSaude) {
+            saida.writeStringField("tipo", TIPO_PROFISSIONAL);
+        } else {
+            throw new IllegalArgumentException("Tipo de usuário não suportado: " + user.getClass().getName());
+        }
+        saida.writeStringField("username", user.getUsername());
+        saida.writeStringField("password", user.getPassword());
+        saida.writeStringField("email", user.getEmail());
+
+        if (user instanceof Administrador) {
+            saida.writeStringField("nivelPermissao", ((Administrador) user).getNivelPermissao());
+        } else if (user instanceof Paciente) {
+            Paciente paciente = (Paciente) user;
+            saida.writeStringField("cpf", paciente.getCpf());
+            escreverData(saida, "dataNascimento", paciente.getDataNascimento());
+            saida.writeStringField("telefone", paciente.getTelefone());
+            saida.writeStringField("endereco", paciente.getEndereco());
+        } else {
+            ProfissionalSaude profissional = (ProfissionalSaude) user;
+            saida.writeStringField("crm", profissional.getCrm());
+            saida.writeStringField("especialidade", profissional.getEspecialidade());
+            saida.writeStringField("departamento", profissional.getDepartamento());
+        }
+        finalizarRegistro(saida);
+    }
+
+    private void escreverSala(JsonGenerator saida, Sala sala) throws IOException {
+        iniciarRegistro(saida, OP_GRAVAR, ENTIDADE_SALA);
+        saida.writeStringField("id", sala.getId());
+        saida.writeStringField("nome", sala.getNome());
+        saida.writeNumberField("capacidade", sala.getCapacidade());
+        saida.writeStringField("tipo", sala.getTipo());
+        saida.writeBooleanField("disponivel", sala.isDisponivel());
+        saida.writeArrayFieldStart("equipamentos");
+        if (sala.getEquipamentos() != null) {
+            for (String equipamento : sala.getEquipamentos()) {
+                saida.writeString(equipamento);
+            }
+        }
+        saida.writeEndArray();
+        escreverData(saida, "proximoAgendamento", sala.getProximoAgendamento());
+        finalizarRegistro(saida);
+    }
+
+    private void escreverRelatorio(JsonGenerator saida, Relatorio relatorio) throws IOException {
+        iniciarRegistro(saida, OP_GRAVAR, ENTIDADE_RELATORIO);
+        saida.writeStringField("id", relatorio.getId());
+        saida.writeStringField("titulo", relatorio.getTitulo());
+        saida.writeStringField("conteudo", relatorio.getConteudo());
+        saida.writeStringField("tipoRelatorio", relatorio.getTipoRelatorio());
+        saida.writeStringField("autorUsername", relatorio.getAutorUsername());
+        escreverData(saida, "dataGeracao", relatorio.getDataGeracao());
+        saida.writeStringField("status", relatorio.getStatus());
+        saida.writeStringField("descricao", relatorio.getDescricao());
+        finalizarRegistro(saida);
+    }
+
+    private void escreverAgendamento(JsonGenerator saida, Agendamento agendamento) throws IOException {
+        iniciarRegistro(saida, OP_GRAVAR, ENTIDADE_AGENDAMENTO);
+        saida.writeStringField("id", agendamento.getId());
+        saida.writeStringField("pacienteUsername", agendamento.getPacienteUsername());
+        saida.writeStringField("profissionalUsername", agendamento.getProfissionalUsername());
+        saida.writeStringField("salaId", agendamento.getSalaId());
+        escreverData(saida, "dataHora", agendamento.getDataHora());
+        saida.writeStringField("tipoConsulta", agendamento.getTipoConsulta());
+        saida.writeStringField("observacoes", agendamento.getObservacoes());
+        if (agendamento.getDuracao() != null) {
+            saida.writeNumberField("duracaoNanos", agendamento.getDuracao().toNanos());
+        }
+        saida.writeStringField("status", agendamento.getStatus().name());
+        escreverData(saida, "dataCriacao", agendamento.getDataCriacao());
+        escreverData(saida, "dataAtualizacao", agendamento.getDataAtualizacao());
+        finalizarRegistro(saida);
+    }
+
+    private void escreverRemocao(JsonGenerator saida, String entidade, String id) throws IOException {
+        iniciarRegistro(saida, OP_APAGAR, entidade);
+        saida.writeStringField("id", id);
+        finalizarRegistro(saida);
+    }
+
+    private void iniciarRegistro(JsonGenerator saida, String operacao, String entidade) throws IOException {
+        saida.writeStartObject();
+        saida.writeStringField("op", operacao);
+        saida.writeStringField("entidade", entidade);
+    }
+
+    private void finalizarRegistro(JsonGenerator saida) throws IOException {
+        saida.writeEndObject();
+        saida.writeRaw('\n');
+    }
+
+    private void escreverData(JsonGenerator saida, String campo, Object data) throws IOException {
+        if (data != null) {
+            saida.writeStringField(campo, data.toString());
+        }
+    }
+
+    // ============= MÉTODOS PRIVADOS =============
+
+    /**
+     * Escrita de um registro no gerador do arquivo de dados
+     */
+    private interface EscritaRegistro {
+        void escrever() throws IOException;
+    }
+
+    private void gravar(EscritaRegistro escrita, String descricao) {
+        try {
+            escrita.escrever();
+            gerador.flush();
+        } catch (IOException e) {
+            throw new RepositoryException("Failed to save " + descricao, e);
+        }
+    }
+
+    private void abrirGerador() throws IOException {
+        gerador = criarGerador(Files.newOutputStream(arquivo, StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+    }
+
+    private JsonGenerator criarGerador(OutputStream saida) throws IOException {
+        JsonGenerator novo = fabrica.createGenerator(new BufferedOutputStream(saida));
+        // Cada registro termina com '\n'; o separador padrão entre valores raiz é um espaço
+        novo.setRootValueSeparator(null);
+        return novo;
+    }
+
+    private int totalRegistros() {
+        return users.size() + salas.size() + relatorios.size() + agendamentos.size();
+    }
+
+    private void guardarRelatorio(Relatorio relatorio) {
+        relatorios.put(relatorio.getId(), relatorio);
+        relatoriosPorAutor.indexar(relatorio.getId(), relatorio.getAutorUsername());
+    }
+
+    private void removerRelatorio(String id) {
+        relatorios.remove(id);
+        relatoriosPorAutor.remover(id);
+    }
+
+    private void guardarAgendamento(Agendamento agendamento) {
+        agendamentos.put(agendamento.getId(), agendamento);
+        agendamentosPorPaciente.indexar(agendamento.getId(), agendamento.getPacienteUsername());
+        agendamentosPorProfissional.indexar(agendamento.getId(), agendamento.getProfissionalUsername());
+        agendamentosPorSala.indexar(agendamento.getId(), agendamento.getSalaId());
+    }
+
+    private void removerAgendamento(String id) {
+        agendamentos.remove(id);
+        agendamentosPorPaciente.remover(id);
+        agendamentosPorProfissional.remover(id);
+        agendamentosPorSala.remover(id);
+    }
+
+    private <T> List<T> buscarPorIds(Set<String> ids, Map<String, T> entidades) {
+        List<T> resultado = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            T entidade = entidades.get(id);
+            if (entidade != null) {
+                resultado.add(entidade);
+            }
+        }
+        return resultado;
+    }
+
+    private static String texto(Map<String, Object> campos, String nome) {
+        Object valor = campos.get(nome);
+        return valor != null ? valor.toString() : null;
+    }
+
+    private static LocalDateTime dataHora(Map<String, Object> campos, String nome) {
+        String valor = texto(campos, nome);
+        return valor != null ? LocalDateTime.parse(valor) : null;
+    }
+}
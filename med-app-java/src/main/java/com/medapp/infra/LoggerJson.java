@@ -0,0 +1,139 @@
+package com.medapp.infra;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+
+/**
+ * Logger em JSON-lines: cada mensagem vira um objeto JSON em uma linha, gravado pelo
+ * EscritorLogAssincrono do arquivo.
+ *
+ * Todo registro tem timestamp (ISO-8601), nivel e tipo. Mensagens comuns têm o campo
+ * mensagem (e excecao, com classe, mensagem e local). Os eventos dos métodos registrar*
+ * gravam seus dados em campos próprios, sem passar por texto:
+ * EVENTO (evento, detalhes), PERFORMANCE (operacao, tempoMs), ACESSO (usuario, acao),
+ * VALIDACAO (campo, valor, motivo) e REPOSITORY (repositorio, operacao, entidade, id).
+ *
+ * Os objetos são escritos com o JsonGenerator de streaming do Jackson diretamente em um
+ * buffer reaproveitado por thread.
+ */
+public class LoggerJson extends AbstratoLogs {
+
+    private static final JsonFactory FABRICA = new JsonFactory();
+
+    private final EscritorLogAssincrono escritor;
+    // JsonGenerator não é thread-safe: cada thread tem o seu, com o buffer em que escreve
+    private final ThreadLocal<Saida> saidas = ThreadLocal.withInitial(Saida::new);
+
+    public LoggerJson(EscritorLogAssincrono escritor) {
+        this.escritor = escritor;
+    }
+
+    @Override
+    protected void registrar(NivelLog nivel, String mensagem, Throwable exception) {
+        gravar(nivel, "MENSAGEM", gerador -> {
+            gerador.writeStringField("mensagem", mensagem);
+            if (exception != null) {
+                gerador.writeObjectFieldStart("excecao");
+                gerador.writeStringField("classe", exception.getClass().getName());
+                gerador.writeStringField("mensagem", exception.getMessage());
+                StackTraceElement[] stack = exception.getStackTrace();
+                if (stack.length > 0) {
+                    gerador.writeStringField("local", stack[0].toString());
+                }
+                gerador.writeEndObject();
+            }
+        });
+    }
+
+    @Override
+    protected void gravarEvento(NivelLog nivel, String evento, String detalhes) {
+        gravar(nivel, "EVENTO", gerador -> {
+            gerador.writeStringField("evento", evento);
+            gerador.writeStringField("detalhes", detalhes);
+        });
+    }
+
+    @Override
+    protected void gravarPerformance(NivelLog nivel, String operacao, long tempoMs) {
+        gravar(nivel, "PERFORMANCE", gerador -> {
+            gerador.writeStringField("operacao", operacao);
+            gerador.writeNumberField("tempoMs", tempoMs);
+        });
+    }
+
+    @Override
+    protected void gravarAcessoUsuario(NivelLog nivel, String username, String acao) {
+        gravar(nivel, "ACESSO", gerador -> {
+            gerador.writeStringField("usuario", username);
+            gerador.writeStringField("acao", acao);
+        });
+    }
+
+    @Override
+    protected void gravarErroValidacao(NivelLog nivel, String campo, String valorFornecido, String motivoFalha) {
+        gravar(nivel, "VALIDACAO", gerador -> {
+            gerador.writeStringField("campo", campo);
+            gerador.writeStringField("valor", valorFornecido);
+            gerador.writeStringField("motivo", motivoFalha);
+        });
+    }
+
+    @Override
+    protected void gravarOperacaoRepositorio(NivelLog nivel, String tipoRepositorio, String operacao, String entidade,
+                                             String identificador) {
+        gravar(nivel, "REPOSITORY", gerador -> {
+            gerador.writeStringField("repositorio", tipoRepositorio);
+            gerador.writeStringField("operacao", operacao);
+            gerador.writeStringField("entidade", entidade);
+            gerador.writeStringField("id", identificador);
+        });
+    }
+
+    /**
+     * Campos específicos de um tipo de registro
+     */
+    private interface Campos {
+        void escrever(JsonGenerator gerador) throws IOException;
+    }
+
+    private void gravar(NivelLog nivel, String tipo, Campos campos) {
+        Saida saida = saidas.get();
+        JsonGenerator gerador = saida.gerador;
+        try {
+            gerador.writeStartObject();
+            gerador.writeStringField("timestamp", LocalDateTime.now().toString());
+            gerador.writeStringField("nivel", nivel.name());
+            gerador.writeStringField("tipo", tipo);
+            campos.escrever(gerador);
+            gerador.writeEndObject();
+            gerador.flush();
+            escritor.anexar(saida.texto.toString(), nivel == NivelLog.DEBUG);
+        } catch (IOException | RuntimeException e) {
+            // O gerador pode ter ficado no meio de um objeto: a próxima gravação usa um novo
+            saidas.remove();
+            System.err.println("Erro ao gravar log JSON: " + e.getMessage());
+        } finally {
+            saida.texto.getBuffer().setLength(0);
+        }
+    }
+
+    private static final class Saida {
+        final StringWriter texto = new StringWriter(256);
+        final JsonGenerator gerador;
+
+        Saida() {
+            try {
+                gerador = FABRICA.createGenerator(texto);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            // Um objeto por linha; o terminador é acrescentado pelo escritor
+            gerador.setRootValueSeparator(null);
+        }
+    }
+}
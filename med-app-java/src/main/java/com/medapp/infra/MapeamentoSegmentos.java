@@ -0,0 +1,69 @@
+package com.medapp.infra;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Mapeamentos em memória (FileChannel.map) dos segmentos imutáveis.
+ *
+ * Mantém os segmentos mais usados mapeados até um limite total de bytes, descartando
+ * os menos usados recentemente. A JVM só libera a região mapeada quando o buffer é
+ * coletado, por isso o limite conta apenas os mapeamentos ainda referenciados aqui.
+ */
+class MapeamentoSegmentos {
+    private final long limiteBytes;
+    private final Map<Integer, MappedByteBuffer> mapeados = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytesMapeados;
+
+    MapeamentoSegmentos(long limiteBytes) {
+        this.limiteBytes = limiteBytes;
+    }
+
+    /**
+     * Retorna uma visão somente leitura do segmento mapeado, mapeando-o se necessário
+     * @return Buffer do segmento, ou null se ele não couber no limite
+     */
+    synchronized ByteBuffer obter(int segmento, FileChannel canal, long tamanho) throws IOException {
+        MappedByteBuffer mapeado = mapeados.get(segmento);
+        if (mapeado == null) {
+            if (tamanho <= 0 || tamanho > limiteBytes) {
+                return null;
+            }
+            liberarAte(limiteBytes - tamanho);
+            mapeado = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamanho);
+            mapeados.put(segmento, mapeado);
+            bytesMapeados += tamanho;
+        }
+        // Cada leitor recebe sua própria posição/limite sobre a mesma região mapeada
+        return mapeado.asReadOnlyBuffer();
+    }
+
+    synchronized void descartar(int segmento) {
+        MappedByteBuffer mapeado = mapeados.remove(segmento);
+        if (mapeado != null) {
+            bytesMapeados -= mapeado.capacity();
+        }
+    }
+
+    synchronized long getBytesMapeados() {
+        return bytesMapeados;
+    }
+
+    synchronized void limpar() {
+        mapeados.clear();
+        bytesMapeados = 0;
+    }
+
+    private void liberarAte(long limite) {
+        Iterator<MappedByteBuffer> menosUsados = mapeados.values().iterator();
+        while (bytesMapeados > limite && menosUsados.hasNext()) {
+            bytesMapeados -= menosUsados.next().capacity();
+            menosUsados.remove();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.medapp.infra;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Métricas do MetricsRepository expostas via JMX
+ * (com.medapp:type=MetricasRepositorio,repositorio=&lt;classe do repositório decorado&gt;)
+ */
+public interface MetricasRepositorioMXBean {
+
+    /** Operações com ao menos uma chamada */
+    List<EstatisticasOperacao> getOperacoes();
+
+    /** Falhas por classe de exceção (ex.: RepositoryTimeoutException), somando todas as operações */
+    Map<String, Long> getErrosPorExcecao();
+
+    long getTotalChamadas();
+
+    long getTotalErros();
+
+    /** Linha de resumo no mesmo formato do log periódico */
+    String getResumo();
+
+    /** Descarta as métricas acumuladas */
+    void zerar();
+}
@@ -0,0 +1,535 @@
+package com.medapp.infra;
+
+import com.medapp.models.User;
+import com.medapp.models.Sala;
+import com.medapp.models.Relatorio;
+import com.medapp.models.Agendamento;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * MetricsRepository - Decorador de Repository que mede cada chamada
+ *
+ * Para cada operação e tipo de entidade (ex.: save de USER, getBySala de AGENDAMENTO)
+ * mantém um histograma de latência (p50/p95/p99/máximo), o número de chamadas, a vazão e
+ * as falhas por classe de exceção. Cada chamada também é enviada a
+ * AbstratoLogs.registrarPerformance, que a grava em DEBUG, ou em WARN acima de 1 s.
+ *
+ * As métricas ficam disponíveis por getEstatisticas(), via JMX (MetricasRepositorioMXBean)
+ * e em uma linha de resumo periódica (registrarEvento METRICAS_REPOSITORIO) com a vazão
+ * do intervalo e os percentis acumulados. Em streamAgendamentos é medida a abertura do
+ * stream, não o seu consumo.
+ */
+public class MetricsRepository implements Repository, MetricasRepositorioMXBean, Closeable {
+    private static final String USER = "USER";
+    private static final String SALA = "SALA";
+    private static final String RELATORIO = "RELATORIO";
+    private static final String AGENDAMENTO = "AGENDAMENTO";
+
+    private final Repository repository;
+    private final AbstratoLogs logger;
+    private final String nomeRepositorio;
+    // Na ordem em que as operações são declaradas abaixo
+    private final List<Medidor> medidores = new ArrayList<>();
+    private final ScheduledExecutorService agendador;
+    private ObjectName nomeJmx;
+    private volatile long inicioNanos = System.nanoTime();
+    // Protege ultimoResumoNanos e Medidor.chamadasNoResumo: o resumo periódico roda no
+    // agendador e zerar() pode ser chamado por JMX em outra thread
+    private final Object bloqueioResumo = new Object();
+    private long ultimoResumoNanos = inicioNanos;
+
+    private final Medidor saveUser = medidor("save", USER, "saveUser");
+    private final Medidor saveUsers = medidor("saveLote", USER, "saveUsers");
+    private final Medidor loadUser = medidor("load", USER, "loadUser");
+    private final Medidor getAllUsers = medidor("getAll", USER, "getAllUsers");
+    private final Medidor getUsers = medidor("getPagina", USER, "getUsers");
+    private final Medidor deleteUser = medidor("delete", USER, "deleteUser");
+
+    private final Medidor saveSala = medidor("save", SALA, "saveSala");
+    private final Medidor loadSala = medidor("load", SALA, "loadSala");
+    private final Medidor getAllSalas = medidor("getAll", SALA, "getAllSalas");
+    private final Medidor getSalas = medidor("getPagina", SALA, "getSalas");
+    private final Medidor deleteSala = medidor("delete", SALA, "deleteSala");
+
+    private final Medidor saveRelatorio = medidor("save", RELATORIO, "saveRelatorio");
+    private final Medidor loadRelatorio = medidor("load", RELATORIO, "loadRelatorio");
+    private final Medidor getAllRelatorios = medidor("getAll", RELATORIO, "getAllRelatorios");
+    private final Medidor getRelatorios = medidor("getPagina", RELATORIO, "getRelatorios");
+    private final Medidor deleteRelatorio = medidor("delete", RELATORIO, "deleteRelatorio");
+    private final Medidor getRelatoriosByAutor = medidor("getByAutor", RELATORIO, "getRelatoriosByAutor");
+
+    private final Medidor saveAgendamento = medidor("save", AGENDAMENTO, "saveAgendamento");
+    private final Medidor saveAgendamentos = medidor("saveLote", AGENDAMENTO, "saveAgendamentos");
+    private final Medidor saveAgendamentoIfNoConflict = medidor("saveSemConflito", AGENDAMENTO, "saveAgendamentoIfNoConflict");
+    private final Medidor saveAgendamentosIfNoConflict = medidor("saveLoteSemConflito", AGENDAMENTO, "saveAgendamentosIfNoConflict");
+    private final Medidor loadAgendamento = medidor("load", AGENDAMENTO, "loadAgendamento");
+    private final Medidor getAllAgendamentos = medidor("getAll", AGENDAMENTO, "getAllAgendamentos");
+    private final Medidor getAgendamentos = medidor("getPagina", AGENDAMENTO, "getAgendamentos");
+    private final Medidor deleteAgendamento = medidor("delete", AGENDAMENTO, "deleteAgendamento");
+    private final Medidor getAgendamentosByPaciente = medidor("getByPaciente", AGENDAMENTO, "getAgendamentosByPaciente");
+    private final Medidor getAgendamentosByProfissional = medidor("getByProfissional", AGENDAMENTO, "getAgendamentosByProfissional");
+    private final Medidor getAgendamentosBySala = medidor("getBySala", AGENDAMENTO, "getAgendamentosBySala");
+    private final Medidor streamAgendamentos = medidor("stream", AGENDAMENTO, "streamAgendamentos");
+
+    /**
+     * @param repository Repositório decorado
+     * @param logger Destino das medições por chamada e do resumo periódico
+     * @param intervaloResumoSegundos Intervalo da linha de resumo (0 desativa)
+     * @param registrarJmx Se as métricas são registradas no MBeanServer da plataforma
+     */
+    public MetricsRepository(Repository repository, AbstratoLogs logger, long intervaloResumoSegundos,
+                             boolean registrarJmx) {
+        if (repository == null) {
+            throw new IllegalArgumentException("Repository cannot be null");
+        }
+        if (logger == null) {
+            throw new IllegalArgumentException("Logger cannot be null");
+        }
+        this.repository = repository;
+        this.logger = logger;
+        this.nomeRepositorio = repository.getClass().getSimpleName();
+        // Os medidores são criados nos inicializadores dos campos, antes deste ponto
+        for (Medidor medidor : medidores) {
+            medidor.nome = nomeRepositorio + "." + medidor.metodo;
+        }
+
+        if (intervaloResumoSegundos > 0) {
+            this.agendador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+                Thread thread = new Thread(tarefa, "medapp-metricas-" + nomeRepositorio);
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.agendador.scheduleAtFixedRate(this::registrarResumo, intervaloResumoSegundos,
+                    intervaloResumoSegundos, TimeUnit.SECONDS);
+        } else {
+            this.agendador = null;
+        }
+        if (registrarJmx) {
+            registrarMBean();
+        }
+    }
+
+    public Repository getRepository() {
+        return repository;
+    }
+
+    /**
+     * Métricas de cada operação com ao menos uma chamada
+     */
+    public List<EstatisticasOperacao> getEstatisticas() {
+        double segundos = Math.max(1e-9, (System.nanoTime() - inicioNanos) / 1e9);
+        List<EstatisticasOperacao> estatisticas = new ArrayList<>();
+        for (Medidor medidor : medidores) {
+            EstatisticasOperacao fotografia = medidor.fotografar(segundos);
+            if (fotografia.getChamadas() > 0) {
+                estatisticas.add(fotografia);
+            }
+        }
+        return estatisticas;
+    }
+
+    /**
+     * Para o resumo periódico e remove o registro JMX. O repositório decorado não é fechado.
+     */
+    @Override
+    public void close() {
+        if (agendador != null) {
+            agendador.shutdownNow();
+        }
+        synchronized (this) {
+            if (nomeJmx != null) {
+                try {
+                    ManagementFactory.getPlatformMBeanServer().unregisterMBean(nomeJmx);
+                } catch (JMException e) {
+                    // já removido
+                }
+                nomeJmx = null;
+            }
+        }
+    }
+
+    // ============= JMX =============
+
+    @Override
+    public List<EstatisticasOperacao> getOperacoes() {
+        return getEstatisticas();
+    }
+
+    @Override
+    public Map<String, Long> getErrosPorExcecao() {
+        Map<String, Long> erros = new TreeMap<>();
+        for (Medidor medidor : medidores) {
+            medidor.errosPorExcecao.forEach((excecao, contagem) -> erros.merge(excecao, contagem.sum(), Long::sum));
+        }
+        return erros;
+    }
+
+    @Override
+    public long getTotalChamadas() {
+        long total = 0;
+        for (Medidor medidor : medidores) {
+            total += medidor.chamadas.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public long getTotalErros() {
+        long total = 0;
+        for (Medidor medidor : medidores) {
+            total += medidor.erros.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public String getResumo() {
+        return montarResumo(getEstatisticas(), null);
+    }
+
+    @Override
+    public void zerar() {
+        synchronized (bloqueioResumo) {
+            for (Medidor medidor : medidores) {
+                medidor.zerar();
+            }
+            inicioNanos = System.nanoTime();
+            ultimoResumoNanos = inicioNanos;
+        }
+    }
+
+    // ============= MÉTODOS PARA USER =============
+
+    @Override
+    public void saveUser(User user) {
+        medir(saveUser, () -> repository.saveUser(user));
+    }
+
+    @Override
+    public void saveUsers(Collection<? extends User> users) {
+        medir(saveUsers, () -> repository.saveUsers(users));
+    }
+
+    @Override
+    public User loadUser(String username) {
+        return medir(loadUser, () -> repository.loadUser(username));
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return medir(getAllUsers, repository::getAllUsers);
+    }
+
+    @Override
+    public List<User> getUsers(int inicio, int limite) {
+        return medir(getUsers, () -> repository.getUsers(inicio, limite));
+    }
+
+    @Override
+    public void deleteUser(String username) {
+        medir(deleteUser, () -> repository.deleteUser(username));
+    }
+
+    // ============= MÉTODOS PARA SALA =============
+
+    @Override
+    public void saveSala(Sala sala) {
+        medir(saveSala, () -> repository.saveSala(sala));
+    }
+
+    @Override
+    public Sala loadSala(String id) {
+        return medir(loadSala, () -> repository.loadSala(id));
+    }
+
+    @Override
+    public List<Sala> getAllSalas() {
+        return medir(getAllSalas, repository::getAllSalas);
+    }
+
+    @Override
+    public List<Sala> getSalas(int inicio, int limite) {
+        return medir(getSalas, () -> repository.getSalas(inicio, limite));
+    }
+
+    @Override
+    public void deleteSala(String id) {
+        medir(deleteSala, () -> repository.deleteSala(id));
+    }
+
+    // ============= MÉTODOS PARA RELATORIO =============
+
+    @Override
+    public void saveRelatorio(Relatorio relatorio) {
+        medir(saveRelatorio, () -> repository.saveRelatorio(relatorio));
+    }
+
+    @Override
+    public Relatorio loadRelatorio(String id) {
+        return medir(loadRelatorio, () -> repository.loadRelatorio(id));
+    }
+
+    @Override
+    public List<Relatorio> getAllRelatorios() {
+        return medir(getAllRelatorios, repository::getAllRelatorios);
+    }
+
+    @Override
+    public List<Relatorio> getRelatorios(int inicio, int limite) {
+        return medir(getRelatorios, () -> repository.getRelatorios(inicio, limite));
+    }
+
+    @Override
+    public void deleteRelatorio(String id) {
+        medir(deleteRelatorio, () -> repository.deleteRelatorio(id));
+    }
+
+    @Override
+    public List<Relatorio> getRelatoriosByAutor(String autorUsername) {
+        return medir(getRelatoriosByAutor, () -> repository.getRelatoriosByAutor(autorUsername));
+    }
+
+    // ============= MÉTODOS PARA AGENDAMENTO =============
+
+    @Override
+    public void saveAgendamento(Agendamento agendamento) {
+        medir(saveAgendamento, () -> repository.saveAgendamento(agendamento));
+    }
+
+    @Override
+    public void saveAgendamentos(Collection<Agendamento> agendamentos) {
+        medir(saveAgendamentos, () -> repository.saveAgendamentos(agendamentos));
+    }
+
+    @Override
+    public boolean saveAgendamentoIfNoConflict(Agendamento agendamento) {
+        return medir(saveAgendamentoIfNoConflict, () -> repository.saveAgendamentoIfNoConflict(agendamento));
+    }
+
+    @Override
+    public Optional<IndiceOcupacao.ConflitoLote> saveAgendamentosIfNoConflict(List<Agendamento> agendamentos) {
+        return medir(saveAgendamentosIfNoConflict, () -> repository.saveAgendamentosIfNoConflict(agendamentos));
+    }
+
+    @Override
+    public boolean isCompartilhado() {
+        return repository.isCompartilhado();
+    }
+
+    @Override
+    public Agendamento loadAgendamento(String id) {
+        return medir(loadAgendamento, () -> repository.loadAgendamento(id));
+    }
+
+    @Override
+    public List<Agendamento> getAllAgendamentos() {
+        return medir(getAllAgendamentos, repository::getAllAgendamentos);
+    }
+
+    @Override
+    public List<Agendamento> getAgendamentos(int inicio, int limite) {
+        return medir(getAgendamentos, () -> repository.getAgendamentos(inicio, limite));
+    }
+
+    @Override
+    public void deleteAgendamento(String id) {
+        medir(deleteAgendamento, () -> repository.deleteAgendamento(id));
+    }
+
+    @Override
+    public List<Agendamento> getAgendamentosByPaciente(String pacienteUsername) {
+        return medir(getAgendamentosByPaciente, () -> repository.getAgendamentosByPaciente(pacienteUsername));
+    }
+
+    @Override
+    public List<Agendamento> getAgendamentosByProfissional(String profissionalUsername) {
+        return medir(getAgendamentosByProfissional, () -> repository.getAgendamentosByProfissional(profissionalUsername));
+    }
+
+    @Override
+    public List<Agendamento> getAgendamentosBySala(String salaId) {
+        return medir(getAgendamentosBySala, () -> repository.getAgendamentosBySala(salaId));
+    }
+
+    @Override
+    public Stream<Agendamento> streamAgendamentos(ConsultaAgendamentos consulta) {
+        return medir(streamAgendamentos, () -> repository.streamAgendamentos(consulta));
+    }
+
+    // ============= MÉTODOS PRIVADOS =============
+
+    private Medidor medidor(String operacao, String entidade, String metodo) {
+        Medidor medidor = new Medidor(operacao, entidade, metodo);
+        medidores.add(medidor);
+        return medidor;
+    }
+
+    private <T> T medir(Medidor medidor, Supplier<T> chamada) {
+        long inicio = System.nanoTime();
+        try {
+            return chamada.get();
+        } catch (RuntimeException e) {
+            medidor.falhou(e);
+            throw e;
+        } finally {
+            concluir(medidor, System.nanoTime() - inicio);
+        }
+    }
+
+    private void medir(Medidor medidor, Runnable chamada) {
+        long inicio = System.nanoTime();
+        try {
+            chamada.run();
+        } catch (RuntimeException e) {
+            medidor.falhou(e);
+            throw e;
+        } finally {
+            concluir(medidor, System.nanoTime() - inicio);
+        }
+    }
+
+    private void concluir(Medidor medidor, long nanos) {
+        medidor.registrar(nanos);
+        logger.registrarPerformance(medidor.nome, TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+
+    private void registrarResumo() {
+        try {
+            String resumo;
+            synchronized (bloqueioResumo) {
+                long agora = System.nanoTime();
+                double intervalo = Math.max(1e-9, (agora - ultimoResumoNanos) / 1e9);
+                ultimoResumoNanos = agora;
+                resumo = montarResumo(getEstatisticas(), intervalo);
+            }
+            logger.registrarEvento("METRICAS_REPOSITORIO", resumo);
+        } catch (RuntimeException e) {
+            // Uma exceção cancelaria as execuções seguintes do agendador
+            System.err.println("Erro ao registrar resumo de métricas: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param intervaloSegundos Se informado, a vazão é a do intervalo desde o resumo anterior
+     *                          (nesse caso deve ser chamado com bloqueioResumo)
+     */
+    private String montarResumo(List<EstatisticasOperacao> estatisticas, Double intervaloSegundos) {
+        StringBuilder sb = new StringBuilder(nomeRepositorio);
+        if (estatisticas.isEmpty()) {
+            return sb.append(" sem chamadas").toString();
+        }
+        for (int i = 0, j = 0; i < medidores.size() && j < estatisticas.size(); i++) {
+            Medidor medidor = medidores.get(i);
+            EstatisticasOperacao e = estatisticas.get(j);
+            if (!medidor.operacao.equals(e.getOperacao()) || !medidor.entidade.equals(e.getEntidade())) {
+                continue;
+            }
+            j++;
+            double vazao = e.getVazaoPorSegundo();
+            if (intervaloSegundos != null) {
+                long chamadas = e.getChamadas();
+                vazao = (chamadas - medidor.chamadasNoResumo) / intervaloSegundos;
+                medidor.chamadasNoResumo = chamadas;
+            }
+            sb.append(" | ").append(String.format("%s(%s) n=%d %.1f/s p50=%.2fms p95=%.2fms p99=%.2fms max=%.2fms erros=%d",
+                    e.getOperacao(), e.getEntidade(), e.getChamadas(), vazao, e.getP50Ms(), e.getP95Ms(),
+                    e.getP99Ms(), e.getMaximoMs(), e.getErros()));
+        }
+        return sb.toString();
+    }
+
+    private synchronized void registrarMBean() {
+        try {
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            ObjectName nome = new ObjectName("com.medapp:type=MetricasRepositorio,repositorio=" + nomeRepositorio);
+            // Uma instância nova (ex.: após recriar o repositório) substitui a anterior
+            if (servidor.isRegistered(nome)) {
+                servidor.unregisterMBean(nome);
+            }
+            servidor.registerMBean(this, nome);
+            nomeJmx = nome;
+        } catch (JMException e) {
+            System.err.println("Não foi possível registrar as métricas do repositório via JMX: " + e.getMessage());
+        }
+    }
+
+    private static double emMillis(long micros) {
+        return micros / 1000.0;
+    }
+
+    /**
+     * Métricas de uma operação
+     */
+    private static final class Medidor {
+        final String operacao;
+        final String entidade;
+        final String metodo;
+        // Nome enviado a registrarPerformance (ex.: DBRepository.saveUser)
+        String nome;
+        final HistogramaLatencia histograma = new HistogramaLatencia();
+        final LongAdder chamadas = new LongAdder();
+        final LongAdder erros = new LongAdder();
+        final Map<String, LongAdder> errosPorExcecao = new ConcurrentHashMap<>();
+        // Chamadas no resumo periódico anterior; lido e escrito só com bloqueioResumo
+        long chamadasNoResumo;
+
+        Medidor(String operacao, String entidade, String metodo) {
+            this.operacao = operacao;
+            this.entidade = entidade;
+            this.metodo = metodo;
+        }
+
+        void registrar(long nanos) {
+            histograma.registrar(TimeUnit.NANOSECONDS.toMicros(nanos));
+            chamadas.increment();
+        }
+
+        void falhou(RuntimeException e) {
+            erros.increment();
+            errosPorExcecao.computeIfAbsent(e.getClass().getSimpleName(), chave -> new LongAdder()).increment();
+        }
+
+        EstatisticasOperacao fotografar(double segundos) {
+            long[] contagens = histograma.copiar();
+            long total = HistogramaLatencia.total(contagens);
+            long maximo = histograma.getMaximo();
+            double media = total == 0 ? 0 : emMillis(histograma.getSoma()) / total;
+            return new EstatisticasOperacao(operacao, entidade, total, erros.sum(), media,
+                    percentilMs(contagens, total, 0.50, maximo),
+                    percentilMs(contagens, total, 0.95, maximo),
+                    percentilMs(contagens, total, 0.99, maximo),
+                    emMillis(maximo), total / segundos);
+        }
+
+        // O limite da faixa pode passar do maior valor realmente medido
+        private static double percentilMs(long[] contagens, long total, double percentil, long maximo) {
+            return emMillis(Math.min(HistogramaLatencia.percentil(contagens, total, percentil), maximo));
+        }
+
+        void zerar() {
+            histograma.zerar();
+            chamadas.reset();
+            erros.reset();
+            errosPorExcecao.clear();
+            chamadasNoResumo = 0;
+        }
+    }
+}
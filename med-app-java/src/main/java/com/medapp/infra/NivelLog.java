@@ -0,0 +1,39 @@
+package com.medapp.infra;
+
+/**
+ * Níveis de log do AbstratoLogs, do mais detalhado ao mais grave
+ */
+public enum NivelLog {
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR,
+    /** Usado só como nível mínimo: desliga o logger, nenhuma mensagem o atinge */
+    OFF;
+
+    /** Nível mínimo dos loggers criados sem configuração explícita */
+    public static final String PROPRIEDADE = "medapp.logger.nivel";
+
+    /**
+     * Verifica se mensagens deste nível passam pelo nível mínimo informado
+     */
+    public boolean atinge(NivelLog minimo) {
+        return this != OFF && compareTo(minimo) >= 0;
+    }
+
+    /**
+     * Nível mínimo lido de medapp.logger.nivel; DEBUG (tudo) quando ausente ou inválido
+     */
+    public static NivelLog configurado() {
+        String valor = System.getProperty(PROPRIEDADE);
+        if (valor == null) {
+            return DEBUG;
+        }
+        try {
+            return valueOf(valor.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Nível de log inválido em " + PROPRIEDADE + ": " + valor + " (usando DEBUG)");
+            return DEBUG;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.medapp.infra;
+
+/**
+ * Política de remoção do CachingRepository
+ */
+public enum PoliticaCache {
+    /** Remove a entrada usada há mais tempo */
+    LRU,
+    /** Como LRU, mas as entradas também expiram após um tempo fixo desde a gravação */
+    TTL,
+    /** Janela LRU pequena e área principal com admissão por frequência estimada (estilo W-TinyLFU) */
+    TINY_LFU
+}
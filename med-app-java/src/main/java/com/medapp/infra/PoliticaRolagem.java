@@ -0,0 +1,115 @@
+package com.medapp.infra;
+
+/**
+ * Quando o EscritorLogAssincrono troca o arquivo de log por um novo e o que fazer com os
+ * segmentos arquivados.
+ *
+ * Configuração (propriedades de sistema, lidas em configurada()):
+ * medapp.log.rolagem.tamanho (tamanho máximo do arquivo, em bytes ou com sufixo KB/MB/GB;
+ * 0 desativa), medapp.log.rolagem.diaria (true para trocar na virada do dia),
+ * medapp.log.rolagem.retencao (segmentos arquivados mantidos, padrão 7; 0 mantém todos) e
+ * medapp.log.rolagem.comprimir (gzip dos segmentos arquivados, padrão true).
+ */
+public final class PoliticaRolagem {
+
+    public static final String PROPRIEDADE_TAMANHO = "medapp.log.rolagem.tamanho";
+    public static final String PROPRIEDADE_DIARIA = "medapp.log.rolagem.diaria";
+    public static final String PROPRIEDADE_RETENCAO = "medapp.log.rolagem.retencao";
+    public static final String PROPRIEDADE_COMPRIMIR = "medapp.log.rolagem.comprimir";
+
+    private static final int RETENCAO_PADRAO = 7;
+
+    /** Um único arquivo que cresce sem limite (comportamento original) */
+    public static final PoliticaRolagem NENHUMA = new PoliticaRolagem(0, false, 0, false);
+
+    private final long tamanhoMaximo;
+    private final boolean diaria;
+    private final int retencao;
+    private final boolean comprimir;
+
+    /**
+     * @param tamanhoMaximo Bytes a partir dos quais o arquivo é trocado (0 desativa)
+     * @param diaria Se o arquivo é trocado na virada do dia
+     * @param retencao Quantidade de segmentos arquivados mantidos (0 mantém todos)
+     * @param comprimir Se os segmentos arquivados são comprimidos com gzip
+     */
+    public PoliticaRolagem(long tamanhoMaximo, boolean diaria, int retencao, boolean comprimir) {
+        if (tamanhoMaximo < 0 || retencao < 0) {
+            throw new IllegalArgumentException("Tamanho máximo e retenção não podem ser negativos");
+        }
+        this.tamanhoMaximo = tamanhoMaximo;
+        this.diaria = diaria;
+        this.retencao = retencao;
+        this.comprimir = comprimir;
+    }
+
+    public static PoliticaRolagem configurada() {
+        long tamanho = lerTamanho(System.getProperty(PROPRIEDADE_TAMANHO));
+        boolean diaria = Boolean.getBoolean(PROPRIEDADE_DIARIA);
+        if (tamanho == 0 && !diaria) {
+            return NENHUMA;
+        }
+        int retencao = Integer.getInteger(PROPRIEDADE_RETENCAO, RETENCAO_PADRAO);
+        if (retencao < 0) {
+            System.err.println("Aviso: retenção de log inválida '" + retencao + "', usando " + RETENCAO_PADRAO);
+            retencao = RETENCAO_PADRAO;
+        }
+        boolean comprimir = Boolean.parseBoolean(System.getProperty(PROPRIEDADE_COMPRIMIR, "true"));
+        return new PoliticaRolagem(tamanho, diaria, retencao, comprimir);
+    }
+
+    private static long lerTamanho(String valor) {
+        if (valor == null || valor.trim().isEmpty()) {
+            return 0;
+        }
+        String texto = valor.trim().toUpperCase();
+        long multiplicador = 1;
+        if (texto.endsWith("KB")) {
+            multiplicador = 1024L;
+        } else if (texto.endsWith("MB")) {
+            multiplicador = 1024L * 1024;
+        } else if (texto.endsWith("GB")) {
+            multiplicador = 1024L * 1024 * 1024;
+        }
+        if (multiplicador > 1) {
+            texto = texto.substring(0, texto.length() - 2).trim();
+        }
+        try {
+            long tamanho = Long.parseLong(texto) * multiplicador;
+            if (tamanho >= 0) {
+                return tamanho;
+            }
+        } catch (NumberFormatException e) {
+            // cai no aviso abaixo
+        }
+        System.err.println("Aviso: tamanho de rolagem de log inválido '" + valor + "', rolagem por tamanho desativada");
+        return 0;
+    }
+
+    /** Se há algum critério de troca de arquivo */
+    public boolean isAtiva() {
+        return tamanhoMaximo > 0 || diaria;
+    }
+
+    public long getTamanhoMaximo() {
+        return tamanhoMaximo;
+    }
+
+    public boolean isDiaria() {
+        return diaria;
+    }
+
+    public int getRetencao() {
+        return retencao;
+    }
+
+    public boolean isComprimir() {
+        return comprimir;
+    }
+
+    @Override
+    public String toString() {
+        return "PoliticaRolagem{tamanhoMaximo=" + tamanhoMaximo + ", diaria=" + diaria
+                + ", retencao=" + retencao + ", comprimir=" + comprimir + "}";
+    }
+}
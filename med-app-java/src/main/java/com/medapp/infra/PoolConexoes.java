@@ -0,0 +1,136 @@
+package com.medapp.infra;
+
+import com.medapp.utils.repository.RepositoryTimeoutException;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool limitado de conexões JDBC.
+ *
+ * As conexões são abertas sob demanda até o tamanho máximo; depois disso quem pede uma
+ * conexão espera até o tempo limite. Cada conexão guarda seus PreparedStatements por
+ * SQL, para que consultas repetidas não sejam preparadas de novo.
+ */
+class PoolConexoes implements AutoCloseable {
+    private final String url;
+    private final String usuario;
+    private final String senha;
+    private final int tamanhoMaximo;
+    private final int timeoutSegundos;
+    private final BlockingQueue<Conexao> disponiveis;
+    private final AtomicInteger abertas = new AtomicInteger();
+    private volatile boolean fechado;
+
+    PoolConexoes(String url, String usuario, String senha, int tamanhoMaximo, int timeoutSegundos) {
+        this.url = url;
+        this.usuario = usuario;
+        this.senha = senha;
+        this.tamanhoMaximo = tamanhoMaximo;
+        this.timeoutSegundos = timeoutSegundos;
+        this.disponiveis = new ArrayBlockingQueue<>(tamanhoMaximo);
+    }
+
+    /**
+     * Obtém uma conexão livre, abrindo uma nova se o pool ainda não estiver cheio
+     * @throws RepositoryTimeoutException se nenhuma conexão ficar livre no tempo limite
+     */
+    Conexao obter() throws SQLException {
+        Conexao conexao = disponiveis.poll();
+        if (conexao != null) {
+            return conexao;
+        }
+
+        int atuais = abertas.get();
+        while (atuais < tamanhoMaximo) {
+            if (abertas.compareAndSet(atuais, atuais + 1)) {
+                try {
+                    return new Conexao(DriverManager.getConnection(url, usuario, senha));
+                } catch (SQLException e) {
+                    abertas.decrementAndGet();
+                    throw e;
+                }
+            }
+            atuais = abertas.get();
+        }
+
+        try {
+            conexao = disponiveis.poll(timeoutSegundos, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RepositoryTimeoutException("connection pool", e);
+        }
+        if (conexao == null) {
+            throw new RepositoryTimeoutException("connection pool", timeoutSegundos);
+        }
+        return conexao;
+    }
+
+    /**
+     * Devolve a conexão ao pool, ou a fecha se estiver quebrada ou o pool fechado
+     */
+    void devolver(Conexao conexao, boolean quebrada) {
+        if (quebrada || fechado || !disponiveis.offer(conexao)) {
+            conexao.fechar();
+            abertas.decrementAndGet();
+        }
+    }
+
+    int getTimeoutSegundos() {
+        return timeoutSegundos;
+    }
+
+    @Override
+    public void close() {
+        fechado = true;
+        Conexao conexao;
+        while ((conexao = disponiveis.poll()) != null) {
+            conexao.fechar();
+            abertas.decrementAndGet();
+        }
+    }
+
+    /**
+     * Conexão do pool com cache de PreparedStatements
+     */
+    class Conexao {
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+        private Conexao(Connection connection) {
+            this.connection = connection;
+        }
+
+        Connection getConnection() {
+            return connection;
+        }
+
+        PreparedStatement preparar(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null || statement.isClosed()) {
+                statement = connection.prepareStatement(sql);
+                statement.setQueryTimeout(timeoutSegundos);
+                statements.put(sql, statement);
+            } else {
+                statement.clearParameters();
+            }
+            return statement;
+        }
+
+        private void fechar() {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                System.err.println("Warning: Could not close database connection: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -7,11 +7,14 @@ import com.medapp.models.Agendamento;
 import com.medapp.utils.repository.*;
 import com.medapp.utils.storage.UserNotFoundException;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public class RAMRepository implements Repository {
     private Map<String, User> users = new HashMap<>();
@@ -19,6 +22,12 @@ public class RAMRepository implements Repository {
     private Map<String, Relatorio> relatorios = new HashMap<>();
     private Map<String, Agendamento> agendamentos = new HashMap<>();
 
+    // Índices secundários mantidos a cada save/delete para evitar varreduras completas
+    private final IndiceSecundario relatoriosPorAutor = new IndiceSecundario();
+    private final IndiceSecundario agendamentosPorPaciente = new IndiceSecundario();
+    private final IndiceSecundario agendamentosPorProfissional = new IndiceSecundario();
+    private final IndiceSecundario agendamentosPorSala = new IndiceSecundario();
+
     @Override
     public void saveUser(User user) {
         try {
@@ -34,6 +43,19 @@ public class RAMRepository implements Repository {
         }
     }
 
+    @Override
+    public void saveUsers(Collection<? extends User> novos) {
+        try {
+            Map<String, User> lote = new HashMap<>();
+            for (User user : novos) {
+                lote.put(user.getUsername(), user);
+            }
+            users.putAll(lote);
+        } catch (OutOfMemoryError e) {
+            throw new RepositoryException("Not enough memory to save " + novos.size() + " users", e);
+        }
+    }
+
     @Override
     public User loadUser(String username) {
         try {
@@ -144,6 +166,7 @@ public class RAMRepository implements Repository {
                 throw new IllegalArgumentException("Relatório ou ID não pode ser nulo");
             }
             relatorios.put(relatorio.getId(), relatorio);
+            relatoriosPorAutor.indexar(relatorio.getId(), relatorio.getAutorUsername());
         } catch (OutOfMemoryError e) {
             throw new RepositoryException("Not enough memory to save relatorio: " + relatorio.getId(), e);
         } catch (Exception e) {
@@ -185,6 +208,7 @@ public class RAMRepository implements Repository {
             if (relatorios.remove(id) == null) {
                 throw new RepositoryException("Relatorio not found: " + id);
             }
+            relatoriosPorAutor.remover(id);
         } catch (Exception e) {
             if (e instanceof RuntimeException) {
                 throw e;
@@ -196,9 +220,7 @@ public class RAMRepository implements Repository {
     @Override
     public List<Relatorio> getRelatoriosByAutor(String autorUsername) {
         try {
-            return relatorios.values().stream()
-                    .filter(relatorio -> autorUsername.equals(relatorio.getAutorUsername()))
-                    .collect(Collectors.toList());
+            return buscarPorIds(relatoriosPorAutor.buscar(autorUsername), relatorios);
         } catch (Exception e) {
             throw new RepositoryException("Failed to get relatorios by autor: " + autorUsername, e);
         }
@@ -209,6 +231,7 @@ public class RAMRepository implements Repository {
     public void saveAgendamento(Agendamento agendamento) {
         try {
             agendamentos.put(agendamento.getId(), agendamento);
+            indexarAgendamento(agendamento);
         } catch (OutOfMemoryError e) {
             throw new RepositoryException("Not enough memory to save agendamento: " + agendamento.getId(), e);
         } catch (Exception e) {
@@ -219,6 +242,18 @@ public class RAMRepository implements Repository {
         }
     }
 
+    @Override
+    public void saveAgendamentos(Collection<Agendamento> novos) {
+        try {
+            for (Agendamento agendamento : novos) {
+                agendamentos.put(agendamento.getId(), agendamento);
+                indexarAgendamento(agendamento);
+            }
+        } catch (OutOfMemoryError e) {
+            throw new RepositoryException("Not enough memory to save " + novos.size() + " agendamentos", e);
+        }
+    }
+
     @Override
     public Agendamento loadAgendamento(String id) {
         try {
@@ -250,6 +285,7 @@ public class RAMRepository implements Repository {
             if (agendamentos.remove(id) == null) {
                 throw new RepositoryException("Agendamento not found: " + id);
             }
+            desindexarAgendamento(id);
         } catch (Exception e) {
             if (e instanceof RuntimeException) {
                 throw e;
@@ -261,9 +297,7 @@ public class RAMRepository implements Repository {
     @Override
     public List<Agendamento> getAgendamentosByPaciente(String pacienteUsername) {
         try {
-            return agendamentos.values().stream()
-                    .filter(agendamento -> pacienteUsername.equals(agendamento.getPacienteUsername()))
-                    .collect(Collectors.toList());
+            return buscarPorIds(agendamentosPorPaciente.buscar(pacienteUsername), agendamentos);
         } catch (Exception e) {
             throw new RepositoryException("Failed to get agendamentos by paciente: " + pacienteUsername, e);
         }
@@ -272,9 +306,7 @@ public class RAMRepository implements Repository {
     @Override
     public List<Agendamento> getAgendamentosByProfissional(String profissionalUsername) {
         try {
-            return agendamentos.values().stream()
-                    .filter(agendamento -> profissionalUsername.equals(agendamento.getProfissionalUsername()))
-                    .collect(Collectors.toList());
+            return buscarPorIds(agendamentosPorProfissional.buscar(profissionalUsername), agendamentos);
         } catch (Exception e) {
             throw new RepositoryException("Failed to get agendamentos by profissional: " + profissionalUsername, e);
         }
@@ -283,11 +315,42 @@ public class RAMRepository implements Repository {
     @Override
     public List<Agendamento> getAgendamentosBySala(String salaId) {
         try {
-            return agendamentos.values().stream()
-                    .filter(agendamento -> salaId.equals(agendamento.getSalaId()))
-                    .collect(Collectors.toList());
+            return buscarPorIds(agendamentosPorSala.buscar(salaId), agendamentos);
         } catch (Exception e) {
             throw new RepositoryException("Failed to get agendamentos by sala: " + salaId, e);
         }
     }
+
+    @Override
+    public Stream<Agendamento> streamAgendamentos(ConsultaAgendamentos consulta) {
+        // Parte do menor conjunto de IDs entre os índices usados pela consulta, sem copiar
+        Set<String> ids = consulta.candidatos(agendamentosPorPaciente, agendamentosPorProfissional, agendamentosPorSala);
+        Stream<Agendamento> origem = ids != null
+                ? ids.stream().map(agendamentos::get).filter(Objects::nonNull)
+                : agendamentos.values().stream();
+        return consulta.aplicar(origem);
+    }
+
+    private void indexarAgendamento(Agendamento agendamento) {
+        agendamentosPorPaciente.indexar(agendamento.getId(), agendamento.getPacienteUsername());
+        agendamentosPorProfissional.indexar(agendamento.getId(), agendamento.getProfissionalUsername());
+        agendamentosPorSala.indexar(agendamento.getId(), agendamento.getSalaId());
+    }
+
+    private void desindexarAgendamento(String id) {
+        agendamentosPorPaciente.remover(id);
+        agendamentosPorProfissional.remover(id);
+        agendamentosPorSala.remover(id);
+    }
+
+    private <T> List<T> buscarPorIds(Set<String> ids, Map<String, T> entidades) {
+        List<T> resultado = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            T entidade = entidades.get(id);
+            if (entidade != null) {
+                resultado.add(entidade);
+            }
+        }
+        return resultado;
+    }
 }
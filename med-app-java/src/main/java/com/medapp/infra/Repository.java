@@ -4,15 +4,24 @@ import com.medapp.models.User;
 import com.medapp.models.Sala;
 import com.medapp.models.Relatorio;
 import com.medapp.models.Agendamento;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Interface Repository - Define o contrato para persistência de dados
  * 
  * Esta interface segue o padrão Repository e é implementada por:
  * - RAMRepository: Armazenamento em memória
- * - DBRepository: Armazenamento em banco de dados simulado
+ * - DBRepository: Armazenamento em banco de dados H2 embarcado via JDBC
  * - FileRepository: Armazenamento em arquivos
+ * - SegmentedFileRepository: Armazenamento em segmentos de log no disco
+ * - ConcurrentRAMRepository: Armazenamento em memória seguro para acesso concorrente
+ * - JsonLinesRepository: Armazenamento em arquivo JSON-lines
+ * - CachingRepository: Decorador com cache de leitura sobre qualquer das anteriores
+ * - MetricsRepository: Decorador que mede a latência e as falhas de cada operação
  */
 public interface Repository {
     
@@ -21,13 +30,41 @@ public interface Repository {
     User loadUser(String username);
     List<User> getAllUsers();
     void deleteUser(String username);
+
+    /**
+     * Salva vários usuários de uma vez. A implementação padrão chama saveUser para cada
+     * um; os repositórios sobrescrevem com uma gravação em lote nativa.
+     */
+    default void saveUsers(Collection<? extends User> users) {
+        for (User user : users) {
+            saveUser(user);
+        }
+    }
     
+    /**
+     * Página de usuários, para carregamento sob demanda sem trazer o conjunto inteiro.
+     * A implementação padrão recorta getAllUsers; repositórios com consulta paginada
+     * nativa devem sobrescrevê-la mantendo uma ordem estável entre chamadas.
+     * @param inicio Posição do primeiro usuário (a partir de 0)
+     * @param limite Quantidade máxima de usuários
+     */
+    default List<User> getUsers(int inicio, int limite) {
+        return pagina(getAllUsers(), inicio, limite);
+    }
+
     // Métodos para Sala
     void saveSala(Sala sala);
     Sala loadSala(String id);
     List<Sala> getAllSalas();
     void deleteSala(String id);
     
+    /**
+     * Página de salas (veja getUsers(int, int))
+     */
+    default List<Sala> getSalas(int inicio, int limite) {
+        return pagina(getAllSalas(), inicio, limite);
+    }
+
     // Métodos para Relatorio
     void saveRelatorio(Relatorio relatorio);
     Relatorio loadRelatorio(String id);
@@ -35,6 +72,13 @@ public interface Repository {
     void deleteRelatorio(String id);
     List<Relatorio> getRelatoriosByAutor(String autorUsername);
     
+    /**
+     * Página de relatórios (veja getUsers(int, int))
+     */
+    default List<Relatorio> getRelatorios(int inicio, int limite) {
+        return pagina(getAllRelatorios(), inicio, limite);
+    }
+
     // Métodos para Agendamento
     void saveAgendamento(Agendamento agendamento);
     Agendamento loadAgendamento(String id);
@@ -43,4 +87,127 @@ public interface Repository {
     List<Agendamento> getAgendamentosByPaciente(String pacienteUsername);
     List<Agendamento> getAgendamentosByProfissional(String profissionalUsername);
     List<Agendamento> getAgendamentosBySala(String salaId);
+
+    /**
+     * Agendamentos que atendem à consulta, produzidos sob demanda.
+     * Repositórios com índices ou consulta nativa devem sobrescrever este método para
+     * não ler registros que a consulta descarta nem os que passam do limite; a
+     * implementação padrão parte da busca por sala, profissional ou paciente (nessa
+     * ordem) e filtra o resultado em memória.
+     *
+     * O stream pode manter recursos abertos (cursor, conexão, diretório) e deve ser
+     * fechado, de preferência com try-with-resources.
+     * @param consulta Critérios de filtro, ordenação e limite
+     */
+    default Stream<Agendamento> streamAgendamentos(ConsultaAgendamentos consulta) {
+        List<Agendamento> origem;
+        if (consulta.getSalaId() != null) {
+            origem = getAgendamentosBySala(consulta.getSalaId());
+        } else if (consulta.getProfissionalUsername() != null) {
+            origem = getAgendamentosByProfissional(consulta.getProfissionalUsername());
+        } else if (consulta.getPacienteUsername() != null) {
+            origem = getAgendamentosByPaciente(consulta.getPacienteUsername());
+        } else {
+            origem = getAllAgendamentos();
+        }
+        return consulta.aplicar(origem.stream());
+    }
+
+    /**
+     * Página de agendamentos (veja getUsers(int, int))
+     */
+    default List<Agendamento> getAgendamentos(int inicio, int limite) {
+        return pagina(getAllAgendamentos(), inicio, limite);
+    }
+
+    /**
+     * Salva vários agendamentos de uma vez (importações em massa). A implementação padrão
+     * chama saveAgendamento para cada um; os repositórios sobrescrevem com uma gravação
+     * em lote nativa.
+     */
+    default void saveAgendamentos(Collection<Agendamento> agendamentos) {
+        for (Agendamento agendamento : agendamentos) {
+            saveAgendamento(agendamento);
+        }
+    }
+
+    /**
+     * Salva o agendamento somente se a sala e o profissional estiverem livres no horário.
+     * A implementação padrão verifica e salva em passos separados e não é atômica;
+     * repositórios usados por várias threads devem sobrescrevê-la.
+     * @param agendamento Agendamento ativo a ser salvo
+     * @return true se foi salvo, false se havia conflito
+     */
+    default boolean saveAgendamentoIfNoConflict(Agendamento agendamento) {
+        // Só agendamentos ativos que começam antes do fim do novo podem sobrepô-lo
+        ConsultaAgendamentos candidatos = ConsultaAgendamentos.todos().apenasAtivos()
+                .entre(null, agendamento.getDataHoraFim());
+        if (haConflito(candidatos.daSala(agendamento.getSalaId()), agendamento)
+                || haConflito(candidatos.doProfissional(agendamento.getProfissionalUsername()), agendamento)) {
+            return false;
+        }
+
+        saveAgendamento(agendamento);
+        return true;
+    }
+
+    /**
+     * Salva o lote inteiro somente se nenhum item conflitar com um agendamento já gravado
+     * nem com um item anterior do lote; havendo conflito, nada é salvo. A implementação
+     * padrão verifica e salva em passos separados e, como saveAgendamentoIfNoConflict,
+     * não é atômica.
+     * @param agendamentos Agendamentos ativos a serem salvos
+     * @return vazio se o lote foi salvo, ou o primeiro conflito encontrado
+     */
+    default Optional<IndiceOcupacao.ConflitoLote> saveAgendamentosIfNoConflict(List<Agendamento> agendamentos) {
+        for (int i = 0; i < agendamentos.size(); i++) {
+            Agendamento agendamento = agendamentos.get(i);
+            ConsultaAgendamentos candidatos = ConsultaAgendamentos.todos().apenasAtivos()
+                    .entre(null, agendamento.getDataHoraFim());
+            if (haConflito(candidatos.daSala(agendamento.getSalaId()), agendamento)) {
+                return Optional.of(new IndiceOcupacao.ConflitoLote(i, IndiceOcupacao.Conflito.SALA));
+            }
+            if (haConflito(candidatos.doProfissional(agendamento.getProfissionalUsername()), agendamento)) {
+                return Optional.of(new IndiceOcupacao.ConflitoLote(i, IndiceOcupacao.Conflito.PROFISSIONAL));
+            }
+            Optional<IndiceOcupacao.ConflitoLote> noLote = IndiceOcupacao.ConflitoLote.dentroDoLote(agendamentos, i);
+            if (noLote.isPresent()) {
+                return noLote;
+            }
+        }
+
+        saveAgendamentos(agendamentos);
+        return Optional.empty();
+    }
+
+    /**
+     * Indica se o armazenamento recebe agendamentos que não passam pelo gerenciador deste
+     * processo (outros processos no mesmo banco, threads gravando direto no repositório).
+     * Só nesse caso o gerenciador grava por saveAgendamentoIfNoConflict; nos demais o
+     * índice de ocupação dele já descartou os conflitos e a verificação seria repetida.
+     */
+    default boolean isCompartilhado() {
+        return false;
+    }
+
+    private static <T> List<T> pagina(List<T> todos, int inicio, int limite) {
+        if (inicio < 0 || limite < 0) {
+            throw new IllegalArgumentException("Início e limite da página não podem ser negativos");
+        }
+        int de = Math.min(inicio, todos.size());
+        int ate = (int) Math.min((long) de + limite, todos.size());
+        return new ArrayList<>(todos.subList(de, ate));
+    }
+
+    private boolean haConflito(ConsultaAgendamentos consulta, Agendamento novo) {
+        try (Stream<Agendamento> existentes = streamAgendamentos(consulta)) {
+            return existentes.anyMatch(existente -> conflita(existente, novo));
+        }
+    }
+
+    private static boolean conflita(Agendamento existente, Agendamento novo) {
+        return existente.isAtivo()
+            && !existente.getId().equals(novo.getId())
+            && existente.sobrepoe(novo);
+    }
 }
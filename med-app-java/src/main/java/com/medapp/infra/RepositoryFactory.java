@@ -10,30 +10,83 @@ public class RepositoryFactory {
     private static final String CONFIG_FILE = "config.properties";
     private static final String PROPERTY_KEY = "tipoRepositorio";
     
+    private static final String CACHE_HABILITADO = "cache.habilitado";
+    private static final String CACHE_POLITICA = "cache.politica";
+    private static final String CACHE_CAPACIDADE = "cache.capacidade";
+    private static final String CACHE_TTL_SEGUNDOS = "cache.ttlSegundos";
+    
+    private static final String METRICAS_HABILITADO = "metricas.habilitado";
+    private static final String METRICAS_INTERVALO_SEGUNDOS = "metricas.intervaloSegundos";
+    private static final String METRICAS_JMX = "metricas.jmx";
+    
     public static Repository createRepository(String[] args) {
-        String repositoryType = determineRepositoryType(args);
-        return createRepositoryByType(repositoryType);
+        Properties props = loadConfiguration();
+        String repositoryType = determineRepositoryType(args, props);
+        // As métricas medem o repositório real; acertos do cache não passam por elas
+        return wrapWithCache(wrapWithMetrics(createRepositoryByType(repositoryType), props), props);
     }
     
-    private static String determineRepositoryType(String[] args) {
+    private static String determineRepositoryType(String[] args, Properties props) {
         // Primeiro, verifica argumentos da linha de comando
         if (args.length > 0) {
             return args[0].toLowerCase();
         }
         
         // Depois, verifica arquivo de configuração
-        return getConfigurationProperty();
+        return props.getProperty(PROPERTY_KEY, DEFAULT_REPOSITORY).toLowerCase();
     }
     
-    private static String getConfigurationProperty() {
-        try {
-            Properties props = new Properties();
-            props.load(new FileInputStream(CONFIG_FILE));
-            return props.getProperty(PROPERTY_KEY, DEFAULT_REPOSITORY).toLowerCase();
+    private static Properties loadConfiguration() {
+        Properties props = new Properties();
+        try (FileInputStream in = new FileInputStream(CONFIG_FILE)) {
+            props.load(in);
         } catch (IOException e) {
-            System.out.println("Arquivo de configuração não encontrado. Usando repositório padrão.");
-            return DEFAULT_REPOSITORY;
+            System.out.println("Arquivo de configuração não encontrado. Usando configuração padrão.");
+        }
+        return props;
+    }
+    
+    /**
+     * Envolve o repositório com o CachingRepository se "cache.habilitado=true".
+     * Cada chave "cache.*" pode ser sobrescrita pela propriedade de sistema "medapp.cache.*".
+     */
+    private static Repository wrapWithCache(Repository repository, Properties props) {
+        if (!Boolean.parseBoolean(getConfigProperty(props, CACHE_HABILITADO, "false"))) {
+            return repository;
+        }
+        
+        PoliticaCache politica;
+        try {
+            politica = PoliticaCache.valueOf(getConfigProperty(props, CACHE_POLITICA, "LRU").trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Política de cache inválida. Usando LRU.");
+            politica = PoliticaCache.LRU;
         }
+        int capacidade = Integer.parseInt(getConfigProperty(props, CACHE_CAPACIDADE, "10000").trim());
+        long ttlSegundos = Long.parseLong(getConfigProperty(props, CACHE_TTL_SEGUNDOS, "300").trim());
+        
+        System.out.println("Usando cache " + politica + " com capacidade " + capacidade);
+        return new CachingRepository(repository, politica, capacidade, ttlSegundos * 1000);
+    }
+    
+    /**
+     * Envolve o repositório com o MetricsRepository se "metricas.habilitado=true".
+     * Como no cache, cada chave "metricas.*" pode ser sobrescrita por "medapp.metricas.*".
+     */
+    private static Repository wrapWithMetrics(Repository repository, Properties props) {
+        if (!Boolean.parseBoolean(getConfigProperty(props, METRICAS_HABILITADO, "false"))) {
+            return repository;
+        }
+        
+        long intervaloSegundos = Long.parseLong(getConfigProperty(props, METRICAS_INTERVALO_SEGUNDOS, "60").trim());
+        boolean jmx = Boolean.parseBoolean(getConfigProperty(props, METRICAS_JMX, "true"));
+        
+        System.out.println("Usando métricas de repositório (resumo a cada " + intervaloSegundos + " s)");
+        return new MetricsRepository(repository, FabricaLogs.criarLoggerConfigurado(), intervaloSegundos, jmx);
+    }
+    
+    private static String getConfigProperty(Properties props, String key, String defaultValue) {
+        return System.getProperty("medapp." + key, props.getProperty(key, defaultValue));
     }
     
     private static Repository createRepositoryByType(String type) {
@@ -41,9 +94,18 @@ public class RepositoryFactory {
             case "file":
                 System.out.println("Usando FileRepository");
                 return new FileRepository();
+            case "segmentos":
+                System.out.println("Usando SegmentedFileRepository");
+                return new SegmentedFileRepository();
+            case "json":
+                System.out.println("Usando JsonLinesRepository");
+                return new JsonLinesRepository();
             case "db":
                 System.out.println("Usando DBRepository");
                 return new DBRepository();
+            case "concorrente":
+                System.out.println("Usando ConcurrentRAMRepository");
+                return new ConcurrentRAMRepository();
             case "ram":
             default:
                 System.out.println("Usando RAMRepository");
@@ -0,0 +1,371 @@
+package com.medapp.infra;
+
+import com.medapp.models.User;
+import com.medapp.models.Sala;
+import com.medapp.models.Relatorio;
+import com.medapp.models.Agendamento;
+import com.medapp.utils.repository.*;
+import com.medapp.utils.storage.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * SegmentedFileRepository - Implementação de Repository sobre segmentos de log
+ *
+ * Em vez de um arquivo por entidade, todas as gravações são anexadas a poucos
+ * arquivos de segmento no diretório "segmentos/". Leituras por chave localizam o
+ * registro pelo índice em memória e o decodificam do segmento mapeado em memória
+ * (ou com uma única leitura posicionada), e as listagens percorrem os segmentos
+ * sequencialmente. Os registros são codificados com o CodecBinario.
+ *
+ * Propriedades de sistema:
+ * - medapp.segmentos.diretorio: diretório dos segmentos (padrão "segmentos")
+ * - medapp.segmentos.tamanhoMaximoMB: tamanho máximo de cada segmento (padrão 64)
+ * - medapp.segmentos.compactacaoSegundos: intervalo da compactação (padrão 60, 0 desativa)
+ * - medapp.segmentos.maxMapeadoMB: limite de segmentos mapeados em memória (padrão 256, 0 desativa)
+ */
+public class SegmentedFileRepository implements Repository, Closeable {
+
+    private static final byte TIPO_USER = 1;
+    private static final byte TIPO_SALA = 2;
+    private static final byte TIPO_RELATORIO = 3;
+    private static final byte TIPO_AGENDAMENTO = 4;
+
+    private static final String DIRETORIO_PADRAO = "segmentos";
+    private static final long TAMANHO_MAXIMO_PADRAO_MB = 64;
+    private static final long COMPACTACAO_PADRAO_SEGUNDOS = 60;
+    private static final long MAPEAMENTO_PADRAO_MB = 256;
+
+    private final ArmazenamentoSegmentado armazenamento;
+
+    public SegmentedFileRepository() {
+        this(System.getProperty("medapp.segmentos.diretorio", DIRETORIO_PADRAO),
+             Long.getLong("medapp.segmentos.tamanhoMaximoMB", TAMANHO_MAXIMO_PADRAO_MB) * 1024 * 1024,
+             Long.getLong("medapp.segmentos.compactacaoSegundos", COMPACTACAO_PADRAO_SEGUNDOS),
+             Long.getLong("medapp.segmentos.maxMapeadoMB", MAPEAMENTO_PADRAO_MB) * 1024 * 1024);
+    }
+
+    public SegmentedFileRepository(String diretorio, long tamanhoMaximoSegmento, long intervaloCompactacaoSegundos,
+                                   long limiteMapeamentoBytes) {
+        try {
+            this.armazenamento = new ArmazenamentoSegmentado(Paths.get(diretorio), tamanhoMaximoSegmento,
+                    intervaloCompactacaoSegundos, limiteMapeamentoBytes);
+        } catch (IOException e) {
+            throw new RepositoryConfigurationException("segment.directory",
+                "Failed to open segment storage: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Força a compactação dos segmentos antigos (normalmente feita em segundo plano)
+     */
+    public void compactar() {
+        try {
+            armazenamento.compactar();
+        } catch (IOException e) {
+            throw new RepositoryException("Failed to compact segments", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            armazenamento.close();
+        } catch (IOException e) {
+            throw new RepositoryException("Failed to close segment storage", e);
+        }
+    }
+
+    // ============= MÉTODOS PARA USER =============
+
+    @Override
+    public void saveUser(User user) {
+        gravar(TIPO_USER, user.getUsername(), CodecBinario.codificarUser(user), "user");
+    }
+
+    @Override
+    public void saveUsers(Collection<? extends User> users) {
+        List<String> chaves = new ArrayList<>(users.size());
+        List<byte[]> dados = new ArrayList<>(users.size());
+        for (User user : users) {
+            chaves.add(user.getUsername());
+            dados.add(CodecBinario.codificarUser(user));
+        }
+        gravarLote(TIPO_USER, chaves, dados, "users");
+    }
+
+    @Override
+    public User loadUser(String username) {
+        User user = ler(TIPO_USER, username, User.class, CodecBinario::decodificarUser, "user");
+        if (user == null) {
+            throw new UserNotFoundException(username);
+        }
+        return user;
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return listar(TIPO_USER, User.class, CodecBinario::decodificarUser, "users", user -> true);
+    }
+
+    @Override
+    public void deleteUser(String username) {
+        if (!apagar(TIPO_USER, username, "user")) {
+            throw new UserNotFoundException(username);
+        }
+    }
+
+    // ============= MÉTODOS PARA SALA =============
+
+    @Override
+    public void saveSala(Sala sala) {
+        gravar(TIPO_SALA, sala.getId(), CodecBinario.codificarSala(sala), "sala");
+    }
+
+    @Override
+    public Sala loadSala(String id) {
+        Sala sala = ler(TIPO_SALA, id, Sala.class, CodecBinario::decodificarSala, "sala");
+        if (sala == null) {
+            throw new RepositoryException("Sala not found: " + id);
+        }
+        return sala;
+    }
+
+    @Override
+    public List<Sala> getAllSalas() {
+        return listar(TIPO_SALA, Sala.class, CodecBinario::decodificarSala, "salas", sala -> true);
+    }
+
+    @Override
+    public void deleteSala(String id) {
+        if (!apagar(TIPO_SALA, id, "sala")) {
+            throw new RepositoryException("Sala not found: " + id);
+        }
+    }
+
+    // ============= MÉTODOS PARA RELATORIO =============
+
+    @Override
+    public void saveRelatorio(Relatorio relatorio) {
+        gravar(TIPO_RELATORIO, relatorio.getId(), CodecBinario.codificarRelatorio(relatorio), "relatorio");
+    }
+
+    @Override
+    public Relatorio loadRelatorio(String id) {
+        Relatorio relatorio = ler(TIPO_RELATORIO, id, Relatorio.class, CodecBinario::decodificarRelatorio, "relatorio");
+        if (relatorio == null) {
+            throw new RepositoryException("Relatorio not found: " + id);
+        }
+        return relatorio;
+    }
+
+    @Override
+    public List<Relatorio> getAllRelatorios() {
+        return listar(TIPO_RELATORIO, Relatorio.class, CodecBinario::decodificarRelatorio, "relatorios", relatorio -> true);
+    }
+
+    @Override
+    public void deleteRelatorio(String id) {
+        if (!apagar(TIPO_RELATORIO, id, "relatorio")) {
+            throw new RepositoryException("Relatorio not found: " + id);
+        }
+    }
+
+    @Override
+    public List<Relatorio> getRelatoriosByAutor(String autorUsername) {
+        return listar(TIPO_RELATORIO, Relatorio.class, CodecBinario::decodificarRelatorio, "relatorios by autor: " + autorUsername,
+                relatorio -> autorUsername.equals(relatorio.getAutorUsername()));
+    }
+
+    // ============= MÉTODOS PARA AGENDAMENTO =============
+
+    @Override
+    public void saveAgendamento(Agendamento agendamento) {
+        gravar(TIPO_AGENDAMENTO, agendamento.getId(), CodecBinario.codificarAgendamento(agendamento), "agendamento");
+    }
+
+    @Override
+    public void saveAgendamentos(Collection<Agendamento> agendamentos) {
+        List<String> chaves = new ArrayList<>(agendamentos.size());
+        List<byte[]> dados = new ArrayList<>(agendamentos.size());
+        for (Agendamento agendamento : agendamentos) {
+            chaves.add(agendamento.getId());
+            dados.add(CodecBinario.codificarAgendamento(agendamento));
+        }
+        gravarLote(TIPO_AGENDAMENTO, chaves, dados, "agendamentos");
+    }
+
+    @Override
+    public Agendamento loadAgendamento(String id) {
+        Agendamento agendamento = ler(TIPO_AGENDAMENTO, id, Agendamento.class, CodecBinario::decodificarAgendamento, "agendamento");
+        if (agendamento == null) {
+            throw new RepositoryException("Agendamento not found: " + id);
+        }
+        return agendamento;
+    }
+
+    @Override
+    public List<Agendamento> getAllAgendamentos() {
+        return listar(TIPO_AGENDAMENTO, Agendamento.class, CodecBinario::decodificarAgendamento, "agendamentos", agendamento -> true);
+    }
+
+    @Override
+    public void deleteAgendamento(String id) {
+        if (!apagar(TIPO_AGENDAMENTO, id, "agendamento")) {
+            throw new RepositoryException("Agendamento not found: " + id);
+        }
+    }
+
+    @Override
+    public List<Agendamento> getAgendamentosByPaciente(String pacienteUsername) {
+        return listar(TIPO_AGENDAMENTO, Agendamento.class, CodecBinario::decodificarAgendamento, "agendamentos by paciente: " + pacienteUsername,
+                agendamento -> pacienteUsername.equals(agendamento.getPacienteUsername()));
+    }
+
+    @Override
+    public List<Agendamento> getAgendamentosByProfissional(String profissionalUsername) {
+        return listar(TIPO_AGENDAMENTO, Agendamento.class, CodecBinario::decodificarAgendamento, "agendamentos by profissional: " + profissionalUsername,
+                agendamento -> profissionalUsername.equals(agendamento.getProfissionalUsername()));
+    }
+
+    @Override
+    public List<Agendamento> getAgendamentosBySala(String salaId) {
+        return listar(TIPO_AGENDAMENTO, Agendamento.class, CodecBinario::decodificarAgendamento, "agendamentos by sala: " + salaId,
+                agendamento -> salaId.equals(agendamento.getSalaId()));
+    }
+
+    @Override
+    public Stream<Agendamento> streamAgendamentos(ConsultaAgendamentos consulta) {
+        // Sem ordenação pedida, a varredura para assim que o limite é atingido;
+        // com ordenação é preciso ver todos os que passam no filtro
+        long limite = consulta.isOrdenadaPorDataHora() ? Long.MAX_VALUE : consulta.getLimite();
+        List<Agendamento> encontrados = listar(TIPO_AGENDAMENTO, Agendamento.class, CodecBinario::decodificarAgendamento,
+                "agendamentos: " + consulta, consulta::aceita, limite);
+        return consulta.aplicar(encontrados.stream());
+    }
+
+    // ============= MÉTODOS PRIVADOS =============
+
+    private void gravar(byte tipo, String chave, byte[] dados, String descricao) {
+        try {
+            armazenamento.gravar(tipo, chave, dados);
+        } catch (IOException e) {
+            throw new RepositoryException("Failed to save " + descricao + ": " + chave, e);
+        }
+    }
+
+    private void gravarLote(byte tipo, List<String> chaves, List<byte[]> dados, String descricao) {
+        try {
+            armazenamento.gravarLote(tipo, chaves, dados);
+        } catch (IOException e) {
+            throw new RepositoryException("Failed to save " + chaves.size() + " " + descricao, e);
+        }
+    }
+
+    private <T> T ler(byte tipo, String chave, Class<T> classe, Function<ByteBuffer, T> decodificador,
+                      String descricao) {
+        try {
+            ByteBuffer dados = armazenamento.ler(tipo, chave);
+            return dados != null ? decodificar(dados, classe, decodificador, descricao, chave) : null;
+        } catch (IOException e) {
+            throw new RepositoryException("Failed to load " + descricao + ": " + chave, e);
+        }
+    }
+
+    private boolean apagar(byte tipo, String chave, String descricao) {
+        try {
+            return armazenamento.apagar(tipo, chave);
+        } catch (IOException e) {
+            throw new RepositoryException("Failed to delete " + descricao + ": " + chave, e);
+        }
+    }
+
+    private <T> List<T> listar(byte tipo, Class<T> classe, Function<ByteBuffer, T> decodificador,
+                               String descricao, Predicate<T> filtro) {
+        return listar(tipo, classe, decodificador, descricao, filtro, Long.MAX_VALUE);
+    }
+
+    private <T> List<T> listar(byte tipo, Class<T> classe, Function<ByteBuffer, T> decodificador,
+                               String descricao, Predicate<T> filtro, long limite) {
+        List<T> resultado = new ArrayList<>();
+        if (limite <= 0) {
+            return resultado;
+        }
+        try {
+            armazenamento.percorrerAte(tipo, (chave, dados) -> {
+                try {
+                    T entidade = decodificar(dados, classe, decodificador, descricao, chave);
+                    if (filtro.test(entidade)) {
+                        resultado.add(entidade);
+                    }
+                } catch (RepositoryException e) {
+                    System.err.println("Warning: Could not load record " + chave + ": " + e.getMessage());
+                }
+                return resultado.size() < limite;
+            });
+            return resultado;
+        } catch (IOException e) {
+            throw new RepositoryException("Failed to get " + descricao, e);
+        }
+    }
+
+    /**
+     * Decodifica com o CodecBinario; registros gravados antes dele (serialização Java)
+     * continuam legíveis e são regravados no novo formato na próxima gravação
+     */
+    private <T> T decodificar(ByteBuffer dados, Class<T> classe, Function<ByteBuffer, T> decodificador,
+                              String descricao, String chave) {
+        if (CodecBinario.isFormatoBinario(dados)) {
+            return decodificador.apply(dados);
+        }
+        return desserializar(dados, classe, descricao, chave);
+    }
+
+    private <T> T desserializar(ByteBuffer dados, Class<T> classe, String descricao, String chave) {
+        try (ObjectInputStream ois = new ObjectInputStream(new EntradaBuffer(dados))) {
+            return classe.cast(ois.readObject());
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            throw new RepositoryIntegrityException(descricao + ".data",
+                "Data corrupted for: " + chave);
+        }
+    }
+
+    /**
+     * InputStream sobre um ByteBuffer (inclusive mapeado), sem copiar os dados
+     */
+    private static class EntradaBuffer extends InputStream {
+        private final ByteBuffer buffer;
+
+        EntradaBuffer(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] destino, int inicio, int tamanho) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int lidos = Math.min(tamanho, buffer.remaining());
+            buffer.get(destino, inicio, lidos);
+            return lidos;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package com.medapp.models;
 
 import java.io.Serializable;
+import java.text.Normalizer;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -14,6 +18,18 @@ import java.util.Objects;
  */
 public class Agendamento implements Serializable {
     private static final long serialVersionUID = 1L;
+
+    /** Duração assumida quando o agendamento não informa uma e o tipo não tem padrão */
+    public static final Duration DURACAO_PADRAO = Duration.ofMinutes(30);
+
+    // Duração padrão por tipo de consulta (nome sem acentos, em maiúsculas); pode ser
+    // sobrescrita com a propriedade de sistema medapp.duracao.<TIPO> em minutos
+    private static final Map<String, Duration> DURACOES_POR_TIPO = Map.of(
+            "CONSULTA", Duration.ofMinutes(30),
+            "RETORNO", Duration.ofMinutes(20),
+            "EXAME", Duration.ofMinutes(45),
+            "EMERGENCIA", Duration.ofMinutes(60),
+            "CIRURGIA", Duration.ofMinutes(120));
     
     private final String id;
     private final String pacienteUsername;
@@ -22,15 +38,33 @@ public class Agendamento implements Serializable {
     private final LocalDateTime dataHora;
     private final String tipoConsulta;
     private final String observacoes;
-    private StatusAgendamento status;
+    // null quando não informada: vale o padrão do tipo de consulta
+    private final Duration duracao;
+    // Calculada na primeira consulta: os índices de ocupação pedem o fim do intervalo
+    // a cada comparação e o padrão do tipo exige normalizar o texto
+    private transient volatile Duration duracaoEfetiva;
+    private volatile StatusAgendamento status;
     private LocalDateTime dataCriacao;
-    private LocalDateTime dataAtualizacao;
+    private volatile LocalDateTime dataAtualizacao;
 
     /**
-     * Construtor para criar novo agendamento
+     * Construtor para criar novo agendamento com a duração padrão do tipo de consulta
      */
     public Agendamento(String id, String pacienteUsername, String profissionalUsername, 
                       String salaId, LocalDateTime dataHora, String tipoConsulta, String observacoes) {
+        this(id, pacienteUsername, profissionalUsername, salaId, dataHora, tipoConsulta, observacoes, (Duration) null);
+    }
+
+    /**
+     * Construtor para criar novo agendamento
+     * @param duracao Duração do atendimento, ou null para usar o padrão do tipo de consulta
+     */
+    public Agendamento(String id, String pacienteUsername, String profissionalUsername, 
+                      String salaId, LocalDateTime dataHora, String tipoConsulta, String observacoes,
+                      Duration duracao) {
+        if (duracao != null && (duracao.isNegative() || duracao.isZero())) {
+            throw new IllegalArgumentException("Duração deve ser positiva");
+        }
         this.id = Objects.requireNonNull(id, "ID não pode ser nulo");
         this.pacienteUsername = Objects.requireNonNull(pacienteUsername, "Username do paciente não pode ser nulo");
         this.profissionalUsername = Objects.requireNonNull(profissionalUsername, "Username do profissional não pode ser nulo");
@@ -38,11 +72,35 @@ public class Agendamento implements Serializable {
         this.dataHora = Objects.requireNonNull(dataHora, "Data/hora não pode ser nulo");
         this.tipoConsulta = Objects.requireNonNull(tipoConsulta, "Tipo da consulta não pode ser nulo");
         this.observacoes = observacoes != null ? observacoes : "";
+        this.duracao = duracao;
         this.status = StatusAgendamento.AGENDADO;
         this.dataCriacao = LocalDateTime.now();
         this.dataAtualizacao = LocalDateTime.now();
     }
 
+    /**
+     * Construtor para reconstruir um agendamento persistido, preservando status e datas
+     */
+    public Agendamento(String id, String pacienteUsername, String profissionalUsername, 
+                      String salaId, LocalDateTime dataHora, String tipoConsulta, String observacoes,
+                      StatusAgendamento status, LocalDateTime dataCriacao, LocalDateTime dataAtualizacao) {
+        this(id, pacienteUsername, profissionalUsername, salaId, dataHora, tipoConsulta, observacoes, null,
+                status, dataCriacao, dataAtualizacao);
+    }
+
+    /**
+     * Construtor para reconstruir um agendamento persistido com duração
+     */
+    public Agendamento(String id, String pacienteUsername, String profissionalUsername, 
+                      String salaId, LocalDateTime dataHora, String tipoConsulta, String observacoes,
+                      Duration duracao, StatusAgendamento status, LocalDateTime dataCriacao,
+                      LocalDateTime dataAtualizacao) {
+        this(id, pacienteUsername, profissionalUsername, salaId, dataHora, tipoConsulta, observacoes, duracao);
+        this.status = Objects.requireNonNull(status, "Status não pode ser nulo");
+        this.dataCriacao = dataCriacao;
+        this.dataAtualizacao = dataAtualizacao;
+    }
+
     // Getters
     public String getId() { return id; }
     public String getPacienteUsername() { return pacienteUsername; }
@@ -51,12 +109,15 @@ public class Agendamento implements Serializable {
     public LocalDateTime getDataHora() { return dataHora; }
     public String getTipoConsulta() { return tipoConsulta; }
     public String getObservacoes() { return observacoes; }
+    /** Duração informada na criação, ou null se vale o padrão do tipo */
+    public Duration getDuracao() { return duracao; }
     public StatusAgendamento getStatus() { return status; }
     public LocalDateTime getDataCriacao() { return dataCriacao; }
     public LocalDateTime getDataAtualizacao() { return dataAtualizacao; }
 
     // Métodos de negócio - Keep It Simple
-    public void confirmar() {
+    // Sincronizados para que transições concorrentes não partam do mesmo status
+    public synchronized void confirmar() {
         if (this.status != StatusAgendamento.AGENDADO) {
             throw new IllegalStateException("Apenas agendamentos com status AGENDADO podem ser confirmados");
         }
@@ -64,7 +125,7 @@ public class Agendamento implements Serializable {
         this.dataAtualizacao = LocalDateTime.now();
     }
 
-    public void cancelar() {
+    public synchronized void cancelar() {
         if (this.status == StatusAgendamento.CANCELADO || this.status == StatusAgendamento.FINALIZADO) {
             throw new IllegalStateException("Agendamento não pode ser cancelado no status atual: " + this.status);
         }
@@ -72,7 +133,7 @@ public class Agendamento implements Serializable {
         this.dataAtualizacao = LocalDateTime.now();
     }
 
-    public void finalizar() {
+    public synchronized void finalizar() {
         if (this.status != StatusAgendamento.CONFIRMADO) {
             throw new IllegalStateException("Apenas agendamentos confirmados podem ser finalizados");
         }
@@ -84,6 +145,49 @@ public class Agendamento implements Serializable {
         return status == StatusAgendamento.AGENDADO || status == StatusAgendamento.CONFIRMADO;
     }
 
+    /**
+     * Duração informada ou, na falta dela, o padrão do tipo de consulta
+     */
+    public Duration getDuracaoEfetiva() {
+        Duration efetiva = duracaoEfetiva;
+        if (efetiva == null) {
+            efetiva = duracao != null ? duracao : duracaoPadrao(tipoConsulta);
+            duracaoEfetiva = efetiva;
+        }
+        return efetiva;
+    }
+
+    /**
+     * Fim do intervalo [dataHora, dataHora + duração) ocupado pelo agendamento
+     */
+    public LocalDateTime getDataHoraFim() {
+        return dataHora.plus(getDuracaoEfetiva());
+    }
+
+    /**
+     * Verifica se os intervalos ocupados pelos dois agendamentos se sobrepõem
+     */
+    public boolean sobrepoe(Agendamento outro) {
+        return dataHora.isBefore(outro.getDataHoraFim()) && outro.dataHora.isBefore(getDataHoraFim());
+    }
+
+    /**
+     * Duração padrão de um tipo de consulta (sem diferenciar maiúsculas e acentos)
+     */
+    public static Duration duracaoPadrao(String tipoConsulta) {
+        if (tipoConsulta == null) {
+            return DURACAO_PADRAO;
+        }
+        String tipo = Normalizer.normalize(tipoConsulta.trim(), Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toUpperCase(Locale.ROOT);
+        Long minutos = Long.getLong("medapp.duracao." + tipo);
+        if (minutos != null && minutos > 0) {
+            return Duration.ofMinutes(minutos);
+        }
+        return DURACOES_POR_TIPO.getOrDefault(tipo, DURACAO_PADRAO);
+    }
+
     public boolean isNaData(LocalDateTime data) {
         return dataHora.toLocalDate().equals(data.toLocalDate());
     }
@@ -103,8 +207,8 @@ public class Agendamento implements Serializable {
 
     @Override
     public String toString() {
-        return String.format("Agendamento{id='%s', paciente='%s', profissional='%s', sala='%s', data=%s, tipo='%s', status=%s}",
-                id, pacienteUsername, profissionalUsername, salaId, dataHora, tipoConsulta, status);
+        return String.format("Agendamento{id='%s', paciente='%s', profissional='%s', sala='%s', data=%s, duracao=%s, tipo='%s', status=%s}",
+                id, pacienteUsername, profissionalUsername, salaId, dataHora, getDuracaoEfetiva(), tipoConsulta, status);
     }
 
     /**
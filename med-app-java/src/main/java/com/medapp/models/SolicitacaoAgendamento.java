@@ -0,0 +1,52 @@
+package com.medapp.models;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Pedido de um agendamento dentro de um lote (veja AgendamentoGerenciador.criarAgendamentos).
+ * Contém os mesmos dados de criarAgendamento; o ID é gerado apenas quando o lote é aceito.
+ */
+public final class SolicitacaoAgendamento {
+    private final String pacienteUsername;
+    private final String profissionalUsername;
+    private final String salaId;
+    private final LocalDateTime dataHora;
+    private final String tipoConsulta;
+    private final String observacoes;
+    private final Duration duracao;
+
+    public SolicitacaoAgendamento(String pacienteUsername, String profissionalUsername, String salaId,
+                                  LocalDateTime dataHora, String tipoConsulta, String observacoes) {
+        this(pacienteUsername, profissionalUsername, salaId, dataHora, tipoConsulta, observacoes, null);
+    }
+
+    /**
+     * @param duracao Duração do atendimento, ou null para usar o padrão do tipo de consulta
+     */
+    public SolicitacaoAgendamento(String pacienteUsername, String profissionalUsername, String salaId,
+                                  LocalDateTime dataHora, String tipoConsulta, String observacoes,
+                                  Duration duracao) {
+        this.pacienteUsername = pacienteUsername;
+        this.profissionalUsername = profissionalUsername;
+        this.salaId = salaId;
+        this.dataHora = dataHora;
+        this.tipoConsulta = tipoConsulta;
+        this.observacoes = observacoes;
+        this.duracao = duracao;
+    }
+
+    public String getPacienteUsername() { return pacienteUsername; }
+    public String getProfissionalUsername() { return profissionalUsername; }
+    public String getSalaId() { return salaId; }
+    public LocalDateTime getDataHora() { return dataHora; }
+    public String getTipoConsulta() { return tipoConsulta; }
+    public String getObservacoes() { return observacoes; }
+    public Duration getDuracao() { return duracao; }
+
+    @Override
+    public String toString() {
+        return String.format("SolicitacaoAgendamento{paciente='%s', profissional='%s', sala='%s', data=%s, tipo='%s'}",
+                pacienteUsername, profissionalUsername, salaId, dataHora, tipoConsulta);
+    }
+}
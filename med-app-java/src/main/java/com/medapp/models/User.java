@@ -11,7 +11,8 @@ public abstract class User implements Serializable {
     protected String password;
     protected String email;
     protected UserMemento userMemento;
-    UserCareTake userCareTake;
+    // Histórico de desfazer é estado da sessão, não é persistido
+    transient UserCareTake userCareTake;
 
     public User() {
         // Construtor padrão necessário para Jackson
@@ -0,0 +1,152 @@
+package com.medapp.controllers;
+
+import com.medapp.infra.ConcurrentRAMRepository;
+import com.medapp.infra.IndiceOcupacao;
+import com.medapp.models.Agendamento;
+import com.medapp.models.SolicitacaoAgendamento;
+import com.medapp.utils.repository.RepositoryUnavailableException;
+import org.junit.After;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AgendamentoGerenciadorTest {
+
+    private static final Duration MEIA_HORA = Duration.ofMinutes(30);
+
+    private final LocalDateTime inicio = LocalDateTime.now().plusDays(30).truncatedTo(ChronoUnit.HOURS);
+
+    @After
+    public void tearDown() {
+        AgendamentoGerenciador.reset();
+    }
+
+    private static SolicitacaoAgendamento solicitacao(String sala, String profissional, LocalDateTime dataHora) {
+        return new SolicitacaoAgendamento("paciente", profissional, sala, dataHora, "CONSULTA", "", MEIA_HORA);
+    }
+
+    @Test
+    public void loteComConflitoInternoNaoCriaNenhumAgendamento() {
+        ConcurrentRAMRepository repository = new ConcurrentRAMRepository();
+        AgendamentoGerenciador gerenciador = AgendamentoGerenciador.getInstance(repository, ModoCarregamento.COMPLETO);
+
+        String resultado = gerenciador.criarAgendamentos(List.of(
+                solicitacao("S1", "dr1", inicio),
+                solicitacao("S2", "dr2", inicio),
+                solicitacao("S1", "dr3", inicio.plusMinutes(15))));
+
+        assertTrue(resultado, resultado.startsWith("Erro: Item 3"));
+        assertTrue(repository.getAllAgendamentos().isEmpty());
+        assertTrue(gerenciador.criarAgendamento("paciente", "dr1", "S1", inicio, "CONSULTA", "", MEIA_HORA)
+                .contains("sucesso"));
+    }
+
+    @Test
+    public void falhaNaGravacaoDoLoteLiberaTodasAsReservas() {
+        ConcurrentRAMRepository repository = new ConcurrentRAMRepository() {
+            @Override
+            public Optional<IndiceOcupacao.ConflitoLote> saveAgendamentosIfNoConflict(List<Agendamento> novos) {
+                throw new RepositoryUnavailableException("teste", "gravação indisponível");
+            }
+        };
+        AgendamentoGerenciador gerenciador = AgendamentoGerenciador.getInstance(repository, ModoCarregamento.COMPLETO);
+
+        String resultado = gerenciador.criarAgendamentos(List.of(
+                solicitacao("S1", "dr1", inicio),
+                solicitacao("S2", "dr2", inicio)));
+
+        assertTrue(resultado, resultado.startsWith("Erro ao criar lote"));
+        assertTrue(gerenciador.criarAgendamento("paciente", "dr1", "S1", inicio, "CONSULTA", "", MEIA_HORA)
+                .contains("sucesso"));
+        assertTrue(gerenciador.criarAgendamento("paciente", "dr2", "S2", inicio, "CONSULTA", "", MEIA_HORA)
+                .contains("sucesso"));
+    }
+
+    @Test
+    public void loteValidoCriaTodosOsAgendamentos() {
+        ConcurrentRAMRepository repository = new ConcurrentRAMRepository();
+        AgendamentoGerenciador gerenciador = AgendamentoGerenciador.getInstance(repository, ModoCarregamento.COMPLETO);
+
+        String resultado = gerenciador.criarAgendamentos(List.of(
+                solicitacao("S1", "dr1", inicio),
+                solicitacao("S1", "dr1", inicio.plus(MEIA_HORA))));
+
+        assertTrue(resultado, resultado.startsWith("Lote de 2 agendamentos criado"));
+        assertEquals(2, repository.getAllAgendamentos().size());
+    }
+
+    @Test
+    public void repositorioRecusaHorarioOcupadoForaDoIndiceDoGerenciador() {
+        ConcurrentRAMRepository repository = new ConcurrentRAMRepository();
+        AgendamentoGerenciador gerenciador = AgendamentoGerenciador.getInstance(repository, ModoCarregamento.COMPLETO);
+        // Gravado direto no repositório, depois de o gerenciador carregar o seu índice
+        repository.saveAgendamento(new Agendamento("EXTERNO", "outro", "dr9", "S1", inicio, "CONSULTA", "", MEIA_HORA));
+
+        String resultado = gerenciador.criarAgendamento("paciente", "dr1", "S1", inicio, "CONSULTA", "", MEIA_HORA);
+
+        assertTrue(resultado, resultado.startsWith("Erro:"));
+        assertEquals(1, repository.getAllAgendamentos().size());
+    }
+
+    @Test
+    public void loteComHorarioOcupadoForaDoIndiceDoGerenciadorNaoGravaNenhum() {
+        ConcurrentRAMRepository repository = new ConcurrentRAMRepository();
+        AgendamentoGerenciador gerenciador = AgendamentoGerenciador.getInstance(repository, ModoCarregamento.COMPLETO);
+        repository.saveAgendamento(new Agendamento("EXTERNO", "outro", "dr9", "S2", inicio, "CONSULTA", "", MEIA_HORA));
+
+        String resultado = gerenciador.criarAgendamentos(List.of(
+                solicitacao("S1", "dr1", inicio),
+                solicitacao("S2", "dr2", inicio)));
+
+        assertTrue(resultado, resultado.startsWith("Erro: Item 2"));
+        assertEquals(1, repository.getAllAgendamentos().size());
+        // As reservas do lote recusado foram liberadas no índice do gerenciador
+        assertTrue(gerenciador.criarAgendamento("paciente", "dr1", "S1", inicio, "CONSULTA", "", MEIA_HORA)
+                .contains("sucesso"));
+    }
+
+    @Test
+    public void criacoesConcorrentesNaoDuplicamHorario() throws Exception {
+        ConcurrentRAMRepository repository = new ConcurrentRAMRepository();
+        AgendamentoGerenciador gerenciador = AgendamentoGerenciador.getInstance(repository, ModoCarregamento.COMPLETO);
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch largada = new CountDownLatch(1);
+        try {
+            List<Future<String>> resultados = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                String profissional = "dr" + t;
+                resultados.add(executor.submit(() -> {
+                    largada.await();
+                    return gerenciador.criarAgendamento("paciente", profissional, "S1", inicio, "CONSULTA", "",
+                            MEIA_HORA);
+                }));
+            }
+            largada.countDown();
+
+            int criados = 0;
+            for (Future<String> resultado : resultados) {
+                if (resultado.get(30, TimeUnit.SECONDS).contains("sucesso")) {
+                    criados++;
+                }
+            }
+            assertEquals(1, criados);
+            assertEquals(1, repository.getAgendamentosBySala("S1").size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.medapp.controllers;
+
+import com.medapp.infra.ConcurrentRAMRepository;
+import com.medapp.models.Administrador;
+import com.medapp.models.Relatorio;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RelatorioGerenciadorTest {
+
+    @Test
+    public void listagemSobDemandaUsaInstanciaResidenteEIncluiORestoDoRepositorio() {
+        ConcurrentRAMRepository repository = new ConcurrentRAMRepository();
+        repository.saveUser(new Administrador("admin", "Senha@123", "admin@medapp.com", "TOTAL"));
+        RelatorioGerenciador gerenciador = new RelatorioGerenciador(repository, ModoCarregamento.SOB_DEMANDA);
+        assertTrue(gerenciador.criarRelatorio("Mensal", "Conteúdo", "GERAL", "admin"));
+        Relatorio residente = gerenciador.listarRelatorios().get(0);
+        for (int i = 0; i < 5; i++) {
+            repository.saveRelatorio(new Relatorio("R" + i, "Externo " + i, "", "GERAL", "admin"));
+        }
+
+        List<Relatorio> listados = gerenciador.listarRelatorios();
+
+        assertEquals(6, listados.size());
+        assertSame(residente, listados.stream()
+                .filter(relatorio -> relatorio.getId().equals(residente.getId()))
+                .findFirst().get());
+    }
+}
@@ -0,0 +1,42 @@
+package com.medapp.infra;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class AdaptadorLog4jTest {
+
+    @Test
+    public void niveisDoLog4jSemEquivalenteUsamOMaisProximo() {
+        AdaptadorLog4j logger = new AdaptadorLog4j();
+
+        logger.configurarNivelLog("trace");
+        assertEquals(NivelLog.DEBUG, logger.getNivelMinimo());
+        logger.configurarNivelLog("FATAL");
+        assertEquals(NivelLog.ERROR, logger.getNivelMinimo());
+        logger.configurarNivelLog("ALL");
+        assertEquals(NivelLog.DEBUG, logger.getNivelMinimo());
+    }
+
+    @Test
+    public void offDesligaInclusiveErros() {
+        AdaptadorLog4j logger = new AdaptadorLog4j();
+
+        logger.configurarNivelLog(" off ");
+
+        assertEquals(NivelLog.OFF, logger.getNivelMinimo());
+        assertFalse(logger.isHabilitado(NivelLog.ERROR));
+        assertFalse(NivelLog.OFF.atinge(NivelLog.OFF));
+    }
+
+    @Test
+    public void nivelDesconhecidoMantemOAtual() {
+        AdaptadorLog4j logger = new AdaptadorLog4j();
+        logger.configurarNivelLog("WARN");
+
+        logger.configurarNivelLog("VERBOSE");
+
+        assertEquals(NivelLog.WARN, logger.getNivelMinimo());
+    }
+}
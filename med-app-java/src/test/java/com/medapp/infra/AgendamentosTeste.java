@@ -0,0 +1,22 @@
+package com.medapp.infra;
+
+import com.medapp.models.Agendamento;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Agendamentos de 30 minutos usados pelos testes de ocupação
+ */
+final class AgendamentosTeste {
+
+    static final LocalDateTime INICIO = LocalDateTime.of(2030, 1, 7, 10, 0);
+
+    private AgendamentosTeste() {
+    }
+
+    static Agendamento agendamento(String id, String sala, String profissional, LocalDateTime dataHora) {
+        return new Agendamento(id, "paciente", profissional, sala, dataHora, "CONSULTA", "",
+                Duration.ofMinutes(30));
+    }
+}
@@ -0,0 +1,38 @@
+package com.medapp.infra;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CacheEntidadesTest {
+
+    @Test
+    public void nenhumaPoliticaPassaDaCapacidade() {
+        for (PoliticaCache politica : PoliticaCache.values()) {
+            for (int capacidade : new int[] {1, 2, 5, 150}) {
+                CacheEntidades<String> cache = CacheEntidades.criar(politica, capacidade, 60_000);
+                for (int i = 0; i < capacidade * 10; i++) {
+                    cache.guardar("k" + i, "v" + i);
+                    cache.obter("k" + (i / 2));
+                }
+                int tamanho = cache.estatisticas().getTamanho();
+                assertTrue(politica + " com capacidade " + capacidade + " guardou " + tamanho,
+                        tamanho <= capacidade);
+            }
+        }
+    }
+
+    @Test
+    public void tinyLfuComCapacidadeUmGuardaAUltimaEntrada() {
+        CacheEntidades<String> cache = CacheEntidades.criar(PoliticaCache.TINY_LFU, 1, 0);
+
+        cache.guardar("a", "1");
+        cache.guardar("b", "2");
+
+        assertEquals(1, cache.estatisticas().getTamanho());
+        assertEquals("2", cache.obter("b"));
+        assertNull(cache.obter("a"));
+    }
+}
@@ -0,0 +1,92 @@
+package com.medapp.infra;
+
+import com.medapp.models.Sala;
+import com.medapp.utils.repository.RepositoryException;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CachingRepositoryTest {
+
+    /**
+     * Repositório cuja próxima loadSala lê o valor e então espera ser liberada,
+     * simulando uma consulta lenta que corre junto com uma gravação
+     */
+    private static final class LeituraLenta extends ConcurrentRAMRepository {
+        final CountDownLatch leu = new CountDownLatch(1);
+        final CountDownLatch liberar = new CountDownLatch(1);
+        volatile boolean pausar = true;
+
+        @Override
+        public Sala loadSala(String id) {
+            Sala sala = super.loadSala(id);
+            if (pausar) {
+                pausar = false;
+                leu.countDown();
+                try {
+                    liberar.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return sala;
+        }
+    }
+
+    private static Sala sala(String nome) {
+        return new Sala("S1", nome, 4, "CONSULTORIO");
+    }
+
+    @Test
+    public void leituraLentaNaoRecolocaValorSubstituidoPorSave() throws Exception {
+        LeituraLenta lento = new LeituraLenta();
+        lento.saveSala(sala("Antiga"));
+        CachingRepository cache = new CachingRepository(lento, PoliticaCache.LRU, 100, 0);
+
+        CompletableFuture<Sala> leitura = CompletableFuture.supplyAsync(() -> cache.loadSala("S1"));
+        assertTrue(lento.leu.await(10, TimeUnit.SECONDS));
+        cache.saveSala(sala("Nova"));
+        lento.liberar.countDown();
+        assertEquals("Antiga", leitura.get(10, TimeUnit.SECONDS).getNome());
+
+        assertEquals("Nova", cache.loadSala("S1").getNome());
+    }
+
+    @Test
+    public void leituraLentaNaoRecolocaValorApagado() throws Exception {
+        LeituraLenta lento = new LeituraLenta();
+        lento.saveSala(sala("Antiga"));
+        CachingRepository cache = new CachingRepository(lento, PoliticaCache.LRU, 100, 0);
+
+        CompletableFuture<Sala> leitura = CompletableFuture.supplyAsync(() -> cache.loadSala("S1"));
+        assertTrue(lento.leu.await(10, TimeUnit.SECONDS));
+        cache.deleteSala("S1");
+        lento.liberar.countDown();
+        leitura.get(10, TimeUnit.SECONDS);
+
+        try {
+            cache.loadSala("S1");
+            fail("Sala apagada não deveria continuar no cache");
+        } catch (RepositoryException e) {
+            // esperado
+        }
+    }
+
+    @Test
+    public void leituraSemConcorrenciaFicaEmCache() {
+        ConcurrentRAMRepository repository = new ConcurrentRAMRepository();
+        repository.saveSala(sala("Consultório"));
+        CachingRepository cache = new CachingRepository(repository, PoliticaCache.LRU, 100, 0);
+
+        cache.loadSala("S1");
+        cache.loadSala("S1");
+
+        assertEquals(1, cache.getEstatisticas().get("salas").getAcertos());
+    }
+}
@@ -0,0 +1,171 @@
+package com.medapp.infra;
+
+import com.medapp.models.Administrador;
+import com.medapp.models.Agendamento;
+import com.medapp.models.Paciente;
+import com.medapp.models.ProfissionalSaude;
+import com.medapp.models.Relatorio;
+import com.medapp.models.Sala;
+import com.medapp.models.User;
+import com.medapp.utils.repository.RepositoryIntegrityException;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CodecBinarioTest {
+
+    @Test
+    public void pacienteIdaEVolta() {
+        Paciente paciente = new Paciente("ana", "Senha@123", "ana@medapp.com", "123.456.789-00",
+                LocalDate.of(1990, 5, 17), "(11) 99999-0000", "Rua das Flores, 10 – São Paulo");
+
+        User lido = CodecBinario.decodificarUser(ByteBuffer.wrap(CodecBinario.codificarUser(paciente)));
+
+        assertTrue(lido instanceof Paciente);
+        Paciente copia = (Paciente) lido;
+        assertEquals("ana", copia.getUsername());
+        assertEquals("Senha@123", copia.getPassword());
+        assertEquals("ana@medapp.com", copia.getEmail());
+        assertEquals("123.456.789-00", copia.getCpf());
+        assertEquals(LocalDate.of(1990, 5, 17), copia.getDataNascimento());
+        assertEquals("Rua das Flores, 10 – São Paulo", copia.getEndereco());
+    }
+
+    @Test
+    public void profissionalEAdministradorIdaEVolta() {
+        ProfissionalSaude profissional = new ProfissionalSaude("dr", "Senha@123", "dr@medapp.com", "CRM-1",
+                "Cardiologia", null);
+        Administrador administrador = new Administrador("admin", "Senha@123", "admin@medapp.com", "TOTAL");
+
+        ProfissionalSaude profissionalLido = (ProfissionalSaude) CodecBinario.decodificarUser(
+                ByteBuffer.wrap(CodecBinario.codificarUser(profissional)));
+        Administrador administradorLido = (Administrador) CodecBinario.decodificarUser(
+                ByteBuffer.wrap(CodecBinario.codificarUser(administrador)));
+
+        assertEquals("CRM-1", profissionalLido.getCrm());
+        assertEquals("Cardiologia", profissionalLido.getEspecialidade());
+        assertNull(profissionalLido.getDepartamento());
+        assertEquals("TOTAL", administradorLido.getNivelPermissao());
+    }
+
+    @Test
+    public void salaIdaEVolta() {
+        Sala sala = new Sala("S1", "Consultório 1", 3, "CONSULTORIO");
+        sala.adicionarEquipamento("Maca");
+        sala.adicionarEquipamento("Estetoscópio");
+
+        Sala lida = CodecBinario.decodificarSala(ByteBuffer.wrap(CodecBinario.codificarSala(sala)));
+
+        assertEquals("S1", lida.getId());
+        assertEquals("Consultório 1", lida.getNome());
+        assertEquals(3, lida.getCapacidade());
+        assertEquals(sala.getEquipamentos(), lida.getEquipamentos());
+    }
+
+    @Test
+    public void relatorioIdaEVolta() {
+        Relatorio relatorio = new Relatorio("R1", "Mensal", "Conteúdo\ncom quebra", "GERAL", "admin");
+
+        Relatorio lido = CodecBinario.decodificarRelatorio(ByteBuffer.wrap(CodecBinario.codificarRelatorio(relatorio)));
+
+        assertEquals("R1", lido.getId());
+        assertEquals("Conteúdo\ncom quebra", lido.getConteudo());
+        assertEquals("admin", lido.getAutorUsername());
+        assertEquals(relatorio.getDataGeracao(), lido.getDataGeracao());
+    }
+
+    @Test
+    public void agendamentoIdaEVolta() {
+        Agendamento agendamento = new Agendamento("A1", "ana", "dr", "S1", LocalDateTime.of(2030, 1, 7, 10, 0),
+                "CONSULTA", "Retorno", Duration.ofMinutes(45));
+        agendamento.confirmar();
+
+        Agendamento lido = CodecBinario.decodificarAgendamento(
+                ByteBuffer.wrap(CodecBinario.codificarAgendamento(agendamento)));
+
+        assertEquals("A1", lido.getId());
+        assertEquals("S1", lido.getSalaId());
+        assertEquals(agendamento.getDataHora(), lido.getDataHora());
+        assertEquals("Retorno", lido.getObservacoes());
+        assertEquals(agendamento.getStatus(), lido.getStatus());
+        assertEquals(Duration.ofMinutes(45), lido.getDuracao());
+        assertEquals(agendamento.getDataAtualizacao(), lido.getDataAtualizacao());
+    }
+
+    @Test
+    public void agendamentoSemDuracaoContinuaSemDuracao() {
+        Agendamento agendamento = new Agendamento("A1", "ana", "dr", "S1", LocalDateTime.of(2030, 1, 7, 10, 0),
+                "CONSULTA", "");
+
+        Agendamento lido = CodecBinario.decodificarAgendamento(
+                ByteBuffer.wrap(CodecBinario.codificarAgendamento(agendamento)));
+
+        assertNull(lido.getDuracao());
+    }
+
+    @Test
+    public void duracaoComFracaoDeSegundoIdaEVolta() {
+        Agendamento agendamento = new Agendamento("A1", "ana", "dr", "S1", LocalDateTime.of(2030, 1, 7, 10, 0),
+                "CONSULTA", "", Duration.ofMillis(1500));
+
+        Agendamento lido = CodecBinario.decodificarAgendamento(
+                ByteBuffer.wrap(CodecBinario.codificarAgendamento(agendamento)));
+
+        assertEquals(Duration.ofMillis(1500), lido.getDuracao());
+    }
+
+    @Test
+    public void agendamentoVersao2ContinuaLegivel() {
+        Agendamento agendamento = new Agendamento("A1", "ana", "dr", "S1", LocalDateTime.of(2030, 1, 7, 10, 0),
+                "CONSULTA", "", Duration.ofMinutes(45));
+        byte[] registro = CodecBinario.codificarAgendamento(agendamento);
+        // Versão 2: mesmo layout, com a duração final em segundos
+        registro[2] = 2;
+        ByteBuffer.wrap(registro).putLong(registro.length - Long.BYTES, Duration.ofMinutes(45).getSeconds());
+
+        Agendamento lido = CodecBinario.decodificarAgendamento(ByteBuffer.wrap(registro));
+
+        assertEquals(Duration.ofMinutes(45), lido.getDuracao());
+    }
+
+    @Test
+    public void registroTruncadoFalhaComoErroDeIntegridade() {
+        byte[] completo = CodecBinario.codificarSala(new Sala("S1", "Consultório 1", 3, "CONSULTORIO"));
+
+        for (int tamanho = 1; tamanho < completo.length; tamanho++) {
+            for (ByteBuffer buffer : new ByteBuffer[] {
+                    ByteBuffer.wrap(Arrays.copyOf(completo, tamanho)),
+                    ByteBuffer.allocateDirect(tamanho).put(completo, 0, tamanho).flip()}) {
+                try {
+                    CodecBinario.decodificarSala(buffer);
+                    fail("Registro truncado em " + tamanho + " bytes deveria falhar");
+                } catch (RepositoryIntegrityException e) {
+                    // esperado
+                }
+            }
+        }
+    }
+
+    @Test
+    public void tamanhoDeStringCorrompidoFalhaComoErroDeIntegridade() {
+        byte[] registro = CodecBinario.codificarSala(new Sala("S1", "Consultório 1", 3, "CONSULTORIO"));
+        // Tamanho do id (logo após o cabeçalho de 3 bytes) maior que o próprio registro
+        ByteBuffer.wrap(registro).putInt(3, 1_000_000);
+
+        try {
+            CodecBinario.decodificarSala(ByteBuffer.wrap(registro));
+            fail("Tamanho de string corrompido deveria falhar");
+        } catch (RepositoryIntegrityException e) {
+            // esperado
+        }
+    }
+}
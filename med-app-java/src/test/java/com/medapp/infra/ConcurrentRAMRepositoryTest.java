@@ -0,0 +1,63 @@
+package com.medapp.infra;
+
+import com.medapp.models.Agendamento;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.medapp.infra.AgendamentosTeste.INICIO;
+import static com.medapp.infra.AgendamentosTeste.agendamento;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentRAMRepositoryTest {
+
+    @Test
+    public void apenasUmaThreadGravaOMesmoHorario() throws Exception {
+        ConcurrentRAMRepository repository = new ConcurrentRAMRepository();
+        int threads = 32;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch largada = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> resultados = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                // Mesma sala, profissionais diferentes e horários sobrepostos em alguns minutos
+                Agendamento agendamento = agendamento("A" + t, "S1", "dr" + t, INICIO.plusMinutes(t % 10));
+                resultados.add(executor.submit(() -> {
+                    largada.await();
+                    return repository.saveAgendamentoIfNoConflict(agendamento);
+                }));
+            }
+            largada.countDown();
+
+            int gravados = 0;
+            for (Future<Boolean> resultado : resultados) {
+                if (resultado.get(30, TimeUnit.SECONDS)) {
+                    gravados++;
+                }
+            }
+            assertEquals(1, gravados);
+            assertEquals(1, repository.getAgendamentosBySala("S1").size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void regravarAgendamentoExistenteNaoConflita() {
+        ConcurrentRAMRepository repository = new ConcurrentRAMRepository();
+        Agendamento agendamento = agendamento("A1", "S1", "dr", INICIO);
+
+        assertTrue(repository.saveAgendamentoIfNoConflict(agendamento));
+        assertTrue(repository.saveAgendamentoIfNoConflict(agendamento));
+        assertFalse(repository.saveAgendamentoIfNoConflict(agendamento("A2", "S1", "outro", INICIO)));
+        assertEquals(1, repository.getAllAgendamentos().size());
+    }
+}
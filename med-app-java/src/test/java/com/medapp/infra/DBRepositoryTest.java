@@ -0,0 +1,223 @@
+package com.medapp.infra;
+
+import com.medapp.models.Administrador;
+import com.medapp.models.Agendamento;
+import com.medapp.models.Paciente;
+import com.medapp.models.User;
+import com.medapp.utils.repository.RepositoryIntegrityException;
+import com.medapp.utils.storage.UserAlreadyExistsException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DBRepositoryTest {
+
+    private String url;
+    private DBRepository repository;
+
+    @Before
+    public void setUp() {
+        url = "jdbc:h2:mem:medapp-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        repository = new DBRepository(url, "sa", "", 2, 10);
+    }
+
+    @After
+    public void tearDown() {
+        repository.close();
+    }
+
+    private static User paciente(String username) {
+        return new Paciente(username, "Senha@123", username + "@medapp.com", "000.000.000-00",
+                LocalDate.of(1990, 1, 1), "0000-0000", "Rua A");
+    }
+
+    private static Agendamento agendamento(String id, Duration duracao) {
+        return agendamento(id, "dr", "S1", LocalDateTime.of(2030, 1, 7, 10, 0), duracao);
+    }
+
+    private static Agendamento agendamento(String id, String profissional, String sala, LocalDateTime dataHora,
+                                           Duration duracao) {
+        return new Agendamento(id, "ana", profissional, sala, dataHora, "CONSULTA", "", duracao);
+    }
+
+    private void executar(String sql) throws SQLException {
+        try (Connection conexao = DriverManager.getConnection(url, "sa", "");
+             Statement comando = conexao.createStatement()) {
+            comando.executeUpdate(sql);
+        }
+    }
+
+    @Test
+    public void duracaoComFracaoDeSegundoSobreviveAReabertura() {
+        repository.saveAgendamento(agendamento("A1", Duration.ofMillis(500)));
+        repository.saveAgendamento(agendamento("A2", Duration.ofMillis(90_500)));
+        repository.close();
+
+        repository = new DBRepository(url, "sa", "", 2, 10);
+        assertEquals(Duration.ofMillis(500), repository.loadAgendamento("A1").getDuracao());
+        assertEquals(Duration.ofMillis(90_500), repository.loadAgendamento("A2").getDuracao());
+    }
+
+    @Test
+    public void duracaoEmSegundosDeBancoAntigoEMigrada() throws SQLException {
+        repository.saveAgendamento(agendamento("A1", null));
+        repository.close();
+        // Linha gravada antes de duracao_nanos existir
+        executar("UPDATE agendamentos SET duracao_segundos = 2700, duracao_nanos = NULL WHERE id = 'A1'");
+
+        repository = new DBRepository(url, "sa", "", 2, 10);
+        assertEquals(Duration.ofMinutes(45), repository.loadAgendamento("A1").getDuracao());
+    }
+
+    @Test
+    public void duracaoInvalidaEReportadaComoErroDeDuracao() throws SQLException {
+        repository.saveAgendamento(agendamento("A1", Duration.ofMinutes(30)));
+        executar("UPDATE agendamentos SET duracao_nanos = 0 WHERE id = 'A1'");
+
+        try {
+            repository.loadAgendamento("A1");
+            fail("Duração zerada deveria ser rejeitada");
+        } catch (RepositoryIntegrityException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("agendamento.duracao"));
+        }
+    }
+
+    @Test
+    public void loteComUsuarioExistenteNaoGravaNenhum() {
+        repository.saveUser(new Administrador("admin", "Senha@123", "admin@medapp.com", "TOTAL"));
+
+        try {
+            repository.saveUsers(List.of(paciente("ana"), paciente("admin"), paciente("bia")));
+            fail("Lote com usuário existente deveria falhar");
+        } catch (UserAlreadyExistsException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("'admin'"));
+        }
+
+        assertEquals(1, repository.getAllUsers().size());
+    }
+
+    @Test
+    public void loteComUsuarioRepetidoNaoGravaNenhum() {
+        try {
+            repository.saveUsers(List.of(paciente("ana"), paciente("bia"), paciente("ana")));
+            fail("Lote com usuário repetido deveria falhar");
+        } catch (UserAlreadyExistsException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("'ana'"));
+        }
+
+        assertTrue(repository.getAllUsers().isEmpty());
+        // A conexão devolvida ao pool não carrega resíduos do lote que falhou
+        repository.saveUsers(List.of(paciente("ana"), paciente("bia")));
+        assertEquals(2, repository.getAllUsers().size());
+    }
+
+    @Test
+    public void conflitoDeSalaOuProfissionalNaoGrava() {
+        LocalDateTime dezHoras = LocalDateTime.of(2030, 1, 7, 10, 0);
+        assertTrue(repository.saveAgendamentoIfNoConflict(agendamento("A1", "dr", "S1", dezHoras, null)));
+
+        assertFalse(repository.saveAgendamentoIfNoConflict(
+                agendamento("A2", "dra", "S1", dezHoras.plusMinutes(15), null)));
+        assertFalse(repository.saveAgendamentoIfNoConflict(
+                agendamento("A3", "dr", "S2", dezHoras.minusMinutes(15), null)));
+        // Logo em seguida, e o próprio agendamento regravado, não conflitam
+        assertTrue(repository.saveAgendamentoIfNoConflict(
+                agendamento("A4", "dr", "S1", dezHoras.plusMinutes(30), null)));
+        assertTrue(repository.saveAgendamentoIfNoConflict(agendamento("A1", "dr", "S1", dezHoras, null)));
+        assertEquals(2, repository.getAllAgendamentos().size());
+    }
+
+    @Test
+    public void agendamentoCanceladoNaoOcupaHorario() {
+        LocalDateTime dezHoras = LocalDateTime.of(2030, 1, 7, 10, 0);
+        Agendamento cancelado = agendamento("A1", "dr", "S1", dezHoras, null);
+        cancelado.cancelar();
+        repository.saveAgendamento(cancelado);
+
+        assertTrue(repository.saveAgendamentoIfNoConflict(agendamento("A2", "dr", "S1", dezHoras, null)));
+    }
+
+    @Test
+    public void reservasConcorrentesDoMesmoHorarioGravamSoUma() throws Exception {
+        LocalDateTime dezHoras = LocalDateTime.of(2030, 1, 7, 10, 0);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<Boolean>> resultados = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                Agendamento agendamento = agendamento("A" + i, "dr" + i, "S1", dezHoras.plusMinutes(i), null);
+                resultados.add(executor.submit(() -> {
+                    largada.await();
+                    return repository.saveAgendamentoIfNoConflict(agendamento);
+                }));
+            }
+            largada.countDown();
+            int gravados = 0;
+            for (Future<Boolean> resultado : resultados) {
+                gravados += resultado.get() ? 1 : 0;
+            }
+            assertEquals(1, gravados);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, repository.getAllAgendamentos().size());
+    }
+
+    @Test
+    public void fimDeAgendamentoDeBancoAntigoEPreenchido() throws SQLException {
+        LocalDateTime dezHoras = LocalDateTime.of(2030, 1, 7, 10, 0);
+        repository.saveAgendamento(agendamento("A1", "dr", "S1", dezHoras, null));
+        repository.close();
+        // Linha gravada antes de data_hora_fim existir
+        executar("UPDATE agendamentos SET data_hora_fim = NULL WHERE id = 'A1'");
+
+        repository = new DBRepository(url, "sa", "", 2, 10);
+        assertFalse(repository.saveAgendamentoIfNoConflict(
+                agendamento("A2", "dr", "S2", dezHoras.plusMinutes(20), null)));
+    }
+
+    @Test
+    public void loteComConflitoNaoGravaNenhum() {
+        LocalDateTime dezHoras = LocalDateTime.of(2030, 1, 7, 10, 0);
+        repository.saveAgendamento(agendamento("A1", "dr", "S1", dezHoras, null));
+
+        Optional<IndiceOcupacao.ConflitoLote> conflito = repository.saveAgendamentosIfNoConflict(List.of(
+                agendamento("A2", "dra", "S2", dezHoras, null),
+                agendamento("A3", "dre", "S1", dezHoras.plusMinutes(10), null)));
+        assertEquals(1, conflito.get().getPosicao());
+        assertEquals(IndiceOcupacao.Conflito.SALA, conflito.get().getConflito());
+
+        conflito = repository.saveAgendamentosIfNoConflict(List.of(
+                agendamento("A2", "dra", "S2", dezHoras, null),
+                agendamento("A3", "dra", "S3", dezHoras.plusMinutes(10), null)));
+        assertEquals(IndiceOcupacao.Conflito.PROFISSIONAL, conflito.get().getConflito());
+        assertEquals(1, repository.getAllAgendamentos().size());
+
+        assertFalse(repository.saveAgendamentosIfNoConflict(List.of(
+                agendamento("A2", "dra", "S2", dezHoras, null),
+                agendamento("A3", "dra", "S2", dezHoras.plusMinutes(30), null))).isPresent());
+        assertEquals(3, repository.getAllAgendamentos().size());
+    }
+}
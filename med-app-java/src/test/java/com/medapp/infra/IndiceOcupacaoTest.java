@@ -0,0 +1,162 @@
+package com.medapp.infra;
+
+import com.medapp.models.Agendamento;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.medapp.infra.AgendamentosTeste.INICIO;
+import static com.medapp.infra.AgendamentosTeste.agendamento;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IndiceOcupacaoTest {
+
+    @Test
+    public void reservaSobrepostaConflitaComSalaOuProfissional() {
+        IndiceOcupacao indice = new IndiceOcupacao();
+        assertEquals(IndiceOcupacao.Conflito.NENHUM, indice.reservar(agendamento("1", "S1", "dr", INICIO)));
+
+        assertEquals(IndiceOcupacao.Conflito.SALA,
+                indice.reservar(agendamento("2", "S1", "outro", INICIO.plusMinutes(15))));
+        assertEquals(IndiceOcupacao.Conflito.PROFISSIONAL,
+                indice.reservar(agendamento("3", "S2", "dr", INICIO.plusMinutes(15))));
+        // [início, fim): começar exatamente no fim do anterior não conflita
+        assertEquals(IndiceOcupacao.Conflito.NENHUM,
+                indice.reservar(agendamento("4", "S1", "dr", INICIO.plusMinutes(30))));
+    }
+
+    @Test
+    public void janelaVoltaAEncolherQuandoAtendimentoLongoSai() {
+        IndiceOcupacao indice = new IndiceOcupacao();
+        Agendamento cirurgia = new Agendamento("C", "paciente", "dr", "S1", INICIO, "CIRURGIA", "",
+                Duration.ofHours(8));
+        indice.reservar(cirurgia);
+        indice.reservar(agendamento("1", "S1", "dr", INICIO.plusHours(9)));
+        assertTrue(indice.temConflitoSala("S1", INICIO.plusHours(7), INICIO.plusHours(7).plusMinutes(30)));
+
+        indice.remover(cirurgia);
+
+        assertFalse(indice.temConflitoSala("S1", INICIO.plusHours(7), INICIO.plusHours(7).plusMinutes(30)));
+        assertTrue(indice.temConflitoSala("S1", INICIO.plusHours(9).plusMinutes(10), INICIO.plusHours(10)));
+        assertFalse(indice.temConflitoSala("S1", INICIO.plusHours(9).plusMinutes(30), INICIO.plusHours(10)));
+    }
+
+    @Test
+    public void horariosLivresDeRecursoSemAgendaEstaoTodosLivres() {
+        IndiceOcupacao indice = new IndiceOcupacao();
+
+        assertEquals(List.of(INICIO, INICIO.plusMinutes(30)), indice.horariosLivres("sem-agenda", "ninguem",
+                Duration.ofMinutes(30), INICIO, INICIO.plusHours(1), 5));
+        assertEquals(0, indice.tamanho());
+    }
+
+    @Test
+    public void regravarMesmoAgendamentoNaoConflitaConsigo() {
+        IndiceOcupacao indice = new IndiceOcupacao();
+        Agendamento agendamento = agendamento("1", "S1", "dr", INICIO);
+
+        assertEquals(IndiceOcupacao.Conflito.NENHUM, indice.reservar(agendamento));
+        assertEquals(IndiceOcupacao.Conflito.NENHUM, indice.reservar(agendamento));
+        assertEquals(1, indice.tamanho());
+    }
+
+    @Test
+    public void reagendamentoLiberaHorarioAnterior() {
+        IndiceOcupacao indice = new IndiceOcupacao();
+        indice.reservar(agendamento("1", "S1", "dr", INICIO));
+
+        assertEquals(IndiceOcupacao.Conflito.NENHUM, indice.reservar(agendamento("1", "S2", "dr", INICIO.plusHours(2))));
+
+        assertFalse(indice.temConflitoSala("S1", INICIO, INICIO.plusMinutes(30)));
+        assertTrue(indice.temConflitoSala("S2", INICIO.plusHours(2), INICIO.plusHours(3)));
+        assertEquals(IndiceOcupacao.Conflito.NENHUM, indice.reservar(agendamento("2", "S1", "outro", INICIO)));
+    }
+
+    @Test
+    public void reagendamentoEmConflitoMantemReservaAnterior() {
+        IndiceOcupacao indice = new IndiceOcupacao();
+        indice.reservar(agendamento("1", "S1", "dr", INICIO));
+        indice.reservar(agendamento("2", "S2", "outro", INICIO.plusHours(2)));
+
+        assertEquals(IndiceOcupacao.Conflito.SALA, indice.reservar(agendamento("1", "S2", "dr", INICIO.plusHours(2))));
+
+        assertTrue(indice.temConflitoSala("S1", INICIO, INICIO.plusMinutes(30)));
+    }
+
+    @Test
+    public void agendamentoCanceladoNaoOcupaHorario() {
+        IndiceOcupacao indice = new IndiceOcupacao();
+        Agendamento agendamento = agendamento("1", "S1", "dr", INICIO);
+        indice.reservar(agendamento);
+
+        agendamento.cancelar();
+        assertEquals(IndiceOcupacao.Conflito.NENHUM, indice.reservar(agendamento));
+
+        assertEquals(0, indice.tamanho());
+        assertEquals(IndiceOcupacao.Conflito.NENHUM, indice.reservar(agendamento("2", "S1", "dr", INICIO)));
+    }
+
+    @Test
+    public void loteConflitanteNaoReservaNada() {
+        IndiceOcupacao indice = new IndiceOcupacao();
+        indice.reservar(agendamento("existente", "S9", "dr9", INICIO));
+        List<Agendamento> lote = List.of(
+                agendamento("1", "S1", "dr", INICIO),
+                agendamento("2", "S2", "dr2", INICIO),
+                agendamento("3", "S9", "dr3", INICIO.plusMinutes(10)));
+
+        assertEquals(2, indice.reservarTodos(lote).get().getPosicao());
+
+        assertEquals(1, indice.tamanho());
+        assertFalse(indice.temConflitoSala("S1", INICIO, INICIO.plusMinutes(30)));
+    }
+
+    @Test
+    public void threadsConcorrentesNuncaReservamOMesmoHorario() throws Exception {
+        IndiceOcupacao indice = new IndiceOcupacao();
+        int threads = 16;
+        int horarios = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch largada = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> resultados = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+                // Cada thread usa um profissional próprio e disputa todos os horários da mesma sala
+                Callable<Integer> tarefa = () -> {
+                    largada.await();
+                    int reservados = 0;
+                    for (int h = 0; h < horarios; h++) {
+                        Agendamento agendamento = agendamento("T" + thread + "-" + h, "S1", "dr" + thread,
+                                INICIO.plusMinutes(30L * h));
+                        if (indice.reservar(agendamento) == IndiceOcupacao.Conflito.NENHUM) {
+                            reservados++;
+                        }
+                    }
+                    return reservados;
+                };
+                resultados.add(executor.submit(tarefa));
+            }
+            largada.countDown();
+
+            int total = 0;
+            for (Future<Integer> resultado : resultados) {
+                total += resultado.get(30, TimeUnit.SECONDS);
+            }
+            assertEquals(horarios, total);
+            assertEquals(horarios, indice.tamanho());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.medapp.infra;
+
+import com.medapp.models.Agendamento;
+import com.medapp.models.Sala;
+import com.medapp.utils.repository.RepositoryIntegrityException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JsonLinesRepositoryTest {
+
+    @Rule
+    public TemporaryFolder pasta = new TemporaryFolder();
+
+    private Path gravarSalas(int quantidade) throws IOException {
+        Path arquivo = pasta.getRoot().toPath().resolve("medapp.jsonl");
+        try (JsonLinesRepository repository = new JsonLinesRepository(arquivo.toString())) {
+            for (int i = 1; i <= quantidade; i++) {
+                repository.saveSala(new Sala("S" + i, "Sala " + i, 4, "CONSULTORIO"));
+            }
+        }
+        return arquivo;
+    }
+
+    @Test
+    public void registrosSobrevivemAReabertura() throws IOException {
+        Path arquivo = gravarSalas(3);
+
+        try (JsonLinesRepository repository = new JsonLinesRepository(arquivo.toString())) {
+            assertEquals(3, repository.getAllSalas().size());
+            assertEquals("Sala 2", repository.loadSala("S2").getNome());
+        }
+    }
+
+    @Test
+    public void duracaoComFracaoDeSegundoSobreviveAReabertura() throws IOException {
+        Path arquivo = pasta.getRoot().toPath().resolve("medapp.jsonl");
+        LocalDateTime inicio = LocalDateTime.of(2030, 1, 7, 10, 0);
+        try (JsonLinesRepository repository = new JsonLinesRepository(arquivo.toString())) {
+            repository.saveAgendamento(new Agendamento("A1", "ana", "dr", "S1", inicio, "CONSULTA", "",
+                    Duration.ofMillis(500)));
+            repository.saveAgendamento(new Agendamento("A2", "ana", "dr", "S1", inicio.plusHours(1), "CONSULTA", "",
+                    Duration.ofMillis(90_500)));
+        }
+
+        try (JsonLinesRepository repository = new JsonLinesRepository(arquivo.toString())) {
+            assertEquals(2, repository.getAllAgendamentos().size());
+            assertEquals(Duration.ofMillis(500), repository.loadAgendamento("A1").getDuracao());
+            assertEquals(Duration.ofMillis(90_500), repository.loadAgendamento("A2").getDuracao());
+        }
+    }
+
+    @Test
+    public void ultimaLinhaIncompletaEDescartadaNaRecuperacao() throws IOException {
+        Path arquivo = gravarSalas(3);
+        byte[] completo = Files.readAllBytes(arquivo);
+        // Simula uma queda no meio da gravação do último registro
+        Files.write(arquivo, Arrays.copyOf(completo, completo.length - 10));
+
+        try (JsonLinesRepository repository = new JsonLinesRepository(arquivo.toString())) {
+            assertEquals(2, repository.getAllSalas().size());
+            repository.saveSala(new Sala("S4", "Sala 4", 4, "CONSULTORIO"));
+        }
+
+        // O arquivo recuperado continua legível depois de novas gravações
+        try (JsonLinesRepository repository = new JsonLinesRepository(arquivo.toString())) {
+            assertEquals(3, repository.getAllSalas().size());
+            assertEquals("Sala 4", repository.loadSala("S4").getNome());
+        }
+    }
+
+    @Test
+    public void corrupcaoNoMeioDoArquivoFalhaSemReescreverORegistro() throws IOException {
+        Path arquivo = gravarSalas(3);
+        String conteudo = new String(Files.readAllBytes(arquivo), StandardCharsets.UTF_8);
+        int segundaLinha = conteudo.indexOf('\n') + 1;
+        byte[] corrompido = (conteudo.substring(0, segundaLinha) + "{\"op\":@@@\n" + conteudo.substring(segundaLinha))
+                .getBytes(StandardCharsets.UTF_8);
+        Files.write(arquivo, corrompido);
+
+        try {
+            new JsonLinesRepository(arquivo.toString()).close();
+            fail("Registro corrompido no meio do arquivo deveria falhar");
+        } catch (RepositoryIntegrityException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("json"));
+        }
+
+        assertArrayEquals(corrompido, Files.readAllBytes(arquivo));
+    }
+}
@@ -0,0 +1,83 @@
+package com.medapp.infra;
+
+import com.medapp.models.Agendamento;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Custo das buscas por paciente, profissional e sala do RAMRepository conforme a tabela
+ * de agendamentos cresce, com a mesma quantidade de agendamentos por chave em todos os
+ * tamanhos. Por padrão mede de 10 mil a 100 mil agendamentos; para ir até 10 milhões:
+ *
+ *   mvn test -Dtest=RAMRepositoryEscalaTest -Dmedapp.escala.maximo=10000000 -DargLine=-Xmx12g
+ */
+public class RAMRepositoryEscalaTest {
+
+    private static final int POR_CHAVE = 10;
+    private static final int BUSCAS = 300_000;
+    // Uma varredura completa cresce 10x a cada tamanho; a folga cobre ruído e cache da CPU
+    private static final double CRESCIMENTO_MAXIMO = 4.0;
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(2030, 1, 7, 8, 0);
+
+    private static Agendamento agendamento(int i) {
+        String grupo = Integer.toString(i / POR_CHAVE);
+        return new Agendamento("A" + i, "pac" + grupo, "prof" + grupo, "sala" + grupo,
+                INICIO.plusMinutes(30L * (i % POR_CHAVE)), "CONSULTA", "", Duration.ofMinutes(30));
+    }
+
+    @Test
+    public void custoDaBuscaNaoCresceComATabela() {
+        long maximo = Long.getLong("medapp.escala.maximo", 100_000);
+        RAMRepository repository = new RAMRepository();
+        Random aleatorio = new Random(42);
+        Map<Integer, Double> nanosPorBusca = new LinkedHashMap<>();
+
+        int gravados = 0;
+        for (int tamanho = 10_000; tamanho <= maximo; tamanho *= 10) {
+            for (; gravados < tamanho; gravados++) {
+                repository.saveAgendamento(agendamento(gravados));
+            }
+            int chaves = tamanho / POR_CHAVE;
+            // Primeira rodada só aquece o JIT
+            buscar(repository, chaves, aleatorio);
+            long inicio = System.nanoTime();
+            buscar(repository, chaves, aleatorio);
+            double nanos = (double) (System.nanoTime() - inicio) / BUSCAS;
+            nanosPorBusca.put(tamanho, nanos);
+            System.out.printf("RAMRepository: %,d agendamentos -> %.0f ns por busca%n", tamanho, nanos);
+        }
+
+        double menor = nanosPorBusca.values().stream().mapToDouble(Double::doubleValue).min().orElseThrow();
+        double maior = nanosPorBusca.values().stream().mapToDouble(Double::doubleValue).max().orElseThrow();
+        assertTrue("Custo por busca cresceu com a tabela: " + nanosPorBusca, maior <= menor * CRESCIMENTO_MAXIMO);
+    }
+
+    // Alterna as três buscas sobre chaves sorteadas; cada uma deve achar POR_CHAVE agendamentos
+    private static void buscar(RAMRepository repository, int chaves, Random aleatorio) {
+        long encontrados = 0;
+        for (int i = 0; i < BUSCAS; i++) {
+            String grupo = Integer.toString(aleatorio.nextInt(chaves));
+            switch (i % 3) {
+                case 0:
+                    encontrados += repository.getAgendamentosByPaciente("pac" + grupo).size();
+                    break;
+                case 1:
+                    encontrados += repository.getAgendamentosByProfissional("prof" + grupo).size();
+                    break;
+                default:
+                    encontrados += repository.getAgendamentosBySala("sala" + grupo).size();
+                    break;
+            }
+        }
+        assertEquals((long) BUSCAS * POR_CHAVE, encontrados);
+    }
+}